@@ -0,0 +1,11 @@
+#!/bin/sh
+# Builds the benchmarks and records the codec baseline with the allocation profiler.
+# Usage: benchmarks/run-baseline.sh [extra JMH options]
+# The benchmarks run from the module classpath: the server module does not build its plain jar,
+# so it cannot be shaded into benchmarks.jar from the reactor.
+set -e
+cd "$(dirname "$0")/.."
+mvn -B -q -pl benchmarks -am compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+mkdir -p benchmarks/baseline
+java -cp "benchmarks/target/classes:$(cat benchmarks/target/classpath.txt)" org.openjdk.jmh.Main \
+    "benchmarks.codec.*" -prof gc -rf text -rff benchmarks/baseline/codecs-gc.txt "$@"
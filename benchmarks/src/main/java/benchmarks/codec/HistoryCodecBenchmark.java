@@ -0,0 +1,77 @@
+package benchmarks.codec;
+
+import common.entities.message.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Encoding and decoding of a whole room history the way the {@code MessageHistoryRequestHandler} writes it:
+ * one {@code writeUTF} frame per message. An operation is the whole history, run with {@code -prof gc}
+ * to get the bytes allocated per history.
+ * */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class HistoryCodecBenchmark {
+    @Param({"JAXB_PER_CALL", "JAXB_CACHED"})
+    public MessageCodec codec;
+    @Param({"" + Payloads.HISTORY_SIZE})
+    public int historySize;
+    private List<Message> history;
+    private byte [] frames;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024 * 1024);
+    private final DataOutputStream out = new DataOutputStream(buffer);
+
+    @Setup(Level.Trial)
+    public void setUp() throws JAXBException, IOException {
+        history = Payloads.history(historySize, 42);
+        for (String frame : MessageCodec.JAXB_CACHED.encodeAll(history)) {
+            out.writeUTF(frame);
+        }
+        frames = buffer.toByteArray();
+        buffer.reset();
+    }
+
+    /**
+     * @return          the size of all the frames
+     * */
+    @Benchmark
+    public int encode() throws JAXBException, IOException {
+        buffer.reset();
+        for (String frame : codec.encodeAll(history)) {
+            out.writeUTF(frame);
+        }
+        return buffer.size();
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) throws JAXBException, IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frames));
+        for (int i = 0; i < historySize; i++) {
+            blackhole.consume(codec.decode(in.readUTF()));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package benchmarks.codec;
+
+import common.entities.message.Message;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *  The wire codecs of {@code Message} compared by the benchmarks. A new codec is benchmarked as soon as
+ * it is added here, since the benchmarks take the constant names as their {@code codec} parameter.
+ * */
+public enum MessageCodec {
+    /**
+     *  The current server path: a new {@code JAXBContext} and the formatted output per message
+     *  (see {@code ClientListener.sendMessageToConnectedClient}), a new {@code JAXBContext} and the plain output
+     *  per history request (see {@code MessageHistoryRequestHandler})
+     * */
+    JAXB_PER_CALL {
+        @Override
+        public String encode(Message message) throws JAXBException {
+            Marshaller marshaller = JAXBContext.newInstance(Message.class).createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            return marshal(marshaller, message);
+        }
+
+        @Override
+        public List<String> encodeAll(List<Message> messages) throws JAXBException {
+            Marshaller marshaller = JAXBContext.newInstance(Message.class).createMarshaller();
+            List<String> frames = new ArrayList<>(messages.size());
+            for (Message message : messages) {
+                frames.add(marshal(marshaller, message));
+            }
+            return frames;
+        }
+
+        @Override
+        public Message decode(String xml) throws JAXBException {
+            return (Message) JAXBContext.newInstance(Message.class).createUnmarshaller()
+                    .unmarshal(new StringReader(xml));
+        }
+    },
+    /**
+     *  The plain XML built by a single shared {@code JAXBContext} and per thread marshallers,
+     *  the readers do not depend on the formatting
+     * */
+    JAXB_CACHED {
+        @Override
+        public String encode(Message message) throws JAXBException {
+            return marshal(Cached.MARSHALLERS.get(), message);
+        }
+
+        @Override
+        public Message decode(String xml) throws JAXBException {
+            return (Message) Cached.UNMARSHALLERS.get().unmarshal(new StringReader(xml));
+        }
+    };
+
+    /**
+     * @return          the XML of the message as it is passed to {@code DataOutputStream.writeUTF}
+     * */
+    public abstract String encode(Message message) throws JAXBException;
+
+    public abstract Message decode(String xml) throws JAXBException;
+
+    /**
+     *  Encodes a batch of the messages the way a history response is written, one frame per message
+     * */
+    public List<String> encodeAll(List<Message> messages) throws JAXBException {
+        List<String> frames = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            frames.add(encode(message));
+        }
+        return frames;
+    }
+
+    private static String marshal(Marshaller marshaller, Message message) throws JAXBException {
+        StringWriter stringWriter = new StringWriter();
+        marshaller.marshal(message, stringWriter);
+        return stringWriter.toString();
+    }
+
+    private static final class Cached {
+        private static final JAXBContext CONTEXT;
+        private static final ThreadLocal<Marshaller> MARSHALLERS;
+        private static final ThreadLocal<Unmarshaller> UNMARSHALLERS;
+
+        static {
+            try {
+                CONTEXT = JAXBContext.newInstance(Message.class);
+            } catch (JAXBException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+            MARSHALLERS = ThreadLocal.withInitial(() -> {
+                try {
+                    return CONTEXT.createMarshaller();
+                } catch (JAXBException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            UNMARSHALLERS = ThreadLocal.withInitial(() -> {
+                try {
+                    return CONTEXT.createUnmarshaller();
+                } catch (JAXBException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package benchmarks.codec;
+
+import common.entities.message.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Encoding and decoding of a single message including the {@code writeUTF} / {@code readUTF} framing
+ * the server and the client use. Run with {@code -prof gc} to get the bytes allocated per operation
+ * ({@code gc.alloc.rate.norm}).
+ * */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MessageCodecBenchmark {
+    @Param({"JAXB_PER_CALL", "JAXB_CACHED"})
+    public MessageCodec codec;
+    @Param({"SMALL", "LARGE"})
+    public Payloads.Size size;
+    private Message message;
+    private byte [] frame;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+    private final DataOutputStream out = new DataOutputStream(buffer);
+
+    @Setup(Level.Trial)
+    public void setUp() throws JAXBException, IOException {
+        message = Payloads.message(size, 42);
+        out.writeUTF(MessageCodec.JAXB_CACHED.encode(message));
+        frame = buffer.toByteArray();
+        buffer.reset();
+    }
+
+    /**
+     * @return          the size of the frame
+     * */
+    @Benchmark
+    public int encode() throws JAXBException, IOException {
+        buffer.reset();
+        out.writeUTF(codec.encode(message));
+        return buffer.size();
+    }
+
+    @Benchmark
+    public Message decode() throws JAXBException, IOException {
+        return codec.decode(new DataInputStream(new ByteArrayInputStream(frame)).readUTF());
+    }
+}
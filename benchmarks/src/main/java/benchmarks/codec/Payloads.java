@@ -0,0 +1,68 @@
+package benchmarks.codec;
+
+import common.entities.message.Message;
+import common.entities.message.MessageStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ *  The messages the codecs are benchmarked on. They are generated from a fixed seed,
+ * so every run encodes exactly the same content.
+ * */
+public final class Payloads {
+    /**
+     *  The default amount of the messages kept in a room history (see {@code ServerProcessing})
+     * */
+    public static final int HISTORY_SIZE = 100;
+    private static final int SMALL_TEXT_LENGTH = 40;
+    private static final int LARGE_TEXT_LENGTH = 8 * 1024;
+    /**
+     *  Latin and Cyrillic letters, so the texts contain both one and two byte characters of the modified UTF-8
+     * */
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz ABCDEFGHIJKLMNOPQRSTUVWXYZ 0123456789 .,!?"
+            .concat("\u0430\u0431\u0432\u0433\u0434\u0435\u0436\u0437\u0438\u0439\u043a\u043b\u043c\u043d")
+            .concat("\u043e\u043f\u0440\u0441\u0442\u0443\u0444\u0445\u0446\u0447\u0448\u0449\u044d\u044f");
+
+    private Payloads() {
+    }
+
+    public enum Size {
+        /**
+         *  A typical chat line
+         * */
+        SMALL,
+        /**
+         *  A long text e.g. a pasted log or code fragment
+         * */
+        LARGE
+    }
+
+    public static Message message(Size size, long seed) {
+        Random random = new Random(seed);
+        return chatMessage(random, size == Size.SMALL ? SMALL_TEXT_LENGTH : LARGE_TEXT_LENGTH);
+    }
+
+    /**
+     * @return          the messages of a full room history, the texts are mostly short with a few long ones
+     * */
+    public static List<Message> history(int size, long seed) {
+        Random random = new Random(seed);
+        List<Message> history = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int length = random.nextInt(20) == 0 ? 1024 + random.nextInt(4096) : 10 + random.nextInt(120);
+            history.add(chatMessage(random, length));
+        }
+        return history;
+    }
+
+    private static Message chatMessage(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return new Message(MessageStatus.MESSAGE).setFromId(1 + random.nextInt(10000))
+                .setRoomId(random.nextInt(1000)).setText(text.toString());
+    }
+}
@@ -0,0 +1,123 @@
+package benchmarks.fanout;
+
+import benchmarks.codec.Payloads;
+import benchmarks.fixture.ServerFixture;
+import common.entities.message.Message;
+import common.entities.message.MessageStatus;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import server.metrics.Histogram;
+import server.room.Room;
+
+import javax.xml.bind.JAXBException;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  The room broadcast: a message added to the room history is delivered by the room {@code MessageListener}
+ * (see {@code RoomProcessing.registerRoom}) to every online member while the {@code onlineClients} monitor
+ * is held. All the members are online, {@code slowPercent} of every hundred of them are slow consumers.
+ *
+ *  The score is the messages broadcast per second, the {@code deliveries} secondary score is the frames
+ * delivered per second. The latency of every delivery (since the message has been added) is collected
+ * during the measurement iterations and printed when the trial finishes, its tail is the time the last
+ * members of the room wait for the message.
+ * */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FanoutBenchmark {
+    private static final int ROOM_ID = 1;
+    @Param({"10", "1000", "50000"})
+    public int members;
+    @Param({"0", "1", "10"})
+    public int slowPercent;
+    @Param({"200"})
+    public long slowDelayMicros;
+    private ServerFixture fixture;
+    private Room room;
+    private String text;
+    private Histogram deliveryLatency;
+    private boolean measuring;
+    private long publishedAt;
+    private long delivered;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, JAXBException {
+        fixture = ServerFixture.create(new Properties());
+        int [] memberIds = new int[members];
+        for (int i = 0; i < members; i++) {
+            memberIds[i] = i + 1;
+        }
+        room = fixture.createRoom(ROOM_ID, memberIds);
+        long slowDelayNanos = TimeUnit.MICROSECONDS.toNanos(slowDelayMicros);
+        for (int i = 0; i < members; i++) {
+            boolean slow = i % 100 < slowPercent;
+            fixture.connect(memberIds[i], new SyntheticConsumer(this, slow ? slowDelayNanos : 0), ROOM_ID);
+        }
+        text = Payloads.message(Payloads.Size.SMALL, 42).getText();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration(IterationParams params) {
+        if (params.getType() == IterationType.WARMUP || !measuring) {
+            deliveryLatency = new Histogram("delivery_latency", "The latency of a delivery", null, null, 1e-6);
+        }
+        measuring = params.getType() == IterationType.MEASUREMENT;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println(String.format("%n%d members, %d%% slow: %d deliveries, latency ms p50 %.3f, p99 %.3f"
+                        + ", p99.9 %.3f, max %.3f", members, slowPercent, deliveryLatency.getCount()
+                , deliveryLatency.getPercentile(0.5), deliveryLatency.getPercentile(0.99)
+                , deliveryLatency.getPercentile(0.999), deliveryLatency.getMax()));
+        fixture.close();
+    }
+
+    /**
+     *  Is called by the consumers on the benchmark thread, since the fanout is synchronous
+     * */
+    void delivered(long now) {
+        delivered++;
+        deliveryLatency.record(now - publishedAt);
+    }
+
+    @Benchmark
+    public void fanout(Deliveries deliveries) {
+        long before = delivered;
+        publishedAt = System.nanoTime();
+        room.getMessageHistory().addMessage(new Message(MessageStatus.MESSAGE).setFromId(1).setRoomId(ROOM_ID)
+                .setText(text), true);
+        deliveries.deliveries += delivered - before;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Deliveries {
+        public long deliveries;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            deliveries = 0;
+        }
+    }
+}
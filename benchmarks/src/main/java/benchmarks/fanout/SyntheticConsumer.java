@@ -0,0 +1,43 @@
+package benchmarks.fanout;
+
+import java.io.OutputStream;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *  The socket output of a simulated client. The bytes are discarded, a flush completes the frame i.e. the message
+ * is considered delivered. A slow consumer holds every flush for the {@code delayNanos} the way a full socket
+ * buffer of a client which does not read holds the writing thread.
+ * */
+final class SyntheticConsumer extends OutputStream {
+    private final FanoutBenchmark benchmark;
+    private final long delayNanos;
+
+    /**
+     * @param           benchmark the benchmark the deliveries are reported to
+     * @param           delayNanos the time every flush takes or {@code 0} for a fast consumer
+     * */
+    SyntheticConsumer(FanoutBenchmark benchmark, long delayNanos) {
+        this.benchmark = benchmark;
+        this.delayNanos = delayNanos;
+    }
+
+    @Override
+    public void write(int b) {
+    }
+
+    @Override
+    public void write(byte [] bytes, int offset, int length) {
+    }
+
+    @Override
+    public void flush() {
+        if (delayNanos > 0) {
+            long deadline = System.nanoTime() + delayNanos;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+        benchmark.delivered(System.nanoTime());
+    }
+}
@@ -0,0 +1,181 @@
+package benchmarks.fixture;
+
+import org.jetbrains.annotations.NotNull;
+import server.Server;
+import server.client.Client;
+import server.client.ClientListener;
+import server.processing.RoomProcessing;
+import server.room.Room;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ *  The {@code ServerFixture} builds a {@code Server} in a (temporary) root folder without starting it, i.e. without
+ * the listening socket and the background threads. The sessions are {@code ClientListener}s over in-memory
+ * sockets, so the server code paths are run as is while the network is replaced by the benchmark sinks.
+ * */
+public final class ServerFixture implements Closeable {
+    private static final String [] LOG_FILES = {"observerLogFile", "serverLogFile", "clientListenerLogFile"
+            , "roomLogFile", "roomProcessingLogFile", "serverProcessingLogFile", "clientLogFile"
+            , "propertiesProcessingLogFile", "clientProcessingLogFile", "restarterLogFile", "requestHandlerLogFile"};
+    private final File rootDir;
+    private final Server server;
+    private final boolean deleteOnClose;
+
+    private ServerFixture(File rootDir, Server server, boolean deleteOnClose) {
+        this.rootDir = rootDir;
+        this.server = server;
+        this.deleteOnClose = deleteOnClose;
+    }
+
+    /**
+     *  Creates a server in a new temporary folder which is deleted on {@code close}
+     *
+     * @param           overrides the server configurations that replace the fixture ones
+     * */
+    public static ServerFixture create(@NotNull Properties overrides) throws IOException, JAXBException {
+        return create(Files.createTempDirectory("messenger-bench").toFile(), overrides, true);
+    }
+
+    /**
+     *  Creates a server in the {@code rootDir} keeping the rooms and the clients it already contains
+     *
+     * @param           rootDir the server root folder, it is created if it does not exist
+     * @param           overrides the server configurations that replace the fixture ones
+     * @param           deleteOnClose whether the {@code rootDir} is deleted on {@code close}
+     * */
+    public static ServerFixture create(@NotNull File rootDir, @NotNull Properties overrides, boolean deleteOnClose)
+            throws IOException, JAXBException {
+        File roomsDir = new File(rootDir, "rooms");
+        File clientsDir = new File(rootDir, "clients");
+        File logsDir = new File(rootDir, "logs");
+        File commonChatDir = new File(roomsDir, "0");
+        for (File dir : new File[] {clientsDir, logsDir, commonChatDir}) {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Unable to create the server folder ".concat(dir.getAbsolutePath()));
+            }
+        }
+        File commonChatFile = new File(commonChatDir, "0.xml");
+        if (!commonChatFile.isFile()) {
+            Room commonChat = new Room();
+            commonChat.setRoomId(0);
+            Marshaller marshaller = JAXBContext.newInstance(Room.class).createMarshaller();
+            marshaller.marshal(commonChat, commonChatFile);
+        }
+        File serverConfig = new File(rootDir, "serverConfig.xml");
+        Properties config = new Properties();
+        config.setProperty("port", "0");
+        config.setProperty("roomsDir", roomsDir.getAbsolutePath());
+        config.setProperty("clientsDir", clientsDir.getAbsolutePath());
+        config.setProperty("logsDir", logsDir.getAbsolutePath());
+        config.setProperty("serverConfig", serverConfig.getAbsolutePath());
+        for (String logFile : LOG_FILES) {
+            config.setProperty(logFile, logFile.replace("LogFile", ".log"));
+        }
+        config.putAll(overrides);
+        try (FileOutputStream fileOutputStream = new FileOutputStream(serverConfig)) {
+            config.storeToXML(fileOutputStream, null);
+        }
+        return new ServerFixture(rootDir, new Server(serverConfig), deleteOnClose);
+    }
+
+    public Server getServer() {
+        return server;
+    }
+
+    public File getRootDir() {
+        return rootDir;
+    }
+
+    /**
+     *  Puts a loaded room on the server. It must be called before its members come online,
+     * otherwise every added member is announced to all the online clients.
+     *
+     * @param           roomId an id of the new room
+     * @param           members ids of the room members
+     *
+     * @return          the registered room
+     * */
+    public Room createRoom(int roomId, int... members) {
+        Room room = new Room();
+        room.setServer(server);
+        room.setRoomId(roomId);
+        room.setAdminId(members.length == 0 ? 0 : members[0]);
+        for (int clientId : members) {
+            room.getMembers().safe().add(clientId);
+        }
+        RoomProcessing.registerRoom(server, room);
+        return room;
+    }
+
+    /**
+     *  Logs a client in over an in-memory socket
+     *
+     * @param           clientId an id of the client
+     * @param           sink the stream the frames sent to the client are written to
+     * @param           roomIds the rooms the client is a member of
+     *
+     * @return          the session of the client
+     * */
+    public ClientListener connect(int clientId, @NotNull OutputStream sink, int... roomIds) throws IOException {
+        Client client = new Client();
+        client.setClientId(clientId);
+        client.setLogin(String.valueOf(clientId));
+        client.setServer(server);
+        for (int roomId : roomIds) {
+            client.getRooms().safe().add(roomId);
+        }
+        ClientListener clientListener = new ClientListener(server, new MemorySocket(sink));
+        clientListener.setClient(client);
+        server.addOnlineClient(clientListener);
+        return clientListener;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.getTimerWheel().interrupt();
+        server.getObserver().interrupt();
+        if (!deleteOnClose) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(rootDir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     *  An unconnected socket whose output is the benchmark sink and whose input is always at its end
+     * */
+    private static final class MemorySocket extends Socket {
+        private final OutputStream sink;
+
+        private MemorySocket(OutputStream sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return sink;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+    }
+}
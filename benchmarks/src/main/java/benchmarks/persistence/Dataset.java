@@ -0,0 +1,115 @@
+package benchmarks.persistence;
+
+import benchmarks.codec.Payloads;
+import common.entities.message.Message;
+
+import java.util.List;
+
+/**
+ *  The {@code Dataset} is the stored data every storage backend is seeded with: the {@code clients} users,
+ * the {@code rooms} rooms (ids {@code 1..rooms}) and the common chat (id {@code 0}) every user is a member of.
+ * Every user is a member of {@code roomsPerClient} rooms besides the common chat, every room keeps
+ * {@code historySize} messages and the common chat keeps the full default history.
+ *
+ *  Everything is derived from the numbers, so the same dataset is the same on every run and every backend.
+ * */
+public final class Dataset {
+    private static final String LOGIN_PREFIX = "user";
+    private static final String PASSWORD = "password";
+    private final int clients;
+    private final int rooms;
+    private final int roomsPerClient;
+    private final int historySize;
+    private final int [] clientIds;
+    private final int [][] roomMembers;
+
+    public Dataset(int clients, int rooms, int roomsPerClient, int historySize) {
+        if (clients <= 0 || rooms <= 0 || roomsPerClient < 0 || roomsPerClient > rooms || historySize < 0) {
+            throw new IllegalArgumentException(String.format("Invalid dataset %d clients, %d rooms, %d rooms per"
+                    + " client, %d messages per room", clients, rooms, roomsPerClient, historySize));
+        }
+        this.clients = clients;
+        this.rooms = rooms;
+        this.roomsPerClient = roomsPerClient;
+        this.historySize = historySize;
+        clientIds = new int[clients];
+        int [] roomSizes = new int[rooms + 1];
+        for (int client = 0; client < clients; client++) {
+            clientIds[client] = getLogin(client).hashCode();
+            for (int roomId : getRooms(client)) {
+                roomSizes[roomId]++;
+            }
+        }
+        roomMembers = new int[rooms + 1][];
+        for (int roomId = 0; roomId <= rooms; roomId++) {
+            roomMembers[roomId] = new int[roomSizes[roomId]];
+            roomSizes[roomId] = 0;
+        }
+        for (int client = 0; client < clients; client++) {
+            for (int roomId : getRooms(client)) {
+                roomMembers[roomId][roomSizes[roomId]++] = clientIds[client];
+            }
+        }
+    }
+
+    public int getClients() {
+        return clients;
+    }
+
+    public int getRoomCount() {
+        return rooms;
+    }
+
+    public String getLogin(int client) {
+        return LOGIN_PREFIX.concat(String.valueOf(client));
+    }
+
+    public String getPassword() {
+        return PASSWORD;
+    }
+
+    /**
+     * @return          the id of the {@code client}-th user, it is the hash code of the login as on the server
+     * */
+    public int getClientId(int client) {
+        return clientIds[client];
+    }
+
+    /**
+     * @return          the ids of the rooms the {@code client}-th user is a member of including the common chat
+     * */
+    public int [] getRooms(int client) {
+        int [] roomIds = new int[roomsPerClient + 1];
+        int spacing = roomsPerClient == 0 ? 0 : rooms / roomsPerClient;
+        for (int i = 0; i < roomsPerClient; i++) {
+            roomIds[i] = 1 + (int) (((long) client * 31 + (long) i * spacing) % rooms);
+        }
+        roomIds[roomsPerClient] = 0;
+        return roomIds;
+    }
+
+    /**
+     * @return          the ids of the members of the room, every user is a member of the room {@code 0}
+     * */
+    public int [] getMembers(int roomId) {
+        return roomMembers[roomId];
+    }
+
+    public int getAdminId(int roomId) {
+        int [] members = roomMembers[roomId];
+        return members.length == 0 ? clientIds[0] : members[0];
+    }
+
+    public List<Message> getHistory(int roomId) {
+        return Payloads.history(roomId == 0 ? Payloads.HISTORY_SIZE : historySize, roomId);
+    }
+
+    /**
+     * @return          the description a seeded storage is marked with to be reused by the next runs
+     * */
+    @Override
+    public String toString() {
+        return String.format("clients=%d rooms=%d roomsPerClient=%d historySize=%d", clients, rooms, roomsPerClient
+                , historySize);
+    }
+}
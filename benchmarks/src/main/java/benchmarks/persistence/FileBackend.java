@@ -0,0 +1,188 @@
+package benchmarks.persistence;
+
+import benchmarks.fixture.ServerFixture;
+import common.entities.message.Message;
+import org.jetbrains.annotations.NotNull;
+import server.Server;
+import server.client.Client;
+import server.processing.ClientProcessing;
+import server.processing.RoomProcessing;
+import server.room.Room;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ *  The storage the server uses: an XML file per room and per client in the {@code roomsDir}
+ * and the {@code clientsDir}. The operations are the server methods themselves, run by an unstarted server
+ * whose {@code Observer} unloads every loaded room at once ({@code roomEvictionTimeout} is {@code 0}),
+ * so the loaded rooms do not pile up in memory.
+ * */
+public class FileBackend implements StorageBackend {
+    private static final String DATASET_FILE = "dataset.txt";
+    private ServerFixture fixture;
+    private Server server;
+    private File dataDir;
+
+    @Override
+    public void open(@NotNull File dataDir) throws IOException {
+        this.dataDir = dataDir;
+        Properties overrides = new Properties();
+        overrides.setProperty("roomEvictionTimeout", "0");
+        try {
+            fixture = ServerFixture.create(dataDir, overrides, false);
+        } catch (JAXBException e) {
+            throw new IOException(e);
+        }
+        server = fixture.getServer();
+        server.getObserver().setDaemon(true);
+        server.getObserver().start();
+    }
+
+    @Override
+    public boolean isSeeded(@NotNull Dataset dataset) throws IOException {
+        File datasetFile = new File(dataDir, DATASET_FILE);
+        return datasetFile.isFile()
+                && new String(Files.readAllBytes(datasetFile.toPath()), StandardCharsets.UTF_8)
+                .equals(dataset.toString());
+    }
+
+    /**
+     *  Writes the files the way {@code Room.save} and {@code Client.save} do, but with the shared JAXB context
+     * and in parallel, since saving 100k clients one by one takes too long
+     * */
+    @Override
+    public void seed(@NotNull Dataset dataset) throws IOException {
+        File datasetFile = new File(dataDir, DATASET_FILE);
+        Files.deleteIfExists(datasetFile.toPath());
+        File roomsDir = new File(server.getConfig().getProperty("roomsDir"));
+        File clientsDir = new File(server.getConfig().getProperty("clientsDir"));
+        clear(roomsDir);
+        clear(clientsDir);
+        ThreadLocal<Marshaller> roomMarshallers = marshallers(Room.class);
+        ThreadLocal<Marshaller> clientMarshallers = marshallers(Client.class);
+        try {
+            IntStream.rangeClosed(0, dataset.getRoomCount()).parallel().forEach(roomId -> {
+                Room room = new Room();
+                room.setServer(server);
+                room.setRoomId(roomId);
+                room.setAdminId(dataset.getAdminId(roomId));
+                for (int clientId : dataset.getMembers(roomId)) {
+                    room.getMembers().safe().add(clientId);
+                }
+                for (Message message : dataset.getHistory(roomId)) {
+                    room.getMessageHistory().addMessage(message.setRoomId(roomId), false);
+                }
+                write(roomMarshallers.get(), room, new File(roomsDir, String.valueOf(roomId)));
+            });
+            IntStream.range(0, dataset.getClients()).parallel().forEach(client -> {
+                Client entity = new Client();
+                entity.setClientId(dataset.getClientId(client));
+                entity.setLogin(dataset.getLogin(client));
+                entity.setPassword(dataset.getPassword());
+                for (int roomId : dataset.getRooms(client)) {
+                    entity.getRooms().safe().add(roomId);
+                }
+                write(clientMarshallers.get(), entity, new File(clientsDir
+                        , String.valueOf(dataset.getClientId(client))));
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.write(datasetFile.toPath(), dataset.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ThreadLocal<Marshaller> marshallers(Class<?> type) throws IOException {
+        JAXBContext jaxbContext;
+        try {
+            jaxbContext = JAXBContext.newInstance(type);
+        } catch (JAXBException e) {
+            throw new IOException(e);
+        }
+        return ThreadLocal.withInitial(() -> {
+            try {
+                Marshaller marshaller = jaxbContext.createMarshaller();
+                marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+                return marshaller;
+            } catch (JAXBException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     *  Writes the {@code entity} to the {@code <dir>/<dir name>.xml} file
+     * */
+    private static void write(Marshaller marshaller, Object entity, File dir) {
+        if (!dir.isDirectory() && !dir.mkdir()) {
+            throw new UncheckedIOException(new IOException("Unable to create ".concat(dir.getAbsolutePath())));
+        }
+        try {
+            marshaller.marshal(entity, new File(dir, dir.getName().concat(".xml")));
+        } catch (JAXBException e) {
+            throw new UncheckedIOException(new IOException(e));
+        }
+    }
+
+    private static void clear(File dir) throws IOException {
+        if (!dir.isDirectory()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).filter(path -> !path.equals(dir.toPath()))
+                    .map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Override
+    public Room loadRoom(int roomId) {
+        return RoomProcessing.loadRoom(server, roomId);
+    }
+
+    @Override
+    public Client loadClient(int clientId) {
+        Client client = ClientProcessing.loadClient(server.getConfig(), clientId);
+        client.setServer(server);
+        return client;
+    }
+
+    @Override
+    public boolean saveRoom(@NotNull Room room) {
+        room.markDirty();
+        return room.save();
+    }
+
+    @Override
+    public boolean saveClient(@NotNull Client client) {
+        client.markDirty();
+        return client.save();
+    }
+
+    @Override
+    public boolean roomExists(int roomId) {
+        return RoomProcessing.hasRoomBeenCreated(server.getConfig(), roomId) != 0L;
+    }
+
+    @Override
+    public boolean isMember(int clientId, int roomId) {
+        return RoomProcessing.isMember(server.getConfig(), clientId, roomId);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (fixture != null) {
+            fixture.close();
+        }
+    }
+}
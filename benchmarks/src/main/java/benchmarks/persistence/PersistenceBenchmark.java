@@ -0,0 +1,160 @@
+package benchmarks.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import server.client.Client;
+import server.room.Room;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ *  The save and load paths of the rooms and the clients measured on a seeded {@code Dataset}
+ * (by default 100k clients, 10k rooms and the common chat with every user in it).
+ *
+ *  The {@code backend} parameter is either {@code files} (the server storage, see {@code FileBackend})
+ * or the class name of a {@code StorageBackend} implementation. Seeding the default dataset takes minutes,
+ * so if the {@code dataDir} parameter is set the seeded data is kept there and reused by the next trials
+ * and runs with the same dataset; otherwise every trial seeds a temporary folder.
+ * */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+    private static final String FILE_BACKEND = "files";
+    @Param({FILE_BACKEND})
+    public String backend;
+    @Param({""})
+    public String dataDir;
+    @Param({"100000"})
+    public int clients;
+    @Param({"10000"})
+    public int rooms;
+    @Param({"3"})
+    public int roomsPerClient;
+    @Param({"20"})
+    public int historySize;
+    private Dataset dataset;
+    private StorageBackend storage;
+    private File storageDir;
+    private Room room;
+    private Room commonChat;
+    private Client client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ReflectiveOperationException {
+        dataset = new Dataset(clients, rooms, roomsPerClient, historySize);
+        storageDir = dataDir.isEmpty() ? Files.createTempDirectory("messenger-storage").toFile() : new File(dataDir);
+        storage = FILE_BACKEND.equals(backend) ? new FileBackend()
+                : (StorageBackend) Class.forName(backend).getConstructor().newInstance();
+        storage.open(storageDir);
+        if (!storage.isSeeded(dataset)) {
+            long start = System.nanoTime();
+            storage.seed(dataset);
+            System.out.println(String.format("%nSeeded %s in %d s", dataset
+                    , TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)));
+        }
+        room = storage.loadRoom(1);
+        commonChat = storage.loadRoom(0);
+        client = storage.loadClient(dataset.getClientId(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        storage.close();
+        if (dataDir.isEmpty()) {
+            try (Stream<Path> paths = Files.walk(storageDir.toPath())) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    /**
+     *  The random choice of the accessed entities, every thread repeats the same sequence
+     * */
+    @State(Scope.Thread)
+    public static class Picks {
+        private final Random random = new Random(42);
+        private Dataset dataset;
+
+        @Setup(Level.Trial)
+        public void setUp(PersistenceBenchmark benchmark) {
+            dataset = benchmark.dataset;
+        }
+
+        int roomId() {
+            return 1 + random.nextInt(dataset.getRoomCount());
+        }
+
+        int client() {
+            return random.nextInt(dataset.getClients());
+        }
+    }
+
+    @Benchmark
+    public Room loadRoom(Picks picks) throws IOException {
+        return storage.loadRoom(picks.roomId());
+    }
+
+    @Benchmark
+    public Room loadCommonChat() throws IOException {
+        return storage.loadRoom(0);
+    }
+
+    @Benchmark
+    public Client loadClient(Picks picks) throws IOException {
+        return storage.loadClient(dataset.getClientId(picks.client()));
+    }
+
+    @Benchmark
+    public boolean saveRoom() throws IOException {
+        return storage.saveRoom(room);
+    }
+
+    @Benchmark
+    public boolean saveCommonChat() throws IOException {
+        return storage.saveRoom(commonChat);
+    }
+
+    @Benchmark
+    public boolean saveClient() throws IOException {
+        return storage.saveClient(client);
+    }
+
+    @Benchmark
+    public boolean roomExists(Picks picks) throws IOException {
+        return storage.roomExists(picks.roomId());
+    }
+
+    /**
+     *  Half of the checks are about the rooms the client is a member of
+     * */
+    @Benchmark
+    public boolean isMember(Picks picks) throws IOException {
+        int client = picks.client();
+        int [] clientRooms = dataset.getRooms(client);
+        int roomId = picks.random.nextBoolean() ? clientRooms[picks.random.nextInt(clientRooms.length)]
+                : picks.roomId();
+        return storage.isMember(dataset.getClientId(client), roomId);
+    }
+}
@@ -0,0 +1,72 @@
+package benchmarks.persistence;
+
+import org.jetbrains.annotations.NotNull;
+import server.client.Client;
+import server.room.Room;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ *  The {@code StorageBackend} is the persistence a {@code PersistenceBenchmark} is run against. The benchmark
+ * seeds it with a {@code Dataset} and then calls the operations the server performs, so any alternative storage
+ * is compared on exactly the same workload by implementing this interface and passing the class name
+ * as the {@code backend} parameter e.g. {@code -p backend=com.example.SqliteBackend}.
+ *
+ *  An implementation must have a public no-argument constructor. The operations are called concurrently
+ * when the benchmark is run with several threads.
+ * */
+public interface StorageBackend extends Closeable {
+    /**
+     *  Opens the storage kept in the {@code dataDir}
+     *
+     * @param           dataDir the folder the backend keeps its data in, it may contain a previously seeded dataset
+     * */
+    void open(@NotNull File dataDir) throws IOException;
+
+    /**
+     * @return          {@code true} if the storage already contains the {@code dataset} (e.g. it has been seeded
+     *                  by the previous run) and seeding can be skipped
+     * */
+    boolean isSeeded(@NotNull Dataset dataset) throws IOException;
+
+    /**
+     *  Replaces the content of the storage with the {@code dataset}
+     * */
+    void seed(@NotNull Dataset dataset) throws IOException;
+
+    /**
+     * @return          the room read from the storage, see {@code RoomProcessing.loadRoom}
+     * */
+    Room loadRoom(int roomId) throws IOException;
+
+    /**
+     * @return          the client read from the storage, see {@code ClientProcessing.loadClient}
+     * */
+    Client loadClient(int clientId) throws IOException;
+
+    /**
+     *  Writes the room durably, see {@code Room.save}
+     *
+     * @param           room a room returned by {@code loadRoom}
+     * */
+    boolean saveRoom(@NotNull Room room) throws IOException;
+
+    /**
+     *  Writes the client durably, see {@code Client.save}
+     *
+     * @param           client a client returned by {@code loadClient}
+     * */
+    boolean saveClient(@NotNull Client client) throws IOException;
+
+    /**
+     * @return          {@code true} if the room is stored, see {@code RoomProcessing.hasRoomBeenCreated}
+     * */
+    boolean roomExists(int roomId) throws IOException;
+
+    /**
+     * @return          {@code true} if the client is a stored member of the room, see {@code RoomProcessing.isMember}
+     * */
+    boolean isMember(int clientId, int roomId) throws IOException;
+}
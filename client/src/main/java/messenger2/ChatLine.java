@@ -0,0 +1,45 @@
+package messenger2;
+
+import messenger2.message.Message;
+
+/**
+ *  A line of the chat pane. It keeps only what is rendered, so a room history of tens of thousands of lines
+ * costs a few small objects per line, the nodes are created by the visible cells only.
+ * */
+public final class ChatLine {
+    private final int fromId;
+    private final String text;
+
+    public ChatLine(int fromId, String text) {
+        this.fromId = fromId;
+        this.text = text;
+    }
+
+    /**
+     * @param           message the {@code NEW_MESSAGE} frame
+     * */
+    public static ChatLine of(Message message) {
+        Integer fromId = message.getFromId();
+        return new ChatLine(fromId == null ? 0 : fromId, message.getText() == null ? "" : message.getText());
+    }
+
+    public int getFromId() {
+        return fromId;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return          the name of the sender, the client is shown by its id while its name is not cached
+     * */
+    public String getAuthor() {
+        if (fromId == Utils.id && Utils.name != null) {
+            return Utils.name;
+        }
+        ClientCache cache = ClientCache.get();
+        String name = cache == null ? null : cache.getName(fromId);
+        return name != null ? name : "User ".concat(String.valueOf(fromId));
+    }
+}
@@ -0,0 +1,342 @@
+package messenger2;
+
+import messenger2.message.Message;
+import messenger2.message.MessageStatus;
+import org.apache.log4j.Logger;
+
+import javax.xml.bind.JAXBException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ *  The on-disk cache of the client, it is kept in the {@code .messenger2/<SHA-256 of the login>} directory
+ * of the user home. The {@code names.properties} file maps the client ids to the logins, the {@code room-<id>.history}
+ * files keep the messages of the rooms as the frames they have been received with, the oldest one goes first.
+ *
+ *  The sequence number the server has given to the last cached message of a room is the cursor of the room:
+ * a room is synchronized by requesting only the newer messages, and a name is requested only once.
+ *
+ *  The cache is updated in memory by the calling thread (e.g. the {@code Dispatcher} one), the files are written
+ * by a single background thread that keeps one appender open per room. A room keeps {@code MAX_ROOM_HISTORY}
+ * messages at most, its file is rewritten with them as soon as it holds twice as many.
+ * */
+public class ClientCache {
+    // the messages kept per room, the older ones are dropped as the newer ones come
+    private static final int MAX_ROOM_HISTORY = 10000;
+    private static final Logger LOGGER = Logger.getLogger(ClientCache.class.getSimpleName());
+    private static volatile ClientCache current;
+    private final File directory;
+    private final File namesFile;
+    private final Properties names = new Properties();
+    private final Set<Integer> requestedNames = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, RoomHistory> rooms = new ConcurrentHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ClientCacheWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ClientCache(File directory) {
+        this.directory = directory;
+        namesFile = new File(directory, "names.properties");
+        if (namesFile.isFile()) {
+            try (FileInputStream in = new FileInputStream(namesFile)) {
+                names.load(in);
+            } catch (IOException e) {
+                LOGGER.warn(e.getLocalizedMessage());
+            }
+        }
+    }
+
+    /**
+     *  Opens the cache of the client, it becomes the current one. The previous cache is closed.
+     *
+     * @param           login the login of the client
+     * */
+    public static synchronized ClientCache open(String login) {
+        if (current != null) {
+            current.close();
+        }
+        File directory = new File(new File(System.getProperty("user.home"), ".messenger2"), hash(login));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOGGER.warn("Unable to create the cache directory ".concat(directory.getAbsolutePath()));
+        }
+        current = new ClientCache(directory);
+        return current;
+    }
+
+    /**
+     * @return          the hex SHA-256 of the login, so any login is a safe single file name
+     * */
+    private static String hash(String login) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(login.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return          the cache of the logged in client or {@code null} if no one has logged in
+     * */
+    public static ClientCache get() {
+        return current;
+    }
+
+    /**
+     * @return          the login of the client or {@code null} if it is not known yet (see {@code resolveNames})
+     * */
+    public String getName(int clientId) {
+        return names.getProperty(String.valueOf(clientId));
+    }
+
+    /**
+     *  Requests the names that are neither cached nor being requested
+     *
+     * @return          the future completed when all the responses have been received
+     * */
+    public CompletableFuture<Void> resolveNames(Dispatcher dispatcher, Collection<Integer> clientIds) {
+        List<CompletableFuture<Message>> responses = new ArrayList<>();
+        for (Integer clientId : clientIds) {
+            if (clientId == null || getName(clientId) != null || !requestedNames.add(clientId)) {
+                continue;
+            }
+            responses.add(dispatcher.request(new Message().setStatus(MessageStatus.GET_CLIENT_NAME)
+                    .setFromId(Utils.id).setToId(clientId)).whenComplete((response, e) -> {
+                if (response != null && response.getStatus() == MessageStatus.ACCEPTED) {
+                    putName(clientId, response.getText());
+                } else {
+                    requestedNames.remove(clientId);
+                }
+            }));
+        }
+        return CompletableFuture.allOf(responses.toArray(new CompletableFuture[0]));
+    }
+
+    private void putName(int clientId, String login) {
+        names.setProperty(String.valueOf(clientId), login);
+        write(() -> {
+            try (FileOutputStream out = new FileOutputStream(namesFile)) {
+                names.store(out, null);
+            } catch (IOException e) {
+                LOGGER.warn(e.getLocalizedMessage());
+            }
+        });
+    }
+
+    /**
+     *  Loads the room history from the disk if it has not been loaded yet
+     *
+     * @return          the cached messages of the room, the oldest one goes first
+     * */
+    public List<Message> getHistory(int roomId) {
+        RoomHistory history = getRoom(roomId);
+        synchronized (history) {
+            return new ArrayList<>(history.messages);
+        }
+    }
+
+    /**
+     * @return          the sequence number of the last cached message of the room, {@code 0} if there are none
+     * */
+    public long getCursor(int roomId) {
+        RoomHistory history = getRoom(roomId);
+        synchronized (history) {
+            return history.cursor;
+        }
+    }
+
+    /**
+     *  Requests the messages of the room the cache has missed, they come as {@code NEW_MESSAGE} frames
+     * (see {@code add})
+     *
+     * @return          the future of the response of the server
+     * */
+    public CompletableFuture<Message> synchronize(Dispatcher dispatcher, int roomId) {
+        long cursor = getCursor(roomId);
+        return dispatcher.request(new Message().setStatus(MessageStatus.MESSAGE_HISTORY).setFromId(Utils.id)
+                .setRoomId(roomId).setText(cursor == 0 ? "" : String.valueOf(cursor)));
+    }
+
+    /**
+     *  Appends the {@code NEW_MESSAGE} to the history of its room, the file is written in the background
+     *
+     * @return          {@code false} if the message is not newer than the cursor of the room i.e. it has been
+     *                  cached already, {@code true} otherwise
+     * */
+    public boolean add(Message message) {
+        if (message.getRoomId() == null || message.getSequence() == null) {
+            return true;
+        }
+        RoomHistory history = getRoom(message.getRoomId());
+        synchronized (history) {
+            if (message.getSequence() <= history.cursor) {
+                return false;
+            }
+            history.messages.addLast(message);
+            history.cursor = message.getSequence();
+            if (history.messages.size() > MAX_ROOM_HISTORY) {
+                history.messages.removeFirst();
+            }
+            if (++history.fileRecords > 2 * MAX_ROOM_HISTORY) {
+                history.fileRecords = history.messages.size();
+                List<Message> messages = new ArrayList<>(history.messages);
+                write(() -> compact(history, messages));
+            } else {
+                write(() -> append(history, message));
+            }
+        }
+        return true;
+    }
+
+    private RoomHistory getRoom(int roomId) {
+        return rooms.computeIfAbsent(roomId, id -> load(new File(directory, "room-" + id + ".history")));
+    }
+
+    private RoomHistory load(File file) {
+        RoomHistory history = new RoomHistory(file);
+        if (!file.isFile()) {
+            return history;
+        }
+        boolean damaged = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (in.available() > 0) {
+                history.messages.addLast((Message) Utils.getUnmarshaller()
+                        .unmarshal(new StringReader(in.readUTF())));
+                if (history.messages.size() > MAX_ROOM_HISTORY) {
+                    history.messages.removeFirst();
+                    damaged = true;
+                }
+            }
+        } catch (IOException | JAXBException e) {
+            // the tail may have been cut while writing, the messages read so far are kept
+            LOGGER.warn(e.getLocalizedMessage());
+            damaged = true;
+        }
+        for (Message message : history.messages) {
+            if (message.getSequence() != null && message.getSequence() > history.cursor) {
+                history.cursor = message.getSequence();
+            }
+        }
+        history.fileRecords = history.messages.size();
+        if (damaged) {
+            List<Message> messages = new ArrayList<>(history.messages);
+            write(() -> compact(history, messages));
+        }
+        return history;
+    }
+
+    /**
+     *  Appends the message to the room file, it is called by the writer thread only
+     * */
+    private static void append(RoomHistory history, Message message) {
+        try {
+            if (history.out == null) {
+                history.out = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(history.file, true)));
+            }
+            history.out.writeUTF(encode(message));
+            history.out.flush();
+        } catch (IOException | JAXBException e) {
+            LOGGER.warn(e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     *  Rewrites the room file with the messages, it is called by the writer thread only
+     * */
+    private static void compact(RoomHistory history, List<Message> messages) {
+        closeAppender(history);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(history.file)))) {
+            for (Message message : messages) {
+                out.writeUTF(encode(message));
+            }
+        } catch (IOException | JAXBException e) {
+            LOGGER.warn(e.getLocalizedMessage());
+        }
+    }
+
+    private static void closeAppender(RoomHistory history) {
+        if (history.out == null) {
+            return;
+        }
+        try {
+            history.out.close();
+        } catch (IOException e) {
+            LOGGER.warn(e.getLocalizedMessage());
+        }
+        history.out = null;
+    }
+
+    private static String encode(Message message) throws JAXBException {
+        StringWriter stringWriter = new StringWriter();
+        Utils.getMarshaller().marshal(message, stringWriter);
+        return stringWriter.toString();
+    }
+
+    /**
+     *  Queues the write for the writer thread, the writes to a closed cache are dropped
+     * */
+    private void write(Runnable write) {
+        try {
+            writer.execute(write);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("The cache has been closed, the write has been dropped");
+        }
+    }
+
+    /**
+     *  Closes the room files once the pending writes have been done
+     * */
+    public void close() {
+        write(() -> {
+            for (RoomHistory history : rooms.values()) {
+                closeAppender(history);
+            }
+        });
+        writer.shutdown();
+    }
+
+    private static class RoomHistory {
+        private final File file;
+        private final Deque<Message> messages = new ArrayDeque<>();
+        private long cursor;
+        // the frames in the file, it is rewritten when they are twice as many as the kept messages
+        private int fileRecords;
+        // the appender of the file, it is used by the writer thread only
+        private DataOutputStream out;
+
+        private RoomHistory(File file) {
+            this.file = file;
+        }
+    }
+}
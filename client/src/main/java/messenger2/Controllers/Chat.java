@@ -5,6 +5,7 @@ import com.jfoenix.controls.JFXButton;
 import com.jfoenix.controls.JFXListView;
 import com.jfoenix.controls.JFXPopup;
 import com.jfoenix.controls.JFXToggleNode;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -15,13 +16,27 @@ import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.*;
 import javafx.scene.text.TextAlignment;
+import messenger2.ChatLine;
+import messenger2.ClientCache;
+import messenger2.Dispatcher;
+import messenger2.Images;
+import messenger2.message.Message;
+import messenger2.message.MessageStatus;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static messenger2.Utils.id;
 
 
 public class Chat {
 
 
     @FXML
-    private JFXListView<Label> messegersList;
+    private JFXListView<ChatLine> messegersList;
 
 //    private JFXPopup popUp;
 
@@ -64,6 +79,10 @@ public class Chat {
     @FXML
     private ImageView unnecessaryButton;
 
+    // the room shown in the chat pane and the sequence number of its last shown message
+    private Integer roomId;
+    private long shownSequence;
+
 
 
     @FXML
@@ -138,10 +157,7 @@ public class Chat {
         for (int i = 0; i < 20; i++) {
             Label label = new Label("User " + i);
             label.setPadding(new Insets(10));
-            ImageView image = new ImageView(new Image("messenger2/res/user.png"));
-            image.setFitHeight(20);
-            image.setFitWidth(20);
-            label.setGraphic(image);
+            label.setGraphic(new ImageView(Images.get(Images.AVATAR, 20, 20)));
             JFXListView.getItems().add(label);
         }
         JFXListView.setExpanded(true);
@@ -166,11 +182,12 @@ public class Chat {
 
 
 
-//        Waiter waiter = new Waiter();
-//        waiter.setDaemon(true);
-//        waiter.start();
-
-
+        Dispatcher dispatcher = Dispatcher.get();
+        if (dispatcher != null) {
+            dispatcher.setPushListener(this::renderPushes);
+            dispatcher.request(new Message().setStatus(MessageStatus.ROOM_LIST).setFromId(id))
+                    .thenAccept(response -> Platform.runLater(() -> openFirstRoom(response)));
+        }
 
         //chatPane.setBackground(new Background());
 
@@ -178,36 +195,112 @@ public class Chat {
         renderMessages();
     }
     void renderMessages() {
-        for(int i = 0; i < 5; i++) {
-            Label label = new Label("message " + i);
-            label.setPadding(new Insets(10));
-            label.setAlignment(Pos.CENTER_RIGHT);
-            messegersList.getItems().add(label);
-        }
         messegersList.setCellFactory(list -> new CenteredListViewCell());
     }
 
-    final class CenteredListViewCell extends ListCell<Label> {
+    private void openFirstRoom(Message roomList) {
+        if (roomList.getStatus() != MessageStatus.ROOM_LIST || roomList.getText() == null
+                || roomList.getText().isEmpty()) {
+            return;
+        }
+        openRoom(Integer.parseInt(roomList.getText().split(",")[0].trim()));
+    }
+
+    /**
+     *  Shows the cached history of the room at once and then requests only the messages the cache has missed,
+     * they are appended as they come (see {@code renderPushes})
+     * */
+    void openRoom(int roomId) {
+        ClientCache cache = ClientCache.get();
+        Dispatcher dispatcher = Dispatcher.get();
+        if (cache == null || dispatcher == null) {
+            return;
+        }
+        // the history file is read in the background, the copy shown is taken on the FX thread, so a message
+        // received meanwhile is either in the copy or in a following batch
+        CompletableFuture.runAsync(() -> cache.getCursor(roomId)).thenRun(() -> Platform.runLater(() -> {
+            List<Message> history = cache.getHistory(roomId);
+            List<ChatLine> lines = new ArrayList<>(history.size());
+            Set<Integer> senders = new HashSet<>();
+            long sequence = 0;
+            for (Message message : history) {
+                lines.add(ChatLine.of(message));
+                senders.add(message.getFromId());
+                if (message.getSequence() != null) {
+                    sequence = Math.max(sequence, message.getSequence());
+                }
+            }
+            this.roomId = roomId;
+            shownSequence = sequence;
+            messegersList.getItems().setAll(lines);
+            if (!lines.isEmpty()) {
+                messegersList.scrollTo(lines.size() - 1);
+            }
+            resolveNames(senders);
+            cache.synchronize(dispatcher, roomId);
+        }));
+    }
+
+    private void resolveNames(Set<Integer> senders) {
+        ClientCache cache = ClientCache.get();
+        Dispatcher dispatcher = Dispatcher.get();
+        if (cache != null && dispatcher != null && !senders.isEmpty()) {
+            cache.resolveNames(dispatcher, senders).thenRun(() -> Platform.runLater(messegersList::refresh));
+        }
+    }
+
+    /**
+     *  Appends the messages the server has sent since the previous pulse, the list is updated once per batch
+     * and only the visible cells are rendered
+     * */
+    private void renderPushes(List<Message> batch) {
+        List<ChatLine> lines = new ArrayList<>(batch.size());
+        Set<Integer> senders = new HashSet<>();
+        for (Message message : batch) {
+            if (message.getStatus() != MessageStatus.NEW_MESSAGE || roomId == null
+                    || !roomId.equals(message.getRoomId())) {
+                continue;
+            }
+            Long sequence = message.getSequence();
+            if (sequence != null && sequence <= shownSequence) {
+                continue;
+            }
+            if (sequence != null) {
+                shownSequence = sequence;
+            }
+            lines.add(ChatLine.of(message));
+            senders.add(message.getFromId());
+        }
+        messegersList.getItems().addAll(lines);
+        resolveNames(senders);
+    }
+
+    /**
+     *  The list view reuses the cells while scrolling, so the nodes of a cell are created once and only
+     * their content is updated
+     * */
+    final class CenteredListViewCell extends ListCell<ChatLine> {
+        private final HBox hBox = new HBox();
+        private final Label author = new Label();
+        private final Label text = new Label();
+
+        CenteredListViewCell() {
+            hBox.setAlignment(Pos.CENTER_RIGHT);
+            author.setAlignment(Pos.CENTER_RIGHT);
+            author.setGraphic(new ImageView(Images.get(Images.AVATAR, 20, 20)));
+            text.setPadding(new Insets(10));
+            text.setWrapText(true);
+            hBox.getChildren().add(new VBox(author, text));
+        }
+
         @Override
-        protected void updateItem(Label label1, boolean empty) {
-            super.updateItem(label1, empty);
-            if (empty) {
+        protected void updateItem(ChatLine line, boolean empty) {
+            super.updateItem(line, empty);
+            if (empty || line == null) {
                 setGraphic(null);
             } else {
-                // Create the HBox
-                HBox hBox = new HBox();
-                hBox.setAlignment(Pos.CENTER_RIGHT);
-                VBox vBox = new VBox();
-                // Create centered Label
-                Label label = new Label("fsaf\n");
-                label.setAlignment(Pos.CENTER_RIGHT);
-
-
-                //label.setPadding(new Insets(1));
-                vBox.getChildren().add(label);
-                vBox.getChildren().add(new Label("hi"));
-                System.out.println(vBox.getChildren().get(1));
-                hBox.getChildren().add(vBox);
+                author.setText(line.getAuthor());
+                text.setText(line.getText());
                 setGraphic(hBox);
             }
         }
@@ -2,6 +2,7 @@ package messenger2.Controllers;
 
 import com.jfoenix.controls.JFXButton;
 import com.jfoenix.controls.JFXTextField;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -9,14 +10,13 @@ import javafx.scene.Scene;
 import javafx.scene.image.ImageView;
 import javafx.scene.text.Text;
 import messenger2.App;
-import messenger2.ReaderThread;
+import messenger2.ClientCache;
+import messenger2.Dispatcher;
 import messenger2.Utils;
 import messenger2.message.Message;
 import messenger2.message.MessageStatus;
-import javax.xml.bind.JAXBException;
 import static messenger2.Utils.*;
 import java.io.*;
-import java.net.Socket;
 
 
 public class LoginController {
@@ -55,49 +55,25 @@ public class LoginController {
                 message.setStatus(MessageStatus.AUTH);
                 message.setLogin(Username.getText());
                 message.setPassword(password.getText());
-                socket = new Socket("localhost", 5940);
-                reader = new DataInputStream(socket.getInputStream());
-                writer = new DataOutputStream(socket.getOutputStream());
-
-                try {
-                    StringWriter stringWriter = new StringWriter();
-                    getMarshaller().marshal(message, stringWriter);
-                    String str = stringWriter.toString();
-                    writer.writeUTF(str);
-                    name = Username.getText();
-                    id = name.hashCode();
-                    Utils.password = password.getText();
-                } catch (JAXBException ex){
-                    System.out.println("67"+ex);
-                }
-
-                //System.out.println(writer.toString());
-                //System.out.println(reader.available());
-
-                ReaderThread thread = new ReaderThread();
-                thread.start();
-                thread.join();
-                System.out.println(thread.message);
-                if(thread.message != null) {
-                    switch (thread.message.getStatus().toString()) {
-                        case "ACCEPTED":
-                            Parent root = FXMLLoader.load(getClass().getResource("/messenger2/views/Chat.fxml"));
-                            App.getStage().setTitle("Hello World");
-                            App.getStage().setScene(new Scene(root, 800, 500));
-                            App.getStage().show();
-                            break;
-                        case "DENIED":
-                            ErrorD.setText(thread.message.getText());
-                            break;
-                        default:
-                            ErrorText.setVisible(true);
-                            break;
+                Dispatcher dispatcher = Dispatcher.connect("localhost", 5940);
+                name = Username.getText();
+                id = name.hashCode();
+                Utils.password = password.getText();
+                String login = name;
+                dispatcher.request(message).whenComplete((response, ex) -> {
+                    if (response != null && response.getStatus() == MessageStatus.ACCEPTED) {
+                        ClientCache.open(login);
                     }
-                }
-
-
-            } catch (IOException | InterruptedException ex) {
+                    Platform.runLater(() -> {
+                        if (ex != null) {
+                            System.out.println(ex);
+                        }
+                        showResponse(response);
+                    });
+                });
+            } catch (IOException ex) {
                 System.out.println(ex);
+                ErrorText.setVisible(true);
             }
             }
         );
@@ -118,4 +94,30 @@ public class LoginController {
             System.exit(0);
         });
     }
+
+    private void showResponse(Message response) {
+        if (response == null) {
+            ErrorText.setVisible(true);
+            return;
+        }
+        switch (response.getStatus() == null ? "" : response.getStatus().toString()) {
+            case "ACCEPTED":
+                try {
+                    Parent root = FXMLLoader.load(getClass().getResource("/messenger2/views/Chat.fxml"));
+                    App.getStage().setTitle("Hello World");
+                    App.getStage().setScene(new Scene(root, 800, 500));
+                    App.getStage().show();
+                } catch (IOException ex) {
+                    System.out.println(ex);
+                }
+                break;
+            case "DENIED":
+                ErrorD.setText(response.getText());
+                ErrorD.setVisible(true);
+                break;
+            default:
+                ErrorText.setVisible(true);
+                break;
+        }
+    }
 }
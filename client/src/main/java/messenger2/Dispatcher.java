@@ -0,0 +1,180 @@
+package messenger2;
+
+import messenger2.message.Message;
+import messenger2.message.MessageStatus;
+import org.apache.log4j.Logger;
+
+import javax.xml.bind.JAXBException;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.Socket;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ *  The {@code Dispatcher} owns the connection to the server: a single thread blocks reading it, decodes
+ * the frames and routes them. The server answers the requests one by one, so every response completes
+ * the future of the oldest request waiting for it. The frames the server sends on its own
+ * ({@code NEW_MESSAGE} and the notifications) are passed to the push listener in batches on the FX thread
+ * (see {@code UiBatcher}), the {@code NEW_MESSAGE} frames are stored in the {@code ClientCache} first and the ones
+ * it has already had are dropped. The server heartbeats are answered by the dispatcher.
+ * */
+public class Dispatcher implements Runnable {
+    private static final Logger LOGGER = Logger.getLogger(Dispatcher.class.getSimpleName());
+    private static volatile Dispatcher current;
+    private final Socket socket;
+    private final DataInputStream reader;
+    private final DataOutputStream writer;
+    private final Queue<CompletableFuture<Message>> pendingResponses = new ConcurrentLinkedQueue<>();
+    private final UiBatcher<Message> pushes = new UiBatcher<>(null);
+    private final Thread thread;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // answers the server heartbeats, so the reading thread never blocks on writing
+    private final ExecutorService heartbeats = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Dispatcher(Socket socket) throws IOException {
+        this.socket = socket;
+        reader = new DataInputStream(socket.getInputStream());
+        writer = new DataOutputStream(socket.getOutputStream());
+        thread = new Thread(this, "Dispatcher");
+        thread.setDaemon(true);
+    }
+
+    /**
+     *  Opens a new connection to the server, the previous one is closed
+     * */
+    public static synchronized Dispatcher connect(String host, int port) throws IOException {
+        if (current != null) {
+            current.close();
+        }
+        Dispatcher dispatcher = new Dispatcher(new Socket(host, port));
+        Utils.socket = dispatcher.socket;
+        Utils.reader = dispatcher.reader;
+        Utils.writer = dispatcher.writer;
+        current = dispatcher;
+        dispatcher.thread.start();
+        return dispatcher;
+    }
+
+    /**
+     * @return          the dispatcher of the current connection or {@code null} if it has not been opened
+     * */
+    public static Dispatcher get() {
+        return current;
+    }
+
+    /**
+     * @param           listener the receiver of the frames the server sends on its own, it is called
+     *                  on the FX application thread
+     * */
+    public void setPushListener(Consumer<List<Message>> listener) {
+        pushes.setSink(listener);
+    }
+
+    /**
+     *  Sends the request
+     *
+     * @return          the future of the response, it completes exceptionally if the connection has been closed
+     * */
+    public CompletableFuture<Message> request(Message message) {
+        CompletableFuture<Message> response = new CompletableFuture<>();
+        send(message, response);
+        return response;
+    }
+
+    private void send(Message message, CompletableFuture<Message> response) {
+        StringWriter stringWriter = new StringWriter();
+        try {
+            Utils.getMarshaller().marshal(message, stringWriter);
+        } catch (JAXBException e) {
+            response.completeExceptionally(e);
+            return;
+        }
+        synchronized (writer) {
+            if (closed.get()) {
+                response.completeExceptionally(new EOFException("The connection has been closed"));
+                return;
+            }
+            pendingResponses.add(response);
+            try {
+                writer.writeUTF(stringWriter.toString());
+                writer.flush();
+            } catch (IOException e) {
+                LOGGER.warn(e.getLocalizedMessage());
+                close();
+            }
+        }
+        if (closed.get() && pendingResponses.remove(response)) {
+            response.completeExceptionally(new EOFException("The connection has been closed"));
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!closed.get()) {
+                String stringXML = reader.readUTF();
+                dispatch((Message) Utils.getUnmarshaller().unmarshal(new StringReader(stringXML)));
+            }
+        } catch (IOException | JAXBException | RejectedExecutionException e) {
+            // the heartbeats executor rejects the tasks once the dispatcher has been closed
+            if (!closed.get()) {
+                LOGGER.warn(e.getLocalizedMessage());
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void dispatch(Message message) {
+        MessageStatus status = message.getStatus();
+        if (status == MessageStatus.ACCEPTED || status == MessageStatus.DENIED || status == MessageStatus.ERROR
+                || status == MessageStatus.ROOM_LIST) {
+            CompletableFuture<Message> response = pendingResponses.poll();
+            if (response != null) {
+                response.complete(message);
+                return;
+            }
+        } else if (status == MessageStatus.HEARTBEAT) {
+            heartbeats.execute(() -> send(new Message(MessageStatus.HEARTBEAT), new CompletableFuture<>()));
+            return;
+        } else if (status == MessageStatus.NEW_MESSAGE) {
+            ClientCache cache = ClientCache.get();
+            if (cache != null && !cache.add(message)) {
+                return;
+            }
+        }
+        pushes.add(message);
+    }
+
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        heartbeats.shutdown();
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.warn(e.getLocalizedMessage());
+        }
+        CompletableFuture<Message> response;
+        while ((response = pendingResponses.poll()) != null) {
+            response.completeExceptionally(new EOFException("The connection has been closed"));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package messenger2;
+
+import javafx.scene.image.Image;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *  The cache of the images of the views. An image is loaded once per size and shared by all the image views
+ * showing it (e.g. the avatars of the list cells), the image is scaled while loading, so only the pixels
+ * of the requested size are kept.
+ * */
+public class Images {
+    public static final String AVATAR = "messenger2/res/user.png";
+    private static final Map<String, Image> IMAGES = new ConcurrentHashMap<>();
+
+    /**
+     * @param           path the resource path of the image
+     * @param           width the width of the image, {@code 0} keeps the original one
+     * @param           height the height of the image, {@code 0} keeps the original one
+     * */
+    public static Image get(String path, double width, double height) {
+        return IMAGES.computeIfAbsent(path.concat("@").concat(String.valueOf(width)).concat("x")
+                .concat(String.valueOf(height)), key -> new Image(path, width, height, true, true));
+    }
+}
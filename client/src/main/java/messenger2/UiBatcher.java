@@ -0,0 +1,60 @@
+package messenger2;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ *  Hands the items produced by a background thread over to the FX application thread in batches. At most one
+ * {@code Platform.runLater} is pending at a time: the items added meanwhile are taken by it, so however busy
+ * the producer is, the FX thread gets a single update per pulse instead of one per item.
+ *
+ *  The items added while there is no sink are kept until the sink is set.
+ * */
+public class UiBatcher<T> {
+    private final Queue<T> items = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile Consumer<List<T>> sink;
+
+    /**
+     * @param           sink the receiver of the batches, it is called on the FX application thread
+     * */
+    public UiBatcher(Consumer<List<T>> sink) {
+        this.sink = sink;
+    }
+
+    public void setSink(Consumer<List<T>> sink) {
+        this.sink = sink;
+        if (sink != null && !items.isEmpty() && scheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::drain);
+        }
+    }
+
+    public void add(T item) {
+        items.add(item);
+        if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::drain);
+        }
+    }
+
+    private void drain() {
+        scheduled.set(false);
+        Consumer<List<T>> sink = this.sink;
+        if (sink == null) {
+            return;
+        }
+        List<T> batch = new ArrayList<>();
+        T item;
+        while ((item = items.poll()) != null) {
+            batch.add(item);
+        }
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+        }
+    }
+}
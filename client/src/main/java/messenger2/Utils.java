@@ -16,38 +16,59 @@ public class Utils {
     public static Socket socket;
     public static DataInputStream reader;
     public static DataOutputStream writer;
-    public static Marshaller getMarshaller () {
-        Marshaller marshaller = null;
+    private static final JAXBContext CONTEXT;
+    private static final ThreadLocal<Marshaller> MARSHALLERS;
+    private static final ThreadLocal<Unmarshaller> UNMARSHALLERS;
+
+    static {
         try {
-             JAXBContext context = JAXBContext.newInstance(Message.class);
-             marshaller = context.createMarshaller();
-             marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+            CONTEXT = JAXBContext.newInstance(Message.class);
         } catch (JAXBException ex) {
-            System.out.println(ex);
+            throw new ExceptionInInitializerError(ex);
         }
-        return  marshaller;
+        MARSHALLERS = ThreadLocal.withInitial(() -> {
+            try {
+                Marshaller marshaller = CONTEXT.createMarshaller();
+                marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+                return marshaller;
+            } catch (JAXBException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        UNMARSHALLERS = ThreadLocal.withInitial(() -> {
+            try {
+                return CONTEXT.createUnmarshaller();
+            } catch (JAXBException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+    }
+
+    /**
+     * @return          the marshaller of the current thread, the JAXB context is created once
+     * */
+    public static Marshaller getMarshaller () {
+        return MARSHALLERS.get();
     }
+
+    /**
+     * @return          the unmarshaller of the current thread, the JAXB context is created once
+     * */
     public static Unmarshaller getUnmarshaller () {
-        Unmarshaller unmarshaller= null;
-        try {
-            JAXBContext context = JAXBContext.newInstance(Message.class);
-            unmarshaller = context.createUnmarshaller();
-            unmarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        } catch (JAXBException ex) {
-            System.out.println(ex);
-        }
-        return  unmarshaller;
+        return UNMARSHALLERS.get();
     }
+
+    /**
+     *  Sends the message over the current connection, the response is not waited for
+     * (see {@code Dispatcher.request})
+     * */
     public static void sendMessenge(Message m) {
-        Marshaller marshaller = getMarshaller();
-        StringWriter stringWriter = new StringWriter();
-        try {
-            marshaller.marshal(m, stringWriter);
-            String str = stringWriter.toString();
-            writer.writeUTF(str);
-        } catch(IOException | JAXBException ex) {
-            System.out.println(ex);
+        Dispatcher dispatcher = Dispatcher.get();
+        if (dispatcher == null) {
+            System.out.println("Not connected");
+            return;
         }
+        dispatcher.request(m);
     }
 
 
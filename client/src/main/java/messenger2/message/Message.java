@@ -34,6 +34,8 @@ public class Message {
     private Integer toId;
     @XmlElement
     private Integer roomId;
+    @XmlElement
+    private Long sequence;
 
     //private static final Logger LOGGER = Logger.getLogger("Message");
 
@@ -149,9 +151,22 @@ public class Message {
                 ", fromId=" + fromId +
                 ", toId=" + toId +
                 ", roomId=" + roomId +
+                ", sequence=" + sequence +
                 '}';
     }
 
+    /**
+     * @return          the number of the message in its room history assigned by the server
+     * */
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public Message setSequence(Long sequence) {
+        this.sequence = sequence;
+        return this;
+    }
+
     public LocalDateTime getCreationDateTime() {
         return creationDateTime;
     }
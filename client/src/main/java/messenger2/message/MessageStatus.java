@@ -20,5 +20,8 @@ public enum MessageStatus {
     CLIENT_ONLINE,
     CLIENT_OFFLINE,
     FRIEND_LIST,
-    ROOM_LIST
+    ROOM_LIST,
+    HEARTBEAT,
+    MESSAGE_HISTORY,
+    GET_CLIENT_NAME
 }
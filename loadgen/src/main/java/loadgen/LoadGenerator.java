@@ -0,0 +1,284 @@
+package loadgen;
+
+import common.entities.message.Message;
+import common.entities.message.MessageStatus;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The {@code LoadGenerator} simulates the chat users working with a running server. It registers and logs in
+ * the users, spreads them over the rooms and then makes every user send the messages, the history and the room
+ * members requests at the rates of the {@code Scenario}. The requests arrive as Poisson processes and are sent
+ * at the scheduled moments regardless of the responses, so a slow server does not slow the load down.
+ *
+ *  Usage: {@code java -jar LoadGenerator-jar-with-dependencies.jar [scenario.xml] [key=value ...]}
+ * */
+public class LoadGenerator {
+    private static final long DRAIN_MILLIS = 2000;
+    private static volatile Logger LOGGER = Logger.getLogger(LoadGenerator.class.getSimpleName());
+    private final Scenario scenario;
+    private final LoadStats stats = new LoadStats();
+    private final List<VirtualClient> clients = Collections.synchronizedList(new ArrayList<>());
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    public LoadGenerator(@NotNull Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    public static void main(String[] args) {
+        PropertyConfigurator.configure(LoadGenerator.class.getResourceAsStream("/loadgen-log4j.properties"));
+        File scenarioFile = null;
+        String [] overrides = args;
+        if (args.length > 0 && !args[0].contains("=")) {
+            scenarioFile = new File(args[0]);
+            overrides = Arrays.copyOfRange(args, 1, args.length);
+        }
+        try {
+            new LoadGenerator(Scenario.load(scenarioFile, overrides)).run();
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.fatal(e.getLocalizedMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            LOGGER.fatal("Interrupted");
+            System.exit(1);
+        }
+    }
+
+    public void run() throws IOException, InterruptedException {
+        LOGGER.info(scenario);
+        try {
+            setUp();
+            generate();
+        } finally {
+            for (VirtualClient client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    /**
+     *  Registers the users (if the {@code register} is set), logs them in and spreads them over the rooms
+     *
+     * @throws          IOException if no user has logged in or the rooms could not be prepared
+     * */
+    void setUp() throws IOException, InterruptedException {
+        ExecutorService preparation = Executors.newFixedThreadPool(scenario.getConnectParallelism());
+        try {
+            if (scenario.isRegister()) {
+                prepare(preparation, "registered", user -> VirtualClient.register(scenario, user));
+            }
+            prepare(preparation, "logged in", user -> clients.add(VirtualClient.connect(scenario, user, stats)));
+            clients.sort((first, second) -> first.getLogin().compareTo(second.getLogin()));
+            if (clients.isEmpty()) {
+                throw new IOException("No user has logged in");
+            }
+            setUpRooms(preparation);
+        } finally {
+            preparation.shutdownNow();
+        }
+    }
+
+    /**
+     * @return          the logged in users sorted by their logins
+     * */
+    List<VirtualClient> getClients() {
+        return clients;
+    }
+
+    /**
+     *  Runs the {@code action} for every simulated user with the {@code connectParallelism} concurrently
+     *
+     * @param           done the name of the completed action to be logged
+     * @param           action an action taking the number of the user and returning whether it has succeeded
+     * */
+    private void prepare(ExecutorService executor, String done, UserAction action) throws InterruptedException {
+        long start = System.nanoTime();
+        List<Callable<Boolean>> tasks = new ArrayList<>(scenario.getUsers());
+        for (int i = 0; i < scenario.getUsers(); i++) {
+            int user = i;
+            tasks.add(() -> action.apply(user));
+        }
+        int succeeded = 0;
+        for (Future<Boolean> result : executor.invokeAll(tasks)) {
+            try {
+                if (result.get()) {
+                    succeeded++;
+                }
+            } catch (ExecutionException e) {
+                LOGGER.warn(e.getCause().getLocalizedMessage());
+            }
+        }
+        LOGGER.info(buildMessage(succeeded, "of", scenario.getUsers(), "users have been", done, "in"
+                , TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), "ms"));
+    }
+
+    /**
+     *  Spreads the users over the rooms: the user {@code i} gets to the group {@code i % rooms}, the first member
+     * of a group creates a new room and invites the others. If the {@code rooms} is {@code 0}, everybody chats
+     * in the common chat every registered user is a member of.
+     * */
+    private void setUpRooms(ExecutorService executor) throws IOException, InterruptedException {
+        int rooms = Math.min(scenario.getRooms(), clients.size());
+        if (rooms <= 0) {
+            return;
+        }
+        List<Callable<Integer>> tasks = new ArrayList<>(rooms);
+        for (int i = 0; i < rooms; i++) {
+            List<VirtualClient> members = new ArrayList<>();
+            for (int j = i; j < clients.size(); j += rooms) {
+                members.add(clients.get(j));
+            }
+            tasks.add(() -> createRoom(members));
+        }
+        long start = System.nanoTime();
+        for (Future<Integer> result : executor.invokeAll(tasks)) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                throw new IOException(buildMessage("Room preparation has failed:"
+                        , e.getCause().getLocalizedMessage()), e.getCause());
+            }
+        }
+        LOGGER.info(buildMessage(rooms, "rooms have been created in"
+                , TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), "ms"));
+    }
+
+    private int createRoom(List<VirtualClient> members) throws IOException {
+        VirtualClient owner = members.get(0);
+        Message response = owner.request(new Message(MessageStatus.CREATE_ROOM).setFromId(owner.getClientId()));
+        if (response.getStatus() != MessageStatus.ACCEPTED || response.getRoomId() == null) {
+            throw new IOException(buildMessage(owner.getLogin(), "could not create a room:", response.getText()));
+        }
+        int roomId = response.getRoomId();
+        for (VirtualClient member : members) {
+            if (member != owner) {
+                response = owner.request(new Message(MessageStatus.INVITE_CLIENT).setFromId(owner.getClientId())
+                        .setToId(member.getClientId()).setRoomId(roomId));
+                if (response.getStatus() != MessageStatus.ACCEPTED) {
+                    throw new IOException(buildMessage(member.getLogin(), "could not be invited to the room (id"
+                            , roomId, "):", response.getText()));
+                }
+            }
+            member.setRoomId(roomId);
+        }
+        return roomId;
+    }
+
+    /**
+     *  Runs the warmup and the measured load. Every sender thread serves its share of the users. A sender waits
+     * for the nearest scheduled request, and if it is late (e.g. the previous write has been blocked by the server)
+     * it sends the overdue requests at once keeping their intended moments.
+     * */
+    private void generate() throws InterruptedException {
+        long start = System.nanoTime();
+        long measurementStart = start + TimeUnit.SECONDS.toNanos(scenario.getWarmupSeconds());
+        long end = measurementStart + TimeUnit.SECONDS.toNanos(scenario.getDurationSeconds());
+        stats.startMeasurement(measurementStart);
+        LOGGER.info(buildMessage("Warming up for", scenario.getWarmupSeconds(), "s"));
+        List<Thread> senders = new ArrayList<>();
+        for (int i = 0; i < scenario.getSenderThreads(); i++) {
+            PriorityQueue<Schedule> schedules = new PriorityQueue<>();
+            for (int j = i; j < clients.size(); j += scenario.getSenderThreads()) {
+                addSchedule(schedules, clients.get(j), RequestKind.MESSAGE, scenario.getMessageRate(), start);
+                addSchedule(schedules, clients.get(j), RequestKind.HISTORY, scenario.getHistoryRate(), start);
+                addSchedule(schedules, clients.get(j), RequestKind.MEMBERS, scenario.getMembersRate(), start);
+            }
+            Thread sender = new Thread(() -> send(schedules, end), "sender-".concat(String.valueOf(i)));
+            sender.setDaemon(true);
+            senders.add(sender);
+            sender.start();
+        }
+        long reportInterval = TimeUnit.SECONDS.toNanos(scenario.getReportIntervalSeconds());
+        long nextReport = measurementStart + reportInterval;
+        while (nextReport < end) {
+            TimeUnit.NANOSECONDS.sleep(nextReport - System.nanoTime());
+            LOGGER.info(stats.report(System.nanoTime() - measurementStart));
+            nextReport += reportInterval;
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        TimeUnit.MILLISECONDS.sleep(DRAIN_MILLIS);
+        LOGGER.info(buildMessage("Final results:", System.lineSeparator()
+                , stats.report(end - measurementStart)));
+    }
+
+    private static void addSchedule(PriorityQueue<Schedule> schedules, VirtualClient client, RequestKind kind
+            , double rate, long start) {
+        if (rate > 0) {
+            Schedule schedule = new Schedule(client, kind, rate, start);
+            schedule.advance();
+            schedules.add(schedule);
+        }
+    }
+
+    private static void send(PriorityQueue<Schedule> schedules, long end) {
+        Schedule schedule;
+        while ((schedule = schedules.poll()) != null && schedule.next < end) {
+            long delay;
+            while ((delay = schedule.next - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            if (schedule.client.isClosed()) {
+                continue;
+            }
+            schedule.client.send(schedule.kind, schedule.next);
+            schedule.advance();
+            schedules.add(schedule);
+        }
+    }
+
+    /**
+     *  The moments a user sends the requests of a kind at. The intervals between the requests are exponentially
+     * distributed with the mean of {@code 1 / rate} seconds.
+     * */
+    private static class Schedule implements Comparable<Schedule> {
+        private final VirtualClient client;
+        private final RequestKind kind;
+        private final double meanIntervalNanos;
+        private long next;
+
+        private Schedule(VirtualClient client, RequestKind kind, double rate, long start) {
+            this.client = client;
+            this.kind = kind;
+            this.meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+            this.next = start;
+        }
+
+        private void advance() {
+            next += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos);
+        }
+
+        @Override
+        public int compareTo(@NotNull Schedule other) {
+            return Long.compare(next, other.next);
+        }
+    }
+
+    @FunctionalInterface
+    private interface UserAction {
+        boolean apply(int user) throws IOException;
+    }
+}
@@ -0,0 +1,140 @@
+package loadgen;
+
+import org.jetbrains.annotations.NotNull;
+import server.metrics.Histogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  The {@code LoadStats} collects the results of the measured part of the load.
+ *
+ *  Every request is scheduled for an intended moment. If the generator (or the server pushing back on the
+ * connection) delays the sending, the latency is still measured since the intended moment, so the stalls are not
+ * hidden by the requests which have not been sent during them (the coordinated omission). The latencies since
+ * the actual sending are kept as well to show how much the correction adds.
+ * */
+class LoadStats {
+    private static final double NANOS_TO_MILLIS = 1e-6;
+    private volatile long measurementStart = Long.MAX_VALUE;
+    private final Map<RequestKind, Histogram> responseLatencies = new EnumMap<>(RequestKind.class);
+    private final Map<RequestKind, LongAdder> sent = new EnumMap<>(RequestKind.class);
+    private final Histogram deliveryLatency = histogram("delivery");
+    private final Histogram uncorrectedDeliveryLatency = histogram("uncorrected_delivery");
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder deliveries = new LongAdder();
+    private final LongAdder unmeasuredDeliveries = new LongAdder();
+    private final LongAdder historyFrames = new LongAdder();
+    private final LongAdder notifications = new LongAdder();
+    private final LongAccumulator maxSendLag = new LongAccumulator(Math::max, 0);
+
+    LoadStats() {
+        for (RequestKind kind : RequestKind.values()) {
+            responseLatencies.put(kind, histogram(kind.name()));
+            sent.put(kind, new LongAdder());
+        }
+    }
+
+    private static Histogram histogram(String name) {
+        return new Histogram(name, name, null, null, NANOS_TO_MILLIS);
+    }
+
+    /**
+     *  The requests intended to be sent since this moment are measured
+     * */
+    void startMeasurement(long nanos) {
+        measurementStart = nanos;
+    }
+
+    boolean isMeasured(long intendedNanos) {
+        return intendedNanos >= measurementStart;
+    }
+
+    void requestSent(@NotNull RequestKind kind, long intendedNanos, long sentNanos) {
+        if (isMeasured(intendedNanos)) {
+            sent.get(kind).increment();
+            maxSendLag.accumulate(sentNanos - intendedNanos);
+        }
+    }
+
+    void responseReceived(@NotNull PendingRequest request, boolean isAccepted, boolean isDenied, long nanos) {
+        if (!isMeasured(request.getIntendedNanos())) {
+            return;
+        }
+        if (isAccepted) {
+            accepted.increment();
+        } else if (isDenied) {
+            denied.increment();
+        } else {
+            errors.increment();
+        }
+        responseLatencies.get(request.getKind()).record(nanos - request.getIntendedNanos());
+    }
+
+    /**
+     * @param           intendedNanos the moment the message was intended to be sent
+     * @param           sentNanos the moment the message was actually sent
+     * @param           nanos the moment the {@code NEW_MESSAGE} has been received
+     * */
+    void messageDelivered(long intendedNanos, long sentNanos, long nanos) {
+        if (isMeasured(intendedNanos)) {
+            deliveries.increment();
+            deliveryLatency.record(nanos - intendedNanos);
+            uncorrectedDeliveryLatency.record(nanos - sentNanos);
+        }
+    }
+
+    /**
+     *  A {@code NEW_MESSAGE} has arrived in the middle of a history response, so it can not be told from
+     * the history frames
+     * */
+    void deliveryNotMeasured() {
+        unmeasuredDeliveries.increment();
+    }
+
+    void historyFrameReceived() {
+        historyFrames.increment();
+    }
+
+    void notificationReceived() {
+        notifications.increment();
+    }
+
+    /**
+     * @param           elapsedNanos the time passed since the measurement start
+     *
+     * @return          a human readable summary of the measured load
+     * */
+    String report(long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos / 1e9, 1e-3);
+        StringBuilder report = new StringBuilder(String.format("Measured %.1f s%n", seconds));
+        long sentTotal = 0;
+        for (RequestKind kind : RequestKind.values()) {
+            sentTotal += sent.get(kind).sum();
+        }
+        report.append(String.format("  sent %d requests (%.1f/s): %d accepted, %d denied, %d errors,"
+                        + " max send lag %.1f ms%n", sentTotal, sentTotal / seconds, accepted.sum(), denied.sum()
+                , errors.sum(), maxSendLag.get() * NANOS_TO_MILLIS));
+        report.append(String.format("  received %d deliveries (%.1f/s), %d history frames, %d notifications,"
+                        + " %d deliveries not measured%n", deliveries.sum(), deliveries.sum() / seconds
+                , historyFrames.sum(), notifications.sum(), unmeasuredDeliveries.sum()));
+        report.append(String.format("  %-28s %10s %9s %9s %9s %9s %9s%n", "latency, ms", "count", "p50", "p90"
+                , "p99", "p99.9", "max"));
+        appendLatency(report, "send -> NEW_MESSAGE", deliveryLatency);
+        appendLatency(report, "  (uncorrected)", uncorrectedDeliveryLatency);
+        for (RequestKind kind : RequestKind.values()) {
+            appendLatency(report, kind.getStatus().name().concat(" response"), responseLatencies.get(kind));
+        }
+        return report.toString();
+    }
+
+    private static void appendLatency(StringBuilder report, String name, Histogram histogram) {
+        report.append(String.format("  %-28s %10d %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getCount()
+                , histogram.getPercentile(0.5), histogram.getPercentile(0.9), histogram.getPercentile(0.99)
+                , histogram.getPercentile(0.999), histogram.getMax()));
+    }
+}
@@ -0,0 +1,47 @@
+package loadgen;
+
+import common.entities.message.Message;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ *  A request which has been written to the connection and waits for its {@code ACCEPTED}, {@code DENIED}
+ * or {@code ERROR} response. The server handles the requests of a connection one by one, so the responses
+ * come in the order of the requests.
+ * */
+class PendingRequest {
+    private final RequestKind kind;
+    private final long intendedNanos;
+    private final long sentNanos;
+    private final CompletableFuture<Message> response;
+
+    /**
+     * @param           kind a kind of the load request or {@code null} if the request is not measured
+     *                  (the preparation requests and the heartbeat answers)
+     * @param           intendedNanos the moment the request has been scheduled for
+     * @param           sentNanos the moment the request has been written
+     * @param           response the future completed by the response or {@code null}
+     * */
+    PendingRequest(RequestKind kind, long intendedNanos, long sentNanos, CompletableFuture<Message> response) {
+        this.kind = kind;
+        this.intendedNanos = intendedNanos;
+        this.sentNanos = sentNanos;
+        this.response = response;
+    }
+
+    RequestKind getKind() {
+        return kind;
+    }
+
+    long getIntendedNanos() {
+        return intendedNanos;
+    }
+
+    long getSentNanos() {
+        return sentNanos;
+    }
+
+    CompletableFuture<Message> getResponse() {
+        return response;
+    }
+}
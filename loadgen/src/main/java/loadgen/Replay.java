@@ -0,0 +1,206 @@
+package loadgen;
+
+import common.entities.message.MessageStatus;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+import org.jetbrains.annotations.NotNull;
+import server.capture.CaptureReader;
+import server.capture.CaptureRecord;
+import server.capture.TrafficCapture;
+
+import javax.xml.bind.JAXBException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The {@code Replay} re-drives a workload captured by a server (see {@code server.capture.TrafficCapture})
+ * against another server: every captured connection is opened again and its frames are sent in the captured
+ * order at the captured moments, {@code replaySpeed} times faster, or as fast as the server takes them
+ * at the {@code max} speed. The report gives the throughput and the response latencies per request status,
+ * so the reports of two builds replaying the same capture can be compared.
+ *
+ *  The captured frames refer to the clients and the rooms of the captured server, so the replayed server
+ * must be started on a copy of the captured server data taken when the capture started. The rooms created
+ * during the capture get new ids on the replay, thus the requests to them are answered differently.
+ *
+ *  The captured requests of the server administrator (see {@code TrafficCapture.CONTROL_STATUSES}) are skipped
+ * unless {@code replayControl} is set, they are sent with the {@code serverLogin} and {@code serverPassword}
+ * of the scenario then, since the capture does not keep the captured ones.
+ *
+ *  Usage: {@code java -cp LoadGenerator-jar-with-dependencies.jar loadgen.Replay [scenario.xml] [key=value ...]}
+ * */
+public class Replay {
+    private static final long DRAIN_MILLIS = 5000;
+    private static final int PRUNING_INTERVAL = 1024;
+    private static volatile Logger LOGGER = Logger.getLogger(Replay.class.getSimpleName());
+    private final Scenario scenario;
+    private final ReplayStats stats = new ReplayStats();
+    private final Map<Long, ReplayConnection> connections = new HashMap<>();
+    private final List<ReplayConnection> finishedConnections = new ArrayList<>();
+    private long capturedDropped;
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    public Replay(@NotNull Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    public static void main(String[] args) {
+        PropertyConfigurator.configure(Replay.class.getResourceAsStream("/loadgen-log4j.properties"));
+        File scenarioFile = null;
+        String [] overrides = args;
+        if (args.length > 0 && !args[0].contains("=")) {
+            scenarioFile = new File(args[0]);
+            overrides = Arrays.copyOfRange(args, 1, args.length);
+        }
+        try {
+            new Replay(Scenario.load(scenarioFile, overrides)).run();
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.fatal(e.getLocalizedMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            LOGGER.fatal("Interrupted");
+            System.exit(1);
+        }
+    }
+
+    public void run() throws IOException, InterruptedException {
+        double speed = scenario.getReplaySpeed();
+        File captureFile = scenario.getCaptureFile();
+        LOGGER.info(buildMessage("Replaying", captureFile.getAbsolutePath(), "on", scenario.getHost() + ':'
+                + scenario.getPort(), "at", Double.isInfinite(speed) ? "max" : speed + "x", "speed"));
+        if (scenario.isReplayControl()) {
+            LOGGER.warn(buildMessage("The control requests", TrafficCapture.CONTROL_STATUSES, "are replayed"));
+        }
+        long start = System.nanoTime();
+        long reportInterval = TimeUnit.SECONDS.toNanos(scenario.getReportIntervalSeconds());
+        long nextReport = start + reportInterval;
+        try (CaptureReader reader = new CaptureReader(captureFile)) {
+            CaptureRecord record;
+            while ((record = reader.next()) != null) {
+                long intendedNanos = Double.isInfinite(speed) ? Long.MAX_VALUE
+                        : start + (long) (TimeUnit.MICROSECONDS.toNanos(record.getMicros()) / speed);
+                long now = System.nanoTime();
+                while (intendedNanos != Long.MAX_VALUE && now < intendedNanos) {
+                    LockSupport.parkNanos(Math.min(intendedNanos, nextReport) - now);
+                    now = System.nanoTime();
+                    nextReport = reportIfDue(now, start, nextReport, reportInterval);
+                }
+                nextReport = reportIfDue(now, start, nextReport, reportInterval);
+                replay(record, intendedNanos);
+            }
+        } finally {
+            drain();
+        }
+        LOGGER.info(buildMessage("Final results:", System.lineSeparator()
+                , stats.report(System.nanoTime() - start, capturedDropped)));
+    }
+
+    /**
+     * @return          the moment of the next intermediate report
+     * */
+    private long reportIfDue(long now, long start, long nextReport, long reportInterval) {
+        if (now < nextReport) {
+            return nextReport;
+        }
+        LOGGER.info(stats.report(now - start, capturedDropped));
+        return nextReport + ((now - nextReport) / reportInterval + 1) * reportInterval;
+    }
+
+    /**
+     * @param           intendedNanos the moment the record has been scheduled for,
+     *                  {@code Long.MAX_VALUE} if it is sent at once
+     * */
+    private void replay(CaptureRecord record, long intendedNanos) {
+        switch (record.getType()) {
+            case FRAME:
+                if (record.getStatus() == MessageStatus.HEARTBEAT) {
+                    return;
+                }
+                String frame = record.getFrame();
+                if (TrafficCapture.CONTROL_STATUSES.contains(record.getStatus())) {
+                    if (!scenario.isReplayControl()) {
+                        stats.controlFrameSkipped();
+                        return;
+                    }
+                    try {
+                        frame = Wire.encode(Wire.decode(frame).setLogin(scenario.getServerLogin())
+                                .setPassword(scenario.getServerPassword()));
+                    } catch (JAXBException e) {
+                        stats.frameSkipped();
+                        return;
+                    }
+                }
+                ReplayConnection connection = connections.get(record.getConnection());
+                if (connection == null && !connections.containsKey(record.getConnection())) {
+                    connection = connect(record.getConnection());
+                }
+                if (connection == null || !connection.send(record.getStatus(), frame, intendedNanos)) {
+                    stats.frameSkipped();
+                }
+                break;
+            case CLOSE:
+                connection = connections.remove(record.getConnection());
+                if (connection != null) {
+                    connection.finish();
+                    finishedConnections.add(connection);
+                    if (finishedConnections.size() % PRUNING_INTERVAL == 0) {
+                        finishedConnections.removeIf(ReplayConnection::isClosed);
+                    }
+                }
+                break;
+            case END:
+                capturedDropped = record.getDropped();
+                break;
+        }
+    }
+
+    /**
+     * @return          the opened connection or {@code null} if the connection has failed, the frames of
+     *                  the failed connection are skipped
+     * */
+    private ReplayConnection connect(long number) {
+        ReplayConnection connection = null;
+        try {
+            connection = new ReplayConnection(scenario, number, stats);
+            stats.connected();
+        } catch (IOException e) {
+            stats.connectionFailed();
+            LOGGER.warn(buildMessage("Unable to open the connection", number, ':', e.getLocalizedMessage()));
+        }
+        connections.put(number, connection);
+        return connection;
+    }
+
+    /**
+     *  Finishes the connections the capture has not closed and waits for the server to answer them
+     * */
+    private void drain() throws InterruptedException {
+        for (ReplayConnection connection : connections.values()) {
+            if (connection != null) {
+                connection.finish();
+                finishedConnections.add(connection);
+            }
+        }
+        connections.clear();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_MILLIS);
+        for (ReplayConnection connection : finishedConnections) {
+            if (!connection.isClosed()) {
+                connection.awaitClosing(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+                connection.close();
+            }
+        }
+        finishedConnections.clear();
+    }
+}
@@ -0,0 +1,192 @@
+package loadgen;
+
+import common.entities.message.Message;
+import common.entities.message.MessageStatus;
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.bind.JAXBException;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  A connection of the captured workload re-driven against the server and a thread reading its responses.
+ * The server answers the requests of a connection one by one, so the responses are matched to the sent frames
+ * in order (see {@code PendingRequest}).
+ *
+ *  The server heartbeats are answered by the connection itself instead of replaying the captured answers,
+ * since the replayed server sends them at its own moments.
+ * */
+class ReplayConnection implements Runnable {
+    private static volatile Logger LOGGER = Logger.getLogger(ReplayConnection.class.getSimpleName());
+    private final long number;
+    private final ReplayStats stats;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final Queue<Sent> sentFrames = new ConcurrentLinkedQueue<>();
+    private final Thread reader;
+    private volatile MessageStatus lastStatus;
+    private volatile boolean finishing;
+    private volatile boolean closed;
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    /**
+     * @param           number the number of the captured connection
+     * */
+    ReplayConnection(@NotNull Scenario scenario, long number, @NotNull ReplayStats stats) throws IOException {
+        this.number = number;
+        this.stats = stats;
+        socket = new Socket(scenario.getHost(), scenario.getPort());
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(socket.getInputStream());
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        reader = new Thread(this, "replay-".concat(String.valueOf(number)));
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     *  Sends the captured frame. The calling thread is blocked only while the server does not read
+     * the connection.
+     *
+     * @param           status the status of the captured request or {@code null} if it is unknown
+     * @param           intendedNanos the moment the frame has been scheduled for
+     *
+     * @return          {@code false} if the connection has been closed
+     * */
+    boolean send(MessageStatus status, @NotNull String frame, long intendedNanos) {
+        synchronized (out) {
+            if (closed || finishing) {
+                return false;
+            }
+            long sentNanos = System.nanoTime();
+            try {
+                sentFrames.add(new Sent(status, Math.min(intendedNanos, sentNanos)));
+                out.writeUTF(frame);
+                out.flush();
+                lastStatus = status;
+            } catch (IOException e) {
+                LOGGER.warn(buildMessage("Sending to the connection", number, "has failed:"
+                        , e.getLocalizedMessage()));
+                close();
+                return false;
+            }
+            stats.frameSent(Math.min(intendedNanos, sentNanos), sentNanos);
+            return true;
+        }
+    }
+
+    /**
+     *  Closes the sending side like the captured client has closed the connection. The server handles
+     * the frames sent so far, answers them and closes the connection then.
+     * */
+    void finish() {
+        synchronized (out) {
+            if (closed || finishing) {
+                return;
+            }
+            finishing = true;
+            try {
+                socket.shutdownOutput();
+            } catch (IOException e) {
+                close();
+            }
+        }
+    }
+
+    /**
+     *  Waits for the server to close the finished connection
+     * */
+    void awaitClosing(long millis) throws InterruptedException {
+        reader.join(Math.max(1, millis));
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!closed) {
+                handle(Wire.decode(in.readUTF()), System.nanoTime());
+            }
+        } catch (EOFException e) {
+            if (!finishing && !closed && lastStatus != MessageStatus.REGISTRATION) {
+                stats.connectionLost();
+                LOGGER.debug(buildMessage("The server has closed the connection", number));
+            }
+        } catch (IOException | JAXBException e) {
+            if (!closed) {
+                LOGGER.warn(buildMessage("Reading of the connection", number, "has failed:"
+                        , e.getLocalizedMessage()));
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void handle(Message message, long nanos) throws IOException {
+        MessageStatus status = message.getStatus();
+        if (status == MessageStatus.ACCEPTED || status == MessageStatus.DENIED || status == MessageStatus.ERROR) {
+            Sent sent = sentFrames.poll();
+            if (sent == null) {
+                // e.g. the re-login notice following an accepted registration
+                stats.frameReceived();
+            } else {
+                stats.responseReceived(sent.status, status, sent.intendedNanos, nanos);
+            }
+        } else if (status == MessageStatus.HEARTBEAT) {
+            synchronized (out) {
+                if (!closed && !finishing) {
+                    sentFrames.add(new Sent(null, nanos));
+                    try {
+                        out.writeUTF(Wire.encode(new Message(MessageStatus.HEARTBEAT)));
+                    } catch (JAXBException e) {
+                        throw new IOException(e);
+                    }
+                    out.flush();
+                }
+            }
+        } else {
+            stats.frameReceived();
+        }
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.warn(e.getLocalizedMessage());
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     *  A frame waiting for its response
+     * */
+    private static class Sent {
+        private final MessageStatus status;
+        private final long intendedNanos;
+
+        private Sent(MessageStatus status, long intendedNanos) {
+            this.status = status;
+            this.intendedNanos = intendedNanos;
+        }
+    }
+}
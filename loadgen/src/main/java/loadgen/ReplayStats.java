@@ -0,0 +1,121 @@
+package loadgen;
+
+import common.entities.message.MessageStatus;
+import server.metrics.Histogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  The {@code ReplayStats} collects the results of a replay. The response latencies are kept per status
+ * of the replayed request and, as in {@code LoadStats}, are measured since the moment the frame was intended
+ * to be sent at, so the replay stalls are not hidden. At the {@code max} speed the frames have no intended
+ * moments and the latencies are measured since the sending.
+ * */
+class ReplayStats {
+    private static final double NANOS_TO_MILLIS = 1e-6;
+    private final Map<MessageStatus, Histogram> responseLatencies = new EnumMap<>(MessageStatus.class);
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder controlSkipped = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder pushed = new LongAdder();
+    private final LongAdder connections = new LongAdder();
+    private final LongAdder failedConnections = new LongAdder();
+    private final LongAdder lostConnections = new LongAdder();
+    private final LongAccumulator maxSendLag = new LongAccumulator(Math::max, 0);
+
+    ReplayStats() {
+        for (MessageStatus status : MessageStatus.values()) {
+            responseLatencies.put(status, new Histogram(status.name(), status.name(), null, null, NANOS_TO_MILLIS));
+        }
+    }
+
+    void connected() {
+        connections.increment();
+    }
+
+    void connectionFailed() {
+        failedConnections.increment();
+    }
+
+    /**
+     *  The server has closed the connection before the capture did
+     * */
+    void connectionLost() {
+        lostConnections.increment();
+    }
+
+    void frameSent(long intendedNanos, long sentNanos) {
+        sent.increment();
+        maxSendLag.accumulate(sentNanos - intendedNanos);
+    }
+
+    /**
+     *  The frame has not been sent since its connection has failed or has been closed by the server
+     * */
+    void frameSkipped() {
+        skipped.increment();
+    }
+
+    /**
+     *  The control frame has not been sent since the control requests are not replayed
+     * */
+    void controlFrameSkipped() {
+        controlSkipped.increment();
+    }
+
+    void responseReceived(MessageStatus requestStatus, MessageStatus status, long intendedNanos, long nanos) {
+        if (status == MessageStatus.ACCEPTED) {
+            accepted.increment();
+        } else if (status == MessageStatus.DENIED) {
+            denied.increment();
+        } else {
+            errors.increment();
+        }
+        if (requestStatus != null) {
+            responseLatencies.get(requestStatus).record(nanos - intendedNanos);
+        }
+    }
+
+    /**
+     *  A frame the server has sent on its own: a delivered message, a history frame or a notification
+     * */
+    void frameReceived() {
+        pushed.increment();
+    }
+
+    /**
+     * @param           elapsedNanos the time passed since the replay start
+     * @param           capturedDropped the amount of the frames the capture has missed
+     *
+     * @return          a human readable summary of the replay
+     * */
+    String report(long elapsedNanos, long capturedDropped) {
+        double seconds = Math.max(elapsedNanos / 1e9, 1e-3);
+        StringBuilder report = new StringBuilder(String.format("Replayed %.1f s%n", seconds));
+        report.append(String.format("  %d connections, %d failed to connect, %d closed by the server early%n"
+                , connections.sum(), failedConnections.sum(), lostConnections.sum()));
+        report.append(String.format("  sent %d frames (%.1f/s), %d skipped, %d control ones skipped,"
+                        + " %d missed by the capture, max send lag %.1f ms%n", sent.sum(), sent.sum() / seconds
+                , skipped.sum(), controlSkipped.sum(), capturedDropped, maxSendLag.get() * NANOS_TO_MILLIS));
+        report.append(String.format("  received %d accepted, %d denied, %d errors, %d other frames (%.1f/s)%n"
+                , accepted.sum(), denied.sum(), errors.sum(), pushed.sum(), pushed.sum() / seconds));
+        report.append(String.format("  %-28s %10s %9s %9s %9s %9s %9s%n", "response latency, ms", "count", "p50"
+                , "p90", "p99", "p99.9", "max"));
+        for (Map.Entry<MessageStatus, Histogram> entry : responseLatencies.entrySet()) {
+            Histogram histogram = entry.getValue();
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            report.append(String.format("  %-28s %10d %9.2f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey().name()
+                    , histogram.getCount(), histogram.getPercentile(0.5), histogram.getPercentile(0.9)
+                    , histogram.getPercentile(0.99), histogram.getPercentile(0.999), histogram.getMax()));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,22 @@
+package loadgen;
+
+import common.entities.message.MessageStatus;
+
+/**
+ *  The kinds of the requests the simulated users send during the load
+ * */
+enum RequestKind {
+    MESSAGE(MessageStatus.MESSAGE),
+    HISTORY(MessageStatus.MESSAGE_HISTORY),
+    MEMBERS(MessageStatus.ROOM_MEMBERS);
+
+    private final MessageStatus status;
+
+    RequestKind(MessageStatus status) {
+        this.status = status;
+    }
+
+    MessageStatus getStatus() {
+        return status;
+    }
+}
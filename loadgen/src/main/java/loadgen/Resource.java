@@ -0,0 +1,36 @@
+package loadgen;
+
+/**
+ *  The server resources the soak test watches. They are read from the server metrics, every resource may grow
+ * by the {@code soakTolerance} percents but at least by its {@code allowedGrowth} before it is considered a leak,
+ * since the small values fluctuate by more than a few percents.
+ * */
+enum Resource {
+    HEAP("messenger_jvm_heap_after_gc_bytes", "heap_after_gc_bytes", 32L * 1024 * 1024),
+    THREADS("messenger_jvm_threads_live", "threads", 8),
+    SESSIONS("messenger_online_sessions", "sessions", 8),
+    ROOMS("messenger_online_rooms", "rooms", 4),
+    FILE_DESCRIPTORS("messenger_process_open_fds", "open_fds", 16);
+
+    private final String metric;
+    private final String column;
+    private final long allowedGrowth;
+
+    Resource(String metric, String column, long allowedGrowth) {
+        this.metric = metric;
+        this.column = column;
+        this.allowedGrowth = allowedGrowth;
+    }
+
+    String getMetric() {
+        return metric;
+    }
+
+    String getColumn() {
+        return column;
+    }
+
+    long getAllowedGrowth() {
+        return allowedGrowth;
+    }
+}
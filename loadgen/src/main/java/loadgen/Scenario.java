@@ -0,0 +1,264 @@
+package loadgen;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The {@code Scenario} describes the load: the amount of the simulated users and rooms and the rates
+ * of their requests. It is read from an XML properties file (the same format as the server configurations),
+ * the missing properties take the default values of {@code getDefaultProperties}.
+ * */
+public class Scenario {
+    private final Properties properties;
+
+    private Scenario(Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @param           scenarioFile an XML properties file or {@code null} to use the defaults only
+     * @param           overrides the {@code key=value} pairs that take precedence over the file
+     * */
+    public static Scenario load(File scenarioFile, @NotNull String... overrides) throws IOException {
+        Properties properties = new Properties(getDefaultProperties());
+        if (scenarioFile != null) {
+            try (FileInputStream fileInputStream = new FileInputStream(scenarioFile)) {
+                properties.loadFromXML(fileInputStream);
+            }
+        }
+        for (String override : overrides) {
+            int separator = override.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but found ".concat(override));
+            }
+            properties.setProperty(override.substring(0, separator).trim(), override.substring(separator + 1).trim());
+        }
+        return new Scenario(properties);
+    }
+
+    public static Properties getDefaultProperties() {
+        Properties properties = new Properties();
+        // the address of the server under the load
+        properties.setProperty("host", "localhost");
+        properties.setProperty("port", "5940");
+        // the amount of the simulated users, every user has its own connection
+        properties.setProperty("users", "100");
+        // the logins are the prefix followed by the user number
+        properties.setProperty("loginPrefix", "loadgen");
+        properties.setProperty("password", "loadgen");
+        // whether the users are registered first, the already registered ones are used as is
+        properties.setProperty("register", "true");
+        // the amount of the rooms the users are spread over, 0 - everybody chats in the common chat
+        properties.setProperty("rooms", "10");
+        // the messages every user sends per second
+        properties.setProperty("messageRate", "1");
+        // the length of the message text
+        properties.setProperty("messageSize", "40");
+        // the MESSAGE_HISTORY requests every user sends per second
+        properties.setProperty("historyRate", "0.01");
+        // the ROOM_MEMBERS requests every user sends per second
+        properties.setProperty("membersRate", "0.05");
+        // seconds of the load which is not measured
+        properties.setProperty("warmup", "10");
+        // seconds of the measured load
+        properties.setProperty("duration", "60");
+        // the threads sending the requests on schedule
+        properties.setProperty("senderThreads", "4");
+        // the users registered and logged in concurrently during the preparation
+        properties.setProperty("connectParallelism", "16");
+        // seconds between the intermediate reports
+        properties.setProperty("reportInterval", "5");
+        // seconds the soak test churns the sessions for
+        properties.setProperty("soakDuration", "14400");
+        // the mean seconds a soak test session lasts before it disconnects
+        properties.setProperty("sessionLifetime", "60");
+        // the mean seconds a disconnected soak test user stays offline
+        properties.setProperty("reconnectDelay", "5");
+        // the metricsPort of the server, the soak test reads the server resources from its /metrics
+        properties.setProperty("metricsPort", "");
+        // seconds between the samples of the server resources
+        properties.setProperty("sampleInterval", "60");
+        // seconds of the soak test the samples of which are not used to judge the resources growth
+        properties.setProperty("soakWarmup", "600");
+        // percents a resource may grow by during the soak test
+        properties.setProperty("soakTolerance", "10");
+        // the CSV file the samples of the server resources are written to
+        properties.setProperty("soakReport", "soak.csv");
+        // the capture file of the server (see captureFile of the server configurations) the replay sends
+        properties.setProperty("captureFile", "capture.bin");
+        // how many times faster than captured the replay goes, max - as fast as the server takes the frames
+        properties.setProperty("replaySpeed", "1");
+        // whether the captured server administrator requests (stop, restart, ban, ...) are replayed as well
+        properties.setProperty("replayControl", "false");
+        // the serverLogin and serverPassword of the replayed server, the capture does not keep them
+        properties.setProperty("serverLogin", "");
+        properties.setProperty("serverPassword", "");
+        return properties;
+    }
+
+    public String getHost() {
+        return properties.getProperty("host");
+    }
+
+    public int getPort() {
+        return getInt("port");
+    }
+
+    public int getUsers() {
+        return getInt("users");
+    }
+
+    public String getLogin(int user) {
+        return properties.getProperty("loginPrefix").concat(String.valueOf(user));
+    }
+
+    public String getPassword() {
+        return properties.getProperty("password");
+    }
+
+    public boolean isRegister() {
+        return Boolean.parseBoolean(properties.getProperty("register"));
+    }
+
+    public int getRooms() {
+        return getInt("rooms");
+    }
+
+    public double getMessageRate() {
+        return getDouble("messageRate");
+    }
+
+    public int getMessageSize() {
+        return getInt("messageSize");
+    }
+
+    public double getHistoryRate() {
+        return getDouble("historyRate");
+    }
+
+    public double getMembersRate() {
+        return getDouble("membersRate");
+    }
+
+    public long getWarmupSeconds() {
+        return getInt("warmup");
+    }
+
+    public long getDurationSeconds() {
+        return getInt("duration");
+    }
+
+    public int getSenderThreads() {
+        return Math.max(1, getInt("senderThreads"));
+    }
+
+    public int getConnectParallelism() {
+        return Math.max(1, getInt("connectParallelism"));
+    }
+
+    public long getReportIntervalSeconds() {
+        return Math.max(1, getInt("reportInterval"));
+    }
+
+    public long getSoakDurationSeconds() {
+        return getInt("soakDuration");
+    }
+
+    public double getSessionLifetimeSeconds() {
+        return getDouble("sessionLifetime");
+    }
+
+    public double getReconnectDelaySeconds() {
+        return getDouble("reconnectDelay");
+    }
+
+    /**
+     * @throws          IllegalArgumentException if the {@code metricsPort} has not been set
+     * */
+    public int getMetricsPort() {
+        if (properties.getProperty("metricsPort").trim().isEmpty()) {
+            throw new IllegalArgumentException("The metricsPort of the server must be set");
+        }
+        return getInt("metricsPort");
+    }
+
+    public long getSampleIntervalSeconds() {
+        return Math.max(1, getInt("sampleInterval"));
+    }
+
+    public long getSoakWarmupSeconds() {
+        return getInt("soakWarmup");
+    }
+
+    public double getSoakTolerancePercent() {
+        return getDouble("soakTolerance");
+    }
+
+    public File getSoakReportFile() {
+        return new File(properties.getProperty("soakReport"));
+    }
+
+    public File getCaptureFile() {
+        return new File(properties.getProperty("captureFile"));
+    }
+
+    /**
+     * @return          the replay speed factor, {@code Double.POSITIVE_INFINITY} for the {@code max} speed
+     * */
+    public double getReplaySpeed() {
+        if ("max".equalsIgnoreCase(properties.getProperty("replaySpeed").trim())) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double speed = getDouble("replaySpeed");
+        if (speed <= 0) {
+            throw new IllegalArgumentException(buildMessage("Invalid replaySpeed value:", speed));
+        }
+        return speed;
+    }
+
+    /**
+     * @return          {@code true} if the captured control requests (see {@code TrafficCapture.CONTROL_STATUSES})
+     *                  are replayed, they are skipped by default
+     * */
+    public boolean isReplayControl() {
+        return Boolean.parseBoolean(properties.getProperty("replayControl").trim());
+    }
+
+    public String getServerLogin() {
+        return properties.getProperty("serverLogin");
+    }
+
+    public String getServerPassword() {
+        return properties.getProperty("serverPassword");
+    }
+
+    private int getInt(String name) {
+        try {
+            return Integer.parseInt(properties.getProperty(name).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(buildMessage("Invalid", name, "value:", properties.getProperty(name)));
+        }
+    }
+
+    private double getDouble(String name) {
+        try {
+            return Double.parseDouble(properties.getProperty(name).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(buildMessage("Invalid", name, "value:", properties.getProperty(name)));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d users in %d rooms on %s:%d, %.2f messages/s of %d chars, %.3f histories/s"
+                        + " and %.3f member lists/s per user, %d s warmup, %d s measured", getUsers(), getRooms()
+                , getHost(), getPort(), getMessageRate(), getMessageSize(), getHistoryRate(), getMembersRate()
+                , getWarmupSeconds(), getDurationSeconds());
+    }
+}
@@ -0,0 +1,319 @@
+package loadgen;
+
+import org.apache.log4j.Logger;
+import org.apache.log4j.PropertyConfigurator;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The {@code SoakTest} churns the sessions of a running server for hours: every simulated user logs in, chats
+ * in its room for a random time (the mean is {@code sessionLifetime}), disconnects, stays offline for a random
+ * time (the mean is {@code reconnectDelay}) and logs in again. Meanwhile the server resources (see
+ * {@code Resource}) are read from the server {@code /metrics} every {@code sampleInterval} and written
+ * to the {@code soakReport} CSV file.
+ *
+ *  When the {@code soakDuration} is over, the samples taken after the {@code soakWarmup} are split into quarters.
+ * The test fails (the exit code is {@code 2}) if a resource has grown from the first quarter to the last one
+ * by more than the {@code soakTolerance} percents and its allowed growth.
+ *
+ *  Usage: {@code java -cp LoadGenerator-jar-with-dependencies.jar loadgen.SoakTest [scenario.xml] [key=value ...]}
+ * */
+public class SoakTest {
+    private static final int MIN_SAMPLES = 8;
+    private static volatile Logger LOGGER = Logger.getLogger(SoakTest.class.getSimpleName());
+    private final Scenario scenario;
+    private final LoadStats stats = new LoadStats();
+    private final Map<String, Integer> roomIds = new HashMap<>();
+    private final AtomicReferenceArray<VirtualClient> sessions;
+    private final AtomicLong sessionsOpened = new AtomicLong();
+    private final AtomicLong sessionsFailed = new AtomicLong();
+    private final List<Long> sampleTimes = new ArrayList<>();
+    private final Map<Resource, List<Long>> samples = new EnumMap<>(Resource.class);
+    private ScheduledExecutorService churn;
+    private volatile boolean stopped;
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    public SoakTest(@NotNull Scenario scenario) {
+        this.scenario = scenario;
+        sessions = new AtomicReferenceArray<>(scenario.getUsers());
+        for (Resource resource : Resource.values()) {
+            samples.put(resource, new ArrayList<>());
+        }
+    }
+
+    public static void main(String[] args) {
+        PropertyConfigurator.configure(SoakTest.class.getResourceAsStream("/loadgen-log4j.properties"));
+        File scenarioFile = null;
+        String [] overrides = args;
+        if (args.length > 0 && !args[0].contains("=")) {
+            scenarioFile = new File(args[0]);
+            overrides = Arrays.copyOfRange(args, 1, args.length);
+        }
+        try {
+            System.exit(new SoakTest(Scenario.load(scenarioFile, overrides)).run() ? 0 : 2);
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.fatal(e.getLocalizedMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            LOGGER.fatal("Interrupted");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return          {@code true} if none of the server resources has grown beyond the tolerance
+     * */
+    public boolean run() throws IOException, InterruptedException {
+        scenario.getMetricsPort();
+        LOGGER.info(buildMessage("Soak test for", scenario.getSoakDurationSeconds(), "s:", scenario));
+        LoadGenerator generator = new LoadGenerator(scenario);
+        try {
+            generator.setUp();
+        } finally {
+            for (VirtualClient client : generator.getClients()) {
+                roomIds.put(client.getLogin(), client.getRoomId());
+                client.close();
+            }
+        }
+        churn = Executors.newScheduledThreadPool(scenario.getConnectParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "churn");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(scenario.getSoakDurationSeconds());
+        for (int user = 0; user < scenario.getUsers(); user++) {
+            int scheduledUser = user;
+            churn.schedule(() -> startSession(scheduledUser), randomNanos(scenario.getReconnectDelaySeconds())
+                    , TimeUnit.NANOSECONDS);
+        }
+        try (PrintWriter report = new PrintWriter(new FileWriter(scenario.getSoakReportFile()))) {
+            report.print("seconds");
+            for (Resource resource : Resource.values()) {
+                report.print(',');
+                report.print(resource.getColumn());
+            }
+            report.println();
+            long nextSample = start;
+            while (nextSample < end) {
+                TimeUnit.NANOSECONDS.sleep(nextSample - System.nanoTime());
+                sample(report, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+                nextSample += TimeUnit.SECONDS.toNanos(scenario.getSampleIntervalSeconds());
+            }
+        } finally {
+            stopped = true;
+            churn.shutdownNow();
+            for (int user = 0; user < sessions.length(); user++) {
+                VirtualClient client = sessions.getAndSet(user, null);
+                if (client != null) {
+                    client.close();
+                }
+            }
+        }
+        return evaluate();
+    }
+
+    /**
+     * @return          a random time in nanoseconds, exponentially distributed with the mean {@code meanSeconds}
+     * */
+    private static long randomNanos(double meanSeconds) {
+        return (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanSeconds * 1e9);
+    }
+
+    private void startSession(int user) {
+        if (stopped) {
+            return;
+        }
+        VirtualClient client;
+        try {
+            client = VirtualClient.connect(scenario, user, stats);
+        } catch (IOException e) {
+            sessionsFailed.incrementAndGet();
+            LOGGER.warn(e.getLocalizedMessage());
+            churn.schedule(() -> startSession(user), randomNanos(scenario.getReconnectDelaySeconds())
+                    , TimeUnit.NANOSECONDS);
+            return;
+        }
+        sessionsOpened.incrementAndGet();
+        client.setRoomId(roomIds.getOrDefault(client.getLogin(), 0));
+        sessions.set(user, client);
+        chat(user, client, System.nanoTime() + randomNanos(scenario.getSessionLifetimeSeconds()));
+    }
+
+    /**
+     *  Sends the next message of the session or closes it if its lifetime is over
+     * */
+    private void chat(int user, VirtualClient client, long sessionEnd) {
+        long now = System.nanoTime();
+        if (stopped || client.isClosed() || now >= sessionEnd) {
+            client.close();
+            sessions.compareAndSet(user, client, null);
+            if (!stopped) {
+                churn.schedule(() -> startSession(user), randomNanos(scenario.getReconnectDelaySeconds())
+                        , TimeUnit.NANOSECONDS);
+            }
+            return;
+        }
+        long delay = sessionEnd - now;
+        if (scenario.getMessageRate() > 0) {
+            client.send(RequestKind.MESSAGE, now);
+            delay = Math.min(delay, randomNanos(1 / scenario.getMessageRate()));
+        }
+        churn.schedule(() -> chat(user, client, sessionEnd), delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void sample(PrintWriter report, long seconds) {
+        Map<String, Long> metrics;
+        try {
+            metrics = readMetrics();
+        } catch (IOException e) {
+            LOGGER.warn(buildMessage("Unable to read the server metrics:", e.getLocalizedMessage()));
+            return;
+        }
+        StringBuilder line = new StringBuilder(String.valueOf(seconds));
+        StringBuilder log = new StringBuilder(buildMessage(seconds, "s:", sessionsOpened.get(), "sessions opened,"
+                , sessionsFailed.get(), "failed;"));
+        for (Resource resource : Resource.values()) {
+            Long value = metrics.get(resource.getMetric());
+            if (value == null) {
+                LOGGER.warn(buildMessage("The server does not report", resource.getMetric()));
+                return;
+            }
+            line.append(',').append(value);
+            log.append(' ').append(resource.getColumn()).append('=').append(value);
+        }
+        sampleTimes.add(seconds);
+        for (Resource resource : Resource.values()) {
+            samples.get(resource).add(metrics.get(resource.getMetric()));
+        }
+        report.println(line);
+        report.flush();
+        LOGGER.info(log);
+    }
+
+    /**
+     * @return          the values of the unlabelled samples of the server metrics
+     * */
+    private Map<String, Long> readMetrics() throws IOException {
+        URL url = new URL("http", scenario.getHost(), scenario.getMetricsPort(), "/metrics");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(10));
+        connection.setReadTimeout((int) TimeUnit.SECONDS.toMillis(10));
+        Map<String, Long> metrics = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()
+                , StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(' ');
+                if (line.startsWith("#") || separator < 0 || line.indexOf('{') >= 0) {
+                    continue;
+                }
+                try {
+                    metrics.put(line.substring(0, separator), (long) Double.parseDouble(line.substring(separator + 1)));
+                } catch (NumberFormatException e) {
+                    // not a gauge value e.g. NaN
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+        return metrics;
+    }
+
+    /**
+     *  Compares the means of the first and the last quarters of the samples taken after the warmup
+     *
+     * @return          {@code true} if none of the resources has grown beyond the tolerance
+     * */
+    private boolean evaluate() {
+        int first = 0;
+        while (first < sampleTimes.size() && sampleTimes.get(first) < scenario.getSoakWarmupSeconds()) {
+            first++;
+        }
+        int count = sampleTimes.size() - first;
+        if (count < MIN_SAMPLES) {
+            LOGGER.warn(buildMessage("Only", count, "samples have been taken after the warmup, at least"
+                    , MIN_SAMPLES, "are needed to judge the resources growth"));
+            return true;
+        }
+        int quarter = count / 4;
+        boolean passed = true;
+        StringBuilder summary = new StringBuilder(buildMessage("Soak test results:", sessionsOpened.get()
+                , "sessions opened,", sessionsFailed.get(), "failed"));
+        for (Resource resource : Resource.values()) {
+            List<Long> values = samples.get(resource);
+            double firstMean = mean(values, first, first + quarter);
+            double lastMean = mean(values, values.size() - quarter, values.size());
+            double allowed = Math.max(resource.getAllowedGrowth()
+                    , Math.abs(firstMean) * scenario.getSoakTolerancePercent() / 100);
+            boolean leaks = lastMean - firstMean > allowed;
+            passed &= !leaks;
+            summary.append(String.format("%n  %-20s %14.1f -> %14.1f (%+.1f, allowed %.1f, %+.2f per hour) %s"
+                    , resource.getColumn(), firstMean, lastMean, lastMean - firstMean, allowed
+                    , slopePerHour(values, first), leaks ? "GROWS" : "ok"));
+        }
+        if (passed) {
+            LOGGER.info(summary);
+        } else {
+            LOGGER.error(summary);
+        }
+        return passed;
+    }
+
+    private static double mean(List<Long> values, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values.get(i);
+        }
+        return sum / (to - from);
+    }
+
+    /**
+     * @return          the least squares slope of the {@code values} since the {@code first} one
+     * */
+    private double slopePerHour(List<Long> values, int first) {
+        int count = values.size() - first;
+        double meanTime = 0;
+        double meanValue = 0;
+        for (int i = first; i < values.size(); i++) {
+            meanTime += sampleTimes.get(i);
+            meanValue += values.get(i);
+        }
+        meanTime /= count;
+        meanValue /= count;
+        double covariance = 0;
+        double variance = 0;
+        for (int i = first; i < values.size(); i++) {
+            double time = sampleTimes.get(i) - meanTime;
+            covariance += time * (values.get(i) - meanValue);
+            variance += time * time;
+        }
+        return variance == 0 ? 0 : covariance / variance * TimeUnit.HOURS.toSeconds(1);
+    }
+}
@@ -0,0 +1,305 @@
+package loadgen;
+
+import common.entities.message.Message;
+import common.entities.message.MessageStatus;
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.bind.JAXBException;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The {@code VirtualClient} is a simulated user: a connection logged in as the user and a thread reading it.
+ *
+ *  The load messages are tagged by the text {@code "#lg <intended> <sent> "} (the {@code System.nanoTime()}
+ * moments the message has been scheduled for and written at) followed by the filler, so every room member
+ * receiving the {@code NEW_MESSAGE} measures the delivery latency. All the simulated users live in the same
+ * process, so the moments are comparable.
+ * */
+class VirtualClient implements Runnable {
+    static final String TAG = "#lg ";
+    private static final long REQUEST_TIMEOUT = 30;
+    private static volatile Logger LOGGER = Logger.getLogger(VirtualClient.class.getSimpleName());
+    // the heartbeats are answered off the reader thread, it must not block on a writer holding the stream
+    private static final ExecutorService HEARTBEATS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final String login;
+    private final int clientId;
+    private final LoadStats stats;
+    private final String filler;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final Queue<PendingRequest> pendingRequests = new ConcurrentLinkedQueue<>();
+    private final Thread reader;
+    private volatile int roomId;
+    private volatile boolean closed;
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    private VirtualClient(@NotNull Scenario scenario, String login, @NotNull LoadStats stats) throws IOException {
+        this.login = login;
+        this.clientId = login.hashCode();
+        this.stats = stats;
+        char [] fillerChars = new char[Math.max(0, scenario.getMessageSize())];
+        Arrays.fill(fillerChars, 'x');
+        filler = new String(fillerChars);
+        socket = new Socket(scenario.getHost(), scenario.getPort());
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(socket.getInputStream());
+        out = new DataOutputStream(socket.getOutputStream());
+        reader = new Thread(this, "reader-".concat(login));
+        reader.setDaemon(true);
+    }
+
+    /**
+     *  Connects to the server and logs in
+     *
+     * @param           scenario the load description
+     * @param           user a number of the simulated user
+     * @param           stats the collector of the measured results
+     *
+     * @return          the logged in client
+     *
+     * @throws          IOException if the connection has failed or the server has not accepted the login
+     * */
+    static VirtualClient connect(@NotNull Scenario scenario, int user, @NotNull LoadStats stats)
+            throws IOException {
+        VirtualClient client = new VirtualClient(scenario, scenario.getLogin(user), stats);
+        client.reader.start();
+        Message response = client.request(new Message(MessageStatus.AUTH).setLogin(client.login)
+                .setPassword(scenario.getPassword()));
+        if (response.getStatus() != MessageStatus.ACCEPTED) {
+            client.close();
+            throw new IOException(buildMessage("Login", client.login, "has failed:", response.getText()));
+        }
+        return client;
+    }
+
+    /**
+     *  Registers the simulated user over a separate connection, since the server closes the connection
+     * after the registration
+     *
+     * @return          {@code true} if the user has been registered or its login has been taken before
+     * */
+    static boolean register(@NotNull Scenario scenario, int user) throws IOException {
+        try (Socket socket = new Socket(scenario.getHost(), scenario.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            out.writeUTF(Wire.encode(new Message(MessageStatus.REGISTRATION).setLogin(scenario.getLogin(user))
+                    .setPassword(scenario.getPassword())));
+            out.flush();
+            Message response = Wire.decode(in.readUTF());
+            if (response.getStatus() == MessageStatus.ACCEPTED || response.getStatus() == MessageStatus.DENIED) {
+                return true;
+            }
+            LOGGER.warn(buildMessage("Registration of", scenario.getLogin(user), "has failed:"
+                    , response.getText()));
+            return false;
+        } catch (JAXBException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     *  Sends the preparation request and waits for its response
+     *
+     * @throws          IOException if the connection has been closed or the response has not come in time
+     * */
+    Message request(@NotNull Message message) throws IOException {
+        CompletableFuture<Message> response = new CompletableFuture<>();
+        write(message, new PendingRequest(null, 0, System.nanoTime(), response));
+        try {
+            return response.get(REQUEST_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException(buildMessage("No response to", message.getStatus(), "from", login));
+        }
+    }
+
+    /**
+     *  Sends the load request without waiting for the response. The calling thread is blocked only while
+     * the server does not read the connection.
+     *
+     * @param           kind a kind of the request
+     * @param           intendedNanos the moment the request has been scheduled for
+     * */
+    void send(@NotNull RequestKind kind, long intendedNanos) {
+        if (closed) {
+            return;
+        }
+        Message message = new Message(kind.getStatus()).setFromId(clientId).setRoomId(roomId);
+        try {
+            synchronized (out) {
+                long sentNanos = System.nanoTime();
+                if (kind == RequestKind.MESSAGE) {
+                    message.setText(TAG + intendedNanos + ' ' + sentNanos + ' ' + filler);
+                }
+                writeLocked(message, new PendingRequest(kind, intendedNanos, sentNanos, null));
+                stats.requestSent(kind, intendedNanos, sentNanos);
+            }
+        } catch (IOException e) {
+            LOGGER.warn(buildMessage("Sending from", login, "has failed:", e.getLocalizedMessage()));
+            close();
+        }
+    }
+
+    private void write(Message message, PendingRequest request) throws IOException {
+        synchronized (out) {
+            writeLocked(message, request);
+        }
+    }
+
+    private void writeLocked(Message message, PendingRequest request) throws IOException {
+        if (closed) {
+            throw new IOException(buildMessage("The connection of", login, "is closed"));
+        }
+        String frame;
+        try {
+            frame = Wire.encode(message);
+        } catch (JAXBException e) {
+            throw new IOException(e);
+        }
+        pendingRequests.add(request);
+        out.writeUTF(frame);
+        out.flush();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!closed) {
+                handle(Wire.decode(in.readUTF()), System.nanoTime());
+            }
+        } catch (EOFException e) {
+            if (!closed) {
+                LOGGER.warn(buildMessage("The server has closed the connection of", login));
+            }
+        } catch (IOException | JAXBException e) {
+            if (!closed) {
+                LOGGER.warn(buildMessage("Reading of", login, "has failed:", e.getLocalizedMessage()));
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void handle(Message message, long nanos) throws IOException {
+        MessageStatus status = message.getStatus();
+        if (status == MessageStatus.ACCEPTED || status == MessageStatus.DENIED || status == MessageStatus.ERROR) {
+            PendingRequest request = pendingRequests.poll();
+            if (request == null) {
+                LOGGER.warn(buildMessage("Unexpected", status, "for", login, ':', message.getText()));
+            } else if (request.getResponse() != null) {
+                request.getResponse().complete(message);
+            } else if (request.getKind() != null) {
+                stats.responseReceived(request, status == MessageStatus.ACCEPTED, status == MessageStatus.DENIED
+                        , nanos);
+            }
+            return;
+        }
+        if (status == MessageStatus.HEARTBEAT) {
+            HEARTBEATS.execute(() -> {
+                try {
+                    write(new Message(MessageStatus.HEARTBEAT), new PendingRequest(null, 0, nanos, null));
+                } catch (IOException e) {
+                    if (!closed) {
+                        LOGGER.warn(buildMessage("The heartbeat of", login, "has failed:", e.getLocalizedMessage()));
+                    }
+                }
+            });
+            return;
+        }
+        PendingRequest head = pendingRequests.peek();
+        boolean inHistory = head != null && head.getKind() == RequestKind.HISTORY;
+        String text = message.getText();
+        if (status != MessageStatus.NEW_MESSAGE || text == null || !text.startsWith(TAG)) {
+            if (inHistory) {
+                stats.historyFrameReceived();
+            } else {
+                stats.notificationReceived();
+            }
+            return;
+        }
+        int intendedEnd = text.indexOf(' ', TAG.length());
+        int sentEnd = text.indexOf(' ', intendedEnd + 1);
+        long intendedNanos;
+        long sentNanos;
+        try {
+            intendedNanos = Long.parseLong(text.substring(TAG.length(), intendedEnd));
+            sentNanos = Long.parseLong(text.substring(intendedEnd + 1, sentEnd));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            stats.notificationReceived();
+            return;
+        }
+        if (!inHistory) {
+            stats.messageDelivered(intendedNanos, sentNanos, nanos);
+        } else if (sentNanos > head.getSentNanos()) {
+            stats.deliveryNotMeasured();
+        } else {
+            stats.historyFrameReceived();
+        }
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.warn(e.getLocalizedMessage());
+        }
+        PendingRequest request;
+        while ((request = pendingRequests.poll()) != null) {
+            if (request.getResponse() != null) {
+                request.getResponse().completeExceptionally(new EOFException("The connection has been closed"));
+            }
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    String getLogin() {
+        return login;
+    }
+
+    int getClientId() {
+        return clientId;
+    }
+
+    int getRoomId() {
+        return roomId;
+    }
+
+    void setRoomId(int roomId) {
+        this.roomId = roomId;
+    }
+}
@@ -0,0 +1,55 @@
+package loadgen;
+
+import common.entities.message.Message;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+/**
+ *  The message encoding of the server protocol: the XML of a {@code Message} framed by
+ * {@code DataOutputStream.writeUTF}. The context is shared, the (un)marshallers are kept per thread.
+ * */
+final class Wire {
+    private static final JAXBContext CONTEXT;
+    private static final ThreadLocal<Marshaller> MARSHALLERS;
+    private static final ThreadLocal<Unmarshaller> UNMARSHALLERS;
+
+    static {
+        try {
+            CONTEXT = JAXBContext.newInstance(Message.class);
+        } catch (JAXBException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        MARSHALLERS = ThreadLocal.withInitial(() -> {
+            try {
+                return CONTEXT.createMarshaller();
+            } catch (JAXBException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        UNMARSHALLERS = ThreadLocal.withInitial(() -> {
+            try {
+                return CONTEXT.createUnmarshaller();
+            } catch (JAXBException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private Wire() {
+    }
+
+    static String encode(Message message) throws JAXBException {
+        StringWriter stringWriter = new StringWriter();
+        MARSHALLERS.get().marshal(message, stringWriter);
+        return stringWriter.toString();
+    }
+
+    static Message decode(String xml) throws JAXBException {
+        return (Message) UNMARSHALLERS.get().unmarshal(new StringReader(xml));
+    }
+}
@@ -0,0 +1,368 @@
+package sdk;
+
+import common.entities.message.Message;
+import common.entities.message.MessageStatus;
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.bind.JAXBException;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The {@code MessengerClient} is a headless connection to the server for the bots and the integrations.
+ * Every request method sends the request at once and returns a future completed by the response, whatever
+ * its status is (the {@code DENIED} and {@code ERROR} responses included). A future completes exceptionally
+ * only if the connection has been closed before the response. The frames the server sends on its own are passed
+ * to the {@code PushListener}.
+ *
+ *  Every connection has a single reader thread with a small stack, so a process may drive thousands
+ * of connections. The futures are completed and the listener is called by the reader thread: the dependent
+ * actions must not block it, the blocking ones are to be run by the {@code *Async} methods
+ * of the {@code CompletableFuture}. The server answers the requests of a connection one by one,
+ * so the responses are matched to the requests in order.
+ *
+ *  The server heartbeats are answered automatically.
+ *
+ *      MessengerClient client = MessengerClient.connect("localhost", 5940, (source, message) ->
+ *              System.out.println(message.getText()));
+ *      client.login("bot", "secret").thenCompose(response -> client.sendMessage(0, "Hello"));
+ * */
+public class MessengerClient implements Closeable {
+    private static final long READER_STACK_SIZE = 256 * 1024;
+    private static volatile Logger LOGGER = Logger.getLogger(MessengerClient.class.getSimpleName());
+    private static final ExecutorService HEARTBEATS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final PushListener listener;
+    private final Queue<PendingRequest> pendingRequests = new ConcurrentLinkedQueue<>();
+    private final Thread reader;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile int clientId;
+    private volatile String token;
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    private MessengerClient(@NotNull Socket socket, @NotNull PushListener listener) throws IOException {
+        this.socket = socket;
+        this.listener = listener;
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(socket.getInputStream());
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        reader = new Thread(null, this::read, "reader-".concat(String.valueOf(socket.getLocalPort()))
+                , READER_STACK_SIZE);
+        reader.setDaemon(true);
+    }
+
+    /**
+     *  Connects to the server, the client is to {@code login} or to {@code resume} a session then
+     *
+     * @param           listener the receiver of the frames the server sends on its own
+     *
+     * @throws          IOException if the connection has failed
+     * */
+    public static MessengerClient connect(@NotNull String host, int port, @NotNull PushListener listener)
+            throws IOException {
+        MessengerClient client = new MessengerClient(new Socket(host, port), listener);
+        client.reader.start();
+        return client;
+    }
+
+    /**
+     *  Registers a new account. The server closes the connection after the registration, so the client
+     * is to connect again to log in.
+     *
+     * @return          the future of {@code ACCEPTED} or {@code DENIED} if the login has been taken
+     * */
+    public CompletableFuture<Message> register(@NotNull String login, @NotNull String password) {
+        return request(new Message(MessageStatus.REGISTRATION).setLogin(login).setPassword(password));
+    }
+
+    /**
+     * @return          the future of {@code ACCEPTED} the text of which is the session token
+     *                  (see {@code resume}) or {@code DENIED}
+     * */
+    public CompletableFuture<Message> login(@NotNull String login, @NotNull String password) {
+        clientId = login.hashCode();
+        return request(new Message(MessageStatus.AUTH).setLogin(login).setPassword(password))
+                .thenApply(this::keepToken);
+    }
+
+    /**
+     *  Resumes the session of the broken connection. The messages the client has missed meanwhile
+     * are passed to the listener before the response.
+     *
+     * @param           login the login of the session
+     * @param           token the session token returned by the {@code login} or the previous {@code resume}
+     *
+     * @return          the future of {@code ACCEPTED} the text of which is the new session token or {@code DENIED}
+     * */
+    public CompletableFuture<Message> resume(@NotNull String login, @NotNull String token) {
+        clientId = login.hashCode();
+        return request(new Message(MessageStatus.RESUME).setText(token)).thenApply(this::keepToken);
+    }
+
+    private Message keepToken(Message response) {
+        if (response.getStatus() == MessageStatus.ACCEPTED) {
+            token = response.getText();
+        }
+        return response;
+    }
+
+    public CompletableFuture<Message> sendMessage(int roomId, @NotNull String text) {
+        return request(new Message(MessageStatus.MESSAGE).setFromId(clientId).setRoomId(roomId).setText(text));
+    }
+
+    /**
+     * @return          the future of {@code ACCEPTED} the {@code roomId} of which is the id of the new room
+     * */
+    public CompletableFuture<Message> createRoom() {
+        return request(new Message(MessageStatus.CREATE_ROOM).setFromId(clientId));
+    }
+
+    public CompletableFuture<Message> deleteRoom(int roomId) {
+        return request(new Message(MessageStatus.DELETE_ROOM).setFromId(clientId).setRoomId(roomId));
+    }
+
+    public CompletableFuture<Message> invite(int roomId, int memberId) {
+        return request(new Message(MessageStatus.INVITE_CLIENT).setFromId(clientId).setToId(memberId)
+                .setRoomId(roomId));
+    }
+
+    public CompletableFuture<Message> uninvite(int roomId, int memberId) {
+        return request(new Message(MessageStatus.UNINVITE_CLIENT).setFromId(clientId).setToId(memberId)
+                .setRoomId(roomId));
+    }
+
+    /**
+     * @return          the future of {@code ROOM_LIST} the text of which is the comma separated ids of the rooms
+     *                  the client is a member of
+     * */
+    public CompletableFuture<Message> roomList() {
+        return request(new Message(MessageStatus.ROOM_LIST).setFromId(clientId));
+    }
+
+    /**
+     * @return          the future of {@code ACCEPTED} the text of which is the comma separated ids of the members
+     * */
+    public CompletableFuture<Message> roomMembers(int roomId) {
+        return request(new Message(MessageStatus.ROOM_MEMBERS).setFromId(clientId).setRoomId(roomId));
+    }
+
+    /**
+     * @return          the future of {@code ACCEPTED} the text of which is the login of the client
+     * */
+    public CompletableFuture<Message> clientName(int id) {
+        return request(new Message(MessageStatus.GET_CLIENT_NAME).setFromId(clientId).setToId(id));
+    }
+
+    /**
+     *  Requests the stored messages of the room. The server sends them as {@code NEW_MESSAGE} frames, so
+     * a message sent to the same room while the history is being transferred may be included in the history
+     * instead of being passed to the listener.
+     *
+     * @return          the future of the messages of the room, the oldest one goes first. It completes
+     *                  exceptionally with {@code RejectedRequestException} if the server has not sent the history.
+     * */
+    public CompletableFuture<List<Message>> messageHistory(int roomId) {
+        return messageHistory(roomId, 0);
+    }
+
+    /**
+     *  Requests the stored messages of the room newer than the cursor, e.g. the ones a cache has missed
+     *
+     * @param           sequence the sequence number of the last message of the room the caller has
+     *                  (see {@code Message.getSequence}), {@code 0} requests the whole history
+     *
+     * @return          the future of the newer messages of the room (see {@code messageHistory(int)})
+     * */
+    public CompletableFuture<List<Message>> messageHistory(int roomId, long sequence) {
+        PendingRequest request = new PendingRequest(MessageStatus.MESSAGE_HISTORY, roomId);
+        send(new Message(MessageStatus.MESSAGE_HISTORY).setFromId(clientId).setRoomId(roomId)
+                .setText(sequence == 0 ? "" : String.valueOf(sequence)), request);
+        return request.response.thenApply(response -> {
+            if (response.getStatus() != MessageStatus.ACCEPTED) {
+                throw new RejectedRequestException(response);
+            }
+            return request.history;
+        });
+    }
+
+    /**
+     *  Sends any request (e.g. the server control ones) as it is
+     *
+     * @return          the future of the response
+     * */
+    public CompletableFuture<Message> request(@NotNull Message message) {
+        PendingRequest request = new PendingRequest(message.getStatus(), 0);
+        send(message, request);
+        return request.response;
+    }
+
+    private void send(Message message, PendingRequest request) {
+        String frame;
+        try {
+            frame = Codec.encode(message);
+        } catch (JAXBException e) {
+            request.response.completeExceptionally(new IOException(e));
+            return;
+        }
+        IOException failure = null;
+        synchronized (out) {
+            if (closed.get()) {
+                failure = new EOFException("The connection has been closed");
+            } else {
+                pendingRequests.add(request);
+                try {
+                    out.writeUTF(frame);
+                    out.flush();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            request.response.completeExceptionally(failure);
+            close(failure);
+        } else if (closed.get() && pendingRequests.remove(request)) {
+            // the connection has been closed after the request has been queued and before it has been drained
+            request.response.completeExceptionally(new EOFException("The connection has been closed"));
+        }
+    }
+
+    private void read() {
+        IOException cause = null;
+        try {
+            while (!closed.get()) {
+                handle(Codec.decode(in.readUTF()));
+            }
+        } catch (EOFException e) {
+            LOGGER.debug("The server has closed the connection");
+        } catch (IOException e) {
+            cause = closed.get() ? null : e;
+        } catch (JAXBException e) {
+            cause = new IOException(e);
+        } finally {
+            close(cause);
+        }
+    }
+
+    private void handle(Message message) {
+        MessageStatus status = message.getStatus();
+        if (status == MessageStatus.ACCEPTED || status == MessageStatus.DENIED || status == MessageStatus.ERROR
+                || status == MessageStatus.ROOM_LIST) {
+            PendingRequest request = pendingRequests.poll();
+            if (request != null) {
+                request.response.complete(message);
+            } else {
+                // e.g. the re-login notice following the registration
+                notify(message);
+            }
+        } else if (status == MessageStatus.HEARTBEAT) {
+            HEARTBEATS.execute(() -> send(new Message(MessageStatus.HEARTBEAT)
+                    , new PendingRequest(MessageStatus.HEARTBEAT, 0)));
+        } else if (status == MessageStatus.NEW_MESSAGE) {
+            PendingRequest request = pendingRequests.peek();
+            if (request != null && request.history != null && message.getRoomId() != null
+                    && message.getRoomId() == request.roomId) {
+                request.history.add(message);
+            } else {
+                try {
+                    listener.onMessage(this, message);
+                } catch (RuntimeException e) {
+                    LOGGER.error(buildMessage("The listener has failed:", e.getLocalizedMessage()));
+                }
+            }
+        } else {
+            notify(message);
+        }
+    }
+
+    private void notify(Message message) {
+        try {
+            listener.onNotification(this, message);
+        } catch (RuntimeException e) {
+            LOGGER.error(buildMessage("The listener has failed:", e.getLocalizedMessage()));
+        }
+    }
+
+    /**
+     * @return          the id of the logged in client, it is the hash code of the login
+     * */
+    public int getClientId() {
+        return clientId;
+    }
+
+    /**
+     * @return          the token of the session to be resumed or {@code null} if the client has not logged in
+     * */
+    public String getToken() {
+        return token;
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    @Override
+    public void close() {
+        close(null);
+    }
+
+    private void close(IOException cause) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.warn(e.getLocalizedMessage());
+        }
+        PendingRequest request;
+        while ((request = pendingRequests.poll()) != null) {
+            request.response.completeExceptionally(cause != null ? cause
+                    : new EOFException("The connection has been closed"));
+        }
+        try {
+            listener.onClosed(this, cause);
+        } catch (RuntimeException e) {
+            LOGGER.error(buildMessage("The listener has failed:", e.getLocalizedMessage()));
+        }
+    }
+
+    /**
+     *  A request waiting for its response, the history request collects the history frames as well
+     * */
+    private static class PendingRequest {
+        private final CompletableFuture<Message> response = new CompletableFuture<>();
+        private final int roomId;
+        private final List<Message> history;
+
+        private PendingRequest(MessageStatus status, int roomId) {
+            this.roomId = roomId;
+            history = status == MessageStatus.MESSAGE_HISTORY ? new ArrayList<>() : null;
+        }
+    }
+}
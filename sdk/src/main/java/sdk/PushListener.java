@@ -0,0 +1,38 @@
+package sdk;
+
+import common.entities.message.Message;
+
+import java.io.IOException;
+
+/**
+ *  Receives the frames the server sends on its own. The methods are called by the reader thread
+ * of the connection, so they must not block: a slow listener delays the responses of the connection
+ * and the server may take the client for a slow consumer (see {@code slowConsumerWriteLatency}
+ * of the server configurations).
+ * */
+public interface PushListener {
+
+    /**
+     *  A message has been sent to a room the client is a member of
+     *
+     * @param           message the {@code NEW_MESSAGE}, its {@code fromId} is the sender and {@code roomId}
+     *                  is the room
+     * */
+    void onMessage(MessengerClient client, Message message);
+
+    /**
+     *  Any other frame the server has sent on its own, e.g. {@code NEW_ROOM_MEMBER}
+     * or {@code MEMBER_LEFT_ROOM}
+     * */
+    default void onNotification(MessengerClient client, Message message) {
+    }
+
+    /**
+     *  The connection has been closed
+     *
+     * @param           cause the failure which has closed the connection or {@code null} if it has been closed
+     *                  by the {@code MessengerClient.close} or by the server
+     * */
+    default void onClosed(MessengerClient client, IOException cause) {
+    }
+}
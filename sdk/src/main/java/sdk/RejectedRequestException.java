@@ -0,0 +1,21 @@
+package sdk;
+
+import common.entities.message.Message;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ *  The server has answered a request, the result of which is not the response itself
+ * (see {@code MessengerClient.messageHistory}), with {@code DENIED} or {@code ERROR}
+ * */
+public class RejectedRequestException extends RuntimeException {
+    private final Message response;
+
+    public RejectedRequestException(@NotNull Message response) {
+        super(String.valueOf(response.getStatus()).concat(": ").concat(String.valueOf(response.getText())));
+        this.response = response;
+    }
+
+    public Message getResponse() {
+        return response;
+    }
+}
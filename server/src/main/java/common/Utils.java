@@ -2,6 +2,13 @@ package common;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
 /**
  *  The class {@code Utils} contains mostly static methods are commonly used for supporting operations
  * like message building.
@@ -25,4 +32,29 @@ public class Utils {
         }
         return messageBuilder.toString().substring(0, messageBuilder.length() - 1);
     }
+
+    /**
+     *  The method {@code writeAtomically} replaces the content of the file, the readers see either the previous
+     * or the new content, never a partially written one. The content is written to a temporary file
+     * of the same folder that is moved to the {@code file} then.
+     *
+     * @param           file a file to be written
+     * @param           content the new content of the file
+     *
+     * @throws          IOException if an I/O error occurs
+     * */
+    public static void writeAtomically(@NotNull File file, @NotNull byte [] content) throws IOException {
+        Path temporary = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), file.getName(), ".tmp");
+        try {
+            Files.write(temporary, content);
+            try {
+                Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING
+                        , StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
 }
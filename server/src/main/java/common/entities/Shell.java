@@ -5,6 +5,7 @@ package common.entities;
  * */
 public class Shell <T> {
     private volatile T item;
+    private volatile Probe probe;
 
     public Shell(T item) {
         this.item = item;
@@ -17,9 +18,45 @@ public class Shell <T> {
      * Provides a thread-safe access to the encapsulated item
      * */
     public T safe() {
+        Probe probe = this.probe;
+        if (probe == null) {
+            //noinspection SynchronizeOnNonFinalField
+            synchronized (item) {
+                return item;
+            }
+        }
+        long requested = probe.requested();
         //noinspection SynchronizeOnNonFinalField
         synchronized (item) {
+            probe.released(probe.acquired(requested));
             return item;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Sets the probe the monitor acquisitions of the {@code safe} method are reported to, {@code null} - none
+     * */
+    public void setProbe(Probe probe) {
+        this.probe = probe;
+    }
+
+    /**
+     * The receiver of the monitor timings. The value returned by each method is passed to the next one.
+     * */
+    public interface Probe {
+        /**
+         * Is called before the monitor is requested
+         * */
+        long requested();
+
+        /**
+         * Is called as soon as the monitor has been acquired
+         * */
+        long acquired(long requested);
+
+        /**
+         * Is called right before the monitor is released
+         * */
+        void released(long acquired);
+    }
+}
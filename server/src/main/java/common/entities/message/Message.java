@@ -23,6 +23,7 @@ public class Message {
     private Integer fromId;
     private Integer toId;
     private Integer roomId;
+    private Long sequence;
 
     @SuppressWarnings("unused")
     public Message() {
@@ -128,9 +129,27 @@ public class Message {
                 ", fromId=" + fromId +
                 ", toId=" + toId +
                 ", roomId=" + roomId +
+                ", sequence=" + sequence +
                 '}';
     }
 
+    /**
+     * @return          the number of the message in its room history, it is assigned by the server owning the room
+     *                  (see {@code MessageHistory.addNewMessage}) or {@code null} if the message is not a room one
+     * */
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public Message setSequence(Long sequence) {
+        this.sequence = sequence;
+        return this;
+    }
+
+    public LocalDateTime getCreationDateTime() {
+        return creationDateTime;
+    }
+
     private void setCreationDateTime(LocalDateTime creationDateTime) {
         this.creationDateTime = creationDateTime;
     }
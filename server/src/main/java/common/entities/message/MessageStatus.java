@@ -21,5 +21,11 @@ public enum MessageStatus {
     RESTART_SERVER,
     ROOM_MEMBERS,
     MESSAGE_HISTORY,
-    GET_CLIENT_NAME
+    GET_CLIENT_NAME,
+    HEARTBEAT,
+    RELOAD_CONFIG,
+    RESUME,
+    PROMOTE,
+    SERVER_STATS,
+    SLOW_CONSUMERS
 }
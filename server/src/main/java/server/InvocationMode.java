@@ -4,6 +4,11 @@ public enum InvocationMode {
     START,
     STOP,
     RESTART,
+    RELOAD,
+    PROMOTE,
+    TRACES,
+    STATS,
+    SLOW_CONSUMERS,
     CREATE_DEFAULT_SERVER,
     BAN,
     UNBAN,
@@ -1,20 +1,27 @@
 package server;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableMap;
 import org.apache.log4j.Level;
 import server.client.ClientListener;
+import server.logging.LazyLog;
+import server.metrics.LockSite;
+import server.processing.PropertiesProcessing;
 import server.processing.ServerProcessing;
 import server.room.Room;
 import org.apache.log4j.Logger;
 
-import java.util.ConcurrentModificationException;
-import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
 
 import static common.Utils.buildMessage;
 
 /**
- *  The {@code Observer} class handles with the users who are AFK too long and rooms any member of which is not online
+ *  The {@code Observer} class handles with the rooms any member of which is not online.
+ * The users who are AFK too long are closed by their own {@code ClientListener} idle timers
+ *
+ *  The rooms are not scanned periodically. Every loaded room counts its online members and as soon as the last one
+ * has logged out the room is passed to the {@code scheduleEviction} method. If nobody of the room members comes back
+ * during the {@code roomEvictionTimeout} (seconds, see the server configurations) the room is saved and unloaded.
  *
  * @see             Server
  * @see             ServerProcessing
@@ -22,7 +29,9 @@ import static common.Utils.buildMessage;
  * @see             Room
  * */
 public class Observer extends Thread {
+    private static final long DEFAULT_ROOM_EVICTION_TIMEOUT = 60;
     private Server server;
+    private final DelayQueue<RoomEviction> evictionQueue = new DelayQueue<>();
     private static volatile Logger LOGGER = Logger.getLogger(Observer.class.getSimpleName());
 
     public static void setLogger(Logger logger) {
@@ -36,75 +45,102 @@ public class Observer extends Thread {
         this.server = server;
     }
 
+    /**
+     *  The method {@code scheduleEviction} puts the room into the eviction queue. When the grace period is over
+     * the room will be saved and removed from the server online rooms unless any of its members has come online.
+     *
+     *  The common chat (the room id 0) is never evicted.
+     *
+     * @param           room a room that does not have online members anymore
+     * */
+    public void scheduleEviction(Room room) {
+        if (room == null || room.getRoomId() == 0) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(
+                PropertiesProcessing.getLongProperty(server.getConfig(), "roomEvictionTimeout"
+                        , DEFAULT_ROOM_EVICTION_TIMEOUT));
+        room.setEvictionDeadline(deadline);
+        evictionQueue.offer(new RoomEviction(room, deadline));
+        if (LOGGER.isEnabledFor(Level.TRACE)) {
+            LOGGER.trace(buildMessage("The room (id", room.getRoomId(), ") has been scheduled for eviction"));
+        }
+    }
+
     @Override
     public void run() {
-        ObservableMap<Integer, ClientListener> onlineClients = FXCollections.synchronizedObservableMap(FXCollections
-                .observableMap(server.getOnlineClients().safe()));
-        ObservableMap<Integer, Room> onlineRooms = FXCollections.synchronizedObservableMap(FXCollections
-                .observableMap(server.getOnlineRooms().safe()));
         while (!server.isInterrupted()) {
-            // This loop saves the room in case if there is not longer any online member on a sever
-            try {
-                synchronized (server.getOnlineRooms().safe()) {
-                    if (LOGGER.isEnabledFor(Level.DEBUG)) {
-                        LOGGER.trace("Cleaning online rooms");
-                    }
-                    for (Map.Entry<Integer, Room> roomWrapper : onlineRooms.entrySet()) {
-                        if (roomWrapper.getValue().getRoomId() == 0) {
-                            continue;
-                        }
-                        boolean toBeSavedAndRemoved = true;
-                        for (int clientId : roomWrapper.getValue().getMembers().safe()) {
-                            if (server.getOnlineClients().safe().containsKey(clientId)) {
-                                toBeSavedAndRemoved = false;
-                            }
-                            if (!toBeSavedAndRemoved) {
-                                break;
-                            }
-                        }
-                        if (toBeSavedAndRemoved) {
-                            LOGGER.trace(buildMessage("Saving the room (id", roomWrapper.getValue().getRoomId(), ')'));
-                            server.getOnlineRooms().safe().remove(roomWrapper.getKey());
-                            if (roomWrapper.getValue().save() && !server.getOnlineRooms().safe()
-                                    .containsKey(roomWrapper.getKey())) {
-                                LOGGER.info(buildMessage("Room (id", roomWrapper.getKey()
-                                        , "has been saved by observer"));
-                            } else {
-                                LOGGER.warn(buildMessage("Room (id", roomWrapper.getKey()
-                                        , ") has not been saved by observer properly"));
-                            }
-                        }
-                    }
-                }
-            } catch(ConcurrentModificationException e){
-                continue;
-            }
-            synchronized (server.getOnlineClients().safe()) {
-                if (LOGGER.isEnabledFor(Level.DEBUG)) {
-                    LOGGER.trace("Cleaning online clients");
-                }
-                for (Map.Entry<Integer, ClientListener> clientListenerWrapper : onlineClients.entrySet()) {
-                    ClientListener clientListener = clientListenerWrapper.getValue();
-                    if (clientListener.getSocket().isClosed()) {
-                        server.getOnlineClients().safe().remove(clientListenerWrapper.getKey());
-                        clientListener.interrupt();
-                        if (!server.getOnlineClients().safe().containsKey(clientListenerWrapper.getKey())) {
-                            LOGGER.trace(buildMessage("Client (id", clientListenerWrapper.getKey()
-                                    , ") has been removed from online clients by observer"));
-                        } else {
-                            LOGGER.warn(buildMessage("Attempt to remove client (id"
-                                    , clientListenerWrapper.getKey(), ") has been failed by observer."
-                                    , "ClientListener state is", clientListenerWrapper.getValue().getState()));
-                        }
-                    }
-                }
-            }
             try {
-                sleep(60000);
+                evict(evictionQueue.take());
             } catch (InterruptedException e) {
                 LOGGER.fatal(buildMessage("Observer has been interrupted:", e.getLocalizedMessage()));
                 break;
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     *  Saves and unloads the room if it still does not have any online member and has not been rescheduled
+     * or replaced in the server online rooms since the eviction has been planned. The room is saved only if it has
+     * been modified, so the replicas of the rooms owned by other cluster nodes never overwrite their files.
+     *
+     *  NOTE! The room is saved while it is still registered in the server online rooms, so a concurrent
+     * {@code RoomProcessing.getRoom} never loads the file before it is saved. If the room has been modified
+     * again after the saving it is not unloaded, but scheduled for eviction once more.
+     * */
+    private void evict(RoomEviction roomEviction) {
+        Room room = roomEviction.room;
+        if (!isDue(roomEviction)) {
+            return;
+        }
+        if (room.isDirty()) {
+            LazyLog.trace(LOGGER, "Saving the room (id", room.getRoomId(), ')');
+            if (room.save()) {
+                LOGGER.info(buildMessage("Room (id", room.getRoomId(), "has been saved by observer"));
+            } else {
+                LOGGER.warn(buildMessage("Room (id", room.getRoomId(), ") has not been saved by observer properly"));
+                scheduleEviction(room);
+                return;
+            }
+        }
+        boolean unloaded = server.getMetrics().getLockMetrics(LockSite.OBSERVER_SWEEP)
+                .call(server.getOnlineRooms().safe(), () -> isDue(roomEviction) && !room.isDirty()
+                        && server.getOnlineRooms().safe().remove(room.getRoomId(), room));
+        if (unloaded) {
+            LazyLog.trace(LOGGER, "The room (id", room.getRoomId(), ") has been unloaded");
+        } else if (isDue(roomEviction)) {
+            // the room has been modified after the saving
+            scheduleEviction(room);
+        }
+    }
+
+    /**
+     * @return          {@code true} if the room is still registered in the server online rooms, does not have
+     *                  any online member and has not been rescheduled since the eviction has been planned
+     * */
+    private boolean isDue(RoomEviction roomEviction) {
+        Room room = roomEviction.room;
+        return roomEviction.deadline == room.getEvictionDeadline() && room.getOnlineMembersCount() == 0
+                && server.getOnlineRooms().safe().get(room.getRoomId()) == room;
+    }
+
+    private static final class RoomEviction implements Delayed {
+        private final Room room;
+        private final long deadline;
+
+        private RoomEviction(Room room, long deadline) {
+            this.room = room;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), o.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
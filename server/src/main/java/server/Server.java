@@ -6,20 +6,38 @@ import javafx.collections.FXCollections;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
+import server.capture.TrafficCapture;
+import server.client.Client;
 import server.client.ClientListener;
+import server.client.SessionTable;
+import server.client.SlowConsumerDetector;
+import server.cluster.Cluster;
+import server.exceptions.ClientNotFoundException;
+import server.logging.AsyncLogging;
+import server.metrics.Gauge;
+import server.metrics.LockMetrics;
+import server.metrics.LockSite;
+import server.metrics.MetricsRegistry;
+import server.metrics.ServerStats;
+import server.processing.ClientProcessing;
 import server.processing.LoggersProcessing;
 import server.processing.PropertiesProcessing;
+import server.processing.ServerProcessing;
+import server.replication.ReplicationPublisher;
+import server.replication.ReplicationStandby;
 import server.room.Room;
+import server.tracing.FlightEvents;
+import server.tracing.Tracer;
 import server.processing.RoomProcessing;
 
 import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.InvalidPropertiesFormatException;
-import java.util.Map;
-import java.util.Properties;
-import java.util.TreeMap;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static common.Utils.buildMessage;
 
@@ -27,10 +45,31 @@ public class Server extends Thread implements Saveable {
     private volatile Shell<Map<Integer, ClientListener>> onlineClients;
     private volatile Shell<Map<Integer, Room>> onlineRooms;
     private static volatile Logger LOGGER = Logger.getLogger("Server");
+    private static final long TIMER_WHEEL_TICK_DURATION = 100;
+    private static final int TIMER_WHEEL_TICKS = 512;
+    private static final long DEFAULT_SHUTDOWN_TIMEOUT = 30;
+    private static final int MAX_CHECKPOINT_PARALLELISM = 256;
+    private static final String [] RESTART_ONLY_PROPERTIES = {"port", "roomsDir", "clientsDir", "clusterNodes"
+            , "clusterNodeAddress", "replicationPort", "replicationPrimary"
+            , "metricsPort"};
     private volatile Properties config;
     private File clientsDir;
     private File serverConfigFile;
     private volatile ServerSocket serverSocket;
+    private final Observer observer;
+    private final SessionTable sessionTable;
+    private final SlowConsumerDetector slowConsumerDetector;
+    private final Cluster cluster;
+    private final ReplicationPublisher replicationPublisher;
+    private final MetricsRegistry metrics;
+    private final ServerStats serverStats;
+    private final List<Gauge> replicationLagGauges = new ArrayList<>();
+    private volatile ReplicationStandby replicationStandby;
+    private final TimerWheel timerWheel;
+    private final ExecutorService timerTasksExecutor;
+    private final Map<Integer, TimerWheel.Timeout> banExpiries = new ConcurrentHashMap<>();
+    private volatile ForkJoinPool checkpointPool;
+    private final AtomicBoolean stopping = new AtomicBoolean();
 
     public static void setLogger(Logger logger) {
         LOGGER = logger;
@@ -82,6 +121,192 @@ public class Server extends Thread implements Saveable {
         return onlineRooms;
     }
 
+    public Observer getObserver() {
+        return observer;
+    }
+
+    public TimerWheel getTimerWheel() {
+        return timerWheel;
+    }
+
+    public SessionTable getSessionTable() {
+        return sessionTable;
+    }
+
+    public SlowConsumerDetector getSlowConsumerDetector() {
+        return slowConsumerDetector;
+    }
+
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public ServerStats getServerStats() {
+        return serverStats;
+    }
+
+    public ReplicationPublisher getReplicationPublisher() {
+        return replicationPublisher;
+    }
+
+    /**
+     * @return          the replication stream receiver if the server is a standby or {@code null}
+     * */
+    public ReplicationStandby getReplicationStandby() {
+        return replicationStandby;
+    }
+
+    /**
+     * @return          {@code true} if and only if the server is a standby that has not been promoted yet
+     * */
+    public boolean isStandby() {
+        return replicationStandby != null;
+    }
+
+    /**
+     *  The method {@code promote} turns the standby into the primary server: the replication is stopped,
+     * the rooms received from the primary are put into the online rooms at once (without reading the disk)
+     * and the server starts serving the clients.
+     *
+     *  NOTE: the method does not fence the previous primary, it is the operator who must make sure
+     * it has been stopped before the clients are redirected to this server.
+     *
+     * @return          a human readable report of the promotion
+     * */
+    public synchronized String promote() {
+        ReplicationStandby standby = replicationStandby;
+        if (standby == null) {
+            return "The server is not a standby";
+        }
+        long start = System.currentTimeMillis();
+        standby.interrupt();
+        try {
+            standby.join(getShutdownTimeout());
+        } catch (InterruptedException e) {
+            LOGGER.warn(buildMessage("The promotion has been interrupted:", e.getLocalizedMessage()));
+            Thread.currentThread().interrupt();
+        }
+        long lagRecords = standby.getLagRecords();
+        Map<Integer, Room> warmRooms = standby.getWarmRooms();
+        for (Room room : warmRooms.values()) {
+            Object event = FlightEvents.beginRoomLoad();
+            RoomProcessing.registerRoom(this, room);
+            FlightEvents.commitRoomLoad(event, room.getRoomId(), true);
+        }
+        if (!warmRooms.containsKey(0)) {
+            RoomProcessing.loadRoom(this, 0);
+        }
+        replicationStandby = null;
+        for (Gauge gauge : replicationLagGauges) {
+            metrics.remove(gauge);
+        }
+        replicationLagGauges.clear();
+        String report = buildMessage("The server has been promoted in", System.currentTimeMillis() - start
+                , "ms. Rooms loaded:", warmRooms.size(), "not applied records:", lagRecords);
+        LOGGER.info(report);
+        return report;
+    }
+
+    /**
+     *  The method {@code scheduleBanExpiry} arms a timer that lifts the ban of the client
+     * as soon as the {@code bannedUntil} moment has come. The previous timer of the client (if any) is cancelled.
+     *
+     * @param           clientId an id of the banned client
+     * @param           bannedUntil the end of the ban
+     * */
+    public void scheduleBanExpiry(int clientId, @NotNull LocalDateTime bannedUntil) {
+        long delay = Math.max(0, Duration.between(LocalDateTime.now(), bannedUntil).toMillis());
+        TimerWheel.Timeout previous = banExpiries.put(clientId
+                , timerWheel.newTimeout(() -> liftBan(clientId), delay, TimeUnit.MILLISECONDS));
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    public void cancelBanExpiry(int clientId) {
+        TimerWheel.Timeout timeout = banExpiries.remove(clientId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private void liftBan(int clientId) {
+        banExpiries.remove(clientId);
+        Client client;
+        try {
+            client = ClientProcessing.loadClient(config, clientId);
+        } catch (ClientNotFoundException e) {
+            LOGGER.warn(buildMessage("Unable to lift the ban of the client (id", clientId, "): not found"));
+            return;
+        }
+        if (!client.isBaned() || client.getIsBannedUntil() == null
+                || LocalDateTime.now().isBefore(client.getIsBannedUntil())) {
+            return;
+        }
+        client.setServer(this);
+        client.setBaned(false);
+        client.setIsBannedUntil(null);
+        if (client.save()) {
+            LOGGER.info(buildMessage("Client (id", clientId, ") has been unbanned automatically"
+                    , "(ban period is over)"));
+        } else {
+            LOGGER.warn(buildMessage("Lifting the ban of the client (id", clientId
+                    , ") has not been finished properly"));
+        }
+    }
+
+    /**
+     *  The method {@code addOnlineClient} puts the logged in client to the {@code onlineClients}
+     * and marks him/her as an online member of the loaded rooms he/she is a member of.
+     * The other cluster nodes learn about the session from the cluster session directory
+     *
+     * @param           clientListener a session of the client who has just logged in
+     * */
+    public void addOnlineClient(@NotNull ClientListener clientListener) {
+        int clientId = clientListener.getClient().getClientId();
+        onlineClients.safe().put(clientId, clientListener);
+        cluster.sessionOpened(clientId);
+        metrics.getLockMetrics(LockSite.SESSION).run(onlineRooms.safe(), () -> {
+            for (int roomId : clientListener.getClient().getRooms().safe()) {
+                Room room = onlineRooms.safe().get(roomId);
+                if (room != null) {
+                    room.memberCameOnline(clientId);
+                }
+            }
+        });
+    }
+
+    /**
+     *  The method {@code removeOnlineClient} removes the session from the {@code onlineClients} if it is still
+     * the current session of the client. Every loaded room which has lost its last online member
+     * is scheduled for eviction.
+     *
+     * @param           clientListener a session of the client who is logging out
+     * */
+    public void removeOnlineClient(@NotNull ClientListener clientListener) {
+        if (clientListener.getClient() == null) {
+            return;
+        }
+        int clientId = clientListener.getClient().getClientId();
+        LockMetrics lockMetrics = metrics.getLockMetrics(LockSite.SESSION);
+        if (!lockMetrics.call(onlineClients.safe(), () -> onlineClients.safe().remove(clientId, clientListener))) {
+            return;
+        }
+        cluster.sessionClosed(clientId);
+        lockMetrics.run(onlineRooms.safe(), () -> {
+            for (int roomId : clientListener.getClient().getRooms().safe()) {
+                Room room = onlineRooms.safe().get(roomId);
+                if (room != null && room.memberWentOffline(clientId)) {
+                    observer.scheduleEviction(room);
+                }
+            }
+        });
+    }
+
     /**
      * @param           serverPropertiesFile a file storing server configurations
      *
@@ -91,8 +316,23 @@ public class Server extends Thread implements Saveable {
     public Server(@NotNull File serverPropertiesFile) throws InvalidPropertiesFormatException {
         onlineClients = new Shell<>();
         onlineRooms = new Shell<>();
+        metrics = new MetricsRegistry();
+        serverStats = new ServerStats(this);
+        observer = new Observer(this);
+        sessionTable = new SessionTable(this);
+        slowConsumerDetector = new SlowConsumerDetector(this);
+        timerTasksExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "TimerTask");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timerWheel = new TimerWheel(TIMER_WHEEL_TICK_DURATION, TIMER_WHEEL_TICKS, timerTasksExecutor);
         initOnlineClients();
         initOnlineRooms();
+        metrics.gauge("online_sessions", "The amount of the logged in clients", () -> onlineClients.safe().size());
+        metrics.gauge("online_rooms", "The amount of the loaded rooms", () -> onlineRooms.safe().size());
+        metrics.gauge("logging_discarded_events", "The amount of the logging events discarded because the buffer"
+                .concat(" was full"), AsyncLogging::getDiscardedCount);
         if (!PropertiesProcessing.arePropertiesValid(serverPropertiesFile)) {
             throw new InvalidPropertiesFormatException("Either the specified properties or file are/is invalid");
         }
@@ -101,16 +341,32 @@ public class Server extends Thread implements Saveable {
             config.loadFromXML(fileInputStream);
             LoggersProcessing.setLoggersFilesSysProperties(config);
             LoggersProcessing.resetLoggers();
+            LoggersProcessing.applyLoggersLevels(config);
+            AsyncLogging.install(config);
             serverConfigFile = serverPropertiesFile;
-            onlineClients =
-                    new Shell<>(FXCollections.synchronizedObservableMap(FXCollections.observableMap(new TreeMap<>())));
-            onlineRooms =
-                    new Shell<>(FXCollections.synchronizedObservableMap(FXCollections.observableMap(new TreeMap<>())));
         } catch (IOException e) {
             LOGGER.error(e.getLocalizedMessage());
             throw new RuntimeException(e);
         }
-        RoomProcessing.loadRoom(this, 0);
+        checkpointPool = new ForkJoinPool(getCheckpointParallelism(config));
+        slowConsumerDetector.applyConfig(config);
+        applyLockProfiling(config);
+        ServerProcessing.setMessageHistoryDimension(getMessageHistoryDimension(config));
+        cluster = new Cluster(this, config);
+        replicationPublisher = new ReplicationPublisher(this, config);
+        String replicationPrimary = config.getProperty("replicationPrimary", "").trim();
+        if (replicationPrimary.isEmpty()) {
+            RoomProcessing.loadRoom(this, 0);
+        } else {
+            ReplicationStandby standby = new ReplicationStandby(this, Cluster.parseAddress(replicationPrimary));
+            replicationLagGauges.add(metrics.gauge("replication_lag_milliseconds"
+                    , "The time passed since the last applied replication batch has been sent by the primary"
+                    , standby::getLagMillis));
+            replicationLagGauges.add(metrics.gauge("replication_lag_records"
+                    , "The amount of the records the primary has issued but the standby has not applied yet"
+                    , standby::getLagRecords));
+            replicationStandby = standby;
+        }
     }
 
     private void initOnlineClients() {
@@ -125,9 +381,20 @@ public class Server extends Thread implements Saveable {
 
     @Override
     public void run() {
-        Observer observer = new Observer(this);
         observer.setDaemon(true);
         observer.start();
+        timerWheel.start();
+        cluster.start();
+        replicationPublisher.start();
+        metrics.start(config);
+        Tracer.configure(config);
+        TrafficCapture.configure(config);
+        serverStats.start();
+        slowConsumerDetector.start();
+        ReplicationStandby standby = replicationStandby;
+        if (standby != null) {
+            standby.start();
+        }
         LOGGER.info(buildMessage("Observer thread status:", observer.getState()));
         if (!PropertiesProcessing.arePropertiesValid(config)) {
             LOGGER.fatal("Unable to start the server. Server configurations are not valid.");
@@ -158,6 +425,7 @@ public class Server extends Thread implements Saveable {
 
     /**
      *  The method {@code save} stores the XML representation of the {@code config} to the {@code serverConfigFile}
+     * and checkpoints the dirty online clients and rooms (see {@code checkpoint}) within the {@code shutdownTimeout}
      *
      * @return          {@code true} if and only if the {@code config} has been stored to the corresponding file
      *                  and the data in that file has been stored correctly i.e. {@code config} contains the same
@@ -165,6 +433,10 @@ public class Server extends Thread implements Saveable {
      * */
     @Override
     public synchronized boolean save() {
+        return save(System.currentTimeMillis() + getShutdownTimeout());
+    }
+
+    private synchronized boolean save(long deadline) {
         if (config == null) {
             LOGGER.warn("Saving the server has been failed: undefined server configurations.");
         }
@@ -178,64 +450,202 @@ public class Server extends Thread implements Saveable {
         }
         try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(serverConfigFile))) {
             config.storeToXML(bos, null);
-            synchronized (onlineClients.safe()) {
-                for (Map.Entry<Integer, ClientListener> onlineClients : onlineClients.safe().entrySet()) {
-                    ClientListener clientListener = onlineClients.getValue();
-                    if (clientListener.getClient() != null && !clientListener.getClient().save()) {
-                        LOGGER.error(buildMessage("Failed to save the client (id"
-                                , clientListener.getClient().getClientId()));
-                        return false;
-                    }
+        } catch (FileNotFoundException e) {
+            LOGGER.error("Unable to find a server configuration file ".concat(serverConfigFile.getAbsolutePath()));
+            return false;
+        } catch (IOException e) {
+            LOGGER.error(e.getLocalizedMessage());
+            return false;
+        }
+        return checkpoint(deadline);
+    }
+
+    /**
+     *  The method {@code checkpoint} saves the online clients and rooms that have been modified since their
+     * last saving. The global monitors are held only while the dirty entities are being collected,
+     * the saving itself is performed in parallel on the {@code checkpointPool}.
+     *
+     * @param           deadline a moment (milliseconds since the epoch) the checkpoint must be finished before
+     *
+     * @return          {@code true} if and only if all the dirty entities have been saved before the deadline
+     * */
+    private boolean checkpoint(long deadline) {
+        List<Saveable> dirtyEntities = new ArrayList<>();
+        LockMetrics lockMetrics = metrics.getLockMetrics(LockSite.SAVE);
+        lockMetrics.run(onlineClients.safe(), () -> {
+            for (ClientListener clientListener : onlineClients.safe().values()) {
+                if (clientListener.getClient() != null && clientListener.getClient().isDirty()) {
+                    dirtyEntities.add(clientListener.getClient());
                 }
             }
-            synchronized (onlineRooms.safe()) {
-                for (Map.Entry<Integer, Room> onlineRooms : onlineRooms.safe().entrySet()) {
-                    if (!onlineRooms.getValue().save()) {
-                        LOGGER.error(
-                                buildMessage("Failed to save the room (id"
-                                        , onlineRooms.getValue().getRoomId(), ')'));
-                        return false;
-                    }
+        });
+        lockMetrics.run(onlineRooms.safe(), () -> {
+            for (Room room : onlineRooms.safe().values()) {
+                if (room.isDirty()) {
+                    dirtyEntities.add(room);
                 }
             }
+        });
+        if (dirtyEntities.isEmpty()) {
             return true;
-        } catch (FileNotFoundException e) {
-            LOGGER.error("Unable to find a server configuration file ".concat(serverConfigFile.getAbsolutePath()));
+        }
+        try {
+            long failed = checkpointPool.submit(() -> dirtyEntities.parallelStream()
+                    .filter(saveable -> !saveable.save()).count())
+                    .get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            if (failed != 0) {
+                LOGGER.error(buildMessage("Failed to save", failed, "of", dirtyEntities.size(), "dirty entities"));
+            }
+            return failed == 0;
+        } catch (TimeoutException e) {
+            LOGGER.error(buildMessage("The checkpoint of", dirtyEntities.size()
+                    , "dirty entities has not been finished in time"));
             return false;
-        } catch (IOException e) {
-            LOGGER.error(e.getLocalizedMessage());
+        } catch (InterruptedException | ExecutionException e) {
+            LOGGER.error(buildMessage(e.getClass().getName(), "occurred:", e.getLocalizedMessage()));
             return false;
         }
     }
 
     /**
-     *  This method saves and stops the clients with their threads. As it has worked all the clients
-     * that had been being listened in the {@code onlineClients} set are saved in the corresponding files
+     *  This method stops the clients sessions in parallel. Every session saves its client (if he/she is dirty)
+     * and closes the socket, then the method waits for the threads until the {@code deadline}.
      * */
-    private void interruptOnlineClientsThreads() {
+    private void interruptOnlineClientsThreads(long deadline) {
+        List<ClientListener> clientListeners;
         synchronized (onlineClients.safe()) {
-            for (Map.Entry<Integer, ClientListener> clientListenerEntry : onlineClients.safe().entrySet()) {
-                clientListenerEntry.getValue().interrupt();
-                LocalDateTime timeOut = LocalDateTime.now().plusSeconds(3);
-                while (clientListenerEntry.getValue().getState().equals(State.RUNNABLE)
-                        || LocalDateTime.now().isBefore(timeOut)) {
-                    try {
-                        sleep(1000);
-                    } catch (InterruptedException e) {
-                        if (LOGGER.isEnabledFor(Level.DEBUG)) {
-                            LOGGER.debug(
-                                    buildMessage(e.getClass().getName()
-                                            , "occurred:"
-                                            , e.getLocalizedMessage()));
-                        }
-                    }
+            clientListeners = new ArrayList<>(onlineClients.safe().values());
+        }
+        try {
+            checkpointPool.submit(() -> clientListeners.parallelStream().forEach(ClientListener::interrupt))
+                    .get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.warn("Not all the client sessions have been stopped in time");
+        } catch (InterruptedException | ExecutionException e) {
+            LOGGER.error(buildMessage(e.getClass().getName(), "occurred:", e.getLocalizedMessage()));
+        }
+        for (ClientListener clientListener : clientListeners) {
+            long timeLeft = deadline - System.currentTimeMillis();
+            if (timeLeft <= 0) {
+                break;
+            }
+            if (clientListener == Thread.currentThread()) {
+                continue;
+            }
+            try {
+                clientListener.join(timeLeft);
+            } catch (InterruptedException e) {
+                if (LOGGER.isEnabledFor(Level.DEBUG)) {
+                    LOGGER.debug(buildMessage(e.getClass().getName(), "occurred:", e.getLocalizedMessage()));
                 }
+                break;
             }
         }
     }
 
+    private static int getCheckpointParallelism(Properties config) {
+        long parallelism = PropertiesProcessing.getLongProperty(config, "checkpointParallelism"
+                , Runtime.getRuntime().availableProcessors());
+        return (int) Math.min(Math.max(parallelism, 1), MAX_CHECKPOINT_PARALLELISM);
+    }
+
+    private static int getMessageHistoryDimension(Properties config) {
+        long dimension = PropertiesProcessing.getLongProperty(config, "messageHistoryDimension"
+                , ServerProcessing.MESSAGE_HISTORY_DIMENSION);
+        return dimension > 0 && dimension <= Integer.MAX_VALUE
+                ? (int) dimension : ServerProcessing.MESSAGE_HISTORY_DIMENSION;
+    }
+
+    /**
+     *  The method {@code reloadConfig} re-reads the {@code serverConfigFile} and applies the new configurations
+     * without stopping the server i.e. the sessions, sockets and loaded rooms are kept.
+     *
+     *  The following configurations are applied at once: loggers files and levels (the {@code logLevel.<logger>}
+     * properties), the asynchronous logging and request tracing settings, the {@code checkpointParallelism},
+     * the {@code messageHistoryDimension} (the loaded rooms histories are resized), the sessions timeouts,
+     * the {@code roomEvictionTimeout} and the {@code shutdownTimeout}.
+     * The {@code port}, {@code roomsDir}, {@code clientsDir} and the cluster configurations can not be changed
+     * on the fly, their previous values are kept until the restart.
+     *
+     * @return          a human readable report of the reloading
+     *
+     * @throws          InvalidPropertiesFormatException if the configurations file is not valid,
+     *                  the current configurations are kept in this case
+     * */
+    public synchronized String reloadConfig() throws InvalidPropertiesFormatException {
+        if (!PropertiesProcessing.arePropertiesValid(serverConfigFile)) {
+            throw new InvalidPropertiesFormatException("Either the specified properties or file are/is invalid");
+        }
+        Properties newConfig = PropertiesProcessing.loadPropertiesFromFile(serverConfigFile);
+        StringBuilder report = new StringBuilder("The configurations have been reloaded.");
+        for (String restartOnlyProperty : RESTART_ONLY_PROPERTIES) {
+            String oldValue = config.getProperty(restartOnlyProperty);
+            if (oldValue != null && !oldValue.equals(newConfig.getProperty(restartOnlyProperty))) {
+                newConfig.setProperty(restartOnlyProperty, oldValue);
+                report.append(' ').append(restartOnlyProperty).append(" requires restart to be changed.");
+            }
+        }
+        LoggersProcessing.setLoggersFilesSysProperties(newConfig);
+        LoggersProcessing.resetLoggers();
+        LoggersProcessing.applyLoggersLevels(newConfig);
+        AsyncLogging.install(newConfig);
+        int parallelism = getCheckpointParallelism(newConfig);
+        if (parallelism != checkpointPool.getParallelism()) {
+            ForkJoinPool previousPool = checkpointPool;
+            checkpointPool = new ForkJoinPool(parallelism);
+            previousPool.shutdown();
+        }
+        int dimension = getMessageHistoryDimension(newConfig);
+        if (dimension != ServerProcessing.getMessageHistoryDimension()) {
+            ServerProcessing.setMessageHistoryDimension(dimension);
+            synchronized (onlineRooms.safe()) {
+                for (Room room : onlineRooms.safe().values()) {
+                    room.getMessageHistory().setDimension(dimension);
+                }
+            }
+        }
+        config = newConfig;
+        Tracer.configure(newConfig);
+        TrafficCapture.configure(newConfig);
+        slowConsumerDetector.applyConfig(newConfig);
+        applyLockProfiling(newConfig);
+        synchronized (onlineClients.safe()) {
+            for (ClientListener clientListener : onlineClients.safe().values()) {
+                clientListener.applyConfig(newConfig);
+            }
+        }
+        LOGGER.info(report.toString());
+        return report.toString();
+    }
+
+    /**
+     *  Switches the global monitors contention profiling (see {@code LockMetrics}) according to
+     * the {@code lockProfiling} configuration
+     * */
+    private void applyLockProfiling(Properties config) {
+        boolean enabled = Boolean.parseBoolean(config.getProperty("lockProfiling", "false").trim());
+        LockMetrics.setEnabled(enabled);
+        onlineClients.setProbe(enabled ? metrics.getLockMetrics(LockSite.ONLINE_CLIENTS_ACCESS) : null);
+        onlineRooms.setProbe(enabled ? metrics.getLockMetrics(LockSite.ONLINE_ROOMS_ACCESS) : null);
+    }
+
+    private long getShutdownTimeout() {
+        return TimeUnit.SECONDS.toMillis(
+                PropertiesProcessing.getLongProperty(config, "shutdownTimeout", DEFAULT_SHUTDOWN_TIMEOUT));
+    }
+
+    /**
+     *  Stops the server. The method stops accepting connections, checkpoints the dirty entities and drains
+     * the online sessions, all of that is bounded by the {@code shutdownTimeout} (seconds) of the configurations.
+     *  Only the first call performs the shutdown, the subsequent ones just interrupt the thread.
+     * */
     @Override
     public void interrupt() {
+        if (!stopping.compareAndSet(false, true)) {
+            super.interrupt();
+            return;
+        }
+        long deadline = System.currentTimeMillis() + getShutdownTimeout();
         if (serverSocket != null && !serverSocket.isClosed()) {
             try {
                 serverSocket.close();
@@ -243,16 +653,23 @@ public class Server extends Thread implements Saveable {
                 e.printStackTrace();
             }
         }
-        save();
-        interruptOnlineClientsThreads();
-        super.interrupt();
-        while (!isInterrupted()){
-            try {
-                sleep(100);
-            } catch (InterruptedException e) {
-                LOGGER.info(buildMessage("The server has stopped. Thread state is", getState()));
-                break;
-            }
+        save(deadline);
+        interruptOnlineClientsThreads(deadline);
+        timerWheel.interrupt();
+        cluster.interrupt();
+        replicationPublisher.interrupt();
+        ReplicationStandby standby = replicationStandby;
+        if (standby != null) {
+            standby.interrupt();
         }
+        timerTasksExecutor.shutdown();
+        checkpointPool.shutdown();
+        serverStats.stop();
+        slowConsumerDetector.stop();
+        metrics.stop();
+        Tracer.stop();
+        TrafficCapture.stop();
+        super.interrupt();
+        LOGGER.info(buildMessage("The server has stopped. Thread state is", getState()));
     }
-}
\ No newline at end of file
+}
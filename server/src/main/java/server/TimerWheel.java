@@ -0,0 +1,237 @@
+package server;
+
+import org.apache.log4j.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The {@code TimerWheel} is a hashed wheel of timers driven by a single thread. It is used for the per-session
+ * idle and heartbeat deadlines as well as for the ban expiries.
+ *
+ *  The wheel consists of {@code ticksPerWheel} buckets, each of them is a doubly linked list of timeouts.
+ * A timeout is placed into the bucket of its deadline tick and keeps the number of the full wheel rounds
+ * that must pass before it expires. Thus arming and cancelling cost O(1) regardless of the amount of timers,
+ * the accuracy is limited by {@code tickDuration}.
+ *
+ *  The expired tasks are passed to the {@code taskExecutor}, so the wheel thread only drives the timers
+ * and is never blocked by the tasks themselves.
+ * */
+public class TimerWheel extends Thread {
+    private static volatile Logger LOGGER = Logger.getLogger("Server");
+    private final long tickDuration;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor taskExecutor;
+    private final Queue<Timeout> armedTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final long startTime;
+    private long tick;
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    /**
+     * @param           tickDuration the duration of the wheel tick in milliseconds
+     * @param           ticksPerWheel the amount of buckets, it is rounded up to the power of two
+     * @param           taskExecutor an executor the expired tasks are run by
+     * */
+    public TimerWheel(long tickDuration, int ticksPerWheel, Executor taskExecutor) {
+        super("TimerWheel");
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException(buildMessage("tickDuration must be positive but found", tickDuration));
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+            throw new IllegalArgumentException(buildMessage("Invalid ticksPerWheel value:", ticksPerWheel));
+        }
+        int wheelSize = Integer.highestOneBit(ticksPerWheel);
+        if (wheelSize < ticksPerWheel) {
+            wheelSize <<= 1;
+        }
+        wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        mask = wheelSize - 1;
+        this.tickDuration = tickDuration;
+        this.taskExecutor = taskExecutor;
+        startTime = System.currentTimeMillis();
+        setDaemon(true);
+    }
+
+    /**
+     *  The method {@code newTimeout} arms a timer. The timer is passed to the wheel thread
+     * and placed into the bucket on the next tick.
+     *
+     * @param           task a task to be run when the timer expires
+     * @param           delay a delay after which the task is run
+     * @param           unit a time unit of the {@code delay}
+     *
+     * @return          a handle of the armed timer that can be cancelled
+     * */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new NullPointerException("The task must not be null");
+        }
+        Timeout timeout = new Timeout(task, System.currentTimeMillis() - startTime + unit.toMillis(delay));
+        armedTimeouts.add(timeout);
+        return timeout;
+    }
+
+    @Override
+    public void run() {
+        while (!isInterrupted()) {
+            long deadline = tickDuration * (tick + 1);
+            long sleepTime = deadline - (System.currentTimeMillis() - startTime);
+            if (sleepTime > 0) {
+                try {
+                    sleep(sleepTime);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+            removeCancelledTimeouts();
+            transferArmedTimeouts();
+            wheel[(int) (tick & mask)].expireTimeouts(deadline);
+            tick++;
+        }
+        LOGGER.trace("The timer wheel has been stopped");
+    }
+
+    private void transferArmedTimeouts() {
+        Timeout timeout;
+        while ((timeout = armedTimeouts.poll()) != null) {
+            if (timeout.state.get() != Timeout.ARMED) {
+                continue;
+            }
+            long expirationTick = Math.max(timeout.deadline / tickDuration, tick);
+            timeout.remainingRounds = (expirationTick - tick) / wheel.length;
+            wheel[(int) (expirationTick & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void expire(Timeout timeout) {
+        if (!timeout.state.compareAndSet(Timeout.ARMED, Timeout.EXPIRED)) {
+            return;
+        }
+        try {
+            taskExecutor.execute(timeout.task);
+        } catch (RuntimeException e) {
+            LOGGER.error(buildMessage(e.getClass().getName(), "occurred while running the timer task:"
+                    , e.getLocalizedMessage()));
+        }
+    }
+
+    /**
+     *  The handle of an armed timer
+     * */
+    public final class Timeout {
+        private static final int ARMED = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ARMED);
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+        private Bucket bucket;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         *  Cancels the timer if it has not expired yet
+         *
+         * @return          {@code true} if and only if the task will not be run because of this call
+         * */
+        public boolean cancel() {
+            if (!state.compareAndSet(ARMED, CANCELLED)) {
+                return false;
+            }
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+    }
+
+    /**
+     *  The bucket is accessed only by the wheel thread, thus it does not need any synchronization
+     * */
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void expireTimeouts(long deadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                    remove(timeout);
+                    expire(timeout);
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = timeout.next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package server.capture;
+
+import common.entities.message.MessageStatus;
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The {@code CaptureFile} writes the captured records to the capture file by a background thread.
+ * Unlike the trace file it is not rotated: a capture is replayed from its beginning, so as soon as the file
+ * exceeds the {@code maxSize} the capture is over.
+ *
+ *  The file starts with the {@code MAGIC} number, the format version and the status table (the names of
+ * the {@code MessageStatus} constants, the frame records refer to them by the index) followed by the records
+ * (see {@code CaptureRecord.writeTo}). The last record is the {@code END} one unless the server has crashed.
+ * */
+final class CaptureFile extends Thread {
+    static final int MAGIC = 0x4D434150;
+    static final int VERSION = 1;
+    private static final int QUEUE_CAPACITY = 16384;
+    private final File file;
+    private final long maxSize;
+    private final Logger logger;
+    private final BlockingQueue<CaptureRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean full;
+    private long lastMicros;
+
+    CaptureFile(@NotNull File file, long maxSize, @NotNull Logger logger) {
+        super("CaptureFile");
+        setDaemon(true);
+        this.file = file;
+        this.maxSize = maxSize;
+        this.logger = logger;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     *  Queues the record unless the capture is over. The record is dropped if the writer is behind,
+     * the amount of the dropped ones is written to the end of the file.
+     * */
+    void offer(CaptureRecord record) {
+        if (full) {
+            return;
+        }
+        if (!queue.offer(record) && dropped.getAndIncrement() == 0) {
+            logger.warn(buildMessage("The capture writer is behind, the frames are dropped, so the capture"
+                    , file.getAbsolutePath(), "will not be replayed exactly"));
+        }
+    }
+
+    @Override
+    public void run() {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeShort(MessageStatus.values().length);
+            for (MessageStatus status : MessageStatus.values()) {
+                out.writeUTF(status.name());
+            }
+            logger.info(buildMessage("Capturing the inbound frames to", file.getAbsolutePath()));
+            while (!isInterrupted() && !full) {
+                CaptureRecord record;
+                try {
+                    record = queue.take();
+                } catch (InterruptedException e) {
+                    break;
+                }
+                do {
+                    write(out, record);
+                } while (!full && (record = queue.poll()) != null);
+                out.flush();
+            }
+            CaptureRecord record;
+            while (!full && (record = queue.poll()) != null) {
+                write(out, record);
+            }
+            full = true;
+            queue.clear();
+            write(out, new CaptureRecord(CaptureRecord.Type.END, 0, lastMicros, null, null, dropped.get()));
+            logger.info(buildMessage("The capture", file.getAbsolutePath(), "is over:", out.size(), "bytes,"
+                    , dropped.get(), "frames dropped"));
+        } catch (IOException e) {
+            full = true;
+            logger.error(buildMessage("Unable to write the capture file", file.getAbsolutePath(), ':'
+                    , e.getLocalizedMessage()));
+        }
+    }
+
+    private void write(DataOutputStream out, CaptureRecord record) throws IOException {
+        record.writeTo(out, lastMicros);
+        lastMicros = Math.max(lastMicros, record.getMicros());
+        if (out.size() >= maxSize) {
+            full = true;
+            logger.info(buildMessage("The capture file", file.getAbsolutePath(), "has reached", maxSize, "bytes"));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package server.capture;
+
+import common.entities.message.MessageStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  Reads the records of a capture file (see {@code CaptureFile}) one by one
+ * */
+public final class CaptureReader implements Closeable {
+    private final DataInputStream in;
+    private final MessageStatus [] statuses;
+    private long lastMicros;
+    private boolean ended;
+
+    /**
+     * @throws          IOException if the file is not a capture file or it can not be read
+     * */
+    public CaptureReader(@NotNull File file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != CaptureFile.MAGIC || in.readInt() != CaptureFile.VERSION) {
+                throw new IOException(buildMessage(file.getAbsolutePath(), "is not a capture file"));
+            }
+            statuses = new MessageStatus[in.readUnsignedShort()];
+            for (int i = 0; i < statuses.length; i++) {
+                String name = in.readUTF();
+                try {
+                    statuses[i] = MessageStatus.valueOf(name);
+                } catch (IllegalArgumentException e) {
+                    // the status has been removed since the capture, such frames are replayed as they are
+                }
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return          the next record or {@code null} if the capture is over. A capture which has not been
+     *                  completed (e.g. the server has crashed) ends with the last record written entirely.
+     * */
+    public CaptureRecord next() throws IOException {
+        if (ended) {
+            return null;
+        }
+        CaptureRecord record;
+        try {
+            record = CaptureRecord.readFrom(in, lastMicros, statuses);
+        } catch (EOFException e) {
+            ended = true;
+            return null;
+        }
+        lastMicros = record.getMicros();
+        ended = record.getType() == CaptureRecord.Type.END;
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,139 @@
+package server.capture;
+
+import common.entities.message.MessageStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ *  A record of the capture file: an inbound frame of a connection, the closing of a connection or the end
+ * of the capture. The connections are numbered since the capture start, the moments are the microseconds
+ * since the capture start.
+ *
+ *  A record is written as the type byte, the connection number and the time passed since the previous record
+ * (both as the variable length numbers). A frame record goes on with the index of the request status
+ * in the status table of the file header and the frame itself as {@code DataOutputStream.writeUTF} writes it,
+ * i.e. exactly as the client has sent it. The end record holds the amount of the frames dropped since
+ * the writer was behind.
+ * */
+public final class CaptureRecord {
+    public enum Type {
+        FRAME,
+        CLOSE,
+        END
+    }
+
+    private final Type type;
+    private final long connection;
+    private final long micros;
+    private final MessageStatus status;
+    private final String frame;
+    private final long dropped;
+
+    CaptureRecord(@NotNull Type type, long connection, long micros, MessageStatus status, String frame
+            , long dropped) {
+        this.type = type;
+        this.connection = connection;
+        this.micros = micros;
+        this.status = status;
+        this.frame = frame;
+        this.dropped = dropped;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return          the number of the connection since the capture start
+     * */
+    public long getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return          the moment of the record, microseconds since the capture start
+     * */
+    public long getMicros() {
+        return micros;
+    }
+
+    /**
+     * @return          the status of the captured request or {@code null} if it is unknown to this version
+     * */
+    public MessageStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return          the XML of the captured request
+     * */
+    public String getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return          the amount of the frames the capture has missed, it is set for the {@code END} record
+     * */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @param           previousMicros the moment of the previous record of the file
+     * */
+    void writeTo(DataOutputStream out, long previousMicros) throws IOException {
+        out.writeByte(type.ordinal());
+        writeVarLong(out, connection);
+        writeVarLong(out, Math.max(0, micros - previousMicros));
+        if (type == Type.FRAME) {
+            out.writeByte(status == null ? -1 : status.ordinal());
+            out.writeUTF(frame);
+        } else if (type == Type.END) {
+            writeVarLong(out, dropped);
+        }
+    }
+
+    /**
+     * @param           previousMicros the moment of the previous record of the file
+     * @param           statuses the status table of the file header
+     * */
+    static CaptureRecord readFrom(DataInputStream in, long previousMicros, MessageStatus [] statuses)
+            throws IOException {
+        int typeIndex = in.readUnsignedByte();
+        if (typeIndex >= Type.values().length) {
+            throw new IOException("Unknown capture record type ".concat(String.valueOf(typeIndex)));
+        }
+        Type type = Type.values()[typeIndex];
+        long connection = readVarLong(in);
+        long micros = previousMicros + readVarLong(in);
+        if (type == Type.FRAME) {
+            int statusIndex = in.readUnsignedByte();
+            MessageStatus status = statusIndex < statuses.length ? statuses[statusIndex] : null;
+            return new CaptureRecord(type, connection, micros, status, in.readUTF(), 0);
+        }
+        return new CaptureRecord(type, connection, micros, null, null, type == Type.END ? readVarLong(in) : 0);
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length number");
+    }
+}
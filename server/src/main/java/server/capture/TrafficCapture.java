@@ -0,0 +1,152 @@
+package server.capture;
+
+import common.entities.message.Message;
+import common.entities.message.MessageStatus;
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import server.processing.PropertiesProcessing;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The class {@code TrafficCapture} records the frames the {@code ClientListener} threads receive to the
+ * {@code captureFile} of the {@code logsDir} (see {@code CaptureFile}), so the captured workload can be replayed
+ * against another server (see {@code loadgen.Replay}).
+ *
+ *  Only the connections opened since the capture start are captured, so every captured connection starts
+ * with its login. The frames are captured as they are, i.e. the capture file contains the passwords
+ * of the logged in clients and must be kept as safe as the server data. The {@code CONTROL_STATUSES} frames
+ * are captured without their login and password (the server administrator ones), a frame that can not be
+ * redacted is not captured. Capturing costs a single check while it is off.
+ * */
+public final class TrafficCapture {
+    private static final long DEFAULT_FILE_SIZE = 1024L * 1024 * 1024;
+    /**
+     *  The statuses of the requests of the server administrator, they are authorized by the {@code serverLogin}
+     * and {@code serverPassword} and change the server itself rather than serve the clients
+     * */
+    public static final Set<MessageStatus> CONTROL_STATUSES = Collections.unmodifiableSet(EnumSet.of(
+            MessageStatus.STOP_SERVER, MessageStatus.RESTART_SERVER, MessageStatus.RELOAD_CONFIG
+            , MessageStatus.PROMOTE, MessageStatus.CLIENT_BAN, MessageStatus.CLIENT_UNBAN
+            , MessageStatus.SERVER_STATS, MessageStatus.SLOW_CONSUMERS));
+    private static volatile JAXBContext jaxbContext;
+    private static final AtomicLong connections = new AtomicLong();
+    private static volatile Logger LOGGER = Logger.getLogger("Server");
+    private static volatile CaptureFile captureFile;
+    private static volatile long firstConnection;
+    private static volatile long startNanos;
+
+    private TrafficCapture() {
+    }
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    /**
+     * @return          the number of a new connection, the captured frames are marked by it
+     * */
+    public static long nextConnection() {
+        return connections.incrementAndGet();
+    }
+
+    /**
+     *  Starts or stops capturing according to the configurations. The running capture goes on if its file
+     * and size have not been changed.
+     *
+     * @param           config the server configurations
+     * */
+    public static synchronized void configure(@NotNull Properties config) {
+        String fileName = config.getProperty("captureFile", "").trim();
+        long maxSize = PropertiesProcessing.getLongProperty(config, "captureFileSize", DEFAULT_FILE_SIZE);
+        File file = fileName.isEmpty() ? null : new File(config.getProperty("logsDir"), fileName);
+        CaptureFile current = captureFile;
+        if (current != null && current.isAlive() && current.getFile().equals(file)
+                && current.getMaxSize() == maxSize) {
+            return;
+        }
+        stop();
+        if (file == null) {
+            return;
+        }
+        firstConnection = connections.get() + 1;
+        startNanos = System.nanoTime();
+        captureFile = new CaptureFile(file, maxSize, LOGGER);
+        captureFile.start();
+    }
+
+    public static synchronized void stop() {
+        if (captureFile != null) {
+            captureFile.interrupt();
+            captureFile = null;
+        }
+    }
+
+    /**
+     *  Captures the frame the connection has received
+     *
+     * @param           connection the number of the connection
+     * @param           status the status of the decoded frame
+     * @param           frame the frame as it has been received
+     * */
+    public static void record(long connection, MessageStatus status, @NotNull String frame) {
+        CaptureFile captureFile = TrafficCapture.captureFile;
+        if (captureFile != null && connection >= firstConnection) {
+            if (CONTROL_STATUSES.contains(status)) {
+                frame = redact(frame);
+                if (frame == null) {
+                    return;
+                }
+            }
+            captureFile.offer(new CaptureRecord(CaptureRecord.Type.FRAME, connection - firstConnection
+                    , micros(), status, frame, 0));
+        }
+    }
+
+    /**
+     * @return          the frame without the login and password or {@code null} if it can not be redacted
+     * */
+    private static String redact(String frame) {
+        try {
+            if (jaxbContext == null) {
+                jaxbContext = JAXBContext.newInstance(Message.class);
+            }
+            Message message = (Message) jaxbContext.createUnmarshaller().unmarshal(new StringReader(frame));
+            StringWriter stringWriter = new StringWriter();
+            jaxbContext.createMarshaller().marshal(message.setLogin("").setPassword(""), stringWriter);
+            return stringWriter.toString();
+        } catch (JAXBException e) {
+            LOGGER.warn(buildMessage("A control frame has not been captured:", e.getLocalizedMessage()));
+            return null;
+        }
+    }
+
+    /**
+     *  Captures the closing of the connection
+     *
+     * @param           connection the number of the connection
+     * */
+    public static void closed(long connection) {
+        CaptureFile captureFile = TrafficCapture.captureFile;
+        if (captureFile != null && connection >= firstConnection) {
+            captureFile.offer(new CaptureRecord(CaptureRecord.Type.CLOSE, connection - firstConnection
+                    , micros(), null, null, 0));
+        }
+    }
+
+    private static long micros() {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    }
+}
@@ -6,6 +6,10 @@ import common.entities.message.Message;
 import javafx.collections.FXCollections;
 import org.apache.log4j.Logger;
 import server.Server;
+import server.replication.ReplicationRecord;
+import server.tracing.FlightEvents;
+import server.tracing.Span;
+import server.tracing.Tracer;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -13,6 +17,7 @@ import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.*;
 import javax.xml.bind.annotation.adapters.XmlAdapter;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -21,6 +26,7 @@ import java.util.Properties;
 import java.util.Set;
 
 import static common.Utils.buildMessage;
+import static common.Utils.writeAtomically;
 
 @SuppressWarnings("CanBeFinal")
 @XmlAccessorType(XmlAccessType.FIELD)
@@ -40,6 +46,8 @@ public class Client implements Saveable {
     private LocalDateTime isBannedUntil;
     @XmlTransient
     private Server server;
+    @XmlTransient
+    private volatile boolean dirty;
 
     public LocalDateTime getIsBannedUntil() {
         return isBannedUntil;
@@ -47,6 +55,7 @@ public class Client implements Saveable {
 
     public void setIsBannedUntil(LocalDateTime isBannedUntil) {
         this.isBannedUntil = isBannedUntil;
+        dirty = true;
     }
 
     public static void setLogger(Logger logger) {
@@ -59,6 +68,7 @@ public class Client implements Saveable {
 
     public void setBaned(boolean baned) {
         this.baned = baned;
+        dirty = true;
     }
 
     private static volatile Logger LOGGER = Logger.getLogger(Client.class.getSimpleName());
@@ -86,6 +96,7 @@ public class Client implements Saveable {
 
     public void setClientId(int clientId) {
         this.clientId = clientId;
+        dirty = true;
     }
 
     public Shell<Set<Integer>> getRooms() {
@@ -98,6 +109,7 @@ public class Client implements Saveable {
 
     public void setLogin(String login) {
         this.login = login;
+        dirty = true;
     }
 
     public String getPassword() {
@@ -106,6 +118,21 @@ public class Client implements Saveable {
 
     public void setPassword(String password) {
         this.password = password;
+        dirty = true;
+    }
+
+    /**
+     *  Marks the client as modified since the last saving, e.g. after his/her rooms set has been changed
+     * */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * @return          {@code true} if the client has been modified since the last successful saving
+     * */
+    public boolean isDirty() {
+        return dirty;
     }
 
     /**
@@ -190,13 +217,26 @@ public class Client implements Saveable {
                 return false;
             }
         }
+        long start = System.nanoTime();
+        Object event = FlightEvents.beginPersistence();
         try {
+            dirty = false;
             JAXBContext jaxbContext = JAXBContext.newInstance(Client.class);
             Marshaller marshaller = jaxbContext.createMarshaller();
             marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            marshaller.marshal(this, clientFile);
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            marshaller.marshal(this, content);
+            byte [] bytes = content.toByteArray();
+            writeAtomically(clientFile, bytes);
+            server.getReplicationPublisher().fileSaved(ReplicationRecord.Kind.CLIENT
+                    , clientDir.getName().concat("/").concat(clientFile.getName()), bytes);
+            server.getSessionTable().clientSaved(this);
+            server.getMetrics().getClientSaveDuration().recordSince(start);
+            Tracer.record(Span.PERSISTENCE, start);
+            FlightEvents.commitPersistence(event, "client", clientId, bytes.length);
             return true;
-        } catch (JAXBException e) {
+        } catch (JAXBException | IOException e) {
+            dirty = true;
             e.printStackTrace();
             LOGGER.error(e.getLocalizedMessage());
             return false;
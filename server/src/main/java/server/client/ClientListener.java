@@ -2,10 +2,17 @@ package server.client;
 
 import common.entities.Shell;
 import common.entities.message.Message;
+import common.entities.message.MessageStatus;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 import server.Server;
+import server.TimerWheel;
+import server.capture.TrafficCapture;
+import server.logging.LazyLog;
+import server.tracing.Span;
+import server.tracing.Tracer;
+import server.processing.PropertiesProcessing;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -13,8 +20,10 @@ import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import java.io.*;
 import java.net.Socket;
-import java.net.SocketException;
-import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static common.Utils.buildMessage;
 
@@ -38,6 +47,17 @@ public class ClientListener extends Thread {
     private boolean logged;
     private Client client;
     private RequestHandler requestHandler;
+    private volatile long lastActivity;
+    private volatile long heartbeatSentAt;
+    private volatile boolean heartbeatSupported;
+    private volatile TimerWheel.Timeout activityTimeout;
+    private volatile long idleTimeout;
+    private volatile long heartbeatInterval;
+    private volatile long heartbeatTimeout;
+    private final OutboundStats outboundStats = new OutboundStats();
+    private final long connection = TrafficCapture.nextConnection();
+    // the sequence numbers of the last room messages written to the connection by the room ids
+    private final Map<Integer, Long> deliveredSequences = new ConcurrentHashMap<>();
 
     public Shell<DataOutputStream> getOut() {
         return out;
@@ -51,7 +71,31 @@ public class ClientListener extends Thread {
         return client;
     }
 
+    public OutboundStats getOutboundStats() {
+        return outboundStats;
+    }
+
+    /**
+     * @return          the sequence numbers (see {@code Message.getSequence}) of the last room messages
+     *                  that have been written to the connection by the room ids
+     * */
+    public Map<Integer, Long> getDeliveredSequences() {
+        return deliveredSequences;
+    }
+
+    /**
+     *  Remembers the room message as written to the connection
+     * */
+    public void messageDelivered(@NotNull Message message) {
+        if (message.getRoomId() != null && message.getSequence() != null) {
+            deliveredSequences.merge(message.getRoomId(), message.getSequence(), Math::max);
+        }
+    }
+
     private static volatile Logger LOGGER = Logger.getLogger(ClientListener.class.getSimpleName());
+    private static final long DEFAULT_IDLE_TIMEOUT = 3600;
+    private static final long DEFAULT_HEARTBEAT_INTERVAL = 60;
+    private static final long DEFAULT_HEARTBEAT_TIMEOUT = 30;
 
     public ClientListener(Server server, @NotNull Socket socket) throws IOException {
         this.server = server;
@@ -59,6 +103,81 @@ public class ClientListener extends Thread {
         requestHandler = new RequestHandler(this);
         out = new Shell<>(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
         in = new Shell<>(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+        applyConfig(server.getConfig());
+    }
+
+    /**
+     *  Applies the session timeouts of the server configurations. It is called on the session creation
+     * and every time the configurations are reloaded, the new values are taken into account since the next check.
+     *
+     * @param           serverConfig the server configurations
+     * */
+    public void applyConfig(@NotNull Properties serverConfig) {
+        idleTimeout = TimeUnit.SECONDS.toMillis(
+                PropertiesProcessing.getLongProperty(serverConfig, "idleTimeout", DEFAULT_IDLE_TIMEOUT));
+        heartbeatInterval = TimeUnit.SECONDS.toMillis(PropertiesProcessing.getLongProperty(serverConfig
+                , "heartbeatInterval", DEFAULT_HEARTBEAT_INTERVAL));
+        heartbeatTimeout = TimeUnit.SECONDS.toMillis(PropertiesProcessing.getLongProperty(serverConfig
+                , "heartbeatTimeout", DEFAULT_HEARTBEAT_TIMEOUT));
+    }
+
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
+    /**
+     *  Marks the session as one which answers the heartbeats, since that moment the server sends heartbeats
+     * to the idle session and closes it if the heartbeat has not been answered during the {@code heartbeatTimeout}
+     * */
+    public void setHeartbeatSupported(boolean heartbeatSupported) {
+        this.heartbeatSupported = heartbeatSupported;
+    }
+
+    /**
+     *  The method {@code checkActivity} is run by the server {@code TimerWheel}. It closes the session
+     * if it has been idle for the {@code idleTimeout} or has not answered the heartbeat in time,
+     * sends a heartbeat if the session has been idle for the {@code heartbeatInterval}
+     * and then re-arms itself for the nearest deadline.
+     *
+     *  NOTE! Heartbeats are sent only to the clients which have declared the support of them,
+     * the sessions of the legacy clients are closed after the {@code idleTimeout} only.
+     * */
+    private void checkActivity() {
+        if (socket.isClosed() || isInterrupted()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long idle = now - lastActivity;
+        boolean heartbeatPending = heartbeatSupported && heartbeatSentAt > lastActivity;
+        if (idle >= idleTimeout || (heartbeatPending && now - heartbeatSentAt >= heartbeatTimeout)) {
+            LOGGER.info(buildMessage("Closing the idle session", client == null ? "(not logged in)"
+                    : buildMessage("(id", client.getClientId(), ')'), "after", idle, "ms of inactivity"));
+            closeSocket();
+            return;
+        }
+        long nextCheck = lastActivity + idleTimeout;
+        if (heartbeatSupported) {
+            if (!heartbeatPending && idle >= heartbeatInterval) {
+                heartbeatSentAt = now;
+                heartbeatPending = true;
+                sendMessageToConnectedClient(new Message(MessageStatus.HEARTBEAT));
+            }
+            nextCheck = Math.min(nextCheck, heartbeatPending ? heartbeatSentAt + heartbeatTimeout
+                    : lastActivity + heartbeatInterval);
+        }
+        armActivityTimeout(nextCheck - now);
+    }
+
+    private void armActivityTimeout(long delay) {
+        activityTimeout = server.getTimerWheel().newTimeout(this::checkActivity, delay, TimeUnit.MILLISECONDS);
+    }
+
+    void closeSocket() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.error(e.getLocalizedMessage());
+        }
     }
 
     public Server getServer() {
@@ -105,47 +224,42 @@ public class ClientListener extends Thread {
             JAXBContext jaxbContext = JAXBContext.newInstance(Message.class);
             Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
             String messageXml;
-            socket.setSoTimeout(1000 /*ms*/ * 60 /*s*/ * 60 /*m*/);
+            lastActivity = System.currentTimeMillis();
+            armActivityTimeout(Math.min(idleTimeout, heartbeatInterval));
+            server.getSlowConsumerDetector().register(this);
             try {
                 while (!isInterrupted()) {
                     messageXml = in.safe().readUTF();
-                    requestHandler.handle((Message) unmarshaller.unmarshal(new StringReader(messageXml)));
-                }
-            } catch (SocketTimeoutException e) { // client disconnected
-                String infoMessage = "The client";
-                if (client != null) {
-                    infoMessage = buildMessage(infoMessage, "(id", client.getClientId(), ')');
-                }
-                infoMessage = buildMessage(infoMessage, "disconnected (address"
-                        , socket.getRemoteSocketAddress(), ')');
-                LOGGER.info(infoMessage);
-                if (client != null && !client.save()) {
-                    LOGGER.warn(buildMessage("Saving the client (id", client.getClientId()
-                            , ") has not been completed properly"));
+                    lastActivity = System.currentTimeMillis();
+                    Tracer.begin();
+                    long start = System.nanoTime();
+                    Message message = (Message) unmarshaller.unmarshal(new StringReader(messageXml));
+                    Tracer.record(Span.DECODE, start);
+                    TrafficCapture.record(connection, message.getStatus(), messageXml);
+                    requestHandler.handle(message);
+                    Tracer.finish(message.getStatus(), client == null ? 0 : client.getClientId());
                 }
             } catch (IOException e) {
-                String infoMessage = "Client";
                 if (logged) {
-                    infoMessage = buildMessage(infoMessage, "(id", client.getClientId(), ")");
+                    LazyLog.trace(LOGGER, "Client (id", client.getClientId(), ") disconnected, address"
+                            , socket.getRemoteSocketAddress());
+                } else {
+                    LazyLog.trace(LOGGER, "Client disconnected, address", socket.getRemoteSocketAddress());
                 }
-                infoMessage = buildMessage(infoMessage, "disconnected (address"
-                        , socket.getRemoteSocketAddress(), ')');
-                LOGGER.trace(infoMessage);
-                if (client != null && !client.save()) {
+                if (client != null && client.isDirty() && !client.save()) {
                     LOGGER.warn(buildMessage("Saving the client (id", client.getClientId()
                             , ") has not been completed properly"));
                 }
             }
         } catch (JAXBException e) { // unknown error
             LOGGER.fatal(e.getLocalizedMessage());
-        } catch (SocketException e) {
-            LOGGER.error(e.getLocalizedMessage());
         } finally {
             if (LOGGER.isEnabledFor(Level.TRACE)) {
                 LOGGER.trace(buildMessage("Client (",
                                 client == null ? "UNLOGGED" : buildMessage("id", client.getClientId())
                                 , "disconnected"));
             }
+            TrafficCapture.closed(connection);
             interrupt();
         }
     }
@@ -156,14 +270,64 @@ public class ClientListener extends Thread {
             Marshaller marshaller = jaxbContext.createMarshaller();
             marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
             StringWriter stringWriter = new StringWriter();
+            long start = System.nanoTime();
             marshaller.marshal(message, stringWriter);
-            out.safe().writeUTF(stringWriter.toString());
-            out.safe().flush();
+            String messageXml = stringWriter.toString();
+            Tracer.record(Span.ENCODE, start);
+            start = System.nanoTime();
+            writeFrame(messageXml);
+            Tracer.record(Span.FLUSH, start);
+            messageDelivered(message);
         } catch (IOException | JAXBException e) {
             LOGGER.error(e.getLocalizedMessage());
         }
     }
 
+    /**
+     *  The method {@code writeFrame} writes and flushes the marshalled message. The frames of the different threads
+     * are never interleaved. The time spent waiting for the connection and writing is accounted
+     * in the {@code OutboundStats} of the connection.
+     *
+     * @param           messageXml a marshalled message
+     *
+     * @throws          IOException if the connection is closed or broken
+     * */
+    public void writeFrame(@NotNull String messageXml) throws IOException {
+        int length = getUtfLength(messageXml);
+        outboundStats.frameQueued();
+        try {
+            DataOutputStream outputStream = out.safe();
+            synchronized (outputStream) {
+                long start = outboundStats.writeStarted();
+                boolean written = false;
+                try {
+                    outputStream.writeUTF(messageXml);
+                    outputStream.flush();
+                    written = true;
+                } finally {
+                    outboundStats.writeFinished(start, written ? length : 0);
+                }
+            }
+        } finally {
+            outboundStats.frameDequeued();
+        }
+        if (server != null) {
+            server.getMetrics().getOutboundBytes().add(length);
+        }
+    }
+
+    /**
+     * @return          the amount of bytes {@code DataOutputStream.writeUTF} writes for the string
+     * */
+    private static int getUtfLength(String string) {
+        int length = 2;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2;
+        }
+        return length;
+    }
+
     @Override
     public void interrupt() {
         if (LOGGER.isEnabledFor(Level.TRACE)) {
@@ -171,11 +335,22 @@ public class ClientListener extends Thread {
                     buildMessage((logged ? buildMessage("(id", client.getClientId(),')') : ("(not logged in)"))
                             , "disconnected"), " session"));
         }
-        if (client != null && !client.save()) {
+        if (client != null && client.isDirty() && !client.save()) {
             LOGGER.error(buildMessage("Saving the client (id", client.getClientId()
                     , ") has not been finished properly"));
         }
+        if (activityTimeout != null) {
+            activityTimeout.cancel();
+        }
+        if (server != null) {
+            server.getSlowConsumerDetector().unregister(this);
+        }
+        if (server != null && logged) {
+            server.getSessionTable().detach(this);
+            server.removeOnlineClient(this);
+        }
         super.interrupt();
+        closeSocket();
     }
 
     /**
@@ -192,7 +367,7 @@ public class ClientListener extends Thread {
             return true;
         }
         if (!isLogged()) {
-            LOGGER.trace("Passed message to check before log-in: ".concat(message.toString()));
+            LazyLog.trace(LOGGER, "Passed message to check before log-in:", message);
             return true;
         }
         if (message.getFromId() == null || message.getFromId() != client.getClientId()) {
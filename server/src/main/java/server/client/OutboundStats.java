@@ -0,0 +1,117 @@
+package server.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  The class {@code OutboundStats} accounts the frames written to a single connection. The frames are written
+ * synchronously by the threads which produce them, so the backlog of a connection is the amount of the frames
+ * which threads are waiting to write or are writing at the moment.
+ *
+ *  The write path updates a few atomic counters only, the slowness is judged by the {@code SlowConsumerDetector}
+ * which samples the counters once a second.
+ * */
+public class OutboundStats {
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private final AtomicLong windowMaxWriteNanos = new AtomicLong();
+    private final AtomicInteger backlog = new AtomicInteger();
+    private volatile long writeStartedAt;
+    private volatile long lastWindowMaxWriteNanos;
+    private volatile long slowSince;
+    private volatile boolean flagged;
+
+    void frameQueued() {
+        backlog.incrementAndGet();
+    }
+
+    void frameDequeued() {
+        backlog.decrementAndGet();
+    }
+
+    /**
+     *  Is called by the writing thread holding the output stream lock
+     *
+     * @return          the moment (nanoseconds) the write has started
+     * */
+    long writeStarted() {
+        long start = System.nanoTime();
+        writeStartedAt = start;
+        return start;
+    }
+
+    /**
+     * @param           start a value returned by {@code writeStarted}
+     * @param           writtenBytes the size of the written frame or {@code 0} if the write has failed
+     * */
+    void writeFinished(long start, long writtenBytes) {
+        long duration = System.nanoTime() - start;
+        writeStartedAt = 0;
+        blockedNanos.addAndGet(duration);
+        windowMaxWriteNanos.accumulateAndGet(duration, Math::max);
+        if (writtenBytes > 0) {
+            bytes.addAndGet(writtenBytes);
+            frames.incrementAndGet();
+        }
+    }
+
+    /**
+     *  Closes the current sampling window. It is called by the {@code SlowConsumerDetector} only.
+     *
+     * @return          the longest write of the window in nanoseconds including the write in progress
+     * */
+    long sampleWriteLatency(long now) {
+        long started = writeStartedAt;
+        long latency = Math.max(windowMaxWriteNanos.getAndSet(0), started == 0 ? 0 : now - started);
+        lastWindowMaxWriteNanos = latency;
+        return latency;
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getFrames() {
+        return frames.get();
+    }
+
+    /**
+     * @return          the total time (nanoseconds) the writing threads have been blocked in writes and flushes
+     * */
+    public long getBlockedNanos() {
+        long started = writeStartedAt;
+        return blockedNanos.get() + (started == 0 ? 0 : System.nanoTime() - started);
+    }
+
+    /**
+     * @return          the longest write (nanoseconds) of the last sampling window
+     * */
+    public long getWriteLatencyNanos() {
+        return lastWindowMaxWriteNanos;
+    }
+
+    public int getBacklog() {
+        return backlog.get();
+    }
+
+    /**
+     * @return          {@code true} if the connection has been above the slow consumer limits
+     *                  for the whole {@code slowConsumerGracePeriod}
+     * */
+    public boolean isFlagged() {
+        return flagged;
+    }
+
+    void setFlagged(boolean flagged) {
+        this.flagged = flagged;
+    }
+
+    long getSlowSince() {
+        return slowSince;
+    }
+
+    void setSlowSince(long slowSince) {
+        this.slowSince = slowSince;
+    }
+}
@@ -6,6 +6,10 @@ import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import server.handlers.factory.RequestHandlerFactoryImpl;
 import server.handlers.factory.RequestHandlerFactory;
+import server.logging.LazyLog;
+import server.tracing.FlightEvents;
+import server.tracing.Span;
+import server.tracing.Tracer;
 
 import javax.naming.OperationNotSupportedException;
 
@@ -33,18 +37,35 @@ class RequestHandler {
         Message responseMessage = new Message(MessageStatus.ERROR)
                 .setText("This is a default text. If you got this message, that means that something went wrong.");
         try {
+            if (clientListener.getServer().isStandby() && !isAllowedOnStandby(message.getStatus())) {
+                responseMessage = new Message(MessageStatus.DENIED)
+                        .setText("The server is a standby, please, connect to the primary server");
+                return;
+            }
+            long start = System.nanoTime();
+            Object event = FlightEvents.beginDispatch();
+            boolean failed = true;
             try {
                 responseHandler = respHandlFactory.getFor(clientListener, message);
                 responseMessage = responseHandler.handle(clientListener, message);
+                failed = MessageStatus.ERROR.equals(responseMessage.getStatus());
             } catch (OperationNotSupportedException e) {
                 if (LOGGER.isEnabledFor(Level.ERROR)) {
                     LOGGER.error(
                             buildMessage("Unable to handle the message of", message.getStatus(), "status"));
                 }
+            } finally {
+                Tracer.record(Span.DISPATCH, start);
+                FlightEvents.commitDispatch(event, message.getStatus(), clientListener.getClient() == null ? 0
+                        : clientListener.getClient().getClientId(), failed);
+                if (message.getStatus() != null) {
+                    clientListener.getServer().getMetrics().getRequestMetrics(message.getStatus())
+                            .record(start, failed);
+                }
             }
         } finally {
             clientListener.sendMessageToConnectedClient(responseMessage);
-            LOGGER.trace("Message has been sent");
+            LazyLog.trace(LOGGER, "The response", responseMessage.getStatus(), "has been sent");
             if (MessageStatus.REGISTRATION.equals(message.getStatus())
                     && MessageStatus.ACCEPTED.equals(responseMessage.getStatus())) {
                 clientListener.sendMessageToConnectedClient(new Message(MessageStatus.ACCEPTED)
@@ -53,4 +74,14 @@ class RequestHandler {
             }
         }
     }
+
+    /**
+     *  A standby server keeps the replicated data only, so it serves the server control requests
+     * (including the promotion) and nothing else
+     * */
+    private static boolean isAllowedOnStandby(MessageStatus status) {
+        return MessageStatus.STOP_SERVER.equals(status) || MessageStatus.RESTART_SERVER.equals(status)
+                || MessageStatus.RELOAD_CONFIG.equals(status) || MessageStatus.PROMOTE.equals(status)
+                || MessageStatus.SERVER_STATS.equals(status);
+    }
 }
\ No newline at end of file
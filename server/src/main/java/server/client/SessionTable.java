@@ -0,0 +1,279 @@
+package server.client;
+
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import server.Server;
+import server.TimerWheel;
+import server.exceptions.RoomNotFoundException;
+import server.logging.LazyLog;
+import server.processing.PropertiesProcessing;
+import server.processing.RoomProcessing;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The class {@code SessionTable} keeps the logged in clients in memory in order to let them resume their sessions
+ * after a reconnection without the re-authentication i.e. without reading their data from the disk.
+ *
+ *  Every successful log-in opens a session and issues a resumption token signed by the server secret key.
+ * When the connection is lost the session is detached and kept for the {@code sessionResumptionTimeout} (seconds).
+ * A {@code MessageStatus.RESUME} request with a valid token attaches the session to the new connection
+ * and rotates the token. There is only one session per client, a new log-in invalidates the previous token.
+ *
+ *  The secret key is generated on the server start, so the tokens do not survive a restart.
+ * */
+public class SessionTable {
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final long DEFAULT_SESSION_RESUMPTION_TIMEOUT = 300;
+    private static volatile Logger LOGGER = Logger.getLogger(ClientListener.class.getSimpleName());
+    private final Server server;
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final SecretKeySpec secretKey;
+    private final Map<Integer, Session> sessions = new ConcurrentHashMap<>();
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    public SessionTable(@NotNull Server server) {
+        this.server = server;
+        byte [] key = new byte[32];
+        secureRandom.nextBytes(key);
+        secretKey = new SecretKeySpec(key, MAC_ALGORITHM);
+    }
+
+    /**
+     *  Opens a new session for the client who has just logged in. The previous session of the client
+     * (if any) is invalidated.
+     *
+     * @param           clientListener a logged in client connection
+     *
+     * @return          the resumption token of the session
+     * */
+    public String open(@NotNull ClientListener clientListener) {
+        Session session = new Session(clientListener.getClient(), newNonce());
+        session.clientListener = clientListener;
+        Session previous = sessions.put(session.client.getClientId(), session);
+        if (previous != null) {
+            previous.cancelExpiry();
+        }
+        return sign(session);
+    }
+
+    /**
+     *  Detaches the session from the closed connection. Since that moment the session can be resumed
+     * during the {@code sessionResumptionTimeout}, the room messages newer than the ones the connection
+     * has got are sent to the client after the resumption (see {@code getCursors}).
+     *
+     * @param           clientListener the connection that has been closed
+     * */
+    public void detach(@NotNull ClientListener clientListener) {
+        if (clientListener.getClient() == null) {
+            return;
+        }
+        int clientId = clientListener.getClient().getClientId();
+        Session session = sessions.get(clientId);
+        if (session == null) {
+            return;
+        }
+        synchronized (session) {
+            if (session.clientListener != clientListener) {
+                return;
+            }
+            session.clientListener = null;
+            session.cursors = getCursors(clientListener);
+            session.expiry = server.getTimerWheel().newTimeout(() -> sessions.remove(clientId, session)
+                    , PropertiesProcessing.getLongProperty(server.getConfig(), "sessionResumptionTimeout"
+                            , DEFAULT_SESSION_RESUMPTION_TIMEOUT), TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     *  The method {@code resume} validates the token and attaches the session to the new connection.
+     * If the session is still attached to the previous connection (the server has not noticed the disconnection yet)
+     * the previous connection is taken over.
+     *
+     * @param           token a resumption token issued by {@code open} or a previous {@code resume}
+     * @param           clientListener a new connection of the client
+     *
+     * @return          the resumed session or {@code null} if the token is not valid or the session has expired
+     * */
+    public Session resume(String token, @NotNull ClientListener clientListener) {
+        if (token == null) {
+            return null;
+        }
+        int separator = token.indexOf('.');
+        if (separator < 0) {
+            return null;
+        }
+        String payload = token.substring(0, separator);
+        byte [] signature;
+        String [] parts;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(separator + 1));
+            parts = new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8).split(":");
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (parts.length != 2 || !MessageDigest.isEqual(signature, mac(payload))) {
+            return null;
+        }
+        Session session;
+        try {
+            session = sessions.get(Integer.parseInt(parts[0]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (session == null) {
+            return null;
+        }
+        synchronized (session) {
+            if (!session.nonce.equals(parts[1])) {
+                return null;
+            }
+            session.cancelExpiry();
+            if (session.clientListener != null) {
+                session.cursors = getCursors(session.clientListener);
+            }
+            session.previousClientListener = session.clientListener;
+            session.clientListener = clientListener;
+            session.nonce = newNonce();
+            session.token = sign(session);
+        }
+        return session;
+    }
+
+    public void invalidate(int clientId) {
+        Session session = sessions.remove(clientId);
+        if (session != null) {
+            session.cancelExpiry();
+        }
+    }
+
+    /**
+     *  This method is called every time a client is saved. If another instance of the client is saved
+     * (e.g. an offline client has been invited to a room) the kept one is stale, thus his/her session is invalidated.
+     * */
+    void clientSaved(@NotNull Client client) {
+        Session session = sessions.get(client.getClientId());
+        if (session != null && session.client != client) {
+            if (sessions.remove(client.getClientId(), session)) {
+                session.cancelExpiry();
+                LazyLog.trace(LOGGER, "The session of the client (id", client.getClientId()
+                        , ") has been invalidated: the client has been modified");
+            }
+        }
+    }
+
+    /**
+     *  The cursor of a room is the sequence number of the last message the connection has got. If the connection
+     * has not got any message of the room, the room has not had anything new for the client since the connection
+     * started, so the last message of the room is taken (the room is loaded if it has been evicted).
+     *
+     * @return          the cursors of the rooms of the client by the room ids
+     * */
+    private Map<Integer, Long> getCursors(ClientListener clientListener) {
+        Map<Integer, Long> cursors = new HashMap<>(clientListener.getDeliveredSequences());
+        List<Integer> roomIds;
+        synchronized (clientListener.getClient().getRooms().safe()) {
+            roomIds = new ArrayList<>(clientListener.getClient().getRooms().safe());
+        }
+        for (int roomId : roomIds) {
+            if (cursors.containsKey(roomId)) {
+                continue;
+            }
+            try {
+                cursors.put(roomId, RoomProcessing.getRoom(server, roomId).getMessageHistory().getLastSequence());
+            } catch (RoomNotFoundException e) {
+                LazyLog.trace(LOGGER, "The room (id", roomId, ") of the detached session has not been found");
+            }
+        }
+        return cursors;
+    }
+
+    private String newNonce() {
+        byte [] nonce = new byte[16];
+        secureRandom.nextBytes(nonce);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(nonce);
+    }
+
+    private String sign(Session session) {
+        String payload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                buildMessage(session.client.getClientId(), session.nonce).replace(' ', ':')
+                        .getBytes(StandardCharsets.UTF_8));
+        return payload.concat(".").concat(Base64.getUrlEncoder().withoutPadding().encodeToString(mac(payload)));
+    }
+
+    private byte [] mac(String payload) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(secretKey);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static final class Session {
+        private final Client client;
+        private volatile String nonce;
+        private volatile String token;
+        private volatile Map<Integer, Long> cursors;
+        private volatile ClientListener clientListener;
+        private volatile ClientListener previousClientListener;
+        private volatile TimerWheel.Timeout expiry;
+
+        private Session(Client client, String nonce) {
+            this.client = client;
+            this.nonce = nonce;
+        }
+
+        public Client getClient() {
+            return client;
+        }
+
+        /**
+         * @return          the rotated resumption token
+         * */
+        public String getToken() {
+            return token;
+        }
+
+        /**
+         * @return          the sequence numbers of the last room messages the previous connection has got
+         *                  by the room ids, the newer messages have to be re-sent to the client
+         *                  or {@code null} if the session has not been detached
+         * */
+        public Map<Integer, Long> getCursors() {
+            return cursors;
+        }
+
+        /**
+         * @return          the connection the session has been taken over from or {@code null}
+         * */
+        public ClientListener getPreviousClientListener() {
+            return previousClientListener;
+        }
+
+        private void cancelExpiry() {
+            if (expiry != null) {
+                expiry.cancel();
+                expiry = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package server.client;
+
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import server.Server;
+import server.metrics.Counter;
+import server.processing.PropertiesProcessing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The class {@code SlowConsumerDetector} finds the connections which slow the server down. Since the frames
+ * are written synchronously, a client that does not read its socket blocks every thread sending to it
+ * (including the fanout of the room messages). The detector samples the {@code OutboundStats} of every open
+ * connection once a second. A connection is slow while its longest write of the last second exceeds
+ * the {@code slowConsumerWriteLatency} (milliseconds) or its backlog exceeds the {@code slowConsumerBacklog}
+ * (frames). If it stays slow for the {@code slowConsumerGracePeriod} (seconds) it is flagged and, if
+ * the {@code slowConsumerDisconnect} is {@code true}, disconnected. A zero limit disables the corresponding check.
+ *
+ *  The connections are kept here rather than taken from the server online clients, because sampling must not
+ * wait for the {@code onlineClients} lock which is held by the very fanout the slow client has blocked.
+ * */
+public class SlowConsumerDetector {
+    private static final long DEFAULT_WRITE_LATENCY = 1000;
+    private static final long DEFAULT_BACKLOG = 100;
+    private static final long DEFAULT_GRACE_PERIOD = 10;
+    private static volatile Logger LOGGER = Logger.getLogger(ClientListener.class.getSimpleName());
+    private final Server server;
+    private final Set<ClientListener> connections = ConcurrentHashMap.newKeySet();
+    private final Counter flaggedCounter;
+    private final Counter disconnectedCounter;
+    private volatile long writeLatencyLimitNanos;
+    private volatile long backlogLimit;
+    private volatile long gracePeriodMillis;
+    private volatile boolean disconnect;
+    private volatile boolean stopped;
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    public SlowConsumerDetector(@NotNull Server server) {
+        this.server = server;
+        flaggedCounter = server.getMetrics().counter("slow_consumers_flagged_total"
+                , "The amount of the connections flagged as slow consumers");
+        disconnectedCounter = server.getMetrics().counter("slow_consumers_disconnected_total"
+                , "The amount of the slow consumer connections closed by the server");
+        server.getMetrics().gauge("slow_consumers", "The amount of the currently flagged slow consumer connections"
+                , this::getFlaggedCount);
+    }
+
+    /**
+     *  Applies the limits of the server configurations, they are taken into account since the next sample
+     *
+     * @param           serverConfig the server configurations
+     * */
+    public void applyConfig(@NotNull Properties serverConfig) {
+        writeLatencyLimitNanos = TimeUnit.MILLISECONDS.toNanos(PropertiesProcessing.getLongProperty(serverConfig
+                , "slowConsumerWriteLatency", DEFAULT_WRITE_LATENCY));
+        backlogLimit = PropertiesProcessing.getLongProperty(serverConfig, "slowConsumerBacklog", DEFAULT_BACKLOG);
+        gracePeriodMillis = TimeUnit.SECONDS.toMillis(PropertiesProcessing.getLongProperty(serverConfig
+                , "slowConsumerGracePeriod", DEFAULT_GRACE_PERIOD));
+        disconnect = Boolean.parseBoolean(serverConfig.getProperty("slowConsumerDisconnect", "false").trim());
+    }
+
+    public void start() {
+        sample();
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    void register(@NotNull ClientListener clientListener) {
+        connections.add(clientListener);
+    }
+
+    void unregister(@NotNull ClientListener clientListener) {
+        connections.remove(clientListener);
+    }
+
+    private void sample() {
+        if (stopped) {
+            return;
+        }
+        long nowNanos = System.nanoTime();
+        long now = System.currentTimeMillis();
+        for (ClientListener clientListener : connections) {
+            OutboundStats stats = clientListener.getOutboundStats();
+            long latency = stats.sampleWriteLatency(nowNanos);
+            boolean slow = (writeLatencyLimitNanos > 0 && latency > writeLatencyLimitNanos)
+                    || (backlogLimit > 0 && stats.getBacklog() > backlogLimit);
+            if (!slow) {
+                if (stats.isFlagged()) {
+                    LOGGER.info(buildMessage("The connection", describe(clientListener)
+                            , "is not a slow consumer anymore"));
+                }
+                stats.setSlowSince(0);
+                stats.setFlagged(false);
+                continue;
+            }
+            if (stats.getSlowSince() == 0) {
+                stats.setSlowSince(now);
+            }
+            if (stats.isFlagged() || now - stats.getSlowSince() < gracePeriodMillis) {
+                continue;
+            }
+            stats.setFlagged(true);
+            flaggedCounter.increment();
+            LOGGER.warn(buildMessage("The connection", describe(clientListener), "is a slow consumer: write latency"
+                    , TimeUnit.NANOSECONDS.toMillis(latency), "ms, backlog", stats.getBacklog(), "frames for"
+                    , now - stats.getSlowSince(), "ms", disconnect ? "- disconnecting" : ""));
+            if (disconnect) {
+                disconnectedCounter.increment();
+                clientListener.closeSocket();
+            }
+        }
+        server.getTimerWheel().newTimeout(this::sample, 1, TimeUnit.SECONDS);
+    }
+
+    public int getFlaggedCount() {
+        int flagged = 0;
+        for (ClientListener clientListener : connections) {
+            if (clientListener.getOutboundStats().isFlagged()) {
+                flagged++;
+            }
+        }
+        return flagged;
+    }
+
+    /**
+     *  The method {@code getTopOffenders} lists the connections that have spent the most time blocked in writes.
+     * The flagged connections go first.
+     *
+     * @param           limit the maximum amount of the listed connections
+     *
+     * @return          a human readable table of the connections
+     * */
+    public String getTopOffenders(int limit) {
+        // the stats are being changed by the writers, the sort keys are taken once so the order stays consistent
+        List<Offender> offenders = new ArrayList<>(connections.size());
+        for (ClientListener clientListener : connections) {
+            offenders.add(new Offender(clientListener));
+        }
+        offenders.sort(Comparator.comparing((Offender offender) -> !offender.flagged)
+                .thenComparing(offender -> -offender.blockedNanos));
+        StringBuilder report = new StringBuilder(String.format("%-32s %12s %10s %12s %12s %8s %8s%n", "connection"
+                , "bytes", "frames", "blocked ms", "latency ms", "backlog", "flagged"));
+        for (int i = 0; i < offenders.size() && i < limit; i++) {
+            Offender offender = offenders.get(i);
+            OutboundStats stats = offender.clientListener.getOutboundStats();
+            report.append(String.format("%-32s %12d %10d %12d %12d %8d %8s%n", describe(offender.clientListener)
+                    , stats.getBytes(), stats.getFrames(), TimeUnit.NANOSECONDS.toMillis(offender.blockedNanos)
+                    , TimeUnit.NANOSECONDS.toMillis(stats.getWriteLatencyNanos()), stats.getBacklog()
+                    , offender.flagged ? "yes" : "no"));
+        }
+        report.append(buildMessage(connections.size(), "connections,", getFlaggedCount(), "flagged"));
+        return report.toString();
+    }
+
+    private static String describe(ClientListener clientListener) {
+        Client client = clientListener.getClient();
+        return client == null ? String.valueOf(clientListener.getSocket().getRemoteSocketAddress())
+                : buildMessage("id", client.getClientId(), clientListener.getSocket().getRemoteSocketAddress());
+    }
+
+    private static final class Offender {
+        private final ClientListener clientListener;
+        private final boolean flagged;
+        private final long blockedNanos;
+
+        private Offender(ClientListener clientListener) {
+            this.clientListener = clientListener;
+            flagged = clientListener.getOutboundStats().isFlagged();
+            blockedNanos = clientListener.getOutboundStats().getBlockedNanos();
+        }
+    }
+}
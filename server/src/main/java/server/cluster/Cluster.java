@@ -0,0 +1,608 @@
+package server.cluster;
+
+import common.entities.message.Message;
+import common.entities.message.MessageStatus;
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import server.Server;
+import server.client.Client;
+import server.client.ClientListener;
+import server.exceptions.ClientNotFoundException;
+import server.logging.LazyLog;
+import server.processing.ClientProcessing;
+import server.processing.PropertiesProcessing;
+import server.processing.RoomProcessing;
+import server.processing.ServerProcessing;
+import server.room.Room;
+import server.security.PeerAuthentication;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The class {@code Cluster} lets several server processes serve the same users. The nodes are listed
+ * in the {@code clusterNodes} property (comma separated {@code host:port} addresses of the inter-node links),
+ * the {@code clusterNodeAddress} property is the address of the current node. If {@code clusterNodes} is empty
+ * the server works alone and owns all the rooms.
+ *
+ *  Every room is owned by a single node chosen by the {@code ConsistentHashRing}. Only the owner adds the messages
+ * to the room history and saves it, the other nodes relay the {@code MessageStatus.MESSAGE} of their clients
+ * to the owner, as well as the changes of the room members (see {@code RoomProcessing.changeMembers}).
+ * The rooms loaded by the other nodes (e.g. to send the history) are kept as replicas, the new messages are added
+ * to them without saving.
+ *
+ *  The nodes know where the clients are connected from the {@code SessionDirectory}, its changes are sent
+ * to the other nodes every {@code clusterGossipInterval} (milliseconds). Everything addressed to the clients
+ * of the other nodes (new messages, notifications, bans, changes of the client rooms) is routed by the directory
+ * in a single frame per node, the node connected to the client applies it to its in-memory client.
+ *
+ *  The nodes share the {@code clientsDir} and {@code roomsDir} folders, so several nodes can be started
+ * on the localhost with their own {@code port} and {@code clusterNodeAddress} and the same other configurations.
+ *
+ *  The inter-node port is bound to the address of the {@code clusterNodeAddress}. Only the connections from the hosts
+ * of the {@code clusterNodes} that prove they know the {@code clusterSecret} (see {@code PeerAuthentication}) are
+ * read, the owner of a room applies a relayed message only if its addresser is a member of the room.
+ *
+ *  The ring is static: the rooms of a node that is down are not available until it comes back.
+ * */
+public class Cluster extends Thread {
+    private static final int VIRTUAL_NODES = 128;
+    private static final int MAX_FRAME_ITEMS = 500;
+    private static final long DEFAULT_GOSSIP_INTERVAL = 250;
+    static final String LINK_KIND = "cluster";
+    private static volatile Logger LOGGER = Logger.getLogger("Server");
+    private final Server server;
+    private final String nodeAddress;
+    private final String secret;
+    private final Set<InetAddress> nodeHosts;
+    private final ConsistentHashRing ring;
+    private final SessionDirectory directory;
+    private final Map<String, PeerLink> peerLinks = new HashMap<>();
+    private final Map<String, Socket> inboundLinks = new ConcurrentHashMap<>();
+    private final Set<Socket> inboundSockets = ConcurrentHashMap.newKeySet();
+    private final JAXBContext jaxbContext;
+    private volatile ServerSocket serverSocket;
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+        PeerLink.setLogger(logger);
+    }
+
+    /**
+     * @param           server the server of the current node
+     * @param           config the server configurations
+     *
+     * @throws          InvalidPropertiesFormatException if the cluster configurations are not valid e.g.
+     *                  {@code clusterNodeAddress} is not one of the {@code clusterNodes}
+     *                  or the {@code clusterSecret} is not set
+     * */
+    public Cluster(@NotNull Server server, @NotNull Properties config) throws InvalidPropertiesFormatException {
+        super("Cluster");
+        setDaemon(true);
+        this.server = server;
+        String clusterNodes = config.getProperty("clusterNodes", "").trim();
+        if (clusterNodes.isEmpty()) {
+            nodeAddress = null;
+            secret = null;
+            nodeHosts = null;
+            ring = null;
+            directory = null;
+            jaxbContext = null;
+            return;
+        }
+        nodeAddress = config.getProperty("clusterNodeAddress", "").trim();
+        Set<String> nodes = new TreeSet<>();
+        for (String node : clusterNodes.split(",")) {
+            if (!node.trim().isEmpty()) {
+                nodes.add(node.trim());
+            }
+        }
+        if (!nodes.contains(nodeAddress)) {
+            throw new InvalidPropertiesFormatException(buildMessage("clusterNodeAddress", nodeAddress
+                    , "is not one of the clusterNodes", nodes));
+        }
+        secret = config.getProperty("clusterSecret", "");
+        if (secret.isEmpty()) {
+            throw new InvalidPropertiesFormatException("The clusterSecret is not set");
+        }
+        try {
+            nodeHosts = PeerAuthentication.resolve(clusterNodes);
+        } catch (UnknownHostException e) {
+            throw new InvalidPropertiesFormatException(buildMessage("Unknown cluster node host:"
+                    , e.getLocalizedMessage()));
+        }
+        try {
+            jaxbContext = JAXBContext.newInstance(ClusterFrame.class);
+        } catch (JAXBException e) {
+            throw new RuntimeException(e);
+        }
+        directory = new SessionDirectory(nodeAddress);
+        for (String node : nodes) {
+            InetSocketAddress socketAddress = parseAddress(node);
+            if (!node.equals(nodeAddress)) {
+                peerLinks.put(node, new PeerLink(node, socketAddress, jaxbContext, secret
+                        , () -> directoryFrames(directory.localEntries())));
+            }
+        }
+        ring = new ConsistentHashRing(nodes, VIRTUAL_NODES);
+    }
+
+    /**
+     * @param           address a host:port address
+     *
+     * @throws          InvalidPropertiesFormatException if the address is not valid
+     * */
+    public static InetSocketAddress parseAddress(String address) throws InvalidPropertiesFormatException {
+        int separator = address.lastIndexOf(':');
+        try {
+            return new InetSocketAddress(address.substring(0, separator)
+                    , Integer.parseInt(address.substring(separator + 1)));
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new InvalidPropertiesFormatException(buildMessage("Invalid host:port address:", address));
+        }
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    public String getNodeAddress() {
+        return nodeAddress;
+    }
+
+    /**
+     * @return          {@code true} if the room is owned by the current node, it is always {@code true}
+     *                  if the server does not work in the cluster
+     * */
+    public boolean isOwner(int roomId) {
+        return ring == null || nodeAddress.equals(ring.getOwner(roomId));
+    }
+
+    /**
+     * @return          the address of the other node the client is connected to or {@code null}
+     *                  if the client is offline or connected to the current node
+     * */
+    public String getRemoteNode(int clientId) {
+        if (directory == null) {
+            return null;
+        }
+        String node = directory.locate(clientId);
+        return nodeAddress.equals(node) ? null : node;
+    }
+
+    public void sessionOpened(int clientId) {
+        if (directory != null) {
+            directory.sessionOpened(clientId);
+        }
+    }
+
+    public void sessionClosed(int clientId) {
+        if (directory != null) {
+            directory.sessionClosed(clientId);
+        }
+    }
+
+    /**
+     *  Sends the message of a client of the current node to the node that owns the room
+     *
+     * @param           message a message of {@code MessageStatus.MESSAGE}
+     *
+     * @throws          IOException if the owner of the room is not reachable at the moment
+     * */
+    public void relayToOwner(@NotNull Message message) throws IOException {
+        relayToOwner(ClusterFrame.Type.RELAY_MESSAGE, message);
+    }
+
+    /**
+     *  Sends the request of a client of the current node to the node that owns the room
+     *
+     * @param           type {@code ClusterFrame.Type.RELAY_MESSAGE} or {@code ClusterFrame.Type.RELAY_MEMBERS}
+     * @param           message the request, its {@code roomId} is set
+     *
+     * @throws          IOException if the owner of the room is not reachable at the moment
+     * */
+    public void relayToOwner(@NotNull ClusterFrame.Type type, @NotNull Message message) throws IOException {
+        String owner = ring.getOwner(message.getRoomId());
+        PeerLink peerLink = peerLinks.get(owner);
+        if (peerLink == null || !peerLink.isConnected() || !peerLink.send(
+                new ClusterFrame(type, nodeAddress, message.getRoomId(), message))) {
+            throw new IOException(buildMessage("The node", owner, "owning the room (id", message.getRoomId()
+                    , ") is not reachable"));
+        }
+    }
+
+    /**
+     *  Sends the message that has been added to the history of the room owned by the current node to every other
+     * node, even to the ones none of the room members is connected to: a node may keep a replica of the room
+     * (e.g. loaded to send the history) and it has to stay up to date
+     * */
+    public void publishNewMessage(@NotNull Room room, @NotNull Message message) {
+        List<Integer> members;
+        synchronized (room.getMembers().safe()) {
+            members = new ArrayList<>(room.getMembers().safe());
+        }
+        route(ClusterFrame.Type.NEW_MESSAGE, members, room.getRoomId(), message, true);
+    }
+
+    /**
+     * @return          the amount of the frames waiting to be sent by the node addresses
+     * */
+    public Map<String, Integer> getOutboundQueueDepths() {
+        Map<String, Integer> depths = new TreeMap<>();
+        for (Map.Entry<String, PeerLink> peerLink : peerLinks.entrySet()) {
+            depths.put(peerLink.getKey(), peerLink.getValue().getQueueDepth());
+        }
+        return depths;
+    }
+
+    /**
+     *  Informs the other nodes that the room file has been changed by the current node
+     * */
+    public void publishRoomChanged(int roomId) {
+        if (ring == null) {
+            return;
+        }
+        ClusterFrame frame = new ClusterFrame(ClusterFrame.Type.ROOM_CHANGED, nodeAddress, roomId, null);
+        for (PeerLink peerLink : peerLinks.values()) {
+            peerLink.send(frame);
+        }
+    }
+
+    /**
+     *  The method {@code routeToRemoteSessions} sends the frame of the {@code type} to the nodes where the clients
+     * are connected according to the {@code SessionDirectory}. Every node receives a single frame containing
+     * all its recipients.
+     *
+     * @param           type a type of the frames to be sent
+     * @param           clientIds the ids of the recipients
+     * @param           roomId an id of the room the frame is related to (if any)
+     * @param           message a message to be delivered to the recipients (if any)
+     *
+     * @return          the ids of the clients who are not connected to the other nodes, they have to be
+     *                  handled by the current node
+     * */
+    public Set<Integer> routeToRemoteSessions(@NotNull ClusterFrame.Type type, @NotNull Collection<Integer> clientIds
+            , int roomId, Message message) {
+        return route(type, clientIds, roomId, message, false);
+    }
+
+    /**
+     * @param           everyNode whether the nodes none of the recipients is connected to receive the frame as well
+     *                  (with no recipients)
+     * */
+    private Set<Integer> route(ClusterFrame.Type type, Collection<Integer> clientIds, int roomId, Message message
+            , boolean everyNode) {
+        Set<Integer> notRouted = new HashSet<>();
+        Map<String, List<Integer>> recipientsByNode = new HashMap<>();
+        if (everyNode) {
+            for (String node : peerLinks.keySet()) {
+                recipientsByNode.put(node, new ArrayList<>());
+            }
+        }
+        for (int clientId : clientIds) {
+            String node = getRemoteNode(clientId);
+            if (node == null || !peerLinks.containsKey(node)) {
+                notRouted.add(clientId);
+            } else {
+                recipientsByNode.computeIfAbsent(node, n -> new ArrayList<>()).add(clientId);
+            }
+        }
+        for (Map.Entry<String, List<Integer>> entry : recipientsByNode.entrySet()) {
+            List<Integer> recipients = entry.getValue();
+            int from = 0;
+            do {
+                ClusterFrame frame = new ClusterFrame(type, nodeAddress, roomId, message);
+                frame.getRecipients().addAll(recipients.subList(from
+                        , Math.min(from + MAX_FRAME_ITEMS, recipients.size())));
+                peerLinks.get(entry.getKey()).send(frame);
+                from += MAX_FRAME_ITEMS;
+            } while (from < recipients.size());
+        }
+        return notRouted;
+    }
+
+    private List<ClusterFrame> directoryFrames(List<DirectoryEntry> entries) {
+        List<ClusterFrame> frames = new ArrayList<>();
+        for (int from = 0; from < entries.size(); from += MAX_FRAME_ITEMS) {
+            ClusterFrame frame = new ClusterFrame(ClusterFrame.Type.DIRECTORY, nodeAddress, 0, null);
+            frame.getEntries().addAll(entries.subList(from, Math.min(from + MAX_FRAME_ITEMS, entries.size())));
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    /**
+     *  Sends the directory changes of the current node collected since the previous round and re-arms itself
+     * */
+    private void gossip() {
+        if (isInterrupted()) {
+            return;
+        }
+        List<ClusterFrame> frames = directoryFrames(directory.drainDeltas());
+        for (PeerLink peerLink : peerLinks.values()) {
+            for (ClusterFrame frame : frames) {
+                peerLink.send(frame);
+            }
+        }
+        server.getTimerWheel().newTimeout(this::gossip, PropertiesProcessing.getLongProperty(server.getConfig()
+                , "clusterGossipInterval", DEFAULT_GOSSIP_INTERVAL), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run() {
+        if (ring == null) {
+            return;
+        }
+        for (PeerLink peerLink : peerLinks.values()) {
+            peerLink.start();
+        }
+        gossip();
+        try (ServerSocket serverSocket = new ServerSocket()) {
+            serverSocket.bind(parseAddress(nodeAddress));
+            this.serverSocket = serverSocket;
+            LOGGER.info(buildMessage("The cluster node", nodeAddress, "is listening, peers:", peerLinks.keySet()));
+            while (!isInterrupted()) {
+                Socket socket = serverSocket.accept();
+                if (!nodeHosts.contains(socket.getInetAddress())) {
+                    LOGGER.warn(buildMessage("The connection from", socket.getRemoteSocketAddress()
+                            , "has been refused: it is not one of the clusterNodes"));
+                    socket.close();
+                    continue;
+                }
+                inboundSockets.add(socket);
+                Thread reader = new Thread(() -> readFrames(socket)
+                        , buildMessage("ClusterLink", socket.getRemoteSocketAddress()));
+                reader.setDaemon(true);
+                reader.start();
+            }
+        } catch (IOException e) {
+            if (!isInterrupted()) {
+                LOGGER.fatal(buildMessage("The cluster listener has failed:", e.getLocalizedMessage()));
+            }
+        }
+    }
+
+    /**
+     *  Reads the frames of an incoming link once the peer has been authenticated. The frames of a link are handled
+     * in the order they have been sent.
+     * When the link is closed the clients of the source node are removed from the directory
+     * unless the node has already reconnected.
+     * */
+    private void readFrames(Socket socket) {
+        String sourceNode = null;
+        try {
+            PeerAuthentication.challenge(socket, LINK_KIND, secret);
+        } catch (IOException e) {
+            LOGGER.warn(buildMessage("The connection from", socket.getRemoteSocketAddress(), "has been refused:"
+                    , e.getLocalizedMessage()));
+            inboundSockets.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                LOGGER.error(ex.getLocalizedMessage());
+            }
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+            while (!isInterrupted()) {
+                ClusterFrame frame = (ClusterFrame) unmarshaller.unmarshal(new StringReader(in.readUTF()));
+                if (sourceNode == null) {
+                    sourceNode = frame.getSourceNode();
+                    inboundLinks.put(sourceNode, socket);
+                }
+                handle(frame);
+            }
+        } catch (IOException e) {
+            LazyLog.trace(LOGGER, "The incoming cluster link", socket.getRemoteSocketAddress()
+                    , "has been closed");
+        } catch (JAXBException e) {
+            LOGGER.error(buildMessage("Unable to read a frame from", socket.getRemoteSocketAddress(), ':'
+                    , e.getLocalizedMessage()));
+        } finally {
+            inboundSockets.remove(socket);
+            if (sourceNode != null && inboundLinks.remove(sourceNode, socket)) {
+                directory.removeNode(sourceNode);
+            }
+        }
+    }
+
+    private void handle(ClusterFrame frame) {
+        switch (frame.getType()) {
+            case RELAY_MESSAGE:
+                if (!isOwner(frame.getRoomId())) {
+                    LOGGER.warn(buildMessage("The message to the room (id", frame.getRoomId(), ") relayed by"
+                            , frame.getSourceNode(), "has been dropped: the room is owned by"
+                            , ring.getOwner(frame.getRoomId())));
+                    return;
+                }
+                Integer fromId = frame.getMessage().getFromId();
+                if (fromId == null || !isRoomMember(fromId, frame.getRoomId())) {
+                    LOGGER.warn(buildMessage("The message to the room (id", frame.getRoomId(), ") relayed by"
+                            , frame.getSourceNode(), "has been dropped: the client (id", fromId
+                            , ") is not a member of the room"));
+                    return;
+                }
+                try {
+                    RoomProcessing.sendMessage(server, frame.getMessage());
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error(buildMessage("Unable to send the message relayed by", frame.getSourceNode(), ':'
+                            , e.getLocalizedMessage()));
+                }
+                break;
+            case RELAY_MEMBERS:
+                changeRelayedMembers(frame);
+                break;
+            case NEW_MESSAGE:
+                Room room = server.getOnlineRooms().safe().get(frame.getRoomId());
+                if (room != null) {
+                    room.getMessageHistory().addMessage(frame.getMessage(), false);
+                }
+                deliverLocally(frame.getRecipients(), frame.getMessage().setStatus(MessageStatus.NEW_MESSAGE));
+                break;
+            case ROOM_CHANGED:
+                RoomProcessing.reloadRoomMembers(server, frame.getRoomId());
+                break;
+            case DIRECTORY:
+                for (DirectoryEntry entry : frame.getEntries()) {
+                    directory.apply(entry);
+                }
+                break;
+            case PUSH:
+                deliverLocally(frame.getRecipients(), frame.getMessage());
+                break;
+            case CLIENT_BAN:
+                for (int clientId : frame.getRecipients()) {
+                    ban(clientId, frame.getMessage().getText());
+                }
+                break;
+            case CLIENT_ROOM_ADDED:
+            case CLIENT_ROOM_REMOVED:
+                for (int clientId : frame.getRecipients()) {
+                    updateClientRooms(clientId, frame.getRoomId()
+                            , frame.getType() == ClusterFrame.Type.CLIENT_ROOM_ADDED, frame.getMessage());
+                }
+                break;
+            default:
+                LOGGER.warn(buildMessage("Unknown frame type:", frame.getType()));
+        }
+    }
+
+    /**
+     *  Applies the invitation or the uninvitation accepted by the source node to a room of the current node.
+     * The addresser is checked against the members of the owner again, the replica of the source node may be stale.
+     * */
+    private void changeRelayedMembers(ClusterFrame frame) {
+        if (!isOwner(frame.getRoomId())) {
+            LOGGER.warn(buildMessage("The members change of the room (id", frame.getRoomId(), ") relayed by"
+                    , frame.getSourceNode(), "has been dropped: the room is owned by"
+                    , ring.getOwner(frame.getRoomId())));
+            return;
+        }
+        Message message = frame.getMessage();
+        if (message.getFromId() == null || message.getToId() == null
+                || !isRoomMember(message.getFromId(), frame.getRoomId())) {
+            LOGGER.warn(buildMessage("The members change of the room (id", frame.getRoomId(), ") relayed by"
+                    , frame.getSourceNode(), "has been dropped: the client (id", message.getFromId()
+                    , ") is not a member of the room"));
+            return;
+        }
+        try {
+            RoomProcessing.changeMembers(server, RoomProcessing.getRoom(server, frame.getRoomId()), message);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error(buildMessage("Unable to change the members of the room (id", frame.getRoomId()
+                    , ") relayed by", frame.getSourceNode(), ':', e.getLocalizedMessage()));
+        }
+    }
+
+    /**
+     *  The members of a loaded room are checked in memory, the owner keeps them up to date
+     * */
+    private boolean isRoomMember(int clientId, int roomId) {
+        Room room = server.getOnlineRooms().safe().get(roomId);
+        if (room != null) {
+            synchronized (room.getMembers().safe()) {
+                return room.getMembers().safe().contains(clientId);
+            }
+        }
+        return RoomProcessing.isMember(server.getConfig(), clientId, roomId);
+    }
+
+    private void deliverLocally(List<Integer> recipients, Message message) {
+        for (int clientId : recipients) {
+            ClientListener clientListener = server.getOnlineClients().safe().get(clientId);
+            if (clientListener != null) {
+                clientListener.sendMessageToConnectedClient(message);
+            }
+        }
+    }
+
+    /**
+     *  Bans the client who has been connected to the current node (according to the directory of the banning node).
+     * If the client has logged out meanwhile his/her file is updated.
+     * */
+    private void ban(int clientId, String bannedUntil) {
+        Client client;
+        try {
+            ClientListener clientListener = server.getOnlineClients().safe().get(clientId);
+            server.getSessionTable().invalidate(clientId);
+            if (clientListener != null) {
+                client = clientListener.getClient();
+                clientListener.interrupt();
+            } else {
+                client = ClientProcessing.loadClient(server.getConfig(), clientId);
+                client.setServer(server);
+            }
+            client.setBaned(true);
+            client.setIsBannedUntil(LocalDateTime.parse(bannedUntil, ServerProcessing.DATE_TIME_FORMATTER));
+        } catch (ClientNotFoundException | DateTimeException e) {
+            LOGGER.error(buildMessage("Unable to ban the client (id", clientId, "):", e.getLocalizedMessage()));
+            return;
+        }
+        if (!client.save()) {
+            LOGGER.warn(buildMessage("The ban of the client (id", clientId, ") has not been saved properly"));
+        }
+    }
+
+    /**
+     *  Changes the rooms of the client who has been connected to the current node (according to the directory
+     * of the source node). If the client has logged out meanwhile his/her file is updated.
+     * */
+    private void updateClientRooms(int clientId, int roomId, boolean added, Message notification) {
+        Client client;
+        ClientListener clientListener = server.getOnlineClients().safe().get(clientId);
+        if (clientListener != null) {
+            client = clientListener.getClient();
+        } else {
+            try {
+                client = ClientProcessing.loadClient(server.getConfig(), clientId);
+                client.setServer(server);
+            } catch (ClientNotFoundException e) {
+                LOGGER.error(buildMessage("Unable to update the rooms of the client (id", clientId, "): not found"));
+                return;
+            }
+        }
+        if (added) {
+            client.getRooms().safe().add(roomId);
+        } else {
+            client.getRooms().safe().remove(roomId);
+        }
+        client.markDirty();
+        client.save();
+        if (clientListener != null && notification != null) {
+            clientListener.sendMessageToConnectedClient(notification);
+        }
+    }
+
+    @Override
+    public void interrupt() {
+        super.interrupt();
+        for (PeerLink peerLink : peerLinks.values()) {
+            peerLink.interrupt();
+        }
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+            for (Socket socket : inboundSockets) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            LOGGER.error(e.getLocalizedMessage());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package server.cluster;
+
+import common.entities.message.Message;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *  The {@code ClusterFrame} is a unit of the inter-node traffic. It is sent the same way the messages are sent
+ * to the clients i.e. as an XML string written by {@code DataOutputStream.writeUTF}
+ *
+ *  The frames addressed to the clients contain the ids of all the {@code recipients} connected to the receiving node,
+ * so a fanout costs a single frame per node regardless of the amount of the recipients.
+ * */
+@XmlRootElement(name = "frame")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ClusterFrame {
+    private Type type;
+    private String sourceNode;
+    private int roomId;
+    private Message message;
+    @XmlElement(name = "recipient")
+    private List<Integer> recipients = new ArrayList<>();
+    @XmlElement(name = "entry")
+    private List<DirectoryEntry> entries = new ArrayList<>();
+
+    public enum Type {
+        /**
+         *  A {@code MessageStatus.MESSAGE} sent by a client of the source node to a room of the receiving node
+         * */
+        RELAY_MESSAGE,
+        /**
+         *  A {@code MessageStatus.INVITE_CLIENT} or {@code MessageStatus.UNINVITE_CLIENT} accepted by the source node
+         * for a room of the receiving node, the receiving node changes the members and saves the room
+         * */
+        RELAY_MEMBERS,
+        /**
+         *  A message which has been added to the history of a room owned by the source node, the receiving node
+         * adds it to its replica of the room (if any) and delivers it to the {@code recipients} (if any)
+         * */
+        NEW_MESSAGE,
+        /**
+         *  The room file has been changed (e.g. the members) by the source node,
+         * the receiving node re-reads the room if it has been loaded
+         * */
+        ROOM_CHANGED,
+        /**
+         *  The changes of the {@code SessionDirectory} of the source node (the {@code entries})
+         * */
+        DIRECTORY,
+        /**
+         *  The {@code message} has to be delivered to the {@code recipients}
+         * */
+        PUSH,
+        /**
+         *  The {@code recipients} have been banned until the moment specified by the {@code message} text,
+         * their sessions have to be closed
+         * */
+        CLIENT_BAN,
+        /**
+         *  The room {@code roomId} has to be added to the rooms of the {@code recipients},
+         * the {@code message} (if any) is the notification to be delivered to them
+         * */
+        CLIENT_ROOM_ADDED,
+        /**
+         *  The room {@code roomId} has to be removed from the rooms of the {@code recipients},
+         * the {@code message} (if any) is the notification to be delivered to them
+         * */
+        CLIENT_ROOM_REMOVED
+    }
+
+    @SuppressWarnings("unused")
+    public ClusterFrame() {
+    }
+
+    public ClusterFrame(Type type, String sourceNode, int roomId, Message message) {
+        this.type = type;
+        this.sourceNode = sourceNode;
+        this.roomId = roomId;
+        this.message = message;
+    }
+
+    public List<Integer> getRecipients() {
+        return recipients;
+    }
+
+    public List<DirectoryEntry> getEntries() {
+        return entries;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getSourceNode() {
+        return sourceNode;
+    }
+
+    public int getRoomId() {
+        return roomId;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+}
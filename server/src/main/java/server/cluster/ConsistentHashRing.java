@@ -0,0 +1,67 @@
+package server.cluster;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ *  The class {@code ConsistentHashRing} maps the keys (room ids) to the cluster nodes. Every node is placed
+ * on the ring {@code virtualNodes} times, a key belongs to the first node clockwise from the key hash.
+ * Thus adding or removing a node moves only the keys of its neighbour slices.
+ *
+ *  The ring is built from the same list of nodes on every node of the cluster, so all of them agree
+ * on the owners without any coordination.
+ * */
+public class ConsistentHashRing {
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final Set<String> nodes;
+
+    /**
+     * @param           nodes the addresses of the cluster nodes
+     * @param           virtualNodes the amount of the points of every node on the ring
+     * */
+    public ConsistentHashRing(@NotNull Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("The ring must contain at least one node");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("The amount of virtual nodes must be positive");
+        }
+        this.nodes = Collections.unmodifiableSet(new TreeSet<>(nodes));
+        for (String node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node.concat("#").concat(String.valueOf(i))), node);
+            }
+        }
+    }
+
+    /**
+     * @param           key a key e.g. the room id
+     *
+     * @return          the address of the node that owns the {@code key}
+     * */
+    public String getOwner(int key) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(String.valueOf(key)));
+        return entry == null ? ring.firstEntry().getValue() : entry.getValue();
+    }
+
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    private static long hash(String value) {
+        try {
+            byte [] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package server.cluster;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+/**
+ *  An entry of the {@code SessionDirectory}: the client {@code clientId} is online on the node {@code node}
+ * or is offline if the {@code node} is {@code null}. The entries are ordered by the {@code timestamp},
+ * the latest one wins.
+ * */
+@XmlAccessorType(XmlAccessType.FIELD)
+public class DirectoryEntry {
+    private int clientId;
+    private String node;
+    private long timestamp;
+
+    @SuppressWarnings("unused")
+    public DirectoryEntry() {
+    }
+
+    DirectoryEntry(int clientId, String node, long timestamp) {
+        this.clientId = clientId;
+        this.node = node;
+        this.timestamp = timestamp;
+    }
+
+    public int getClientId() {
+        return clientId;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return          {@code true} if this entry has to replace the {@code other} one
+     * */
+    boolean isNewerThan(DirectoryEntry other) {
+        if (other == null || timestamp != other.timestamp) {
+            return other == null || timestamp > other.timestamp;
+        }
+        return String.valueOf(node).compareTo(String.valueOf(other.node)) > 0;
+    }
+}
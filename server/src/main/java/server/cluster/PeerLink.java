@@ -0,0 +1,148 @@
+package server.cluster;
+
+import org.apache.log4j.Logger;
+import server.security.PeerAuthentication;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The {@code PeerLink} is a persistent outgoing connection to another node of the cluster. The frames are queued
+ * and written by the link thread, the stream is flushed as soon as the queue has been drained,
+ * so the frames produced at the same time share a single flush.
+ *
+ *  The link reconnects after {@code RECONNECT_DELAY} if the connection has been lost.
+ * The frames are dropped if the queue is full i.e. the peer is unreachable for a long time.
+ * The link authenticates itself by the cluster secret first (see {@code PeerAuthentication}), then
+ * the {@code greeting} frames are sent on every connection e.g. the state the peer might have missed.
+ * */
+class PeerLink extends Thread {
+    private static final long RECONNECT_DELAY = 1000;
+    private static final int CONNECT_TIMEOUT = 3000;
+    private static final int QUEUE_CAPACITY = 10000;
+    private static volatile Logger LOGGER = Logger.getLogger("Server");
+    private final String address;
+    private final InetSocketAddress socketAddress;
+    private final BlockingQueue<ClusterFrame> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final JAXBContext jaxbContext;
+    private final String secret;
+    private final Supplier<List<ClusterFrame>> greeting;
+    private volatile Socket socket;
+    private volatile boolean connected;
+
+    static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    PeerLink(String address, InetSocketAddress socketAddress, JAXBContext jaxbContext, String secret
+            , Supplier<List<ClusterFrame>> greeting) {
+        super("PeerLink-".concat(address));
+        this.address = address;
+        this.socketAddress = socketAddress;
+        this.jaxbContext = jaxbContext;
+        this.secret = secret;
+        this.greeting = greeting;
+        setDaemon(true);
+    }
+
+    String getAddress() {
+        return address;
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return          {@code false} if the frame has been dropped because the queue is full
+     * */
+    boolean send(ClusterFrame frame) {
+        if (queue.offer(frame)) {
+            return true;
+        }
+        LOGGER.warn(buildMessage("The frame to the node", address, "has been dropped: the queue is full"));
+        return false;
+    }
+
+    @Override
+    public void run() {
+        while (!isInterrupted()) {
+            try (Socket socket = new Socket()) {
+                this.socket = socket;
+                socket.connect(socketAddress, CONNECT_TIMEOUT);
+                socket.setTcpNoDelay(true);
+                PeerAuthentication.answer(socket, Cluster.LINK_KIND, secret);
+                connected = true;
+                LOGGER.info(buildMessage("Connected to the cluster node", address));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                Marshaller marshaller = jaxbContext.createMarshaller();
+                for (ClusterFrame frame : greeting.get()) {
+                    write(marshaller, out, frame);
+                }
+                out.flush();
+                while (!isInterrupted()) {
+                    ClusterFrame frame = queue.take();
+                    do {
+                        write(marshaller, out, frame);
+                    } while ((frame = queue.poll()) != null);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                if (connected) {
+                    LOGGER.warn(buildMessage("The connection to the cluster node", address, "has been lost:"
+                            , e.getLocalizedMessage()));
+                }
+            } catch (JAXBException e) {
+                LOGGER.error(buildMessage("Unable to write a frame to the node", address, ':'
+                        , e.getLocalizedMessage()));
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                connected = false;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(RECONNECT_DELAY);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    private static void write(Marshaller marshaller, DataOutputStream out, ClusterFrame frame)
+            throws JAXBException, IOException {
+        StringWriter stringWriter = new StringWriter();
+        marshaller.marshal(frame, stringWriter);
+        out.writeUTF(stringWriter.toString());
+    }
+
+    @Override
+    public void interrupt() {
+        super.interrupt();
+        Socket socket = this.socket;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOGGER.error(e.getLocalizedMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package server.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  The {@code SessionDirectory} is the eventually consistent map of the online clients of the whole cluster
+ * i.e. clientId -> the node the client is connected to.
+ *
+ *  The node changes the entries of its own clients only and collects them as deltas, the deltas are periodically
+ * sent to the other nodes in a single frame. The entries received from the other nodes are applied
+ * if they are newer than the known ones. The offline entries are kept for {@code TOMBSTONE_TTL} in order
+ * a delayed online entry does not resurrect the session.
+ * */
+class SessionDirectory {
+    private static final long TOMBSTONE_TTL = TimeUnit.MINUTES.toMillis(1);
+    private final String nodeAddress;
+    private final Map<Integer, DirectoryEntry> entries = new ConcurrentHashMap<>();
+    private final Queue<DirectoryEntry> deltas = new ConcurrentLinkedQueue<>();
+
+    SessionDirectory(String nodeAddress) {
+        this.nodeAddress = nodeAddress;
+    }
+
+    void sessionOpened(int clientId) {
+        update(clientId, nodeAddress);
+    }
+
+    void sessionClosed(int clientId) {
+        update(clientId, null);
+    }
+
+    private void update(int clientId, String node) {
+        DirectoryEntry entry = entries.compute(clientId, (id, previous) -> new DirectoryEntry(id, node
+                , previous == null ? System.currentTimeMillis()
+                        : Math.max(System.currentTimeMillis(), previous.getTimestamp() + 1)));
+        deltas.add(entry);
+    }
+
+    void apply(DirectoryEntry entry) {
+        entries.merge(entry.getClientId(), entry
+                , (previous, received) -> received.isNewerThan(previous) ? received : previous);
+    }
+
+    /**
+     * @return          the address of the node the client is connected to or {@code null} if he/she is offline
+     * */
+    String locate(int clientId) {
+        DirectoryEntry entry = entries.get(clientId);
+        return entry == null ? null : entry.getNode();
+    }
+
+    /**
+     *  Forgets the clients of the node which has disconnected. The node sends its clients again
+     * as soon as it has reconnected.
+     * */
+    void removeNode(String node) {
+        entries.values().removeIf(entry -> node.equals(entry.getNode()));
+    }
+
+    /**
+     * @return          the changes of the local clients since the previous call
+     * */
+    List<DirectoryEntry> drainDeltas() {
+        List<DirectoryEntry> drained = new ArrayList<>();
+        DirectoryEntry entry;
+        while ((entry = deltas.poll()) != null) {
+            drained.add(entry);
+        }
+        long expired = System.currentTimeMillis() - TOMBSTONE_TTL;
+        entries.values().removeIf(e -> e.getNode() == null && e.getTimestamp() < expired);
+        return drained;
+    }
+
+    /**
+     * @return          the entries of the clients connected to the current node
+     * */
+    List<DirectoryEntry> localEntries() {
+        List<DirectoryEntry> localEntries = new ArrayList<>();
+        for (DirectoryEntry entry : entries.values()) {
+            if (nodeAddress.equals(entry.getNode())) {
+                localEntries.add(entry);
+            }
+        }
+        return localEntries;
+    }
+}
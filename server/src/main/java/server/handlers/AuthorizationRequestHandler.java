@@ -6,6 +6,7 @@ import org.apache.log4j.Level;
 import server.client.Client;
 import server.client.ClientListener;
 import server.exceptions.ClientNotFoundException;
+import server.logging.LazyLog;
 import server.processing.ServerProcessing;
 
 import javax.xml.bind.JAXBContext;
@@ -30,6 +31,10 @@ public class AuthorizationRequestHandler extends RequestHandler {
      * Verifies the {@code message} of status {@code MessageStatus.AUTH} comparing the incoming user data
      * such as a login and a password.
      *
+     *  The {@code MessageStatus.ACCEPTED} reply contains the session resumption token in the field {@code text}.
+     * The token lets the client to restore the session by the {@code MessageStatus.RESUME} request
+     * after a reconnection (see {@code SessionTable})
+     *
      * @param           message a message of {@code MessageStatus.AUTH} containing a login and a password
      *
      * @throws          ClientNotFoundException  if the specified client's file has not been found
@@ -63,18 +68,18 @@ public class AuthorizationRequestHandler extends RequestHandler {
                     client.setBaned(false);
                     client.setIsBannedUntil(null);
                     client.save();
-                    LOGGER.trace(buildMessage("Client (id", client.getClientId(),
-                            ") has been unbanned automatically (ban period is over)"));
+                    LazyLog.trace(LOGGER, "Client (id", client.getClientId(),
+                            ") has been unbanned automatically (ban period is over)");
                 }
             }
             clientListener.setLogged(client.getPassword().equals(message.getPassword()));
             if (clientListener.isLogged()) {
                 clientListener.setClient(client);
                 clientListener.getClient().setServer(clientListener.getServer());
-                LOGGER.trace(buildMessage("Client (id", client.getClientId(), ") has logged in"));
-                clientListener.getServer().getOnlineClients().safe()
-                        .put(clientListener.getClient().getClientId(), clientListener);
-                return new Message(MessageStatus.ACCEPTED);
+                LazyLog.trace(LOGGER, "Client (id", client.getClientId(), ") has logged in");
+                clientListener.getServer().addOnlineClient(clientListener);
+                return new Message(MessageStatus.ACCEPTED)
+                        .setText(clientListener.getServer().getSessionTable().open(clientListener));
             } else {
                 if (LOGGER.isEnabledFor(Level.TRACE)) {
                     LOGGER.trace(buildMessage("Wrong password from client (id"
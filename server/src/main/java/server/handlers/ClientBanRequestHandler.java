@@ -6,11 +6,13 @@ import org.apache.log4j.Level;
 import org.jetbrains.annotations.NotNull;
 import server.client.Client;
 import server.client.ClientListener;
+import server.cluster.ClusterFrame;
 import server.exceptions.ClientNotFoundException;
 import server.processing.ServerProcessing;
 
 import java.time.DateTimeException;
 import java.time.LocalDateTime;
+import java.util.Collections;
 
 import static common.Utils.buildMessage;
 import static server.processing.ClientProcessing.loadClient;
@@ -115,12 +117,22 @@ public class ClientBanRequestHandler extends RequestHandler {
             LOGGER.trace(deniedMessage);
             return new Message(MessageStatus.DENIED).setText(deniedMessage);
         }
+        clientListener.getServer().getSessionTable().invalidate(toId);
+        if (clientListener.getServer().getCluster().routeToRemoteSessions(ClusterFrame.Type.CLIENT_BAN
+                , Collections.singleton(toId), 0, new Message(MessageStatus.CLIENT_BAN).setToId(toId)
+                        .setText(ServerProcessing.DATE_TIME_FORMATTER.format(bannedUntil))).isEmpty()) {
+            // the client is connected to another node, that node bans and disconnects him/her
+            clientListener.getServer().scheduleBanExpiry(toId, bannedUntil);
+            return new Message(MessageStatus.ACCEPTED)
+                    .setText(buildMessage("The client id", toId, "has been banned"));
+        }
         if (clientListener.getServer().getOnlineClients().safe().containsKey(message.getToId())) {
             clientListener.getServer().getOnlineClients().safe().get(message.getToId()).interrupt();
         }
         clientIsBeingBanned.setBaned(true);
         clientIsBeingBanned.setIsBannedUntil(bannedUntil);
         if (clientIsBeingBanned.save()) {
+            clientListener.getServer().scheduleBanExpiry(toId, bannedUntil);
             return new Message(MessageStatus.ACCEPTED)
                     .setText(buildMessage("The client id", toId, "has been banned"));
         } else {
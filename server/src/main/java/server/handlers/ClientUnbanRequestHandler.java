@@ -87,6 +87,7 @@ public class ClientUnbanRequestHandler extends RequestHandler {
         clientToUnban.setBaned(false);
         clientToUnban.setIsBannedUntil(null);
         if (clientToUnban.save()) {
+            clientListener.getServer().cancelBanExpiry(toId);
             String infoMessage = buildMessage("Client (id", clientToUnban.getClientId()
                     , ") has been unbanned by the admin (id ", (fromId == null ? "server admin" : fromId), ')');
             if (LOGGER.isEnabledFor(Level.INFO)) {
@@ -4,6 +4,7 @@ import common.entities.message.Message;
 import common.entities.message.MessageStatus;
 import org.jetbrains.annotations.NotNull;
 import server.client.ClientListener;
+import server.logging.LazyLog;
 import server.room.Room;
 import server.processing.RoomProcessing;
 
@@ -46,7 +47,8 @@ public class CreateRoomRequestHandler extends RequestHandler {
                 return new Message(MessageStatus.ERROR).setText("Some error has occurred during the room creation");
             } else {
                 clientListener.getClient().getRooms().safe().add(room.getRoomId());
-                LOGGER.trace(new StringBuilder("New room (id").append(room.getRoomId()).append(") has been created"));
+                clientListener.getClient().markDirty();
+                LazyLog.trace(LOGGER, "New room (id", room.getRoomId(), ") has been created");
                 return new Message(MessageStatus.ACCEPTED).setRoomId(room.getRoomId())
                         .setText(buildMessage("The room (id"
                                 , room.getRoomId(), ") has been successfully created"));
@@ -8,11 +8,14 @@ import org.jetbrains.annotations.NotNull;
 import server.Server;
 import server.client.Client;
 import server.client.ClientListener;
+import server.cluster.ClusterFrame;
 import server.exceptions.ClientNotFoundException;
 import server.processing.ClientProcessing;
 import server.room.Room;
 import server.processing.RoomProcessing;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -43,10 +46,7 @@ public class DeleteRoomRequestHandler extends RequestHandler {
             return new Message(MessageStatus.ERROR).setText(
                     buildMessage("Unable to find room (id", roomId, ')'));
         }
-        if (!clientListener.getServer().getOnlineRooms().safe().containsKey(roomId)) {
-            RoomProcessing.loadRoom(clientListener.getServer(), roomId);
-        }
-        Room room = clientListener.getServer().getOnlineRooms().safe().get(roomId);
+        Room room = RoomProcessing.getRoom(clientListener.getServer(), roomId);
         if (room.getAdminId() != message.getFromId()) {
             return new Message(MessageStatus.DENIED)
                     .setText("Not enough rights to perform room deleting action").setRoomId(roomId);
@@ -55,6 +55,7 @@ public class DeleteRoomRequestHandler extends RequestHandler {
         RoomProcessing.permanentRemoveRoom(clientListener.getServer(), roomId);
         informClientsAboutRoomDeleting(clientListener.getServer().getOnlineClients(), roomId);
         clientListener.getServer().getOnlineRooms().safe().remove(roomId);
+        clientListener.getServer().getCluster().publishRoomChanged(roomId);
         if (RoomProcessing.hasRoomBeenCreated(clientListener.getServer().getConfig(), roomId) == 0) {
             return new Message(MessageStatus.ACCEPTED)
                     .setText("The room has been successfully deleted").setRoomId(roomId);
@@ -79,11 +80,15 @@ public class DeleteRoomRequestHandler extends RequestHandler {
 
     private void removeRoomFromClientsRoomLists(@NotNull Server server, int roomId) {
         Room room;
-        if (!server.getOnlineRooms().safe().containsKey(roomId)) {
-            RoomProcessing.loadRoom(server, roomId);
+        room = RoomProcessing.getRoom(server, roomId);
+        List<Integer> members;
+        synchronized (room.getMembers().safe()) {
+            members = new ArrayList<>(room.getMembers().safe());
         }
-        room = server.getOnlineRooms().safe().get(roomId);
-        Set<Integer> roomMembers = room.getMembers().safe();
+        // the members connected to the other nodes are handled by those nodes
+        Set<Integer> roomMembers = server.getCluster().routeToRemoteSessions(ClusterFrame.Type.CLIENT_ROOM_REMOVED
+                , members, roomId, new Message(MessageStatus.DELETE_ROOM).setRoomId(roomId)
+                        .setText("Room has been deleted by admin"));
         synchronized (server.getOnlineClients().safe()) {
             for (int clientId : roomMembers) {
                 try {
@@ -94,6 +99,7 @@ public class DeleteRoomRequestHandler extends RequestHandler {
                         client = ClientProcessing.loadClient(server.getConfig(), clientId);
                     }
                     client.getRooms().safe().remove(roomId);
+                    client.markDirty();
                     client.setServer(server);
                     client.save();
                 } catch (ClientNotFoundException e) {
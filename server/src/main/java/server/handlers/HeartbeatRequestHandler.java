@@ -0,0 +1,22 @@
+package server.handlers;
+
+import common.entities.message.Message;
+import common.entities.message.MessageStatus;
+import server.client.ClientListener;
+
+/**
+ *  This {@code RequestHandler} implementation handles with the heartbeats sent by clients either on their own
+ * or as an answer to the server heartbeat. Since the first heartbeat the session is expected to answer
+ * every server heartbeat within the {@code heartbeatTimeout}
+ * */
+public class HeartbeatRequestHandler extends RequestHandler {
+
+    public HeartbeatRequestHandler() {
+    }
+
+    @Override
+    public Message handle(ClientListener clientListener, Message message) {
+        clientListener.setHeartbeatSupported(true);
+        return new Message(MessageStatus.ACCEPTED);
+    }
+}
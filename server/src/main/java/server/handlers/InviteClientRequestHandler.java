@@ -6,11 +6,15 @@ import org.apache.log4j.Level;
 import org.jetbrains.annotations.NotNull;
 import server.client.Client;
 import server.client.ClientListener;
+import server.cluster.ClusterFrame;
 import server.exceptions.RoomNotFoundException;
 import server.processing.ClientProcessing;
 import server.processing.RoomProcessing;
 import server.room.Room;
 
+import java.io.IOException;
+import java.util.Collections;
+
 import static common.Utils.buildMessage;
 
 public class InviteClientRequestHandler extends RequestHandler {
@@ -45,19 +49,16 @@ public class InviteClientRequestHandler extends RequestHandler {
             }
             return new Message(MessageStatus.ERROR).setText("Missed roomId");
         }
-        if (!clientListener.getServer().getOnlineRooms().safe().containsKey(message.getRoomId())) {
-            String errorMessage;
-            try {
-                RoomProcessing.loadRoom(clientListener.getServer(), message.getRoomId());
-            }  catch (RoomNotFoundException e) {
-                errorMessage = buildMessage("Unable to find a room (id", message.getRoomId(), ')');
-                if (LOGGER.isEnabledFor(Level.TRACE)) {
-                    LOGGER.trace(errorMessage);
-                }
-                return new Message(MessageStatus.DENIED).setText(buildMessage(errorMessage));
+        Room room;
+        try {
+            room = RoomProcessing.getRoom(clientListener.getServer(), message.getRoomId());
+        }  catch (RoomNotFoundException e) {
+            String errorMessage = buildMessage("Unable to find a room (id", message.getRoomId(), ')');
+            if (LOGGER.isEnabledFor(Level.TRACE)) {
+                LOGGER.trace(errorMessage);
             }
+            return new Message(MessageStatus.DENIED).setText(buildMessage(errorMessage));
         }
-        Room room = clientListener.getServer().getOnlineRooms().safe().get(message.getRoomId());
         if (!room.getMembers().safe().contains(message.getFromId())) {
             if (LOGGER.isEnabledFor(Level.TRACE)) {
                 LOGGER.trace(buildMessage("The client id", message.getFromId()
@@ -72,24 +73,35 @@ public class InviteClientRequestHandler extends RequestHandler {
             }
             return new Message(MessageStatus.DENIED).setText("This client is already a member of the room");
         }
-        room.getMembers().safe().add(message.getToId());
-        if (room.getServer() == null) {
-            room.setServer(clientListener.getServer());
+        try {
+            RoomProcessing.changeMembers(clientListener.getServer(), room, message);
+        } catch (IOException e) {
+            LOGGER.error(e.getLocalizedMessage());
+            return new Message(MessageStatus.ERROR).setText("An internal error occurred");
         }
-        room.save();
         String infoString = buildMessage("Client (id", message.getToId()
                 , ") now is a member of the room (id", message.getRoomId(), ')');
+        Message notification = new Message(MessageStatus.UNINVITE_CLIENT).setText("You have been invited to the room")
+                .setRoomId(message.getRoomId());
+        if (clientListener.getServer().getCluster().routeToRemoteSessions(ClusterFrame.Type.CLIENT_ROOM_ADDED
+                , Collections.singleton(message.getToId()), message.getRoomId(), notification).isEmpty()) {
+            // the client is connected to another node, that node updates his/her rooms
+            if (LOGGER.isEnabledFor(Level.TRACE)) {
+                LOGGER.trace(infoString);
+            }
+            return new Message(MessageStatus.ACCEPTED).setText(infoString);
+        }
         Client client;
         if (clientListener.getServer().getOnlineClients().safe().containsKey(message.getToId())) {
             client = clientListener.getServer().getOnlineClients().safe().get(message.getToId()).getClient();
-            clientListener.getServer().getOnlineClients().safe().get(message.getToId()).sendMessageToConnectedClient(
-                    new Message(MessageStatus.UNINVITE_CLIENT).setText("You have been invited to the room")
-                            .setRoomId(message.getRoomId()));
+            clientListener.getServer().getOnlineClients().safe().get(message.getToId())
+                    .sendMessageToConnectedClient(notification);
         } else {
             client = ClientProcessing.loadClient(clientListener.getServer().getConfig(), message.getToId());
             client.setServer(clientListener.getServer());
         }
         client.getRooms().safe().add(message.getRoomId());
+        client.markDirty();
         client.save();
         if (LOGGER.isEnabledFor(Level.TRACE)) {
             LOGGER.trace(infoString);
@@ -3,6 +3,7 @@ package server.handlers;
 import common.entities.message.Message;
 import common.entities.message.MessageStatus;
 import org.apache.log4j.Level;
+import server.Server;
 import server.client.ClientListener;
 import server.exceptions.RoomNotFoundException;
 import server.processing.RoomProcessing;
@@ -33,6 +34,10 @@ public class MessageHistoryRequestHandler extends RequestHandler {
      *                          NOTE! It is expected that message contains following non-null fields
      *                          1) {@code fromId} - an id of registered user who has logged in
      *                          2) {@code roomId} - an id of the room where the client is a member
+     *                          The {@code text} may contain the cursor of the client cache, the sequence number
+     *                          of the last message of the room the client has (see {@code Message.getSequence}).
+     *                          Only the newer messages are sent then, the empty {@code text} requests the whole
+     *                          history.
      *
      *  NOTE! This method sends the message history by parts - message by message. The contract of the
      * method is that the caller will send the resulting message of status {@code MessageStatus.ACCEPTED}
@@ -54,17 +59,25 @@ public class MessageHistoryRequestHandler extends RequestHandler {
         if (message.getRoomId() == null) {
             return new Message(MessageStatus.ERROR).setText("Unspecified room");
         }
-        Room room;
-        if (!clientListener.getServer().getOnlineRooms().safe().containsKey(message.getRoomId())) {
-            if (RoomProcessing.hasRoomBeenCreated(clientListener.getServer().getConfig(), message.getRoomId()) != 0L) {
-                try {
-                    RoomProcessing.loadRoom(clientListener.getServer(), message.getRoomId());
-                } catch (RoomNotFoundException e) {
-                    return new Message(MessageStatus.ERROR).setText(e.getLocalizedMessage());
-                }
+        long cursor = 0;
+        if (message.getText() != null && !message.getText().isEmpty()) {
+            try {
+                cursor = Long.parseLong(message.getText().trim());
+            } catch (NumberFormatException e) {
+                return new Message(MessageStatus.ERROR).setText(buildMessage("Invalid history cursor"
+                        , message.getText()));
+            }
+        }
+        Room room = null;
+        Server server = clientListener.getServer();
+        if (server.getOnlineRooms().safe().containsKey(message.getRoomId())
+                || RoomProcessing.hasRoomBeenCreated(server.getConfig(), message.getRoomId()) != 0L) {
+            try {
+                room = RoomProcessing.getRoom(server, message.getRoomId());
+            } catch (RoomNotFoundException e) {
+                return new Message(MessageStatus.ERROR).setText(e.getLocalizedMessage());
             }
         }
-        room = clientListener.getServer().getOnlineRooms().safe().get(message.getRoomId());
         if (!RoomProcessing.isMember(clientListener.getServer().getConfig(), clientListener.getClient().getClientId()
                 , message.getRoomId())) {
             return new Message(MessageStatus.DENIED).setText(
@@ -74,13 +87,10 @@ public class MessageHistoryRequestHandler extends RequestHandler {
             JAXBContext jaxbContext = JAXBContext.newInstance(Message.class);
             Marshaller marshaller = jaxbContext.createMarshaller();
             StringWriter stringWriter;
-            synchronized (room.getMessageHistory().getMessageHistory()) {
-                for (Message roomMessage : room.getMessageHistory().getMessageHistory()) {
-                    stringWriter = new StringWriter();
-                    marshaller.marshal(roomMessage, stringWriter);
-                    clientListener.getOut().safe().writeUTF(stringWriter.toString());
-                    clientListener.getOut().safe().flush();
-                }
+            for (Message roomMessage : room.getMessageHistory().getMessagesAfter(cursor)) {
+                stringWriter = new StringWriter();
+                marshaller.marshal(roomMessage, stringWriter);
+                clientListener.writeFrame(stringWriter.toString());
             }
         } catch (JAXBException | IOException e) {
             if (LOGGER.isEnabledFor(Level.ERROR)) {
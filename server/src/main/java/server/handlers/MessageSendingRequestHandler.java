@@ -4,6 +4,7 @@ import common.entities.message.Message;
 import common.entities.message.MessageStatus;
 import server.client.ClientListener;
 import server.exceptions.RoomNotFoundException;
+import server.logging.LazyLog;
 import server.processing.RoomProcessing;
 
 import java.io.IOException;
@@ -52,7 +53,7 @@ public class MessageSendingRequestHandler extends RequestHandler {
             LOGGER.error(e.getLocalizedMessage());
             responseMessage = new Message(MessageStatus.ERROR).setText("An internal error occurred");
         } catch (RoomNotFoundException e) {
-            LOGGER.trace(buildMessage("Room id", message.getRoomId(), "has not been found"));
+            LazyLog.trace(LOGGER, "Room id", message.getRoomId(), "has not been found");
             responseMessage = new Message(MessageStatus.ERROR)
                     .setText(buildMessage("Unable to find the room (id", message.getRoomId(), ')'));
         }
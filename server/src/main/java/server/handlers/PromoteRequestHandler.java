@@ -0,0 +1,36 @@
+package server.handlers;
+
+import common.entities.message.Message;
+import common.entities.message.MessageStatus;
+import server.client.ClientListener;
+
+/**
+ *  This {@code RequestHandler} implementation handles with the requests of promoting the standby server
+ * to the primary one. Only the server administrator (the {@code serverLogin} and {@code serverPassword})
+ * is able to promote the server since nobody is able to log in on a standby
+ *
+ * @see         server.Server#promote()
+ * */
+public class PromoteRequestHandler extends RequestHandler {
+
+    public PromoteRequestHandler() {
+    }
+
+    @Override
+    public Message handle(ClientListener clientListener, Message message) {
+        return promote(clientListener, message);
+    }
+
+    private Message promote(ClientListener clientListener, Message message) {
+        if (message.getLogin() == null || message.getPassword() == null
+                || !(message.getLogin().equals(clientListener.getServer().getConfig().getProperty("serverLogin"))
+                && message.getPassword().equals(
+                clientListener.getServer().getConfig().getProperty("serverPassword")))) {
+            return new Message(MessageStatus.DENIED).setText("Not enough rights to promote the server");
+        }
+        if (!clientListener.getServer().isStandby()) {
+            return new Message(MessageStatus.DENIED).setText("The server is not a standby");
+        }
+        return new Message(MessageStatus.ACCEPTED).setText(clientListener.getServer().promote());
+    }
+}
@@ -62,6 +62,7 @@ public class RegistrationRequestHandler extends RequestHandler {
             }
             Room commonChat = clientListener.getServer().getOnlineRooms().safe().get(0);
             commonChat.getMembers().safe().add(client.getClientId());
+            commonChat.markDirty();
             commonChat.save();
         } catch (NullPointerException e) {
             return new Message(MessageStatus.ERROR)
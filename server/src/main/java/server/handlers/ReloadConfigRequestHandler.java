@@ -0,0 +1,43 @@
+package server.handlers;
+
+import common.entities.message.Message;
+import common.entities.message.MessageStatus;
+import server.client.ClientListener;
+
+import java.util.InvalidPropertiesFormatException;
+
+/**
+ *  This {@code RequestHandler} implementation handles with the requests of reloading the server configurations
+ * without restarting the server
+ *
+ * @see         server.Server#reloadConfig()
+ * */
+public class ReloadConfigRequestHandler extends RequestHandler {
+
+    public ReloadConfigRequestHandler() {
+    }
+
+    @Override
+    public Message handle(ClientListener clientListener, Message message) {
+        return reloadConfig(clientListener, message);
+    }
+
+    private Message reloadConfig(ClientListener clientListener, Message message) {
+        if ((clientListener.isMessageNotFromThisLoggedClient(message))
+                && !(clientListener.getServer().getConfig().getProperty("serverLogin").equals(message.getLogin())
+                && clientListener.getServer().getConfig().getProperty("serverPassword").equals(
+                message.getPassword()))) {
+            return new Message(MessageStatus.DENIED).setText("Log in first");
+        }
+        if (clientListener.isLogged() && !clientListener.getClient().isAdmin()) {
+            return new Message(MessageStatus.DENIED).setText("Not enough rights to reload the configurations");
+        }
+        try {
+            return new Message(MessageStatus.ACCEPTED).setText(clientListener.getServer().reloadConfig());
+        } catch (InvalidPropertiesFormatException e) {
+            LOGGER.warn(e.getLocalizedMessage());
+            return new Message(MessageStatus.ERROR)
+                    .setText("The configurations are not valid, the previous ones are kept");
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package server.handlers;
+
+import common.entities.message.Message;
+import common.entities.message.MessageStatus;
+import server.client.ClientListener;
+import server.client.SessionTable;
+import server.exceptions.RoomNotFoundException;
+import server.logging.LazyLog;
+import server.processing.RoomProcessing;
+import server.room.Room;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+
+/**
+ *  This {@code RequestHandler} implementation restores the session of the client who has lost the connection
+ * by the resumption token issued on the log-in (see {@code AuthorizationRequestHandler} and {@code SessionTable}).
+ * The client is taken from the memory, so the resumption does not read anything from the disk.
+ * */
+public class ResumeRequestHandler extends RequestHandler {
+
+    public ResumeRequestHandler() {
+    }
+
+    @Override
+    public Message handle(ClientListener clientListener, Message message) {
+        return resume(clientListener, message);
+    }
+
+    /**
+     *  The method {@code resume} attaches the kept session to the connection and re-sends the messages
+     * of the client rooms which are newer than the last ones the previous connection has got
+     * (see {@code SessionTable.Session.getCursors}). The evicted rooms are loaded.
+     *
+     *  NOTE! The missed messages are sent message by message before the result of the method.
+     *
+     * @param           message a message of {@code MessageStatus.RESUME} containing the token in the field {@code text}
+     *
+     * @return          an instance of {@code Message} that contains info about performed (or not) operation.
+     *                  It may be of the following statuses
+     *                          1) {@code MessageStatus.ACCEPTED}  -   if the session has been resumed, the field
+     *                                                                 {@code text} contains a new token,
+     *                                                                 the previous one is not valid anymore
+     *                          2) {@code MessageStatus.DENIED}    -   if the token is not valid, the session has
+     *                                                                 expired or the client has been banned
+     *                          3) {@code MessageStatus.ERROR}     -   if the connection has already been logged in
+     * */
+    private Message resume(ClientListener clientListener, Message message) {
+        if (clientListener.isLogged()) {
+            return new Message(MessageStatus.ERROR).setText("The session has already been started");
+        }
+        SessionTable.Session session = clientListener.getServer().getSessionTable()
+                .resume(message.getText(), clientListener);
+        if (session == null) {
+            return new Message(MessageStatus.DENIED).setText("The session can not be resumed, please, log in");
+        }
+        if (session.getClient().isBaned()) {
+            clientListener.getServer().getSessionTable().invalidate(session.getClient().getClientId());
+            return new Message(MessageStatus.DENIED).setText("You are banned");
+        }
+        clientListener.setClient(session.getClient());
+        clientListener.setLogged(true);
+        clientListener.getServer().addOnlineClient(clientListener);
+        if (session.getPreviousClientListener() != null) {
+            session.getPreviousClientListener().interrupt();
+        }
+        LazyLog.trace(LOGGER, "Client (id", session.getClient().getClientId(), ") has resumed the session");
+        sendMissedMessages(clientListener, session.getCursors());
+        return new Message(MessageStatus.ACCEPTED).setText(session.getToken());
+    }
+
+    private void sendMissedMessages(ClientListener clientListener, Map<Integer, Long> cursors) {
+        if (cursors == null) {
+            return;
+        }
+        try {
+            JAXBContext jaxbContext = JAXBContext.newInstance(Message.class);
+            Marshaller marshaller = jaxbContext.createMarshaller();
+            StringWriter stringWriter;
+            for (Map.Entry<Integer, Long> cursor : cursors.entrySet()) {
+                Room room;
+                try {
+                    room = RoomProcessing.getRoom(clientListener.getServer(), cursor.getKey());
+                } catch (RoomNotFoundException e) {
+                    LazyLog.trace(LOGGER, "The room (id", cursor.getKey(), ") has been deleted");
+                    continue;
+                }
+                for (Message roomMessage : room.getMessageHistory().getMessagesAfter(cursor.getValue())) {
+                    stringWriter = new StringWriter();
+                    marshaller.marshal(roomMessage, stringWriter);
+                    clientListener.writeFrame(stringWriter.toString());
+                    clientListener.messageDelivered(roomMessage);
+                }
+            }
+        } catch (JAXBException | IOException e) {
+            LOGGER.error(e.getLocalizedMessage());
+        }
+    }
+}
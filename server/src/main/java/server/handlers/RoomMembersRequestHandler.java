@@ -44,11 +44,7 @@ public class RoomMembersRequestHandler extends RequestHandler {
             return new Message(MessageStatus.ERROR)
                     .setText(buildMessage("Unable to find the room (id", roomId, ')'));
         }
-        Room room;
-        if (!clientListener.getServer().getOnlineRooms().safe().containsKey(roomId)) {
-            RoomProcessing.loadRoom(clientListener.getServer(), roomId);
-        }
-        room = clientListener.getServer().getOnlineRooms().safe().get(roomId);
+        Room room = RoomProcessing.getRoom(clientListener.getServer(), roomId);
         StringBuilder stringBuilder = new StringBuilder();
         synchronized (room.getMembers().safe()) {
             for (int clientId : room.getMembers().safe()) {
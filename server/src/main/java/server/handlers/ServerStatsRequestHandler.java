@@ -0,0 +1,46 @@
+package server.handlers;
+
+import common.entities.message.Message;
+import common.entities.message.MessageStatus;
+import server.client.ClientListener;
+import server.metrics.ServerStats;
+
+/**
+ *  This {@code RequestHandler} implementation handles with the requests of the server load statistics.
+ * The optional {@code text} of the request is the amount of seconds the request rates are computed for.
+ *
+ * @see         ServerStats
+ * */
+public class ServerStatsRequestHandler extends RequestHandler {
+    private static final int DEFAULT_INTERVAL = 5;
+
+    public ServerStatsRequestHandler() {
+    }
+
+    @Override
+    public Message handle(ClientListener clientListener, Message message) {
+        return getStats(clientListener, message);
+    }
+
+    private Message getStats(ClientListener clientListener, Message message) {
+        if ((clientListener.isMessageNotFromThisLoggedClient(message))
+                && !(clientListener.getServer().getConfig().getProperty("serverLogin").equals(message.getLogin())
+                && clientListener.getServer().getConfig().getProperty("serverPassword").equals(
+                message.getPassword()))) {
+            return new Message(MessageStatus.DENIED).setText("Log in first");
+        }
+        if (clientListener.isLogged() && !clientListener.getClient().isAdmin()) {
+            return new Message(MessageStatus.DENIED).setText("Not enough rights to get the server statistics");
+        }
+        int interval = DEFAULT_INTERVAL;
+        if (message.getText() != null) {
+            try {
+                interval = Integer.parseInt(message.getText().trim());
+            } catch (NumberFormatException e) {
+                return new Message(MessageStatus.ERROR).setText("The interval must be a number of seconds");
+            }
+        }
+        return new Message(MessageStatus.ACCEPTED)
+                .setText(clientListener.getServer().getServerStats().snapshot(interval));
+    }
+}
@@ -0,0 +1,46 @@
+package server.handlers;
+
+import common.entities.message.Message;
+import common.entities.message.MessageStatus;
+import server.client.ClientListener;
+import server.client.SlowConsumerDetector;
+
+/**
+ *  This {@code RequestHandler} implementation handles with the requests of the slowest connections.
+ * The optional {@code text} of the request is the maximum amount of the listed connections.
+ *
+ * @see         SlowConsumerDetector
+ * */
+public class SlowConsumersRequestHandler extends RequestHandler {
+    private static final int DEFAULT_LIMIT = 10;
+
+    public SlowConsumersRequestHandler() {
+    }
+
+    @Override
+    public Message handle(ClientListener clientListener, Message message) {
+        return getSlowConsumers(clientListener, message);
+    }
+
+    private Message getSlowConsumers(ClientListener clientListener, Message message) {
+        if ((clientListener.isMessageNotFromThisLoggedClient(message))
+                && !(clientListener.getServer().getConfig().getProperty("serverLogin").equals(message.getLogin())
+                && clientListener.getServer().getConfig().getProperty("serverPassword").equals(
+                message.getPassword()))) {
+            return new Message(MessageStatus.DENIED).setText("Log in first");
+        }
+        if (clientListener.isLogged() && !clientListener.getClient().isAdmin()) {
+            return new Message(MessageStatus.DENIED).setText("Not enough rights to get the slow consumers");
+        }
+        int limit = DEFAULT_LIMIT;
+        if (message.getText() != null) {
+            try {
+                limit = Integer.parseInt(message.getText().trim());
+            } catch (NumberFormatException e) {
+                return new Message(MessageStatus.ERROR).setText("The limit must be a number of connections");
+            }
+        }
+        return new Message(MessageStatus.ACCEPTED)
+                .setText(clientListener.getServer().getSlowConsumerDetector().getTopOffenders(limit));
+    }
+}
@@ -6,11 +6,15 @@ import org.apache.log4j.Level;
 import org.jetbrains.annotations.NotNull;
 import server.client.Client;
 import server.client.ClientListener;
+import server.cluster.ClusterFrame;
 import server.exceptions.RoomNotFoundException;
 import server.processing.ClientProcessing;
 import server.processing.RoomProcessing;
 import server.room.Room;
 
+import java.io.IOException;
+import java.util.Collections;
+
 import static common.Utils.buildMessage;
 
 public class UninviteClientRequestHandler extends RequestHandler {
@@ -42,19 +46,16 @@ public class UninviteClientRequestHandler extends RequestHandler {
             }
             return new Message(MessageStatus.ERROR).setText("Missed roomId");
         }
-        if (!clientListener.getServer().getOnlineRooms().safe().containsKey(message.getRoomId())) {
-            String errorMessage;
-            try {
-                RoomProcessing.loadRoom(clientListener.getServer(), message.getRoomId());
-            } catch (RoomNotFoundException e) {
-                errorMessage = buildMessage("Unable to find a room");
-                if (LOGGER.isEnabledFor(Level.TRACE)) {
-                    LOGGER.trace(buildMessage(errorMessage, "(id", message.getRoomId(), ')'));
-                }
-                return new Message(MessageStatus.DENIED).setText(errorMessage).setRoomId(message.getRoomId());
+        Room room;
+        try {
+            room = RoomProcessing.getRoom(clientListener.getServer(), message.getRoomId());
+        } catch (RoomNotFoundException e) {
+            String errorMessage = buildMessage("Unable to find a room");
+            if (LOGGER.isEnabledFor(Level.TRACE)) {
+                LOGGER.trace(buildMessage(errorMessage, "(id", message.getRoomId(), ')'));
             }
+            return new Message(MessageStatus.DENIED).setText(errorMessage).setRoomId(message.getRoomId());
         }
-        Room room = clientListener.getServer().getOnlineRooms().safe().get(message.getRoomId());
         if (!room.getMembers().safe().contains(message.getFromId())) {
             if (LOGGER.isEnabledFor(Level.TRACE)) {
                 LOGGER.trace(buildMessage("The client (id", message.getFromId()
@@ -69,25 +70,32 @@ public class UninviteClientRequestHandler extends RequestHandler {
             }
             return new Message(MessageStatus.DENIED).setText("This client is not a member of the room");
         }
-        room.getMembers().safe().remove(message.getToId());
-        Client client;
-        if (clientListener.getServer().getOnlineClients().safe().containsKey(message.getToId())) {
-            client = clientListener.getServer().getOnlineClients().safe().get(message.getToId()).getClient();
-            clientListener.getServer().getOnlineClients().safe().get(message.getToId()).sendMessageToConnectedClient(
-                    new Message(MessageStatus.UNINVITE_CLIENT).setText("You have been uninvited from the room")
-                            .setRoomId(message.getRoomId()));
-        } else {
-            client = ClientProcessing.loadClient(clientListener.getServer().getConfig(), message.getToId());
-        }
-        client.getRooms().safe().remove(message.getRoomId());
-        if (client.getServer() == null) {
-            client.setServer(clientListener.getServer());
+        try {
+            RoomProcessing.changeMembers(clientListener.getServer(), room, message);
+        } catch (IOException e) {
+            LOGGER.error(e.getLocalizedMessage());
+            return new Message(MessageStatus.ERROR).setText("An internal error occurred");
         }
-        client.save();
-        if (room.getServer() == null) {
-            room.setServer(clientListener.getServer());
+        Message notification = new Message(MessageStatus.UNINVITE_CLIENT)
+                .setText("You have been uninvited from the room").setRoomId(message.getRoomId());
+        // if the client is connected to another node, that node updates his/her rooms
+        if (!clientListener.getServer().getCluster().routeToRemoteSessions(ClusterFrame.Type.CLIENT_ROOM_REMOVED
+                , Collections.singleton(message.getToId()), message.getRoomId(), notification).isEmpty()) {
+            Client client;
+            if (clientListener.getServer().getOnlineClients().safe().containsKey(message.getToId())) {
+                client = clientListener.getServer().getOnlineClients().safe().get(message.getToId()).getClient();
+                clientListener.getServer().getOnlineClients().safe().get(message.getToId())
+                        .sendMessageToConnectedClient(notification);
+            } else {
+                client = ClientProcessing.loadClient(clientListener.getServer().getConfig(), message.getToId());
+            }
+            client.getRooms().safe().remove(message.getRoomId());
+            client.markDirty();
+            if (client.getServer() == null) {
+                client.setServer(clientListener.getServer());
+            }
+            client.save();
         }
-        room.save();
         String infoString = buildMessage("Now client (id", message.getToId()
                 , ") is not a member of the room (id", message.getRoomId(), ')');
         if (LOGGER.isEnabledFor(Level.TRACE)) {
@@ -34,6 +34,12 @@ public class RequestHandlerFactoryImpl implements RequestHandlerFactory {
         map.put(ROOM_MEMBERS, new RoomMembersRequestHandler());
         map.put(MESSAGE_HISTORY, new MessageHistoryRequestHandler());
         map.put(GET_CLIENT_NAME, new ClientNameRequestHandler());
+        map.put(HEARTBEAT, new HeartbeatRequestHandler());
+        map.put(RELOAD_CONFIG, new ReloadConfigRequestHandler());
+        map.put(RESUME, new ResumeRequestHandler());
+        map.put(PROMOTE, new PromoteRequestHandler());
+        map.put(SERVER_STATS, new ServerStatsRequestHandler());
+        map.put(SLOW_CONSUMERS, new SlowConsumersRequestHandler());
     }
 
     public RequestHandlerFactoryImpl() {
@@ -0,0 +1,153 @@
+package server.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *  The {@code AsyncLogDispatcher} passes the logging events from the logging threads to the appenders
+ * through a bounded ring buffer drained by the single background writer thread. Publishing an event is lock-free:
+ * a producer claims a slot by a CAS on the tail sequence and publishes it by the slot sequence.
+ *
+ *  If the buffer is full the events below {@code WARN} are discarded (and counted), the more severe ones
+ * wait for a free slot, so the errors are never lost. After the dispatcher has been closed the events are written
+ * by the logging threads themselves.
+ * */
+final class AsyncLogDispatcher extends Thread {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private final LoggingEvent [] events;
+    private final AsyncLoggerAppender [] targets;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder discarded = new LongAdder();
+    private long head;
+    private volatile boolean idle;
+    private volatile boolean closed;
+
+    /**
+     * @param           capacity the amount of the buffered events, it is rounded up to the power of two
+     * */
+    AsyncLogDispatcher(int capacity) {
+        super("AsyncLogDispatcher");
+        setDaemon(true);
+        int size = Integer.highestOneBit(Math.max(2, Math.min(capacity, 1 << 24)));
+        if (size < capacity) {
+            size <<= 1;
+        }
+        events = new LoggingEvent[size];
+        targets = new AsyncLoggerAppender[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * @return          {@code false} if the event has been discarded because the buffer is full
+     *                  or the dispatcher has been closed
+     * */
+    boolean publish(LoggingEvent event, AsyncLoggerAppender target) {
+        boolean mustWait = event.getLevel().isGreaterOrEqual(Level.WARN);
+        long position;
+        while (true) {
+            if (closed) {
+                return false;
+            }
+            position = tail.get();
+            long difference = sequences.get((int) position & mask) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (difference < 0) {
+                if (!mustWait) {
+                    discarded.increment();
+                    return false;
+                }
+                wakeUp();
+                Thread.yield();
+            }
+        }
+        int index = (int) position & mask;
+        events[index] = event;
+        targets[index] = target;
+        sequences.lazySet(index, position + 1);
+        if (idle) {
+            wakeUp();
+        }
+        return true;
+    }
+
+    private void wakeUp() {
+        LockSupport.unpark(this);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    long getDiscardedCount() {
+        return discarded.sum();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            if (drain() == 0) {
+                if (closed) {
+                    break;
+                }
+                idle = true;
+                if (drain() == 0) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle = false;
+            }
+        }
+        drain();
+    }
+
+    /**
+     * @return          the amount of the dispatched events
+     * */
+    private int drain() {
+        int dispatched = 0;
+        while (true) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                return dispatched;
+            }
+            LoggingEvent event = events[index];
+            AsyncLoggerAppender target = targets[index];
+            events[index] = null;
+            targets[index] = null;
+            sequences.lazySet(index, head + mask + 1);
+            head++;
+            target.dispatch(event);
+            dispatched++;
+        }
+    }
+
+    /**
+     *  Stops accepting the events and waits until the buffered ones have been dispatched
+     * */
+    void close(long timeoutMillis) {
+        closed = true;
+        wakeUp();
+        if (Thread.currentThread() == this) {
+            return;
+        }
+        try {
+            join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
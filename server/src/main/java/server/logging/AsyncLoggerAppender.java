@@ -0,0 +1,132 @@
+package server.logging;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.helpers.AppenderAttachableImpl;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  The {@code AsyncLoggerAppender} replaces the appenders of a logger: the events are passed to the
+ * {@code AsyncLogDispatcher} and written to the original appenders by its thread.
+ *
+ *  The {@code TRACE} events are sampled under load: as soon as the logger has produced more than
+ * {@code samplingThreshold} of them within a second, only every {@code samplingRate}-th one is kept till the end
+ * of that second. The amount of the sampled out events is reported at most once a second.
+ * */
+final class AsyncLoggerAppender extends AppenderSkeleton {
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private final AppenderAttachableImpl appenders = new AppenderAttachableImpl();
+    private final AsyncLogDispatcher dispatcher;
+    private final long samplingThreshold;
+    private final long samplingRate;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong windowCount = new AtomicLong();
+    private final LongAdder sampledOut = new LongAdder();
+    private long lastReportTime = System.nanoTime();
+
+    AsyncLoggerAppender(String loggerName, AsyncLogDispatcher dispatcher, long samplingThreshold
+            , long samplingRate) {
+        setName(loggerName.concat("Async"));
+        this.dispatcher = dispatcher;
+        this.samplingThreshold = samplingThreshold;
+        this.samplingRate = Math.max(1, samplingRate);
+    }
+
+    /**
+     *  Moves the appenders of the logger to this one and attaches this appender to the logger instead of them
+     * */
+    void wrap(Logger logger) {
+        List<Appender> originalAppenders = new ArrayList<>();
+        Enumeration<?> enumeration = logger.getAllAppenders();
+        while (enumeration.hasMoreElements()) {
+            originalAppenders.add((Appender) enumeration.nextElement());
+        }
+        for (Appender appender : originalAppenders) {
+            synchronized (appenders) {
+                appenders.addAppender(appender);
+            }
+            // unlike removeAllAppenders it does not close the appender
+            logger.removeAppender(appender);
+        }
+        logger.addAppender(this);
+    }
+
+    @Override
+    protected void append(LoggingEvent event) {
+        if (Level.TRACE.equals(event.getLevel()) && !sample()) {
+            sampledOut.increment();
+            return;
+        }
+        // the values that depend on the calling thread must be captured here
+        event.getThreadName();
+        event.getNDC();
+        event.getMDCCopy();
+        event.getRenderedMessage();
+        event.getThrowableStrRep();
+        if (!dispatcher.publish(event, this) && dispatcher.isClosed()) {
+            dispatch(event);
+        }
+    }
+
+    private boolean sample() {
+        if (samplingThreshold <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            windowCount.set(0);
+        }
+        long count = windowCount.incrementAndGet();
+        return count <= samplingThreshold || (count - samplingThreshold) % samplingRate == 0;
+    }
+
+    /**
+     *  Writes the event to the original appenders, it is called by the dispatcher thread only
+     * */
+    void dispatch(LoggingEvent event) {
+        long sampled = 0;
+        long now = System.nanoTime();
+        if (now - lastReportTime >= WINDOW_NANOS) {
+            sampled = sampledOut.sumThenReset();
+            lastReportTime = now;
+        }
+        synchronized (appenders) {
+            if (sampled != 0) {
+                appenders.appendLoopOnAppenders(new LoggingEvent(event.getFQNOfLoggerClass(), event.getLogger()
+                        , event.getTimeStamp(), Level.INFO
+                        , String.valueOf(sampled).concat(" TRACE messages have been sampled out"), null));
+            }
+            appenders.appendLoopOnAppenders(event);
+        }
+    }
+
+    /**
+     *  Writes the buffered events and closes the original appenders
+     * */
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.close(AsyncLogging.CLOSE_TIMEOUT);
+        synchronized (appenders) {
+            Enumeration<?> enumeration = appenders.getAllAppenders();
+            while (enumeration != null && enumeration.hasMoreElements()) {
+                ((Appender) enumeration.nextElement()).close();
+            }
+        }
+    }
+
+    @Override
+    public boolean requiresLayout() {
+        return false;
+    }
+}
@@ -0,0 +1,81 @@
+package server.logging;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import server.processing.PropertiesProcessing;
+
+import java.util.Enumeration;
+import java.util.Properties;
+
+/**
+ *  The class {@code AsyncLogging} switches the configured loggers to the asynchronous writing
+ * (see {@code AsyncLogDispatcher}) according to the server configurations:
+ *  {@code asyncLogging} - whether the events are written by the background thread,
+ *  {@code loggingBufferSize} - the amount of the events that can wait for the writing,
+ *  {@code traceSamplingThreshold} - the amount of the TRACE events per second a logger writes entirely (0 - all),
+ *  {@code traceSamplingRate} - only every such TRACE event is written when the threshold is exceeded.
+ *
+ *  The buffered events are written before the loggers are re-configured and before the JVM exits.
+ * */
+public final class AsyncLogging {
+    static final long CLOSE_TIMEOUT = 5000;
+    private static final long DEFAULT_BUFFER_SIZE = 8192;
+    private static final long DEFAULT_TRACE_SAMPLING_THRESHOLD = 1000;
+    private static final long DEFAULT_TRACE_SAMPLING_RATE = 100;
+    private static AsyncLogDispatcher dispatcher;
+    private static long discardedBefore;
+    private static boolean shutdownHookAdded;
+
+    private AsyncLogging() {
+    }
+
+    /**
+     *  Wraps the appenders of every logger that has any into an {@code AsyncLoggerAppender}.
+     * It must be called after the loggers have been configured.
+     *
+     * @param           config the server configurations
+     * */
+    public static synchronized void install(@NotNull Properties config) {
+        shutdown();
+        if (!Boolean.parseBoolean(config.getProperty("asyncLogging", "true").trim())) {
+            return;
+        }
+        dispatcher = new AsyncLogDispatcher((int) Math.min(Integer.MAX_VALUE
+                , PropertiesProcessing.getLongProperty(config, "loggingBufferSize", DEFAULT_BUFFER_SIZE)));
+        long samplingThreshold = PropertiesProcessing.getLongProperty(config, "traceSamplingThreshold"
+                , DEFAULT_TRACE_SAMPLING_THRESHOLD);
+        long samplingRate = PropertiesProcessing.getLongProperty(config, "traceSamplingRate"
+                , DEFAULT_TRACE_SAMPLING_RATE);
+        Enumeration<?> loggers = LogManager.getCurrentLoggers();
+        while (loggers.hasMoreElements()) {
+            Logger logger = (Logger) loggers.nextElement();
+            if (logger.getAllAppenders().hasMoreElements()) {
+                new AsyncLoggerAppender(logger.getName(), dispatcher, samplingThreshold, samplingRate).wrap(logger);
+            }
+        }
+        dispatcher.start();
+        if (!shutdownHookAdded) {
+            Runtime.getRuntime().addShutdownHook(new Thread(AsyncLogging::shutdown, "AsyncLoggingShutdown"));
+            shutdownHookAdded = true;
+        }
+    }
+
+    /**
+     *  Writes the buffered events, the subsequent ones are written by the logging threads
+     * */
+    public static synchronized void shutdown() {
+        if (dispatcher != null) {
+            dispatcher.close(CLOSE_TIMEOUT);
+            discardedBefore += dispatcher.getDiscardedCount();
+            dispatcher = null;
+        }
+    }
+
+    /**
+     * @return          the amount of the events discarded because the buffer was full since the JVM start
+     * */
+    public static synchronized long getDiscardedCount() {
+        return discardedBefore + (dispatcher == null ? 0 : dispatcher.getDiscardedCount());
+    }
+}
@@ -0,0 +1,93 @@
+package server.logging;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The class {@code LazyLog} contains the level-checked counterparts of {@code LOGGER.trace(buildMessage(...))}.
+ * The message parts are joined by spaces exactly like {@code Utils.buildMessage} does, but only if the level
+ * is enabled for the logger, so a disabled call costs neither the string building nor (for up to four parts)
+ * the varargs array.
+ *
+ *  Usage: {@code LazyLog.trace(LOGGER, "Client (id", clientId, ") disconnected")}
+ * */
+public final class LazyLog {
+
+    private LazyLog() {
+    }
+
+    public static void trace(@NotNull Logger logger, Object part) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(part);
+        }
+    }
+
+    public static void trace(@NotNull Logger logger, Object part1, Object part2) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(buildMessage(part1, part2));
+        }
+    }
+
+    public static void trace(@NotNull Logger logger, Object part1, Object part2, Object part3) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(buildMessage(part1, part2, part3));
+        }
+    }
+
+    public static void trace(@NotNull Logger logger, Object part1, Object part2, Object part3, Object part4) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(buildMessage(part1, part2, part3, part4));
+        }
+    }
+
+    public static void trace(@NotNull Logger logger, Object... parts) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(buildMessage(parts));
+        }
+    }
+
+    public static void debug(@NotNull Logger logger, Object part1, Object part2) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(buildMessage(part1, part2));
+        }
+    }
+
+    public static void debug(@NotNull Logger logger, Object part1, Object part2, Object part3) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(buildMessage(part1, part2, part3));
+        }
+    }
+
+    public static void debug(@NotNull Logger logger, Object... parts) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(buildMessage(parts));
+        }
+    }
+
+    public static void info(@NotNull Logger logger, Object part1, Object part2) {
+        if (logger.isInfoEnabled()) {
+            logger.info(buildMessage(part1, part2));
+        }
+    }
+
+    public static void info(@NotNull Logger logger, Object part1, Object part2, Object part3) {
+        if (logger.isInfoEnabled()) {
+            logger.info(buildMessage(part1, part2, part3));
+        }
+    }
+
+    public static void info(@NotNull Logger logger, Object... parts) {
+        if (logger.isInfoEnabled()) {
+            logger.info(buildMessage(parts));
+        }
+    }
+
+    public static void warn(@NotNull Logger logger, Object... parts) {
+        if (logger.isEnabledFor(Level.WARN)) {
+            logger.warn(buildMessage(parts));
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package server.metrics;
+
+public interface CounterMBean {
+    long getCount();
+}
@@ -0,0 +1,32 @@
+package server.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.LongSupplier;
+
+/**
+ *  A value that is read from its source every time it is requested e.g. the amount of the online clients
+ * */
+public class Gauge extends Metric implements GaugeMBean {
+    private final LongSupplier supplier;
+
+    Gauge(@NotNull String name, @NotNull String help, @NotNull LongSupplier supplier) {
+        super(name, help, null, null);
+        this.supplier = supplier;
+    }
+
+    @Override
+    public long getValue() {
+        return supplier.getAsLong();
+    }
+
+    @Override
+    String getType() {
+        return "gauge";
+    }
+
+    @Override
+    void writeSamples(StringBuilder out) {
+        out.append(getName()).append(' ').append(getValue()).append('\n');
+    }
+}
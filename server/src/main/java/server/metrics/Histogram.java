@@ -0,0 +1,152 @@
+package server.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  The {@code Histogram} records the distribution of non-negative values (e.g. durations in nanoseconds)
+ * since the server start. The values are counted in log-linear buckets: every power of two is split
+ * into {@code SUB_BUCKETS} equal buckets, so a percentile is reported with the relative error of 1/16 at most.
+ * Recording is lock-free and does not allocate.
+ *
+ *  The reported values are multiplied by the {@code scale} e.g. {@code 1e-9} turns nanoseconds into seconds.
+ * */
+public class Histogram extends Metric implements HistogramMBean {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final double [] QUANTILES = {0.5, 0.99, 0.999};
+    private final AtomicLongArray buckets = new AtomicLongArray((Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    private final double scale;
+
+    /**
+     *  A histogram is usually created by the {@code MetricsRegistry}, the unregistered ones are used by the tools
+     * (e.g. the load generator) that only need the percentiles
+     *
+     * @param           name a name of the metric
+     * @param           help a description of the metric
+     * @param           labelName a name of the only label or {@code null}
+     * @param           labelValue a value of the label or {@code null}
+     * @param           scale a multiplier of the reported values
+     * */
+    public Histogram(@NotNull String name, @NotNull String help, String labelName, String labelValue, double scale) {
+        super(name, help, labelName, labelValue);
+        this.scale = scale;
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     *  Records the nanoseconds passed since the {@code startNanos}
+     *
+     * @param           startNanos a value of {@code System.nanoTime()} taken at the beginning of the measured action
+     * */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    /**
+     * @param           quantile a value from 0 to 1
+     *
+     * @return          the scaled value the {@code quantile} of the recorded values do not exceed
+     * */
+    public double getPercentile(double quantile) {
+        long total = 0;
+        long [] snapshot = new long[buckets.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long cumulative = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= rank) {
+                return Math.min(upperBound(i), max.get()) * scale;
+            }
+        }
+        return max.get() * scale;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : sum.sum() * scale / count;
+    }
+
+    @Override
+    public double getMax() {
+        return max.get() * scale;
+    }
+
+    @Override
+    public double get50thPercentile() {
+        return getPercentile(0.5);
+    }
+
+    @Override
+    public double get99thPercentile() {
+        return getPercentile(0.99);
+    }
+
+    @Override
+    public double get999thPercentile() {
+        return getPercentile(0.999);
+    }
+
+    @Override
+    String getType() {
+        return "summary";
+    }
+
+    @Override
+    void writeSamples(StringBuilder out) {
+        for (double quantile : QUANTILES) {
+            out.append(getName()).append(labels("quantile", String.valueOf(quantile))).append(' ')
+                    .append(getPercentile(quantile)).append('\n');
+        }
+        out.append(getName()).append("_sum").append(labels(null, null)).append(' ').append(sum.sum() * scale)
+                .append('\n');
+        out.append(getName()).append("_count").append(labels(null, null)).append(' ').append(getCount())
+                .append('\n');
+    }
+}
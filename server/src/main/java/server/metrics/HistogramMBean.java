@@ -0,0 +1,15 @@
+package server.metrics;
+
+public interface HistogramMBean {
+    long getCount();
+
+    double getMean();
+
+    double getMax();
+
+    double get50thPercentile();
+
+    double get99thPercentile();
+
+    double get999thPercentile();
+}
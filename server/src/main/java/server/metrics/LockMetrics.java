@@ -0,0 +1,132 @@
+package server.metrics;
+
+import common.entities.Shell;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Supplier;
+
+/**
+ *  The contention metrics of a single {@code LockSite}: the amount of the acquisitions, the amount of the
+ * contended ones, the time spent waiting for the monitor and the time it has been held. A site is instrumented
+ * by holding the monitor through {@code run} or {@code call}:
+ *
+ *      server.getMetrics().getLockMetrics(LockSite.FANOUT).run(server.getOnlineClients().safe(), () -> {
+ *          ...
+ *      });
+ *
+ *  The {@code synchronized} blocks do not tell whether the monitor was free, so an acquisition is counted
+ * as contended if the wait has exceeded {@code CONTENTION_THRESHOLD_NANOS}: taking a free monitor costs well
+ * under a microsecond while a blocked thread is parked and woken up by the operating system.
+ *
+ *  The profiling is switched by the {@code lockProfiling} configuration. While it is off every call costs
+ * a single volatile read and nothing is recorded.
+ * */
+public class LockMetrics implements Shell.Probe {
+    private static final long CONTENTION_THRESHOLD_NANOS = 10_000;
+    private static volatile boolean enabled;
+    private final Counter acquisitions;
+    private final Counter contentions;
+    private final Histogram waitTime;
+    private final Histogram holdTime;
+
+    LockMetrics(Counter acquisitions, Counter contentions, Histogram waitTime, Histogram holdTime) {
+        this.acquisitions = acquisitions;
+        this.contentions = contentions;
+        this.waitTime = waitTime;
+        this.holdTime = holdTime;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        LockMetrics.enabled = enabled;
+    }
+
+    /**
+     *  Runs the {@code body} holding the {@code monitor} and records the acquisition
+     * */
+    public void run(@NotNull Object monitor, @NotNull Runnable body) {
+        long requested = requested();
+        synchronized (monitor) {
+            long acquired = acquired(requested);
+            try {
+                body.run();
+            } finally {
+                released(acquired);
+            }
+        }
+    }
+
+    /**
+     *  Calls the {@code body} holding the {@code monitor} and records the acquisition
+     *
+     * @return          the result of the {@code body}
+     * */
+    public <T> T call(@NotNull Object monitor, @NotNull Supplier<T> body) {
+        long requested = requested();
+        synchronized (monitor) {
+            long acquired = acquired(requested);
+            try {
+                return body.get();
+            } finally {
+                released(acquired);
+            }
+        }
+    }
+
+    /**
+     * @return          the moment (nanoseconds) the monitor has been requested or {@code 0} if the profiling is off
+     * */
+    @Override
+    public long requested() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @param           requested a value returned by {@code requested}
+     *
+     * @return          the moment (nanoseconds) the monitor has been acquired or {@code 0} if the profiling is off
+     * */
+    @Override
+    public long acquired(long requested) {
+        if (requested == 0) {
+            return 0;
+        }
+        long acquired = System.nanoTime();
+        long wait = acquired - requested;
+        acquisitions.increment();
+        waitTime.record(wait);
+        if (wait > CONTENTION_THRESHOLD_NANOS) {
+            contentions.increment();
+        }
+        return acquired;
+    }
+
+    /**
+     * @param           acquired a value returned by {@code acquired}
+     * */
+    @Override
+    public void released(long acquired) {
+        if (acquired != 0) {
+            holdTime.recordSince(acquired);
+        }
+    }
+
+    public Counter getAcquisitions() {
+        return acquisitions;
+    }
+
+    public Counter getContentions() {
+        return contentions;
+    }
+
+    public Histogram getWaitTime() {
+        return waitTime;
+    }
+
+    public Histogram getHoldTime() {
+        return holdTime;
+    }
+}
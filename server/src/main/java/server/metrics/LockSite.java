@@ -0,0 +1,36 @@
+package server.metrics;
+
+/**
+ *  The named places where the global monitors of the server ({@code onlineClients} and {@code onlineRooms})
+ * are acquired. The contention is measured per site (see {@code LockMetrics}).
+ * */
+public enum LockSite {
+    /**
+     *  Delivering a new message or a room membership change to the online clients
+     * */
+    FANOUT,
+    /**
+     *  Unloading a room without online members by the {@code Observer}
+     * */
+    OBSERVER_SWEEP,
+    /**
+     *  Loading a room and putting it into the online rooms
+     * */
+    ROOM_LOAD,
+    /**
+     *  Collecting the modified clients and rooms to be saved
+     * */
+    SAVE,
+    /**
+     *  Logging in and out i.e. adding and removing the online clients
+     * */
+    SESSION,
+    /**
+     *  Any {@code Shell.safe()} call on the online clients
+     * */
+    ONLINE_CLIENTS_ACCESS,
+    /**
+     *  Any {@code Shell.safe()} call on the online rooms
+     * */
+    ONLINE_ROOMS_ACCESS
+}
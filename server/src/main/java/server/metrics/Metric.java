@@ -0,0 +1,75 @@
+package server.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ *  The {@code Metric} is a generalization of the values kept by the {@code MetricsRegistry}. A metric has
+ * a name, a description and optionally a single label (e.g. the status of the handled requests).
+ * */
+public abstract class Metric {
+    private final String name;
+    private final String help;
+    private final String labelName;
+    private final String labelValue;
+
+    Metric(@NotNull String name, @NotNull String help, String labelName, String labelValue) {
+        this.name = name;
+        this.help = help;
+        this.labelName = labelName;
+        this.labelValue = labelValue;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    /**
+     * @return          the key the metric is registered by
+     * */
+    String getKey() {
+        return labelName == null ? name : name.concat("{").concat(labelValue).concat("}");
+    }
+
+    /**
+     * @return          the Prometheus type of the metric
+     * */
+    abstract String getType();
+
+    /**
+     *  Appends the samples of the metric in the Prometheus text format
+     * */
+    abstract void writeSamples(StringBuilder out);
+
+    /**
+     * @return          the labels of the sample in the Prometheus text format e.g. {@code {status="AUTH"}}
+     * */
+    String labels(String extraName, String extraValue) {
+        StringBuilder labels = new StringBuilder();
+        if (labelName != null) {
+            labels.append(labelName).append("=\"").append(labelValue).append('"');
+        }
+        if (extraName != null) {
+            if (labels.length() != 0) {
+                labels.append(',');
+            }
+            labels.append(extraName).append("=\"").append(extraValue).append('"');
+        }
+        return labels.length() == 0 ? "" : labels.insert(0, '{').append('}').toString();
+    }
+
+    ObjectName getObjectName(String domain) throws MalformedObjectNameException {
+        StringBuilder objectName = new StringBuilder(domain).append(":type=").append(getClass().getSimpleName())
+                .append(",name=").append(name);
+        if (labelName != null) {
+            objectName.append(',').append(labelName).append('=').append(ObjectName.quote(labelValue));
+        }
+        return new ObjectName(objectName.toString());
+    }
+}
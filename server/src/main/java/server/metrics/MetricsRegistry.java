@@ -0,0 +1,278 @@
+package server.metrics;
+
+import com.sun.management.UnixOperatingSystemMXBean;
+import common.entities.message.MessageStatus;
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import server.processing.PropertiesProcessing;
+
+import javax.management.*;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The {@code MetricsRegistry} keeps the metrics of the server: the per {@code MessageStatus} request counts,
+ * error counts and latencies, the fanout durations and recipient counts, the rooms and clients saving and loading
+ * durations, the outbound traffic and the gauges registered by the server components.
+ *
+ *  Every metric is registered as an MBean in the {@code JMX_DOMAIN} of the platform MBean server as soon as it is
+ * created. If the {@code metricsPort} is set the metrics are also served in the Prometheus text format
+ * (see {@code MetricsHttpEndpoint}). The durations are exported in seconds.
+ * */
+public class MetricsRegistry {
+    private static final String JMX_DOMAIN = "messenger.server";
+    private static final String PREFIX = "messenger_";
+    private static final double NANOS_TO_SECONDS = 1e-9;
+    private static volatile Logger LOGGER = Logger.getLogger("Server");
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    private final Map<String, Metric> metrics = new LinkedHashMap<>();
+    private final Map<MessageStatus, RequestMetrics> requestMetrics = new EnumMap<>(MessageStatus.class);
+    private final Map<LockSite, LockMetrics> lockMetrics = new EnumMap<>(LockSite.class);
+    private final Histogram fanoutDuration;
+    private final Histogram fanoutRecipients;
+    private final Histogram roomSaveDuration;
+    private final Histogram clientSaveDuration;
+    private final Histogram roomLoadDuration;
+    private final Counter outboundBytes;
+    private volatile MetricsHttpEndpoint httpEndpoint;
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    public MetricsRegistry() {
+        for (MessageStatus status : MessageStatus.values()) {
+            requestMetrics.put(status, new RequestMetrics(
+                    register(new Counter(PREFIX.concat("requests_total"), "The amount of the handled requests"
+                            , "status", status.name())),
+                    register(new Counter(PREFIX.concat("request_errors_total"), "The amount of the failed requests"
+                            , "status", status.name())),
+                    register(new Histogram(PREFIX.concat("request_duration_seconds")
+                            , "The duration of the requests handling", "status", status.name()
+                            , NANOS_TO_SECONDS))));
+        }
+        for (LockSite site : LockSite.values()) {
+            lockMetrics.put(site, new LockMetrics(
+                    register(new Counter(PREFIX.concat("lock_acquisitions_total")
+                            , "The amount of the profiled global monitor acquisitions", "site", site.name())),
+                    register(new Counter(PREFIX.concat("lock_contentions_total")
+                            , "The amount of the global monitor acquisitions that have waited for the monitor"
+                            , "site", site.name())),
+                    register(new Histogram(PREFIX.concat("lock_wait_seconds")
+                            , "The time spent waiting for a global monitor", "site", site.name(), NANOS_TO_SECONDS)),
+                    register(new Histogram(PREFIX.concat("lock_hold_seconds")
+                            , "The time a global monitor has been held", "site", site.name(), NANOS_TO_SECONDS))));
+        }
+        fanoutDuration = histogram("fanout_duration_seconds"
+                , "The duration of delivering a new message to the online room members", NANOS_TO_SECONDS);
+        fanoutRecipients = histogram("fanout_recipients"
+                , "The amount of the online room members a new message has been delivered to", 1);
+        roomSaveDuration = histogram("room_save_duration_seconds", "The duration of saving a room"
+                , NANOS_TO_SECONDS);
+        clientSaveDuration = histogram("client_save_duration_seconds", "The duration of saving a client"
+                , NANOS_TO_SECONDS);
+        roomLoadDuration = histogram("room_load_duration_seconds", "The duration of loading a room"
+                , NANOS_TO_SECONDS);
+        outboundBytes = register(new Counter(PREFIX.concat("outbound_bytes_total")
+                , "The amount of bytes sent to the clients", null, null));
+        registerProcessGauges();
+    }
+
+    /**
+     *  The gauges of the process resources that grow if sessions leak: the live threads, the heap left after
+     * the last garbage collection (the current usage mostly depends on how long ago the collection was)
+     * and the open file descriptors ({@code -1} if the platform does not report them)
+     * */
+    private void registerProcessGauges() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        gauge("jvm_threads_live", "The amount of the live threads", threads::getThreadCount);
+        gauge("jvm_heap_after_gc_bytes", "The heap used right after the last garbage collection", () -> {
+            long used = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+                if (usage != null) {
+                    used += usage.getUsed();
+                }
+            }
+            return used;
+        });
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        gauge("process_open_fds", "The amount of the open file descriptors"
+                , () -> os instanceof UnixOperatingSystemMXBean
+                        ? ((UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount() : -1);
+    }
+
+    private Histogram histogram(String name, String help, double scale) {
+        return register(new Histogram(PREFIX.concat(name), help, null, null, scale));
+    }
+
+    /**
+     *  Registers the gauge, the previous gauge of the same name (if any) is replaced
+     *
+     * @param           name a name of the gauge without the common prefix
+     * @param           help a description of the gauge
+     * @param           supplier a source of the gauge value, it must be cheap and thread safe
+     *
+     * @return          the registered gauge
+     * */
+    public Gauge gauge(@NotNull String name, @NotNull String help, @NotNull LongSupplier supplier) {
+        return register(new Gauge(PREFIX.concat(name), help, supplier));
+    }
+
+    /**
+     *  Registers the counter, the previous counter of the same name (if any) is replaced
+     *
+     * @param           name a name of the counter without the common prefix
+     * @param           help a description of the counter
+     *
+     * @return          the registered counter
+     * */
+    public Counter counter(@NotNull String name, @NotNull String help) {
+        return register(new Counter(PREFIX.concat(name), help, null, null));
+    }
+
+    private <T extends Metric> T register(T metric) {
+        Metric previous;
+        synchronized (metrics) {
+            previous = metrics.put(metric.getKey(), metric);
+        }
+        if (previous != null) {
+            unregisterMBean(previous);
+        }
+        registerMBean(metric);
+        return metric;
+    }
+
+    public void remove(@NotNull Metric metric) {
+        synchronized (metrics) {
+            if (!metrics.remove(metric.getKey(), metric)) {
+                return;
+            }
+        }
+        unregisterMBean(metric);
+    }
+
+    private void registerMBean(Metric metric) {
+        try {
+            ObjectName objectName = metric.getObjectName(JMX_DOMAIN);
+            if (mBeanServer.isRegistered(objectName)) {
+                // left by the previous instance of the server (e.g. before the restart)
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(metric, objectName);
+        } catch (JMException e) {
+            LOGGER.warn(buildMessage("Unable to register the metric", metric.getKey(), "in JMX:"
+                    , e.getLocalizedMessage()));
+        }
+    }
+
+    private void unregisterMBean(Metric metric) {
+        try {
+            ObjectName objectName = metric.getObjectName(JMX_DOMAIN);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.warn(buildMessage("Unable to unregister the metric", metric.getKey(), "from JMX:"
+                    , e.getLocalizedMessage()));
+        }
+    }
+
+    public RequestMetrics getRequestMetrics(@NotNull MessageStatus status) {
+        return requestMetrics.get(status);
+    }
+
+    public LockMetrics getLockMetrics(@NotNull LockSite site) {
+        return lockMetrics.get(site);
+    }
+
+    public Histogram getFanoutDuration() {
+        return fanoutDuration;
+    }
+
+    public Histogram getFanoutRecipients() {
+        return fanoutRecipients;
+    }
+
+    public Histogram getRoomSaveDuration() {
+        return roomSaveDuration;
+    }
+
+    public Histogram getClientSaveDuration() {
+        return clientSaveDuration;
+    }
+
+    public Histogram getRoomLoadDuration() {
+        return roomLoadDuration;
+    }
+
+    public Counter getOutboundBytes() {
+        return outboundBytes;
+    }
+
+    /**
+     * @return          all the metrics in the Prometheus text exposition format
+     * */
+    public String toPrometheusText() {
+        List<Metric> snapshot;
+        synchronized (metrics) {
+            snapshot = new ArrayList<>(metrics.values());
+        }
+        snapshot.sort(Comparator.comparing(Metric::getName));
+        StringBuilder out = new StringBuilder();
+        String previousName = null;
+        for (Metric metric : snapshot) {
+            if (!metric.getName().equals(previousName)) {
+                out.append("# HELP ").append(metric.getName()).append(' ').append(metric.getHelp()).append('\n');
+                out.append("# TYPE ").append(metric.getName()).append(' ').append(metric.getType()).append('\n');
+                previousName = metric.getName();
+            }
+            metric.writeSamples(out);
+        }
+        return out.toString();
+    }
+
+    /**
+     *  Starts the HTTP endpoint if the {@code metricsPort} is set in the configurations
+     * */
+    public void start(@NotNull Properties config) {
+        if (config.getProperty("metricsPort", "").trim().isEmpty()) {
+            return;
+        }
+        int port = (int) PropertiesProcessing.getLongProperty(config, "metricsPort", 0);
+        try {
+            httpEndpoint = new MetricsHttpEndpoint(this, port);
+            LOGGER.info(buildMessage("The metrics are available on http://localhost:".concat(String.valueOf(port))
+                    .concat("/metrics")));
+        } catch (IOException e) {
+            LOGGER.error(buildMessage("Unable to start the metrics endpoint on the port", port, ':'
+                    , e.getLocalizedMessage()));
+        }
+    }
+
+    /**
+     *  Stops the HTTP endpoint and unregisters all the MBeans
+     * */
+    public void stop() {
+        if (httpEndpoint != null) {
+            httpEndpoint.stop();
+            httpEndpoint = null;
+        }
+        List<Metric> snapshot;
+        synchronized (metrics) {
+            snapshot = new ArrayList<>(metrics.values());
+        }
+        for (Metric metric : snapshot) {
+            unregisterMBean(metric);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package server.metrics;
+
+/**
+ *  The metrics of the requests of a single {@code MessageStatus}: the amount of the handled requests,
+ * the amount of the failed ones (the response status is {@code ERROR} or the request is not supported)
+ * and the latency of the handling
+ * */
+public class RequestMetrics {
+    private final Counter requests;
+    private final Counter errors;
+    private final Histogram latency;
+
+    RequestMetrics(Counter requests, Counter errors, Histogram latency) {
+        this.requests = requests;
+        this.errors = errors;
+        this.latency = latency;
+    }
+
+    /**
+     * @param           startNanos a value of {@code System.nanoTime()} taken before the request has been dispatched
+     * @param           failed whether the request has failed
+     * */
+    public void record(long startNanos, boolean failed) {
+        latency.recordSince(startNanos);
+        requests.increment();
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    public Counter getRequests() {
+        return requests;
+    }
+
+    public Counter getErrors() {
+        return errors;
+    }
+
+    public Histogram getLatency() {
+        return latency;
+    }
+}
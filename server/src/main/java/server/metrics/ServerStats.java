@@ -0,0 +1,156 @@
+package server.metrics;
+
+import common.entities.message.MessageStatus;
+import org.jetbrains.annotations.NotNull;
+import server.Server;
+import server.client.ClientListener;
+import server.logging.AsyncLogging;
+import server.replication.ReplicationStandby;
+import server.room.Room;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  The {@code ServerStats} builds the human readable snapshots of the server load for the {@code SERVER_STATS}
+ * requests. The request counts are sampled every second and the last {@code MAX_INTERVAL} seconds are kept,
+ * so the request rates can be reported for any interval up to that length without any per-request bookkeeping.
+ * The latencies are the percentiles since the server start (see {@code Histogram}).
+ * */
+public class ServerStats {
+    public static final int MAX_INTERVAL = 60;
+    private static final long MEGABYTE = 1024 * 1024;
+    private final Server server;
+    private final long startTime = System.currentTimeMillis();
+    private final MessageStatus [] statuses = MessageStatus.values();
+    private final long [][] sampledCounts = new long[MAX_INTERVAL + 1][statuses.length];
+    private final long [] sampleTimes = new long[MAX_INTERVAL + 1];
+    private int samplesCount;
+    private int nextSample;
+    private volatile boolean stopped;
+
+    public ServerStats(@NotNull Server server) {
+        this.server = server;
+    }
+
+    /**
+     *  Starts sampling the request counts every second
+     * */
+    public void start() {
+        sample();
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    private void sample() {
+        if (stopped) {
+            return;
+        }
+        synchronized (sampledCounts) {
+            for (int i = 0; i < statuses.length; i++) {
+                sampledCounts[nextSample][i] = server.getMetrics().getRequestMetrics(statuses[i]).getRequests()
+                        .getCount();
+            }
+            sampleTimes[nextSample] = System.nanoTime();
+            nextSample = (nextSample + 1) % sampleTimes.length;
+            samplesCount = Math.min(samplesCount + 1, sampleTimes.length);
+        }
+        server.getTimerWheel().newTimeout(this::sample, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param           interval the amount of seconds the request rates are computed for,
+     *                  it is limited by {@code MAX_INTERVAL}
+     *
+     * @return          a human readable snapshot of the server load
+     * */
+    public String snapshot(int interval) {
+        interval = Math.max(1, Math.min(interval, MAX_INTERVAL));
+        StringBuilder snapshot = new StringBuilder("Server statistics at ").append(LocalDateTime.now().withNano(0))
+                .append(" (uptime ").append(Duration.ofMillis(System.currentTimeMillis() - startTime).getSeconds())
+                .append(" s)\n");
+        snapshot.append("Sessions: ").append(server.getOnlineClients().safe().size()).append(" online, rooms: ")
+                .append(server.getOnlineRooms().safe().size()).append(" loaded\n");
+        appendRequests(snapshot, interval);
+        snapshot.append("Outbound queues: client writes are synchronous, ")
+                .append(server.getSlowConsumerDetector().getFlaggedCount()).append(" slow consumers flagged");
+        for (Map.Entry<String, Integer> depth : server.getCluster().getOutboundQueueDepths().entrySet()) {
+            snapshot.append(", cluster node ").append(depth.getKey()).append(": ").append(depth.getValue());
+        }
+        snapshot.append('\n');
+        appendPersistenceBacklog(snapshot);
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        snapshot.append("Heap: ").append(heap.getUsed() / MEGABYTE).append(" MB used, ")
+                .append(heap.getCommitted() / MEGABYTE).append(" MB committed, ")
+                .append(heap.getMax() < 0 ? "unlimited" : String.valueOf(heap.getMax() / MEGABYTE).concat(" MB"))
+                .append(" max\nThreads: ").append(threads.getThreadCount()).append(" (peak ")
+                .append(threads.getPeakThreadCount()).append(")\n");
+        snapshot.append("Logging: ").append(AsyncLogging.getDiscardedCount()).append(" events discarded\n");
+        ReplicationStandby standby = server.getReplicationStandby();
+        if (standby != null) {
+            snapshot.append("Standby: replication lag ").append(standby.getLagMillis()).append(" ms, ")
+                    .append(standby.getLagRecords()).append(" records\n");
+        }
+        return snapshot.toString();
+    }
+
+    private void appendRequests(StringBuilder snapshot, int interval) {
+        long [] previousCounts;
+        long elapsedNanos;
+        synchronized (sampledCounts) {
+            if (samplesCount == 0) {
+                previousCounts = new long[statuses.length];
+                elapsedNanos = 0;
+            } else {
+                int back = Math.min(interval, samplesCount - 1);
+                int index = (nextSample - 1 - back + 2 * sampleTimes.length) % sampleTimes.length;
+                previousCounts = sampledCounts[index].clone();
+                elapsedNanos = System.nanoTime() - sampleTimes[index];
+            }
+        }
+        double seconds = Math.max(elapsedNanos / 1e9, 1e-3);
+        snapshot.append(String.format("Requests (last %.0f s):%n  %-16s %10s %10s %10s %10s %10s%n", seconds
+                , "status", "rate/s", "total", "errors", "p50 ms", "p99 ms"));
+        for (int i = 0; i < statuses.length; i++) {
+            RequestMetrics metrics = server.getMetrics().getRequestMetrics(statuses[i]);
+            long count = metrics.getRequests().getCount();
+            if (count == 0) {
+                continue;
+            }
+            snapshot.append(String.format("  %-16s %10.2f %10d %10d %10.3f %10.3f%n", statuses[i]
+                    , (count - previousCounts[i]) / seconds, count, metrics.getErrors().getCount()
+                    , metrics.getLatency().get50thPercentile() * 1e3, metrics.getLatency().get99thPercentile() * 1e3));
+        }
+    }
+
+    private void appendPersistenceBacklog(StringBuilder snapshot) {
+        int dirtyClients = 0;
+        int dirtyRooms = 0;
+        synchronized (server.getOnlineClients().safe()) {
+            for (ClientListener clientListener : server.getOnlineClients().safe().values()) {
+                if (clientListener.getClient() != null && clientListener.getClient().isDirty()) {
+                    dirtyClients++;
+                }
+            }
+        }
+        synchronized (server.getOnlineRooms().safe()) {
+            for (Room room : server.getOnlineRooms().safe().values()) {
+                if (room.isDirty()) {
+                    dirtyRooms++;
+                }
+            }
+        }
+        snapshot.append("Persistence backlog: ").append(dirtyClients).append(" unsaved clients, ")
+                .append(dirtyRooms).append(" unsaved rooms, ")
+                .append(server.getReplicationPublisher().getPendingRecordsCount())
+                .append(" files waiting for the replication\n");
+    }
+}
@@ -1,12 +1,22 @@
 package server.processing;
 
+import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PropertyConfigurator;
 import server.Observer;
 import server.Server;
+import server.TimerWheel;
+import server.capture.TrafficCapture;
 import server.client.Client;
 import server.client.ClientListener;
+import server.client.SlowConsumerDetector;
+import server.cluster.Cluster;
+import server.logging.AsyncLogging;
+import server.metrics.MetricsRegistry;
+import server.replication.ReplicationPublisher;
+import server.replication.ReplicationStandby;
 import server.room.Room;
+import server.tracing.Tracer;
 
 import java.io.File;
 import java.util.InvalidPropertiesFormatException;
@@ -16,12 +26,27 @@ import static common.Utils.buildMessage;
 import static server.processing.PropertiesProcessing.arePropertiesValid;
 
 public class LoggersProcessing {
+    private static final String LOG_LEVEL_PREFIX = "logLevel.";
+
+    /**
+     *  Re-reads the loggers configurations. The events buffered by the asynchronous logging are written first,
+     * {@code AsyncLogging.install} must be called after the loggers levels have been applied.
+     * */
     public static void resetLoggers() {
+        AsyncLogging.shutdown();
         PropertyConfigurator.configure(LoggersProcessing.class.getResourceAsStream("/log4j.properties"));
         Client.setLogger(Logger.getLogger(Client.class.getSimpleName()));
         ClientListener.setLogger(Logger.getLogger(ClientListener.class.getSimpleName()));
+        SlowConsumerDetector.setLogger(Logger.getLogger(ClientListener.class.getSimpleName()));
         Server.setLogger(Logger.getLogger(Server.class.getSimpleName()));
         Observer.setLogger(Logger.getLogger(Observer.class.getSimpleName()));
+        TimerWheel.setLogger(Logger.getLogger(Server.class.getSimpleName()));
+        Cluster.setLogger(Logger.getLogger(Server.class.getSimpleName()));
+        ReplicationPublisher.setLogger(Logger.getLogger(Server.class.getSimpleName()));
+        ReplicationStandby.setLogger(Logger.getLogger(Server.class.getSimpleName()));
+        MetricsRegistry.setLogger(Logger.getLogger(Server.class.getSimpleName()));
+        Tracer.setLogger(Logger.getLogger(Server.class.getSimpleName()));
+        TrafficCapture.setLogger(Logger.getLogger(Server.class.getSimpleName()));
         Room.setLogger(Logger.getLogger(Room.class.getSimpleName()));
         RoomProcessing.setLogger(Logger.getLogger(RoomProcessing.class.getSimpleName()));
         ClientProcessing.setLogger(Logger.getLogger(ClientProcessing.class.getSimpleName()));
@@ -30,6 +55,21 @@ public class LoggersProcessing {
         ServerProcessing.setLogger(Logger.getLogger(ServerProcessing.class.getSimpleName()));
     }
 
+    /**
+     *  This method sets the levels of the loggers specified by the {@code logLevel.<logger name>} properties
+     * e.g. {@code logLevel.ClientListener=INFO}. The loggers that are not mentioned keep their levels.
+     *
+     * @param           serverConfig the server configurations
+     * */
+    public static void applyLoggersLevels(Properties serverConfig) {
+        for (String propertyName : serverConfig.stringPropertyNames()) {
+            if (propertyName.startsWith(LOG_LEVEL_PREFIX)) {
+                Logger.getLogger(propertyName.substring(LOG_LEVEL_PREFIX.length()))
+                        .setLevel(Level.toLevel(serverConfig.getProperty(propertyName).trim(), Level.INFO));
+            }
+        }
+    }
+
     /**
      *  This method provides the system with information where the logger files have to be stored
      *
@@ -180,6 +180,76 @@ public class PropertiesProcessing {
                 File.separatorChar, "config", File.separatorChar, "path",
                 File.separatorChar, "serverConfig.xml")
         );
+        // seconds a room without online members is kept loaded before being saved and unloaded
+        properties.setProperty("roomEvictionTimeout", "60");
+        // seconds of inactivity after which a session is closed
+        properties.setProperty("idleTimeout", "3600");
+        // seconds of inactivity after which the server sends a heartbeat to the client
+        properties.setProperty("heartbeatInterval", "60");
+        // seconds the client that supports heartbeats has to answer the heartbeat
+        properties.setProperty("heartbeatTimeout", "30");
+        // seconds a disconnected session can be resumed by its token without the re-authentication
+        properties.setProperty("sessionResumptionTimeout", "300");
+        // milliseconds a single write to a client may last before the client is considered slow, 0 - no limit
+        properties.setProperty("slowConsumerWriteLatency", "1000");
+        // frames waiting to be written to a client before the client is considered slow, 0 - no limit
+        properties.setProperty("slowConsumerBacklog", "100");
+        // seconds a client has to stay slow before it is flagged as a slow consumer
+        properties.setProperty("slowConsumerGracePeriod", "10");
+        // whether the flagged slow consumers are disconnected
+        properties.setProperty("slowConsumerDisconnect", "false");
+        // whether the waiting for and holding of the global monitors are measured
+        properties.setProperty("lockProfiling", "false");
+        // comma separated host:port addresses of the inter-node links of all the cluster nodes, empty - no cluster
+        properties.setProperty("clusterNodes", "");
+        // the host:port address of the inter-node link of this node, it must be one of the clusterNodes
+        properties.setProperty("clusterNodeAddress", "");
+        // the secret shared by all the cluster nodes, the inter-node links are not accepted without it
+        properties.setProperty("clusterSecret", "");
+        // milliseconds between the rounds of sending the session directory changes to the other cluster nodes
+        properties.setProperty("clusterGossipInterval", "250");
+        // the port the standby servers receive the replication stream on, empty - no replication
+        properties.setProperty("replicationPort", "");
+        // the local address the replicationPort is bound to
+        properties.setProperty("replicationBindAddress", "127.0.0.1");
+        // the secret shared by the primary and the standby servers, the replication is not started without it
+        properties.setProperty("replicationSecret", "");
+        // comma separated hosts the standby servers may connect from, empty - any host knowing the replicationSecret
+        properties.setProperty("replicationStandbys", "");
+        // the host:port address of the replicationPort of the primary server, empty - this server is not a standby
+        properties.setProperty("replicationPrimary", "");
+        // milliseconds the saved files are collected for before being shipped to the standby servers
+        properties.setProperty("replicationBatchInterval", "100");
+        // the local port the metrics are served on in the Prometheus text format, empty - no HTTP endpoint
+        properties.setProperty("metricsPort", "");
+        // whether the log messages are written by a background thread instead of the logging ones
+        properties.setProperty("asyncLogging", "true");
+        // the amount of the log messages waiting to be written, the ones below WARN are discarded when it is exceeded
+        properties.setProperty("loggingBufferSize", "8192");
+        // the amount of TRACE messages per second a logger writes entirely, 0 - no sampling
+        properties.setProperty("traceSamplingThreshold", "1000");
+        // only every such TRACE message is written after the traceSamplingThreshold has been exceeded
+        properties.setProperty("traceSamplingRate", "100");
+        // every such request is traced i.e. its timings are written to the requestTraceFile, 0 - no sampled traces
+        properties.setProperty("requestTraceRate", "100");
+        // milliseconds, the requests lasting longer are traced regardless of the requestTraceRate, 0 - disabled
+        properties.setProperty("requestTraceSlowThreshold", "1000");
+        // the name of the binary file in the logsDir the request traces are written to
+        properties.setProperty("requestTraceFile", "traces.bin");
+        // bytes, the trace file is rotated as soon as it exceeds this size
+        properties.setProperty("requestTraceFileSize", "10485760");
+        // the amount of the trace files kept including the current one
+        properties.setProperty("requestTraceFileCount", "5");
+        // the name of the binary file in the logsDir the inbound frames are captured to, empty - no capture
+        properties.setProperty("captureFile", "");
+        // bytes, the capture is over as soon as the capture file exceeds this size
+        properties.setProperty("captureFileSize", "1073741824");
+        // seconds the server is given to checkpoint the data and to stop the sessions on shutdown or restart
+        properties.setProperty("shutdownTimeout", "30");
+        // the amount of threads saving the clients and rooms in parallel
+        properties.setProperty("checkpointParallelism", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        // the amount of the last messages kept in a room history
+        properties.setProperty("messageHistoryDimension", String.valueOf(ServerProcessing.MESSAGE_HISTORY_DIMENSION));
         // setting the files for logging
         properties.setProperty("observerLogFile", "observer.log");
         properties.setProperty("serverLogFile", "server.log");
@@ -203,7 +273,7 @@ public class PropertiesProcessing {
      * @param           propertiesFile the file the properties are stored in
      *
      * */
-    static Properties loadPropertiesFromFile(File propertiesFile) {
+    public static Properties loadPropertiesFromFile(File propertiesFile) {
         Properties properties = new Properties();
         try (InputStream is = new BufferedInputStream(new FileInputStream(propertiesFile))) {
             properties.loadFromXML(is);
@@ -213,6 +283,28 @@ public class PropertiesProcessing {
         return properties;
     }
 
+    /**
+     *  The method {@code getLongProperty} extracts an optional numeric property
+     *
+     * @param           properties a set of the server configurations
+     * @param           name a name of the property
+     * @param           defaultValue a value to be returned if the property has not been set or is not a number
+     *
+     * @return          the value of the property or {@code defaultValue}
+     * */
+    public static long getLongProperty(@NotNull Properties properties, String name, long defaultValue) {
+        String value = properties.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warn(buildMessage("Invalid", name, "value was set:", value));
+            return defaultValue;
+        }
+    }
+
     static void setLogger(Logger logger) {
         if (LOGGER == null) {
             LOGGER = logger;
@@ -25,13 +25,12 @@ public class RestartingEnvironment extends Thread {
     public void run() {
         Properties properties = server.getConfig();
         server.interrupt();
-        while (!State.TERMINATED.equals(server.getState())) {
-            LOGGER.trace("Waiting the server has shut down");
-            try {
-                sleep(2000);
-            } catch (InterruptedException e) {
-                LOGGER.error(buildMessage(e.getClass().getName(), "occurred:", e.getLocalizedMessage()));
-            }
+        LOGGER.trace("Waiting the server has shut down");
+        try {
+            server.join();
+        } catch (InterruptedException e) {
+            LOGGER.error(buildMessage(e.getClass().getName(), "occurred:", e.getLocalizedMessage()));
+            return;
         }
         try {
             LOGGER.trace("Starting the server");
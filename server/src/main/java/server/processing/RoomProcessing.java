@@ -8,6 +8,8 @@ import org.apache.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.NodeList;
 import server.Server;
+import server.client.ClientListener;
+import server.cluster.ClusterFrame;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -18,7 +20,13 @@ import java.util.*;
 
 import server.exceptions.ClientNotFoundException;
 import server.exceptions.RoomNotFoundException;
+import server.logging.LazyLog;
+import server.metrics.LockSite;
+import server.replication.ReplicationRecord;
 import server.room.Room;
+import server.tracing.FlightEvents;
+import server.tracing.Span;
+import server.tracing.Tracer;
 
 import static common.Utils.buildMessage;
 
@@ -37,8 +45,10 @@ public class RoomProcessing {
      *  The method {@code loadRoom} returns an instance of {@code Room} - representation of a place for communication
      * of two or more clients
      *
-     *  !NOTE This method puts the room into the server online rooms map, that is why it may remove previous
-     * instance of this room from the map. It is recommended to check whether the room is in the map prior call.
+     *  !NOTE This method puts the room into the server online rooms map unless another thread has put it there
+     * meanwhile, the instance of the map is returned then. It is recommended to check whether the room is in the map
+     * prior call. The room starts counting its online members here, if there is not any of them the room
+     * is scheduled for eviction at once.
      *
      * @param           roomId is an id of the room to be searched
      * @param           server a server containing {@code room}
@@ -54,24 +64,17 @@ public class RoomProcessing {
         File roomDir = new File(roomsDir, String.valueOf(roomId));
         File roomFile = new File(roomDir, roomDir.getName().concat(".xml"));
         if(roomFile.isFile()) {
+            long start = System.nanoTime();
+            Object event = FlightEvents.beginRoomLoad();
             try {
-                LOGGER.trace(buildMessage("Loading the room id", String.valueOf(roomId)));
+                LazyLog.trace(LOGGER, "Loading the room id", roomId);
                 JAXBContext jaxbContext = JAXBContext.newInstance(Room.class);
                 Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
                 Room room = (Room) unmarshaller.unmarshal(roomFile);
                 room.setServer(server);
-                room.getMessageHistory().setMessageListener(message -> {
-                synchronized (server.getOnlineClients().safe()) {
-                    for (int clientId : room.getMembers().safe()) {
-                        if (server.getOnlineClients().safe().containsKey(clientId)) {
-                            server.getOnlineClients().safe().get(clientId)
-                                    .sendMessageToConnectedClient(message.setStatus(MessageStatus.NEW_MESSAGE));
-                        }
-                    }
-                }
-                });
-                server.getOnlineRooms().safe().put(roomId, room);
-                return room;
+                server.getMetrics().getRoomLoadDuration().recordSince(start);
+                FlightEvents.commitRoomLoad(event, roomId, false);
+                return registerRoom(server, room, false);
             } catch (JAXBException e) {
                 LOGGER.error(e.getLocalizedMessage());
                 throw new RuntimeException(e);
@@ -82,6 +85,86 @@ public class RoomProcessing {
         }
     }
 
+    /**
+     *  The method {@code getRoom} returns the room from the server online rooms or loads it (see {@code loadRoom}).
+     * The rooms taken from memory are recorded as the cached room load flight events.
+     *
+     * @param           server a server the room is looked up on
+     * @param           roomId an id of the room
+     *
+     * @return          the online room
+     *
+     * @exception       RoomNotFoundException if the room is neither online nor stored
+     * */
+    public static Room getRoom(@NotNull Server server, int roomId) {
+        Room room = server.getOnlineRooms().safe().get(roomId);
+        if (room == null) {
+            return loadRoom(server, roomId);
+        }
+        FlightEvents.commitRoomLoad(FlightEvents.beginRoomLoad(), roomId, true);
+        return room;
+    }
+
+    /**
+     *  The method {@code registerRoom} puts the unmarshalled room into the server online rooms: the room starts
+     * delivering its new messages to the online members and counting them. If there is not any online member
+     * the room is scheduled for eviction at once.
+     *
+     * @param           server a server the room is registered on
+     * @param           room a room which server has been set
+     * */
+    public static void registerRoom(Server server, Room room) {
+        registerRoom(server, room, true);
+    }
+
+    /**
+     * @param           replace whether the room replaces the instance that has been registered already (if any),
+     *                  otherwise the registered instance is kept
+     *
+     * @return          the room that has been registered
+     * */
+    private static Room registerRoom(Server server, Room room, boolean replace) {
+        room.getMessageHistory().setMessageListener(message -> {
+            long start = System.nanoTime();
+            Object event = FlightEvents.beginFanout();
+            Map<Integer, ClientListener> onlineClients = server.getOnlineClients().safe();
+            int recipients = server.getMetrics().getLockMetrics(LockSite.FANOUT).call(onlineClients, () -> {
+                int sent = 0;
+                for (int clientId : room.getMembers().safe()) {
+                    if (onlineClients.containsKey(clientId)) {
+                        onlineClients.get(clientId)
+                                .sendMessageToConnectedClient(message.setStatus(MessageStatus.NEW_MESSAGE));
+                        sent++;
+                    }
+                }
+                return sent;
+            });
+            server.getMetrics().getFanoutDuration().recordSince(start);
+            Tracer.record(Span.FANOUT, start);
+            FlightEvents.commitFanout(event, room.getRoomId(), recipients);
+            server.getMetrics().getFanoutRecipients().record(recipients);
+            server.getCluster().publishNewMessage(room, message);
+        });
+        Map<Integer, Room> onlineRooms = server.getOnlineRooms().safe();
+        Room registered = server.getMetrics().getLockMetrics(LockSite.ROOM_LOAD).call(onlineRooms, () -> {
+            Room loaded = onlineRooms.get(room.getRoomId());
+            if (loaded != null && !replace) {
+                return loaded;
+            }
+            for (int clientId : room.getMembers().safe()) {
+                if (server.getOnlineClients().safe().containsKey(clientId)) {
+                    room.memberCameOnline(clientId);
+                }
+            }
+            onlineRooms.put(room.getRoomId(), room);
+            return room;
+        });
+        if (registered == room && room.getOnlineMembersCount() == 0) {
+            server.getObserver().scheduleEviction(room);
+        }
+        return registered;
+    }
+
     /**
      *  The method {@code createRoom} registers a new room and adds the specified clients to it.
      * After it finishes work the new subfolder and room info file will be created in {@code roomsDir} of the server
@@ -205,6 +288,7 @@ public class RoomProcessing {
      *                  has not been created on server or it's data is unreachable
      * */
     public static void sendMessage(@NotNull Server server, @NotNull Message message) throws IOException {
+        long start = System.nanoTime();
         // checking the message status
         if (message.getStatus() != MessageStatus.MESSAGE) {
             throw new IllegalArgumentException(buildMessage("Message status is expected to be"
@@ -233,15 +317,106 @@ public class RoomProcessing {
         if (RoomProcessing.hasRoomBeenCreated(server.getConfig(), roomId) == 0) {
             throw new RoomNotFoundException("Unable to find the room", roomId);
         }
+        Tracer.record(Span.VALIDATION, start);
+        // The history of the room is kept by the node owning it
+        if (!server.getCluster().isOwner(roomId)) {
+            server.getCluster().relayToOwner(message);
+            return;
+        }
         // Checking whether the specified room is in the server "online" rooms set
-        if (!server.getOnlineRooms().safe().containsKey(roomId)) {
-            synchronized (server.getOnlineRooms().safe()) {
-                RoomProcessing.loadRoom(server, message.getRoomId());
+        Room room = getRoom(server, roomId);
+        room.markDirty();
+        room.getMessageHistory().addNewMessage(message);
+        room.save();
+    }
+
+    /**
+     *  The method {@code changeMembers} adds the client {@code message.getToId()} to the members of the room
+     * if the {@code message} is a {@code MessageStatus.INVITE_CLIENT}, or removes him/her from them otherwise.
+     * Only the node that owns the room changes and saves it, since a file saved by a replica would lose the newer
+     * messages of the owner. The other nodes relay the request to the owner and get the new members
+     * by {@code reloadRoomMembers}.
+     *
+     * @param           server the server of the current node
+     * @param           room the loaded room {@code message.getRoomId()}
+     * @param           message the request, it has been checked against the members of the room
+     *
+     * @throws          IOException if the node owning the room is not reachable at the moment
+     * */
+    public static void changeMembers(@NotNull Server server, @NotNull Room room, @NotNull Message message)
+            throws IOException {
+        if (!server.getCluster().isOwner(room.getRoomId())) {
+            server.getCluster().relayToOwner(ClusterFrame.Type.RELAY_MEMBERS, message);
+            return;
+        }
+        int clientId = message.getToId();
+        if (message.getStatus() == MessageStatus.INVITE_CLIENT) {
+            if (room.getMembers().safe().add(clientId) && server.getOnlineClients().safe().containsKey(clientId)) {
+                room.memberCameOnline(clientId);
             }
+        } else if (room.getMembers().safe().remove(clientId) && room.memberWentOffline(clientId)) {
+            server.getObserver().scheduleEviction(room);
         }
+        room.markDirty();
+        if (room.getServer() == null) {
+            room.setServer(server);
+        }
+        if (room.save()) {
+            server.getCluster().publishRoomChanged(room.getRoomId());
+        }
+    }
+
+    /**
+     *  The method {@code reloadRoomMembers} re-reads the members of the loaded room from its file. It is called when
+     * the room has been changed by another node of the cluster. The room is unloaded if it has been deleted.
+     *  The node that owns the room saves it after that, because the file might have been written
+     * with a stale message history.
+     *
+     * @param           server the server where the room has been loaded
+     * @param           roomId an id of the changed room
+     * */
+    public static void reloadRoomMembers(@NotNull Server server, int roomId) {
         Room room = server.getOnlineRooms().safe().get(roomId);
-        room.getMessageHistory().addMessage(message,true);
-        room.save();
+        if (room == null) {
+            return;
+        }
+        File roomFile = new File(new File(new File(server.getConfig().getProperty("roomsDir"))
+                , String.valueOf(roomId)), String.valueOf(roomId).concat(".xml"));
+        if (!roomFile.isFile()) {
+            synchronized (server.getOnlineRooms().safe()) {
+                server.getOnlineRooms().safe().remove(roomId, room);
+            }
+            LazyLog.trace(LOGGER, "The room (id", roomId, ") has been unloaded: it has been deleted");
+            return;
+        }
+        Set<Integer> storedMembers;
+        try {
+            storedMembers = ((Room) JAXBContext.newInstance(Room.class).createUnmarshaller().unmarshal(roomFile))
+                    .getMembers().safe();
+        } catch (JAXBException e) {
+            LOGGER.error(buildMessage("Unable to reload the room (id", roomId, "):", e.getLocalizedMessage()));
+            return;
+        }
+        boolean lastOnlineMemberRemoved = false;
+        for (int clientId : new ArrayList<>(room.getMembers().safe())) {
+            if (!storedMembers.contains(clientId)) {
+                room.getMembers().safe().remove(clientId);
+                lastOnlineMemberRemoved |= room.memberWentOffline(clientId);
+            }
+        }
+        for (int clientId : storedMembers) {
+            if (room.getMembers().safe().add(clientId)
+                    && server.getOnlineClients().safe().containsKey(clientId)) {
+                room.memberCameOnline(clientId);
+            }
+        }
+        if (lastOnlineMemberRemoved && room.getOnlineMembersCount() == 0) {
+            server.getObserver().scheduleEviction(room);
+        }
+        if (server.getCluster().isOwner(roomId)) {
+            room.markDirty();
+            room.save();
+        }
     }
 
     /**
@@ -298,6 +473,8 @@ public class RoomProcessing {
         File roomFolder = new File(new File(server.getConfig().getProperty("roomsDir")), String.valueOf(roomId));
         if (roomFolder.isDirectory()) {
             clean(roomFolder);
+            server.getReplicationPublisher().fileDeleted(ReplicationRecord.Kind.ROOM
+                    , roomFolder.getName().concat("/").concat(roomFolder.getName()).concat(".xml"));
         }
     }
 
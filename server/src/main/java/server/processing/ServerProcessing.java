@@ -8,11 +8,14 @@ import org.apache.log4j.PropertyConfigurator;
 import org.jetbrains.annotations.NotNull;
 import server.InvocationMode;
 import server.Server;
+import server.metrics.ServerStats;
 import server.room.Room;
+import server.tracing.Tracer;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
 import java.io.*;
 import java.net.*;
 import java.time.format.DateTimeFormatter;
@@ -34,12 +37,32 @@ public class ServerProcessing {
     static Properties defaultProperties;
     public static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ISO_DATE_TIME;
     public static final int MESSAGE_HISTORY_DIMENSION = 100;
+    private static final int DEFAULT_SLOWEST_TRACES = 10;
+    private static final int DEFAULT_STATS_INTERVAL = 5;
+    private static final int DEFAULT_SLOW_CONSUMERS = 10;
+    private static volatile int messageHistoryDimension = MESSAGE_HISTORY_DIMENSION;
     static final File currentFolder;
 
     public static void setLogger(Logger logger) {
         LOGGER = logger;
     }
 
+    /**
+     * @return          the amount of the last messages a room keeps in its history,
+     *                  it is set by the {@code messageHistoryDimension} of the server configurations
+     * */
+    public static int getMessageHistoryDimension() {
+        return messageHistoryDimension;
+    }
+
+    public static void setMessageHistoryDimension(int messageHistoryDimension) {
+        if (messageHistoryDimension <= 0) {
+            throw new IllegalArgumentException(buildMessage("Positive message history dimension expected, but found"
+                    , messageHistoryDimension));
+        }
+        ServerProcessing.messageHistoryDimension = messageHistoryDimension;
+    }
+
     static {
         try {
             currentFolder = new File(ServerProcessing.class.getProtectionDomain()
@@ -120,6 +143,41 @@ public class ServerProcessing {
                 serverProperties = PropertiesProcessing.loadPropertiesFromFile(serverPropertiesFile);
                 sendRestartMessage(serverProperties);
                 break;
+            case RELOAD:
+                serverProperties = PropertiesProcessing.loadPropertiesFromFile(serverPropertiesFile);
+                sendControlMessage(serverProperties, MessageStatus.RELOAD_CONFIG);
+                break;
+            case PROMOTE:
+                serverProperties = PropertiesProcessing.loadPropertiesFromFile(serverPropertiesFile);
+                sendControlMessage(serverProperties, MessageStatus.PROMOTE);
+                break;
+            case TRACES:
+                serverProperties = PropertiesProcessing.loadPropertiesFromFile(serverPropertiesFile);
+                try {
+                    Tracer.printSlowest(serverProperties, args.length > 2 ? Integer.parseInt(args[2])
+                            : DEFAULT_SLOWEST_TRACES);
+                } catch (NumberFormatException e) {
+                    LOGGER.error("Wrong number of requests entered : ".concat(args[2]));
+                }
+                break;
+            case STATS:
+                serverProperties = PropertiesProcessing.loadPropertiesFromFile(serverPropertiesFile);
+                try {
+                    streamServerStats(serverProperties, args.length > 2 ? Integer.parseInt(args[2])
+                            : DEFAULT_STATS_INTERVAL);
+                } catch (NumberFormatException e) {
+                    LOGGER.error("Wrong number of seconds entered : ".concat(args[2]));
+                }
+                break;
+            case SLOW_CONSUMERS:
+                serverProperties = PropertiesProcessing.loadPropertiesFromFile(serverPropertiesFile);
+                try {
+                    sendControlMessage(serverProperties, MessageStatus.SLOW_CONSUMERS, String.valueOf(
+                            args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SLOW_CONSUMERS));
+                } catch (NumberFormatException e) {
+                    LOGGER.error("Wrong number of connections entered : ".concat(args[2]));
+                }
+                break;
             case CREATE_DEFAULT_SERVER:
                 try {
                     createDefaultRootStructure(new File(args[1]));
@@ -181,12 +239,88 @@ public class ServerProcessing {
         }
     }
 
+    /**
+     *  The method {@code sendControlMessage} sends the request of the specified status (e.g. to re-read
+     * the configurations file or to promote the standby) to the running server and prints the server response
+     * */
+    private static void sendControlMessage(@NotNull Properties serverConfig, @NotNull MessageStatus status) {
+        sendControlMessage(serverConfig, status, null);
+    }
+
+    private static void sendControlMessage(@NotNull Properties serverConfig, @NotNull MessageStatus status
+            , String text) {
+        try (Socket socket = new Socket("localhost", Integer.parseInt(serverConfig.getProperty("port")));
+             DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+             DataInputStream in = new DataInputStream(socket.getInputStream())) {
+            socket.setSoTimeout(10000);
+            Message message = new Message(status)
+                    .setLogin(serverConfig.getProperty("serverLogin"))
+                    .setPassword(serverConfig.getProperty("serverPassword"))
+                    .setText(text);
+            JAXBContext jaxbContext = JAXBContext.newInstance(Message.class);
+            StringWriter stringWriter = new StringWriter();
+            Marshaller marshaller = jaxbContext.createMarshaller();
+            marshaller.marshal(message, stringWriter);
+            out.writeUTF(stringWriter.toString());
+            out.flush();
+            LOGGER.info(buildMessage("Server response:\n", in.readUTF()));
+        } catch (SocketTimeoutException e) {
+            LOGGER.error("Server does not response");
+        } catch (JAXBException | IOException e) {
+            LOGGER.error(buildMessage(e.getClass().getName(), "occurred:", e.getLocalizedMessage()));
+        }
+    }
+
+    /**
+     *  The method {@code streamServerStats} requests the load statistics of the running server every
+     * {@code interval} seconds over the same connection and prints them until the server closes the connection
+     * or denies the request
+     * */
+    private static void streamServerStats(@NotNull Properties serverConfig, int interval) {
+        interval = Math.max(1, Math.min(interval, ServerStats.MAX_INTERVAL));
+        try (Socket socket = new Socket("localhost", Integer.parseInt(serverConfig.getProperty("port")));
+             DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+             DataInputStream in = new DataInputStream(socket.getInputStream())) {
+            socket.setSoTimeout(10000);
+            JAXBContext jaxbContext = JAXBContext.newInstance(Message.class);
+            Marshaller marshaller = jaxbContext.createMarshaller();
+            Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+            Message request = new Message(MessageStatus.SERVER_STATS)
+                    .setLogin(serverConfig.getProperty("serverLogin"))
+                    .setPassword(serverConfig.getProperty("serverPassword"))
+                    .setText(String.valueOf(interval));
+            while (true) {
+                StringWriter stringWriter = new StringWriter();
+                marshaller.marshal(request, stringWriter);
+                out.writeUTF(stringWriter.toString());
+                out.flush();
+                Message response = (Message) unmarshaller.unmarshal(new StringReader(in.readUTF()));
+                LOGGER.info(buildMessage(response.getStatus(), '\n', response.getText()));
+                if (!MessageStatus.ACCEPTED.equals(response.getStatus())) {
+                    return;
+                }
+                Thread.sleep(interval * 1000L);
+            }
+        } catch (SocketTimeoutException e) {
+            LOGGER.error("Server does not response");
+        } catch (InterruptedException e) {
+            LOGGER.info("Statistics streaming has been interrupted");
+        } catch (JAXBException | IOException e) {
+            LOGGER.error(buildMessage(e.getClass().getName(), "occurred:", e.getLocalizedMessage()));
+        }
+    }
+
     private static void printCommands() {
         if(LOGGER.isEnabledFor(Level.INFO)) {
             LOGGER.info("                                    <---Available commands--->");
             LOGGER.info("-cds path/to/server/root/folder                 - to create a default server root structure in the specified folder");
             LOGGER.info("-start path/to/serverConfig.xml                 - to start the server denoted by the configurations");
             LOGGER.info("-restart path/to/serverConfig.xml               - to restart the server denoted by the configurations");
+            LOGGER.info("-reload path/to/serverConfig.xml                - to reload the configurations without restarting the server");
+            LOGGER.info("-promote path/to/serverConfig.xml               - to promote the standby server denoted by the configurations to the primary");
+            LOGGER.info("-traces path/to/serverConfig.xml [N]            - to print the N slowest traced requests of the server denoted by the configurations");
+            LOGGER.info("-stats path/to/serverConfig.xml [seconds]       - to print the load statistics of the server denoted by the configurations every few seconds");
+            LOGGER.info("-slow path/to/serverConfig.xml [N]              - to print the N slowest connections of the server denoted by the configurations");
             LOGGER.info("-stop path/to/serverConfig.xml                  - to stop the server denoted by the configurations");
             LOGGER.info("-ban path/to/serverConfig.xml <login> <hours>   - to ban the client on the server denoted by the configurations");
             LOGGER.info("-unban path/to/serverConfig.xml <login>         - to unban the client on the server denoted by the configurations");
@@ -210,6 +344,16 @@ public class ServerProcessing {
                     return InvocationMode.STOP;
                 case "-restart":
                     return InvocationMode.RESTART;
+                case "-reload":
+                    return InvocationMode.RELOAD;
+                case "-promote":
+                    return InvocationMode.PROMOTE;
+                case "-traces":
+                    return InvocationMode.TRACES;
+                case "-stats":
+                    return InvocationMode.STATS;
+                case "-slow":
+                    return InvocationMode.SLOW_CONSUMERS;
                 case "-cds" :
                     return InvocationMode.CREATE_DEFAULT_SERVER;
                 case "-ban":
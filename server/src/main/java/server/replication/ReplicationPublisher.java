@@ -0,0 +1,302 @@
+package server.replication;
+
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import server.Server;
+import server.processing.PropertiesProcessing;
+import server.security.PeerAuthentication;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The {@code ReplicationPublisher} ships the persistence stream of the server (every saved room and client file)
+ * to the warm standbys connected to the {@code replicationPort}. If the port is not set the publisher is disabled.
+ *
+ *  The saved files are collected for {@code replicationBatchInterval} (milliseconds) and shipped as a single batch,
+ * the repeated savings of the same file within a batch are coalesced into the latest one. A batch is sent at least
+ * every {@code HEARTBEAT_INTERVAL} even if nothing has been saved, so the standby is able to measure its lag.
+ *
+ *  The port is bound to the {@code replicationBindAddress} (the loopback by default). A connected standby has to be
+ * one of the {@code replicationStandbys} hosts (if any are listed) and to prove it knows the {@code replicationSecret}
+ * (see {@code PeerAuthentication}) before anything is sent to it, the publisher is not started without the secret.
+ * A newly authenticated standby receives the snapshot of all the files first.
+ *
+ *  The batch format is: the latest sequence number, the sending time, the amount of records and the records
+ * (see {@code ReplicationRecord.writeTo}).
+ * */
+public class ReplicationPublisher extends Thread {
+    private static final long DEFAULT_BATCH_INTERVAL = 100;
+    private static final long HEARTBEAT_INTERVAL = 1000;
+    private static final int SNAPSHOT_BATCH_SIZE = 500;
+    static final String LINK_KIND = "replication";
+    private static volatile Logger LOGGER = Logger.getLogger("Server");
+    private final Server server;
+    private final int port;
+    private final String bindAddress;
+    private final String secret;
+    private final String allowedStandbys;
+    private volatile Set<InetAddress> allowedAddresses;
+    private final Map<String, ReplicationRecord> pendingRecords = new LinkedHashMap<>();
+    private final Queue<Socket> acceptedStandbys = new ConcurrentLinkedQueue<>();
+    private final List<Standby> standbys = new ArrayList<>();
+    private volatile ServerSocket serverSocket;
+    private long sequence;
+    private long lastBatchSentAt;
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    public ReplicationPublisher(@NotNull Server server, @NotNull Properties config) {
+        super("ReplicationPublisher");
+        setDaemon(true);
+        this.server = server;
+        port = config.getProperty("replicationPort", "").trim().isEmpty()
+                ? 0 : (int) PropertiesProcessing.getLongProperty(config, "replicationPort", 0);
+        bindAddress = config.getProperty("replicationBindAddress", "127.0.0.1").trim();
+        secret = config.getProperty("replicationSecret", "");
+        allowedStandbys = config.getProperty("replicationStandbys", "");
+    }
+
+    public boolean isEnabled() {
+        return port > 0;
+    }
+
+    /**
+     * @return          the amount of the saved files waiting to be shipped to the standbys
+     * */
+    public int getPendingRecordsCount() {
+        synchronized (pendingRecords) {
+            return pendingRecords.size();
+        }
+    }
+
+    /**
+     *  Adds the saved file to the next batch
+     *
+     * @param           kind the kind of the saved file
+     * @param           path the path of the file relative to the {@code roomsDir} or {@code clientsDir}
+     * @param           content the saved content
+     * */
+    public void fileSaved(@NotNull ReplicationRecord.Kind kind, @NotNull String path, @NotNull byte [] content) {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (pendingRecords) {
+            ReplicationRecord record = new ReplicationRecord(++sequence, System.currentTimeMillis(), kind, path
+                    , content);
+            pendingRecords.remove(record.getKey());
+            pendingRecords.put(record.getKey(), record);
+        }
+    }
+
+    /**
+     *  Adds the removal of the file to the next batch. The removal is shipped as a record without content
+     *
+     * @param           kind the kind of the removed file
+     * @param           path the path of the file relative to the {@code roomsDir} or {@code clientsDir}
+     * */
+    public void fileDeleted(@NotNull ReplicationRecord.Kind kind, @NotNull String path) {
+        fileSaved(kind, path, new byte[0]);
+    }
+
+    @Override
+    public void run() {
+        if (!isEnabled()) {
+            return;
+        }
+        if (secret.isEmpty()) {
+            LOGGER.fatal("The replication has not been started: the replicationSecret is not set");
+            return;
+        }
+        try {
+            allowedAddresses = PeerAuthentication.resolve(allowedStandbys);
+            serverSocket = new ServerSocket(port, 0, InetAddress.getByName(bindAddress));
+        } catch (IOException e) {
+            LOGGER.fatal(buildMessage("Unable to start the replication on the port", port, ':'
+                    , e.getLocalizedMessage()));
+            return;
+        }
+        Thread acceptor = new Thread(this::acceptStandbys, "ReplicationAcceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        LOGGER.info(buildMessage("The replication is listening on", bindAddress, "port", port));
+        while (!isInterrupted()) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(PropertiesProcessing.getLongProperty(server.getConfig()
+                        , "replicationBatchInterval", DEFAULT_BATCH_INTERVAL));
+            } catch (InterruptedException e) {
+                break;
+            }
+            ship();
+        }
+        closeStandbys();
+    }
+
+    private void acceptStandbys() {
+        while (!isInterrupted()) {
+            try {
+                Socket socket = serverSocket.accept();
+                if (!allowedAddresses.isEmpty() && !allowedAddresses.contains(socket.getInetAddress())) {
+                    LOGGER.warn(buildMessage("The connection from", socket.getRemoteSocketAddress()
+                            , "has been refused: it is not one of the replicationStandbys"));
+                    close(socket);
+                    continue;
+                }
+                try {
+                    PeerAuthentication.challenge(socket, LINK_KIND, secret);
+                } catch (IOException e) {
+                    LOGGER.warn(buildMessage("The connection from", socket.getRemoteSocketAddress()
+                            , "has been refused:", e.getLocalizedMessage()));
+                    close(socket);
+                    continue;
+                }
+                LOGGER.info(buildMessage("The standby", socket.getRemoteSocketAddress(), "has connected"));
+                acceptedStandbys.add(socket);
+            } catch (IOException e) {
+                if (!isInterrupted()) {
+                    LOGGER.error(buildMessage("The replication acceptor has failed:", e.getLocalizedMessage()));
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     *  Sends the snapshot to the new standbys and the pending records to all the standbys
+     * */
+    private void ship() {
+        Socket socket;
+        while ((socket = acceptedStandbys.poll()) != null) {
+            try {
+                Standby standby = new Standby(socket);
+                sendSnapshot(standby);
+                standbys.add(standby);
+            } catch (IOException e) {
+                LOGGER.warn(buildMessage("Unable to send the snapshot to the standby", socket.getRemoteSocketAddress()
+                        , ':', e.getLocalizedMessage()));
+                close(socket);
+            }
+        }
+        List<ReplicationRecord> batch;
+        long latestSequence;
+        synchronized (pendingRecords) {
+            batch = new ArrayList<>(pendingRecords.values());
+            pendingRecords.clear();
+            latestSequence = sequence;
+        }
+        long now = System.currentTimeMillis();
+        if (batch.isEmpty() && now - lastBatchSentAt < HEARTBEAT_INTERVAL) {
+            return;
+        }
+        lastBatchSentAt = now;
+        Iterator<Standby> iterator = standbys.iterator();
+        while (iterator.hasNext()) {
+            Standby standby = iterator.next();
+            try {
+                standby.send(latestSequence, batch);
+            } catch (IOException e) {
+                LOGGER.warn(buildMessage("The standby", standby.socket.getRemoteSocketAddress()
+                        , "has disconnected:", e.getLocalizedMessage()));
+                close(standby.socket);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void sendSnapshot(Standby standby) throws IOException {
+        long snapshotSequence;
+        synchronized (pendingRecords) {
+            snapshotSequence = sequence;
+        }
+        List<ReplicationRecord> batch = new ArrayList<>();
+        int total = 0;
+        for (ReplicationRecord.Kind kind : ReplicationRecord.Kind.values()) {
+            File [] folders = getDataDir(server.getConfig(), kind).listFiles(File::isDirectory);
+            if (folders == null) {
+                continue;
+            }
+            for (File folder : folders) {
+                File file = new File(folder, folder.getName().concat(".xml"));
+                if (!file.isFile()) {
+                    continue;
+                }
+                batch.add(new ReplicationRecord(snapshotSequence, System.currentTimeMillis(), kind
+                        , folder.getName().concat("/").concat(file.getName()), Files.readAllBytes(file.toPath())));
+                if (batch.size() == SNAPSHOT_BATCH_SIZE) {
+                    standby.send(snapshotSequence, batch);
+                    total += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        standby.send(snapshotSequence, batch);
+        total += batch.size();
+        LOGGER.info(buildMessage("The snapshot of", total, "files has been sent to the standby"
+                , standby.socket.getRemoteSocketAddress()));
+    }
+
+    static File getDataDir(Properties config, ReplicationRecord.Kind kind) {
+        return new File(config.getProperty(kind == ReplicationRecord.Kind.ROOM ? "roomsDir" : "clientsDir"));
+    }
+
+    private void closeStandbys() {
+        for (Standby standby : standbys) {
+            close(standby.socket);
+        }
+        standbys.clear();
+        Socket socket;
+        while ((socket = acceptedStandbys.poll()) != null) {
+            close(socket);
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.error(e.getLocalizedMessage());
+        }
+    }
+
+    @Override
+    public void interrupt() {
+        super.interrupt();
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                LOGGER.error(e.getLocalizedMessage());
+            }
+        }
+    }
+
+    private static final class Standby {
+        private final Socket socket;
+        private final DataOutputStream out;
+
+        private Standby(Socket socket) throws IOException {
+            this.socket = socket;
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private void send(long latestSequence, List<ReplicationRecord> batch) throws IOException {
+            out.writeLong(latestSequence);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(batch.size());
+            for (ReplicationRecord record : batch) {
+                record.writeTo(out);
+            }
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package server.replication;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ *  A record of the persistence stream: the new content of a room or client file. The {@code path} is relative
+ * to the {@code roomsDir} or {@code clientsDir} depending on the {@code kind}. A record without content
+ * means the file (and its folder) has been removed.
+ * */
+public final class ReplicationRecord {
+    private final long sequence;
+    private final long timestamp;
+    private final Kind kind;
+    private final String path;
+    private final byte [] content;
+
+    public enum Kind {
+        ROOM,
+        CLIENT
+    }
+
+    ReplicationRecord(long sequence, long timestamp, @NotNull Kind kind, @NotNull String path
+            , @NotNull byte [] content) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.kind = kind;
+        this.path = path;
+        this.content = content;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    byte [] getContent() {
+        return content;
+    }
+
+    boolean isRemoval() {
+        return content.length == 0;
+    }
+
+    /**
+     * @return          the key the records of the same file are coalesced by
+     * */
+    String getKey() {
+        return kind.name().concat(":").concat(path);
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(sequence);
+        out.writeLong(timestamp);
+        out.writeByte(kind.ordinal());
+        out.writeUTF(path);
+        out.writeInt(content.length);
+        out.write(content);
+    }
+
+    static ReplicationRecord readFrom(DataInputStream in) throws IOException {
+        long sequence = in.readLong();
+        long timestamp = in.readLong();
+        int kind = in.readByte();
+        if (kind < 0 || kind >= Kind.values().length) {
+            throw new IOException("Unknown record kind: ".concat(String.valueOf(kind)));
+        }
+        String path = in.readUTF();
+        byte [] content = new byte[in.readInt()];
+        in.readFully(content);
+        return new ReplicationRecord(sequence, timestamp, Kind.values()[kind], path, content);
+    }
+}
@@ -0,0 +1,194 @@
+package server.replication;
+
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import server.Server;
+import server.logging.LazyLog;
+import server.security.PeerAuthentication;
+import server.room.Room;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static common.Utils.buildMessage;
+import static common.Utils.writeAtomically;
+
+/**
+ *  The {@code ReplicationStandby} receives the persistence stream of the primary server
+ * (see {@code ReplicationPublisher}) and applies it to the own {@code roomsDir} and {@code clientsDir}.
+ * The received rooms are kept unmarshalled, so the promotion of the standby does not have to read them from the disk.
+ * The standby authenticates itself by the {@code replicationSecret} shared with the primary.
+ *
+ *  The replication lag is the time passed since the last applied batch has been sent by the primary
+ * (it is bounded by the heartbeat interval of the primary while the standby keeps up) and the amount of the records
+ * the primary has issued but the standby has not applied yet.
+ * */
+public class ReplicationStandby extends Thread {
+    private static final long RECONNECT_INTERVAL = 1000;
+    private static final long LAG_LOG_INTERVAL = 30000;
+    private static volatile Logger LOGGER = Logger.getLogger("Server");
+    private final Server server;
+    private final InetSocketAddress primaryAddress;
+    private final Map<Integer, Room> warmRooms = new ConcurrentHashMap<>();
+    private volatile Socket socket;
+    private volatile long appliedSequence;
+    private volatile long primarySequence;
+    private volatile long lastBatchSentAt;
+    private long lastLagLoggedAt;
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    /**
+     * @param           server the standby server
+     * @param           primaryAddress the address of the {@code replicationPort} of the primary server
+     * */
+    public ReplicationStandby(@NotNull Server server, @NotNull InetSocketAddress primaryAddress) {
+        super("ReplicationStandby");
+        setDaemon(true);
+        this.server = server;
+        this.primaryAddress = primaryAddress;
+    }
+
+    /**
+     * @return          the milliseconds passed since the last applied batch has been sent by the primary
+     *                  or {@code -1} if nothing has been received yet
+     * */
+    public long getLagMillis() {
+        return lastBatchSentAt == 0 ? -1 : Math.max(0, System.currentTimeMillis() - lastBatchSentAt);
+    }
+
+    /**
+     * @return          the amount of the records the primary has issued but the standby has not applied yet
+     * */
+    public long getLagRecords() {
+        return Math.max(0, primarySequence - appliedSequence);
+    }
+
+    /**
+     * @return          the rooms received from the primary by their ids
+     * */
+    public Map<Integer, Room> getWarmRooms() {
+        return new HashMap<>(warmRooms);
+    }
+
+    @Override
+    public void run() {
+        String secret = server.getConfig().getProperty("replicationSecret", "");
+        if (secret.isEmpty()) {
+            LOGGER.fatal("The replication has not been started: the replicationSecret is not set");
+            return;
+        }
+        while (!isInterrupted()) {
+            try (Socket socket = new Socket(primaryAddress.getAddress(), primaryAddress.getPort())) {
+                this.socket = socket;
+                PeerAuthentication.answer(socket, ReplicationPublisher.LINK_KIND, secret);
+                LOGGER.info(buildMessage("The standby has connected to the primary", primaryAddress));
+                receive(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+            } catch (IOException e) {
+                if (!isInterrupted()) {
+                    LOGGER.warn(buildMessage("The replication from", primaryAddress, "has been broken:"
+                            , e.getLocalizedMessage()));
+                }
+            } finally {
+                socket = null;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(RECONNECT_INTERVAL);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        LOGGER.info(buildMessage("The replication has been stopped. Applied records:", appliedSequence
+                , "lag (records):", getLagRecords()));
+    }
+
+    private void receive(DataInputStream in) throws IOException {
+        while (!isInterrupted()) {
+            long latestSequence = in.readLong();
+            long sentAt = in.readLong();
+            int count = in.readInt();
+            primarySequence = latestSequence;
+            for (int i = 0; i < count; i++) {
+                apply(ReplicationRecord.readFrom(in));
+            }
+            appliedSequence = latestSequence;
+            lastBatchSentAt = sentAt;
+            if (System.currentTimeMillis() - lastLagLoggedAt >= LAG_LOG_INTERVAL) {
+                lastLagLoggedAt = System.currentTimeMillis();
+                LOGGER.info(buildMessage("Replication lag:", getLagMillis(), "ms, applied records:"
+                        , appliedSequence));
+            }
+        }
+    }
+
+    private void apply(ReplicationRecord record) throws IOException {
+        File dataDir = ReplicationPublisher.getDataDir(server.getConfig(), record.getKind());
+        File file = new File(dataDir, record.getPath());
+        if (!file.getCanonicalPath().startsWith(dataDir.getCanonicalPath().concat(File.separator))) {
+            LOGGER.warn(buildMessage("The replication record", record.getPath(), "has been skipped:"
+                    , "it is out of the data folder"));
+            return;
+        }
+        if (record.isRemoval()) {
+            remove(file);
+            if (record.getKind() == ReplicationRecord.Kind.ROOM) {
+                try {
+                    warmRooms.remove(Integer.parseInt(file.getParentFile().getName()));
+                } catch (NumberFormatException e) {
+                    LOGGER.warn(buildMessage("Unexpected room folder name:", file.getParentFile().getName()));
+                }
+            }
+            return;
+        }
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            throw new IOException(buildMessage("Unable to create a folder", file.getParentFile().getAbsolutePath()));
+        }
+        writeAtomically(file, record.getContent());
+        if (record.getKind() == ReplicationRecord.Kind.ROOM) {
+            try {
+                Unmarshaller unmarshaller = JAXBContext.newInstance(Room.class).createUnmarshaller();
+                Room room = (Room) unmarshaller.unmarshal(new ByteArrayInputStream(record.getContent()));
+                room.setServer(server);
+                warmRooms.put(room.getRoomId(), room);
+            } catch (JAXBException e) {
+                LOGGER.error(buildMessage("Unable to read the replicated room", record.getPath(), ':'
+                        , e.getLocalizedMessage()));
+            }
+        }
+        LazyLog.trace(LOGGER, "The replication record", record.getSequence(), record.getPath()
+                , "has been applied");
+    }
+
+    private static void remove(File file) {
+        if (file.isFile() && !file.delete()) {
+            LOGGER.warn(buildMessage(file.getAbsolutePath(), "has not been deleted"));
+        }
+        File [] rest = file.getParentFile().listFiles();
+        if (rest != null && rest.length == 0 && !file.getParentFile().delete()) {
+            LOGGER.warn(buildMessage(file.getParentFile().getAbsolutePath(), "has not been deleted"));
+        }
+    }
+
+    @Override
+    public void interrupt() {
+        super.interrupt();
+        Socket socket = this.socket;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOGGER.error(e.getLocalizedMessage());
+            }
+        }
+    }
+}
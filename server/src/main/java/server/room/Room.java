@@ -10,8 +10,13 @@ import javafx.collections.SetChangeListener;
 import org.apache.log4j.Logger;
 import server.Server;
 import server.client.ClientListener;
+import server.metrics.LockSite;
 import server.processing.ServerProcessing;
+import server.replication.ReplicationRecord;
 import server.room.history.MessageHistory;
+import server.tracing.FlightEvents;
+import server.tracing.Span;
+import server.tracing.Tracer;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -19,9 +24,13 @@ import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.*;
 import javax.xml.bind.annotation.adapters.XmlAdapter;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static common.Utils.writeAtomically;
 
 @SuppressWarnings("CanBeFinal")
 @XmlRootElement
@@ -35,6 +44,12 @@ public class Room implements Saveable {
     private volatile Shell<Set<Integer>> members;
     @XmlTransient
     private volatile Server server;
+    @XmlTransient
+    private final Set<Integer> onlineMembers = ConcurrentHashMap.newKeySet();
+    @XmlTransient
+    private volatile long evictionDeadline;
+    @XmlTransient
+    private volatile boolean dirty;
 
     private static volatile Logger LOGGER = Logger.getLogger("Room");
 
@@ -46,7 +61,7 @@ public class Room implements Saveable {
         ObservableSet<Integer> oMembers = FXCollections.synchronizedObservableSet(
                 FXCollections.observableSet(new TreeSet<>()));
         initMembersListener(oMembers);
-        messageHistory = new MessageHistory(ServerProcessing.MESSAGE_HISTORY_DIMENSION);
+        messageHistory = new MessageHistory(ServerProcessing.getMessageHistoryDimension());
         messageHistory.setMessageListener(message -> {
             synchronized (server.getOnlineClients().safe()) {
                 for (int clientId : members.safe()) {
@@ -73,13 +88,13 @@ public class Room implements Saveable {
             } else {
                 return;
             }
-            synchronized (server.getOnlineClients().safe()) {
+            server.getMetrics().getLockMetrics(LockSite.FANOUT).run(server.getOnlineClients().safe(), () -> {
                 for (Map.Entry<Integer, ClientListener> clientWrapper : server.getOnlineClients().safe().entrySet()) {
                     if (clientWrapper.getValue().getClient().getClientId() != clientId) {
                         clientWrapper.getValue().sendMessageToConnectedClient(notificationMessage);
                     }
                 }
-            }
+            });
         });
     }
 
@@ -89,6 +104,7 @@ public class Room implements Saveable {
 
     public void setRoomId(int roomId) {
         this.roomId = roomId;
+        dirty = true;
     }
 
     public int getRoomId() {
@@ -97,6 +113,7 @@ public class Room implements Saveable {
 
     public void setAdminId(int adminId) {
         this.adminId = adminId;
+        dirty = true;
     }
 
     public MessageHistory getMessageHistory() {
@@ -133,6 +150,53 @@ public class Room implements Saveable {
         return server;
     }
 
+    /**
+     *  The method {@code memberCameOnline} registers the member {@code clientId} as currently online one.
+     * It is idempotent i.e. the repeated calls for the same {@code clientId} are counted as one.
+     *
+     * @param           clientId an id of the room member who has logged in
+     * */
+    public void memberCameOnline(int clientId) {
+        onlineMembers.add(clientId);
+    }
+
+    /**
+     *  The method {@code memberWentOffline} removes the member {@code clientId} from the online ones
+     *
+     * @param           clientId an id of the room member who has logged out
+     *
+     * @return          {@code true} if and only if this call has removed the last online member of the room
+     * */
+    public boolean memberWentOffline(int clientId) {
+        return onlineMembers.remove(clientId) && onlineMembers.isEmpty();
+    }
+
+    public int getOnlineMembersCount() {
+        return onlineMembers.size();
+    }
+
+    /**
+     *  Marks the room as modified since the last saving i.e. after its members or message history have been changed
+     * */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * @return          {@code true} if the room has been modified since the last successful saving
+     * */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public long getEvictionDeadline() {
+        return evictionDeadline;
+    }
+
+    public void setEvictionDeadline(long evictionDeadline) {
+        this.evictionDeadline = evictionDeadline;
+    }
+
     public void setServer(Server server) {
         this.server = server;
     }
@@ -160,6 +224,8 @@ public class Room implements Saveable {
     @SuppressWarnings({"WeakerAccess", "unused"})
     @XmlAccessorType(XmlAccessType.FIELD)
     private static class MessageHistoryObservableListWrapper {
+        @XmlAttribute
+        private long lastSequence;
         @XmlElement(name="message")
         private LinkedList<Message> messages;
         public MessageHistoryObservableListWrapper(List<Message> list) {
@@ -179,15 +245,23 @@ public class Room implements Saveable {
     private static class MessageHistoryAdapter
             extends XmlAdapter<MessageHistoryObservableListWrapper, MessageHistory> {
         public MessageHistory unmarshal(MessageHistoryObservableListWrapper messages) {
-            MessageHistory messageHistory = new MessageHistory(ServerProcessing.MESSAGE_HISTORY_DIMENSION);
+            MessageHistory messageHistory = new MessageHistory(ServerProcessing.getMessageHistoryDimension());
+            messageHistory.setLastSequence(messages.lastSequence);
             for (Message message : messages.messages) {
+                // the messages saved before the sequence numbers were introduced
+                if (message.getSequence() == null) {
+                    message.setSequence(messageHistory.getLastSequence() + 1);
+                }
                 messageHistory.addMessage(message, false);
             }
             return messageHistory;
         }
         public MessageHistoryObservableListWrapper marshal(MessageHistory messageHistory) {
             MessageHistoryObservableListWrapper m = new MessageHistoryObservableListWrapper();
-            m.messages.addAll(messageHistory.getMessageHistory());
+            synchronized (messageHistory) {
+                m.lastSequence = messageHistory.getLastSequence();
+                m.messages.addAll(messageHistory.getMessageHistory());
+            }
             return m;
         }
     }
@@ -212,13 +286,25 @@ public class Room implements Saveable {
             LOGGER.error(e.getLocalizedMessage());
             return false;
         }
+        long start = System.nanoTime();
+        Object event = FlightEvents.beginPersistence();
         try {
+            dirty = false;
             JAXBContext jaxbContext = JAXBContext.newInstance(Room.class);
             Marshaller marshaller = jaxbContext.createMarshaller();
             marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-            marshaller.marshal(this, roomFile);
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            marshaller.marshal(this, content);
+            byte [] bytes = content.toByteArray();
+            writeAtomically(roomFile, bytes);
+            server.getReplicationPublisher().fileSaved(ReplicationRecord.Kind.ROOM
+                    , roomDir.getName().concat("/").concat(roomFile.getName()), bytes);
+            server.getMetrics().getRoomSaveDuration().recordSince(start);
+            Tracer.record(Span.PERSISTENCE, start);
+            FlightEvents.commitPersistence(event, "room", roomId, bytes.length);
             return true;
-        } catch (JAXBException e) {
+        } catch (JAXBException | IOException e) {
+            dirty = true;
             LOGGER.error(e.getLocalizedMessage());
             return false;
         }
@@ -3,18 +3,38 @@ package server.room.history;
 import common.entities.message.Message;
 import org.apache.commons.collections4.queue.CircularFifoQueue;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 
 @SuppressWarnings("CanBeFinal")
 public class MessageHistory {
-    private CircularFifoQueue<Message> messageHistory;
+    private volatile CircularFifoQueue<Message> messageHistory;
     private MessageListener messageListener;
+    private long lastSequence;
 
     public MessageHistory(int dimension) {
         messageHistory = new CircularFifoQueue<>(dimension);
     }
 
+    /**
+     *  Adds a new message sent to the room. The message gets the next sequence number of the room, whatever
+     * the sender has set, so the clients may synchronize the history by the sequence numbers
+     * (see {@code getMessagesAfter}). It is called by the server owning the room only.
+     * */
+    public synchronized void addNewMessage(Message message) {
+        message.setSequence(++lastSequence);
+        addMessage(message, true);
+    }
+
+    /**
+     *  Adds a message that has already got its sequence number e.g. the one read from the room file
+     * or received from the node owning the room
+     * */
     public synchronized void addMessage(Message message, boolean notifyClients) {
+        if (message.getSequence() != null && message.getSequence() > lastSequence) {
+            lastSequence = message.getSequence();
+        }
         messageHistory.add(message);
         if (notifyClients) {
             if (messageListener == null) {
@@ -24,6 +44,47 @@ public class MessageHistory {
         }
     }
 
+    /**
+     *  Changes the maximum amount of the messages kept in the history. If the history is shrunk
+     * only the latest messages are kept.
+     *
+     * @param           dimension a new capacity of the history
+     * */
+    public synchronized void setDimension(int dimension) {
+        if (dimension == messageHistory.maxSize()) {
+            return;
+        }
+        CircularFifoQueue<Message> resized = new CircularFifoQueue<>(dimension);
+        resized.addAll(messageHistory);
+        messageHistory = resized;
+    }
+
+    /**
+     * @return          the sequence number of the latest message of the room, {@code 0} if there have been none
+     * */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public synchronized void setLastSequence(long lastSequence) {
+        this.lastSequence = Math.max(this.lastSequence, lastSequence);
+    }
+
+    /**
+     * @param           sequence the sequence number of the latest message the caller has, {@code 0} - none
+     *
+     * @return          the kept messages of the history newer than the {@code sequence}, the oldest one goes first
+     * */
+    public synchronized List<Message> getMessagesAfter(long sequence) {
+        List<Message> messages = new ArrayList<>();
+        for (Message message : messageHistory) {
+            if (message.getSequence() == null ? sequence == 0 : message.getSequence() > sequence) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
     public void setMessageListener(MessageListener messageListener) {
         this.messageListener = messageListener;
     }
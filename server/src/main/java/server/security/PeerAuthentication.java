@@ -0,0 +1,114 @@
+package server.security;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Set;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The {@code PeerAuthentication} proves that both ends of an inter-server link (the cluster links
+ * and the replication stream) know the same shared secret. The accepting side sends a random challenge, the
+ * connecting side answers with the HMAC-SHA256 of the link kind and the challenge keyed by the secret. The secret
+ * itself is never sent and an answer can not be replayed on another connection or another kind of link.
+ *
+ *  Nothing but the challenge is to be sent to a peer before {@code challenge} has returned.
+ * */
+public class PeerAuthentication {
+    private static final int CHALLENGE_LENGTH = 32;
+    private static final int HANDSHAKE_TIMEOUT = 5000;
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     *  Authenticates the peer that has connected to the current server
+     *
+     * @param           socket the accepted connection, no other data is to be read from or written to it yet
+     * @param           kind the kind of the link e.g. {@code "cluster"}
+     * @param           secret the shared secret
+     *
+     * @throws          IOException if the peer has not proved it knows the secret in {@code HANDSHAKE_TIMEOUT}
+     * */
+    public static void challenge(@NotNull Socket socket, @NotNull String kind, @NotNull String secret)
+            throws IOException {
+        byte [] challenge = new byte[CHALLENGE_LENGTH];
+        RANDOM.nextBytes(challenge);
+        int timeout = socket.getSoTimeout();
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT);
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.write(challenge);
+        out.flush();
+        byte [] answer = new byte[CHALLENGE_LENGTH];
+        new DataInputStream(socket.getInputStream()).readFully(answer);
+        if (!MessageDigest.isEqual(answer, sign(kind, secret, challenge))) {
+            throw new IOException(buildMessage("The peer", socket.getRemoteSocketAddress()
+                    , "has not been authenticated"));
+        }
+        socket.setSoTimeout(timeout);
+    }
+
+    /**
+     *  Answers the challenge of the server the current one has connected to
+     *
+     * @param           socket the connection, no other data is to be read from or written to it yet
+     * @param           kind the kind of the link e.g. {@code "cluster"}
+     * @param           secret the shared secret
+     * */
+    public static void answer(@NotNull Socket socket, @NotNull String kind, @NotNull String secret)
+            throws IOException {
+        byte [] challenge = new byte[CHALLENGE_LENGTH];
+        new DataInputStream(socket.getInputStream()).readFully(challenge);
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.write(sign(kind, secret, challenge));
+        out.flush();
+    }
+
+    private static byte [] sign(String kind, String secret, byte [] challenge) throws IOException {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            mac.update(kind.getBytes(StandardCharsets.UTF_8));
+            return mac.doFinal(challenge);
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @param           hosts comma separated host names or addresses, the ports (if any) are ignored
+     *
+     * @return          all the addresses of the hosts
+     *
+     * @throws          UnknownHostException if a host can not be resolved
+     * */
+    public static Set<InetAddress> resolve(@NotNull String hosts) throws UnknownHostException {
+        Set<InetAddress> addresses = new HashSet<>();
+        for (String host : hosts.split(",")) {
+            host = host.trim();
+            if (host.isEmpty()) {
+                continue;
+            }
+            int separator = host.lastIndexOf(':');
+            if (separator > 0 && host.indexOf(':') == separator) {
+                host = host.substring(0, separator);
+            }
+            for (InetAddress address : InetAddress.getAllByName(host)) {
+                addresses.add(address);
+            }
+        }
+        return addresses;
+    }
+}
@@ -0,0 +1,162 @@
+package server.tracing;
+
+import common.entities.message.MessageStatus;
+
+/**
+ *  The class {@code FlightEvents} emits the server domain operations (request dispatch, persistence, room loading
+ * and fanout) as Java Flight Recorder events, so they can be correlated with the GC pauses and the lock stalls
+ * in the same recording. An operation is wrapped the following way:
+ *
+ *      Object event = FlightEvents.beginFanout();
+ *      ...
+ *      FlightEvents.commitFanout(event, roomId, recipients);
+ *
+ *  The events themselves ({@code jdk.jfr.Event} subclasses) are compiled by the {@code jfr} build profile only,
+ * which is activated by JDK 11 or newer. If they are missing or the runtime does not support the flight recorder
+ * every call is a no-op returning {@code null}. If the recorder is available but an event type is disabled
+ * in the recording settings, {@code begin} returns {@code null} as well and nothing is allocated.
+ * */
+public final class FlightEvents {
+    private static final String JFR_RECORDER_CLASS = "server.tracing.jfr.JfrRecorder";
+    private static final Recorder RECORDER = loadRecorder();
+
+    private FlightEvents() {
+    }
+
+    /**
+     * @return          {@code true} if the flight recorder events have been compiled and are supported by the runtime
+     * */
+    public static boolean isAvailable() {
+        return !(RECORDER instanceof NoopRecorder);
+    }
+
+    public static Object beginDispatch() {
+        return RECORDER.beginDispatch();
+    }
+
+    /**
+     * @param           event an event returned by {@code beginDispatch}
+     * @param           status a status of the handled request
+     * @param           clientId an id of the logged client or {@code 0}
+     * @param           failed whether the request has been answered with an error
+     * */
+    public static void commitDispatch(Object event, MessageStatus status, int clientId, boolean failed) {
+        if (event != null) {
+            RECORDER.commitDispatch(event, status, clientId, failed);
+        }
+    }
+
+    public static Object beginPersistence() {
+        return RECORDER.beginPersistence();
+    }
+
+    /**
+     * @param           event an event returned by {@code beginPersistence}
+     * @param           entity a kind of the saved entity ({@code "room"} or {@code "client"})
+     * @param           id an id of the saved entity
+     * @param           bytes the size of the written file
+     * */
+    public static void commitPersistence(Object event, String entity, int id, long bytes) {
+        if (event != null) {
+            RECORDER.commitPersistence(event, entity, id, bytes);
+        }
+    }
+
+    public static Object beginRoomLoad() {
+        return RECORDER.beginRoomLoad();
+    }
+
+    /**
+     * @param           event an event returned by {@code beginRoomLoad}
+     * @param           roomId an id of the loaded room
+     * @param           cached {@code true} if the room has been taken from memory instead of the disk
+     * */
+    public static void commitRoomLoad(Object event, int roomId, boolean cached) {
+        if (event != null) {
+            RECORDER.commitRoomLoad(event, roomId, cached);
+        }
+    }
+
+    public static Object beginFanout() {
+        return RECORDER.beginFanout();
+    }
+
+    /**
+     * @param           event an event returned by {@code beginFanout}
+     * @param           roomId an id of the room the message has been sent to
+     * @param           recipients the amount of the online members the message has been delivered to
+     * */
+    public static void commitFanout(Object event, int roomId, int recipients) {
+        if (event != null) {
+            RECORDER.commitFanout(event, roomId, recipients);
+        }
+    }
+
+    private static Recorder loadRecorder() {
+        try {
+            return (Recorder) Class.forName(JFR_RECORDER_CLASS).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return new NoopRecorder();
+        }
+    }
+
+    /**
+     *  The bridge to the flight recorder events. The {@code begin} methods return an opaque started event
+     * or {@code null} if the event is disabled, the {@code commit} methods are never called with {@code null}
+     * */
+    public interface Recorder {
+        Object beginDispatch();
+
+        void commitDispatch(Object event, MessageStatus status, int clientId, boolean failed);
+
+        Object beginPersistence();
+
+        void commitPersistence(Object event, String entity, int id, long bytes);
+
+        Object beginRoomLoad();
+
+        void commitRoomLoad(Object event, int roomId, boolean cached);
+
+        Object beginFanout();
+
+        void commitFanout(Object event, int roomId, int recipients);
+    }
+
+    private static final class NoopRecorder implements Recorder {
+        @Override
+        public Object beginDispatch() {
+            return null;
+        }
+
+        @Override
+        public void commitDispatch(Object event, MessageStatus status, int clientId, boolean failed) {
+        }
+
+        @Override
+        public Object beginPersistence() {
+            return null;
+        }
+
+        @Override
+        public void commitPersistence(Object event, String entity, int id, long bytes) {
+        }
+
+        @Override
+        public Object beginRoomLoad() {
+            return null;
+        }
+
+        @Override
+        public void commitRoomLoad(Object event, int roomId, boolean cached) {
+        }
+
+        @Override
+        public Object beginFanout() {
+            return null;
+        }
+
+        @Override
+        public void commitFanout(Object event, int roomId, int recipients) {
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package server.tracing;
+
+/**
+ *  The named timings a request trace consists of. The ordinals are stored in the trace files,
+ * so the new spans must be appended to the end.
+ *
+ *  The spans nest: {@code DISPATCH} contains {@code VALIDATION}, {@code PERSISTENCE} and {@code FANOUT},
+ * the latter contains the {@code ENCODE} and {@code FLUSH} of every recipient. A trace keeps the own time
+ * of every span only (see {@code Trace}), e.g. {@code DISPATCH} is the time of the handler itself.
+ * */
+public enum Span {
+    DECODE,
+    DISPATCH,
+    VALIDATION,
+    PERSISTENCE,
+    FANOUT,
+    ENCODE,
+    FLUSH
+}
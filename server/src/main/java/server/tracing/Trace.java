@@ -0,0 +1,67 @@
+package server.tracing;
+
+import java.util.Arrays;
+
+/**
+ *  The trace of the request being handled by the current thread. The instance is reused by the thread
+ * for all its requests, so timing a request does not allocate anything (unless it has more spans
+ * than any previous one).
+ *
+ *  A span is recorded when it ends, so the spans nested in it have been recorded before. The trace keeps
+ * the starts and the durations of the recorded spans that are not nested in another recorded one, the span being
+ * recorded takes the ones that have started after it and gets its duration without theirs.
+ * */
+final class Trace {
+    private final long [] spanNanos = new long[Span.values().length];
+    private long [] outerStarts = new long[16];
+    private long [] outerNanos = new long[16];
+    private int outerCount;
+    private long startTime;
+    private long startNanos;
+    private boolean active;
+
+    void reset() {
+        active = true;
+        for (int i = 0; i < spanNanos.length; i++) {
+            spanNanos[i] = 0;
+        }
+        outerCount = 0;
+        startTime = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * @param           span the span that has just ended
+     * @param           startNanos the {@code System.nanoTime()} the span has started at
+     * @param           endNanos the {@code System.nanoTime()} the span has ended at
+     * */
+    void add(Span span, long startNanos, long endNanos) {
+        long nestedNanos = 0;
+        while (outerCount > 0 && outerStarts[outerCount - 1] >= startNanos) {
+            nestedNanos += outerNanos[--outerCount];
+        }
+        spanNanos[span.ordinal()] += Math.max(0, endNanos - startNanos - nestedNanos);
+        if (outerCount == outerStarts.length) {
+            outerStarts = Arrays.copyOf(outerStarts, outerCount * 2);
+            outerNanos = Arrays.copyOf(outerNanos, outerCount * 2);
+        }
+        outerStarts[outerCount] = startNanos;
+        outerNanos[outerCount++] = endNanos - startNanos;
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    /**
+     * @return          the duration of the request
+     * */
+    long finish() {
+        active = false;
+        return System.nanoTime() - startNanos;
+    }
+
+    TraceRecord toRecord(String status, int clientId, long totalNanos) {
+        return new TraceRecord(startTime, status, clientId, totalNanos, spanNanos.clone());
+    }
+}
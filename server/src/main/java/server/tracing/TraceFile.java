@@ -0,0 +1,183 @@
+package server.tracing;
+
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The {@code TraceFile} appends the finished traces to the binary trace file by a background thread.
+ * When the file exceeds the {@code maxSize} it is renamed to {@code <name>.1} (the previous {@code <name>.1}
+ * becomes {@code <name>.2} and so on), at most {@code backups} renamed files are kept.
+ *
+ *  The file starts with the {@code MAGIC} number and the format version followed by the records
+ * (see {@code TraceRecord.writeTo}).
+ * */
+final class TraceFile extends Thread {
+    private static final int MAGIC = 0x4D545243;
+    private static final int VERSION = 1;
+    private static final int QUEUE_CAPACITY = 4096;
+    private final File file;
+    private final long maxSize;
+    private final int backups;
+    private final Logger logger;
+    private final BlockingQueue<TraceRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private DataOutputStream out;
+    private long size;
+
+    TraceFile(@NotNull File file, long maxSize, int backups, @NotNull Logger logger) {
+        super("TraceFile");
+        setDaemon(true);
+        this.file = file;
+        this.maxSize = maxSize;
+        this.backups = Math.max(0, backups);
+        this.logger = logger;
+    }
+
+    /**
+     * @return          {@code false} if the record has been dropped since the writer is behind
+     * */
+    boolean offer(TraceRecord record) {
+        return queue.offer(record);
+    }
+
+    @Override
+    public void run() {
+        try {
+            open();
+            while (!isInterrupted()) {
+                TraceRecord record;
+                try {
+                    record = queue.take();
+                } catch (InterruptedException e) {
+                    break;
+                }
+                write(record);
+                while ((record = queue.poll()) != null) {
+                    write(record);
+                }
+                out.flush();
+            }
+            TraceRecord record;
+            while ((record = queue.poll()) != null) {
+                write(record);
+            }
+        } catch (IOException e) {
+            logger.error(buildMessage("Unable to write the trace file", file.getAbsolutePath(), ':'
+                    , e.getLocalizedMessage()));
+        } finally {
+            close();
+        }
+    }
+
+    private void open() throws IOException {
+        size = file.isFile() ? file.length() : 0;
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        if (size == 0) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            size = out.size();
+        }
+    }
+
+    private void write(TraceRecord record) throws IOException {
+        int before = out.size();
+        record.writeTo(out);
+        size += out.size() - before;
+        if (size >= maxSize) {
+            rotate();
+        }
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        if (backups == 0) {
+            if (!file.delete()) {
+                throw new IOException(buildMessage("Unable to delete", file.getAbsolutePath()));
+            }
+        } else {
+            File oldest = backup(file, backups);
+            if (oldest.isFile() && !oldest.delete()) {
+                throw new IOException(buildMessage("Unable to delete", oldest.getAbsolutePath()));
+            }
+            for (int i = backups - 1; i >= 1; i--) {
+                File backup = backup(file, i);
+                if (backup.isFile() && !backup.renameTo(backup(file, i + 1))) {
+                    throw new IOException(buildMessage("Unable to rename", backup.getAbsolutePath()));
+                }
+            }
+            if (!file.renameTo(backup(file, 1))) {
+                throw new IOException(buildMessage("Unable to rename", file.getAbsolutePath()));
+            }
+        }
+        open();
+    }
+
+    private void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                logger.error(e.getLocalizedMessage());
+            }
+        }
+    }
+
+    private static File backup(File file, int index) {
+        return new File(file.getParentFile(), file.getName().concat(".").concat(String.valueOf(index)));
+    }
+
+    /**
+     *  Reads the trace file and its backups
+     *
+     * @param           file the trace file
+     * @param           limit the amount of the records to be returned
+     *
+     * @return          the slowest records, the slowest one goes first
+     *
+     * @throws          IOException if the file is not a trace file or it can not be read
+     * */
+    static List<TraceRecord> readSlowest(@NotNull File file, int limit) throws IOException {
+        PriorityQueue<TraceRecord> slowest = new PriorityQueue<>(
+                Comparator.comparingLong(TraceRecord::getTotalNanos));
+        List<File> files = new ArrayList<>();
+        files.add(file);
+        for (int i = 1; backup(file, i).isFile(); i++) {
+            files.add(backup(file, i));
+        }
+        for (File traceFile : files) {
+            if (!traceFile.isFile()) {
+                continue;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(traceFile)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IOException(buildMessage(traceFile.getAbsolutePath(), "is not a trace file"));
+                }
+                while (true) {
+                    TraceRecord record;
+                    try {
+                        record = TraceRecord.readFrom(in);
+                    } catch (EOFException e) {
+                        // the last record might have been written partially
+                        break;
+                    }
+                    slowest.add(record);
+                    if (slowest.size() > limit) {
+                        slowest.poll();
+                    }
+                }
+            }
+        }
+        List<TraceRecord> result = new ArrayList<>(slowest);
+        result.sort(Comparator.comparingLong(TraceRecord::getTotalNanos).reversed());
+        return result;
+    }
+}
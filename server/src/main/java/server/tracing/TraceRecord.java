@@ -0,0 +1,91 @@
+package server.tracing;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  A finished request trace as it is stored in the trace file: the start moment, the request status,
+ * the client id (0 if the client has not logged in), the total duration and the durations of the spans
+ * (a span that has happened several times during the request e.g. {@code ENCODE} is summed up).
+ * */
+final class TraceRecord {
+    private final long startTime;
+    private final String status;
+    private final int clientId;
+    private final long totalNanos;
+    private final long [] spanNanos;
+
+    TraceRecord(long startTime, String status, int clientId, long totalNanos, long [] spanNanos) {
+        this.startTime = startTime;
+        this.status = status;
+        this.clientId = clientId;
+        this.totalNanos = totalNanos;
+        this.spanNanos = spanNanos;
+    }
+
+    long getTotalNanos() {
+        return totalNanos;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(startTime);
+        out.writeUTF(status);
+        out.writeInt(clientId);
+        out.writeLong(totalNanos);
+        int spans = 0;
+        for (long nanos : spanNanos) {
+            if (nanos != 0) {
+                spans++;
+            }
+        }
+        out.writeByte(spans);
+        for (int i = 0; i < spanNanos.length; i++) {
+            if (spanNanos[i] != 0) {
+                out.writeByte(i);
+                out.writeLong(spanNanos[i]);
+            }
+        }
+    }
+
+    static TraceRecord readFrom(DataInputStream in) throws IOException {
+        long startTime = in.readLong();
+        String status = in.readUTF();
+        int clientId = in.readInt();
+        long totalNanos = in.readLong();
+        long [] spanNanos = new long[Span.values().length];
+        int spans = in.readUnsignedByte();
+        for (int i = 0; i < spans; i++) {
+            int span = in.readUnsignedByte();
+            long nanos = in.readLong();
+            if (span < spanNanos.length) {
+                spanNanos[span] = nanos;
+            }
+        }
+        return new TraceRecord(startTime, status, clientId, totalNanos, spanNanos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder()
+                .append(LocalDateTime.ofInstant(Instant.ofEpochMilli(startTime), ZoneId.systemDefault()))
+                .append(' ').append(status)
+                .append(clientId == 0 ? "" : " client ".concat(String.valueOf(clientId)))
+                .append(" total ").append(toMillis(totalNanos)).append(" ms:");
+        for (Span span : Span.values()) {
+            if (spanNanos[span.ordinal()] != 0) {
+                result.append(' ').append(span.name().toLowerCase()).append(' ')
+                        .append(toMillis(spanNanos[span.ordinal()]));
+            }
+        }
+        return result.toString();
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
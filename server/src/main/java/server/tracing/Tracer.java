@@ -0,0 +1,167 @@
+package server.tracing;
+
+import common.entities.message.MessageStatus;
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import server.processing.PropertiesProcessing;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static common.Utils.buildMessage;
+
+/**
+ *  The class {@code Tracer} times the requests handled by the {@code ClientListener} threads. Every request
+ * is split into the named spans (see {@code Span}) measured by the code that performs them:
+ *
+ *      long start = System.nanoTime();
+ *      ...
+ *      Tracer.record(Span.PERSISTENCE, start);
+ *
+ *  A span is recorded only if the current thread is handling a request, i.e. the calls made by other threads
+ * cost a single check. The spans may be nested (e.g. the {@code Span.ENCODE} of every recipient is a part
+ * of the {@code Span.FANOUT}), every span gets only its own time i.e. the time of the spans nested in it is
+ * subtracted, so the spans of a trace sum up to no more than its total. Timing a request does not allocate
+ * anything, the trace is copied only if it is written: every {@code requestTraceRate}-th request is written
+ * as well as every request that has lasted longer than {@code requestTraceSlowThreshold} (milliseconds).
+ * The traces are written to the {@code requestTraceFile} of the {@code logsDir} (see {@code TraceFile}),
+ * the slowest ones are printed by the {@code -traces} command.
+ * */
+public final class Tracer {
+    private static final long DEFAULT_TRACE_RATE = 100;
+    private static final long DEFAULT_SLOW_THRESHOLD = 1000;
+    private static final long DEFAULT_FILE_SIZE = 10 * 1024 * 1024;
+    private static final long DEFAULT_FILE_COUNT = 5;
+    private static final ThreadLocal<Trace> TRACES = ThreadLocal.withInitial(Trace::new);
+    private static volatile Logger LOGGER = Logger.getLogger("Server");
+    private static volatile boolean enabled;
+    private static volatile long traceRate;
+    private static volatile long slowThresholdNanos;
+    private static volatile TraceFile traceFile;
+    private static final AtomicLong requests = new AtomicLong();
+
+    private Tracer() {
+    }
+
+    public static void setLogger(Logger logger) {
+        LOGGER = logger;
+    }
+
+    /**
+     *  Applies the tracing configurations and (re)opens the trace file
+     *
+     * @param           config the server configurations
+     * */
+    public static synchronized void configure(@NotNull Properties config) {
+        stop();
+        traceRate = PropertiesProcessing.getLongProperty(config, "requestTraceRate", DEFAULT_TRACE_RATE);
+        slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(PropertiesProcessing.getLongProperty(config
+                , "requestTraceSlowThreshold", DEFAULT_SLOW_THRESHOLD));
+        if (traceRate <= 0 && slowThresholdNanos <= 0) {
+            return;
+        }
+        traceFile = new TraceFile(getTraceFile(config)
+                , PropertiesProcessing.getLongProperty(config, "requestTraceFileSize", DEFAULT_FILE_SIZE)
+                , (int) PropertiesProcessing.getLongProperty(config, "requestTraceFileCount", DEFAULT_FILE_COUNT) - 1
+                , LOGGER);
+        traceFile.start();
+        enabled = true;
+    }
+
+    /**
+     *  Stops tracing and waits for the trace file writer to close the file, so the file may be reopened at once
+     * */
+    public static synchronized void stop() {
+        enabled = false;
+        if (traceFile != null) {
+            traceFile.interrupt();
+            try {
+                traceFile.join();
+            } catch (InterruptedException e) {
+                LOGGER.warn("Interrupted while waiting for the trace file to be closed");
+                Thread.currentThread().interrupt();
+            }
+            traceFile = null;
+        }
+    }
+
+    static File getTraceFile(Properties config) {
+        return new File(config.getProperty("logsDir"), config.getProperty("requestTraceFile", "traces.bin"));
+    }
+
+    /**
+     *  Starts timing the request the current thread has just received
+     * */
+    public static void begin() {
+        if (!enabled) {
+            return;
+        }
+        TRACES.get().reset();
+    }
+
+    /**
+     *  Adds the time passed since the {@code startNanos} to the span of the request handled by the current thread
+     *
+     * @param           span a span the time has been spent on
+     * @param           startNanos a value of {@code System.nanoTime()} taken at the beginning of the span
+     * */
+    public static void record(@NotNull Span span, long startNanos) {
+        if (enabled) {
+            Trace trace = TRACES.get();
+            if (trace.isActive()) {
+                trace.add(span, startNanos, System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     *  Finishes the request of the current thread and writes its trace if it has been sampled or is slow
+     *
+     * @param           status the status of the request
+     * @param           clientId the id of the client or {@code 0} if he/she has not logged in
+     * */
+    public static void finish(MessageStatus status, int clientId) {
+        if (!enabled) {
+            return;
+        }
+        Trace trace = TRACES.get();
+        if (!trace.isActive()) {
+            return;
+        }
+        long totalNanos = trace.finish();
+        TraceFile traceFile = Tracer.traceFile;
+        if (traceFile == null) {
+            return;
+        }
+        boolean sampled = traceRate > 0 && requests.incrementAndGet() % traceRate == 0;
+        if (sampled || slowThresholdNanos > 0 && totalNanos >= slowThresholdNanos) {
+            if (!traceFile.offer(trace.toRecord(String.valueOf(status), clientId, totalNanos))) {
+                LOGGER.trace("The request trace has been dropped: the trace file writer is behind");
+            }
+        }
+    }
+
+    /**
+     *  Prints the slowest requests of the trace file denoted by the configurations
+     *
+     * @param           config the server configurations
+     * @param           limit the amount of the requests to be printed
+     * */
+    public static void printSlowest(@NotNull Properties config, int limit) {
+        File file = getTraceFile(config);
+        try {
+            List<TraceRecord> records = TraceFile.readSlowest(file, limit);
+            LOGGER.info(buildMessage("The slowest", records.size(), "requests of", file.getAbsolutePath()));
+            for (TraceRecord record : records) {
+                LOGGER.info(record.toString());
+            }
+        } catch (IOException e) {
+            LOGGER.error(buildMessage("Unable to read the trace file", file.getAbsolutePath(), ':'
+                    , e.getLocalizedMessage()));
+        }
+    }
+}
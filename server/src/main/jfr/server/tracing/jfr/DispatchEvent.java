@@ -0,0 +1,27 @@
+package server.tracing.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ *  A request handled by a {@code server.client.RequestHandler}
+ * */
+@Name("messenger.Dispatch")
+@Label("Request Dispatch")
+@Category({"Messenger", "Requests"})
+@Description("Handling of a client request by its request handler")
+@StackTrace(false)
+class DispatchEvent extends Event {
+    @Label("Status")
+    String status;
+
+    @Label("Client Id")
+    int clientId;
+
+    @Label("Failed")
+    boolean failed;
+}
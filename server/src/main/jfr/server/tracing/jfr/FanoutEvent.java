@@ -0,0 +1,24 @@
+package server.tracing.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ *  A new message delivered to the online members of a room
+ * */
+@Name("messenger.Fanout")
+@Label("Message Fanout")
+@Category({"Messenger", "Requests"})
+@Description("Delivery of a new message to the online members of a room")
+@StackTrace(false)
+class FanoutEvent extends Event {
+    @Label("Room Id")
+    int roomId;
+
+    @Label("Recipients")
+    int recipients;
+}
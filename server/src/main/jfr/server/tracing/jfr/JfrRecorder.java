@@ -0,0 +1,101 @@
+package server.tracing.jfr;
+
+import common.entities.message.MessageStatus;
+import server.tracing.FlightEvents;
+
+/**
+ *  The {@code FlightEvents.Recorder} implementation backed by the {@code jdk.jfr} events. It is loaded
+ * reflectively by {@code FlightEvents}, so the rest of the server does not depend on JDK 11.
+ * An event is allocated only if its type is enabled in the running recording.
+ * */
+public class JfrRecorder implements FlightEvents.Recorder {
+
+    public JfrRecorder() {
+    }
+
+    @Override
+    public Object beginDispatch() {
+        DispatchEvent event = new DispatchEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitDispatch(Object event, MessageStatus status, int clientId, boolean failed) {
+        DispatchEvent dispatchEvent = (DispatchEvent) event;
+        dispatchEvent.end();
+        if (dispatchEvent.shouldCommit()) {
+            dispatchEvent.status = status == null ? null : status.name();
+            dispatchEvent.clientId = clientId;
+            dispatchEvent.failed = failed;
+            dispatchEvent.commit();
+        }
+    }
+
+    @Override
+    public Object beginPersistence() {
+        PersistenceEvent event = new PersistenceEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitPersistence(Object event, String entity, int id, long bytes) {
+        PersistenceEvent persistenceEvent = (PersistenceEvent) event;
+        persistenceEvent.end();
+        if (persistenceEvent.shouldCommit()) {
+            persistenceEvent.entity = entity;
+            persistenceEvent.id = id;
+            persistenceEvent.bytes = bytes;
+            persistenceEvent.commit();
+        }
+    }
+
+    @Override
+    public Object beginRoomLoad() {
+        RoomLoadEvent event = new RoomLoadEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitRoomLoad(Object event, int roomId, boolean cached) {
+        RoomLoadEvent roomLoadEvent = (RoomLoadEvent) event;
+        roomLoadEvent.end();
+        if (roomLoadEvent.shouldCommit()) {
+            roomLoadEvent.roomId = roomId;
+            roomLoadEvent.cached = cached;
+            roomLoadEvent.commit();
+        }
+    }
+
+    @Override
+    public Object beginFanout() {
+        FanoutEvent event = new FanoutEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitFanout(Object event, int roomId, int recipients) {
+        FanoutEvent fanoutEvent = (FanoutEvent) event;
+        fanoutEvent.end();
+        if (fanoutEvent.shouldCommit()) {
+            fanoutEvent.roomId = roomId;
+            fanoutEvent.recipients = recipients;
+            fanoutEvent.commit();
+        }
+    }
+}
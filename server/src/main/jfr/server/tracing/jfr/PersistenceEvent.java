@@ -0,0 +1,29 @@
+package server.tracing.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ *  A room or a client saved to the disk
+ * */
+@Name("messenger.Persistence")
+@Label("Entity Save")
+@Category({"Messenger", "Persistence"})
+@Description("Marshalling and atomic writing of a room or a client file")
+@StackTrace(false)
+class PersistenceEvent extends Event {
+    @Label("Entity")
+    String entity;
+
+    @Label("Id")
+    int id;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytes;
+}
@@ -0,0 +1,25 @@
+package server.tracing.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ *  A room put into the server online rooms
+ * */
+@Name("messenger.RoomLoad")
+@Label("Room Load")
+@Category({"Messenger", "Persistence"})
+@Description("Loading of a room into the server online rooms, either from the disk or from memory")
+@StackTrace(false)
+class RoomLoadEvent extends Event {
+    @Label("Room Id")
+    int roomId;
+
+    @Label("Cached")
+    @Description("The room has been taken from memory instead of the disk")
+    boolean cached;
+}